@@ -1,3 +1,18 @@
+import com.ibm.icu.lang.UCharacter
+import com.ibm.icu.lang.UProperty
+import groovy.json.JsonSlurper
+import java.io.DataOutputStream
+
+buildscript {
+    repositories {
+        mavenCentral()
+    }
+    dependencies {
+        // Unicode emoji properties for GenerateEmojiTableTask
+        classpath("com.ibm.icu:icu4j:74.2")
+    }
+}
+
 plugins {
     alias(libs.plugins.android.application)
     alias(libs.plugins.jetbrains.kotlin.android)
@@ -87,6 +102,11 @@ android {
         targetCompatibility = JavaVersion.VERSION_17
     }
 
+    // Robolectric tests (e.g. the configuration round trip) need real SharedPreferences and org.json
+    testOptions {
+        unitTests.isIncludeAndroidResources = true
+    }
+
                 buildFeatures {
                 viewBinding = true
                 buildConfig = true  // Enable BuildConfig generation
@@ -140,6 +160,10 @@ dependencies {
     add("playImplementation", "com.android.billingclient:billing-ktx:8.1.0")
 
     testImplementation(libs.junit)
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
+    testImplementation("org.robolectric:robolectric:4.14.1")
+    // Same ICU as the emoji table build task, for the generated table parity test
+    testImplementation("com.ibm.icu:icu4j:74.2")
     androidTestImplementation(libs.androidx.junit)
     androidTestImplementation(libs.androidx.espresso.core)
     implementation("com.github.bumptech.glide:glide:4.16.0")
@@ -149,4 +173,228 @@ dependencies {
 
 aboutLibraries {
     excludeFields = arrayOf("generated")
-}
\ No newline at end of file
+}
+
+/**
+ * Writes app_list.idx, the binary search index AppListManager reads instead of parsing
+ * app_list.json at runtime. The layout is documented on AppListIndex, whose fromApps()
+ * builds the same structure in memory; keep the two in sync and bump the version on change.
+ */
+abstract class GenerateAppListIndexTask : DefaultTask() {
+    @get:InputFile
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val catalog: RegularFileProperty
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    @TaskAction
+    fun generate() {
+        @Suppress("UNCHECKED_CAST")
+        val apps = JsonSlurper().parse(catalog.get().asFile) as List<Map<String, Any?>>
+        val searchTexts = apps.map { app ->
+            val fields = listOf(app["displayName"], app["packageName"], app["category"]) +
+                (app["aliases"] as? List<*> ?: emptyList<Any?>())
+            fields.joinToString("\n") { it?.toString().orEmpty().lowercase() }
+        }
+
+        var tableSize = 1
+        while (tableSize < apps.size * 2) tableSize = tableSize shl 1
+        val packageTable = IntArray(tableSize)
+        apps.forEachIndexed { index, app ->
+            var slot = app["packageName"].toString().lowercase().hashCode() and (tableSize - 1)
+            while (packageTable[slot] != 0) slot = (slot + 1) and (tableSize - 1)
+            packageTable[slot] = index + 1
+        }
+
+        val postings = sortedMapOf<String, MutableList<Int>>()
+        searchTexts.forEachIndexed { index, text ->
+            val grams = LinkedHashSet<String>()
+            for (field in text.split('\n')) {
+                for (i in 0..field.length - 3) grams.add(field.substring(i, i + 3))
+            }
+            grams.forEach { postings.getOrPut(it) { mutableListOf() }.add(index) }
+        }
+
+        val outFile = outputDir.get().file("app_list.idx").asFile
+        outFile.parentFile.mkdirs()
+        DataOutputStream(outFile.outputStream().buffered()).use { out ->
+            out.writeInt(0x5354414C) // "STAL"
+            out.writeInt(1)
+            out.writeInt(apps.size)
+            for (app in apps) {
+                out.writeUTF(app["displayName"].toString())
+                out.writeUTF(app["packageName"].toString())
+                out.writeUTF(app["category"]?.toString().orEmpty())
+                val iconSlug = app["iconSlug"] as? String
+                out.writeBoolean(iconSlug != null)
+                if (iconSlug != null) out.writeUTF(iconSlug)
+                val aliases = app["aliases"] as? List<*> ?: emptyList<Any?>()
+                out.writeShort(aliases.size)
+                aliases.forEach { out.writeUTF(it.toString()) }
+            }
+            searchTexts.forEach { out.writeUTF(it) }
+            out.writeInt(tableSize)
+            packageTable.forEach { out.writeInt(it) }
+            out.writeInt(postings.size)
+            for ((gram, list) in postings) {
+                out.writeUTF(gram)
+                out.writeInt(list.size)
+                list.forEach { out.writeInt(it) }
+            }
+        }
+        logger.lifecycle("app_list.idx: ${apps.size} apps, ${postings.size} trigrams, ${outFile.length()} bytes")
+    }
+}
+
+/**
+ * Writes public_suffix.trie, the label trie PublicSuffixTrie walks to find registrable domains,
+ * from the rules in public_suffix_list.dat. The layout is documented on PublicSuffixTrie, whose
+ * fromRules() builds the same structure in memory; keep the two in sync and bump the version on change.
+ */
+abstract class GeneratePublicSuffixTrieTask : DefaultTask() {
+    @get:InputFile
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val rules: RegularFileProperty
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    private class Node(val label: String) {
+        var flags = 0
+        val children = sortedMapOf<String, Node>()
+    }
+
+    @TaskAction
+    fun generate() {
+        val root = Node("")
+        var ruleCount = 0
+        rules.get().asFile.forEachLine { line ->
+            val rule = line.trim().substringBefore(' ').lowercase()
+            if (rule.isEmpty() || rule.startsWith("//")) return@forEachLine
+            val exception = rule.startsWith("!")
+            var node = root
+            for (label in rule.removePrefix("!").split('.').asReversed()) {
+                node = node.children.getOrPut(label) { Node(label) }
+            }
+            node.flags = node.flags or if (exception) 2 else 1
+            ruleCount++
+        }
+
+        // Breadth-first, so every node's children sit next to each other in label order
+        val order = mutableListOf(root)
+        var i = 0
+        while (i < order.size) order.addAll(order[i++].children.values)
+        val firstChild = HashMap<Node, Int>()
+        var next = 1
+        for (node in order) {
+            firstChild[node] = next
+            next += node.children.size
+        }
+
+        val outFile = outputDir.get().file("public_suffix.trie").asFile
+        outFile.parentFile.mkdirs()
+        DataOutputStream(outFile.outputStream().buffered()).use { out ->
+            out.writeInt(0x53545053) // "STPS"
+            out.writeInt(1)
+            out.writeInt(order.size)
+            for (node in order) {
+                out.writeUTF(node.label)
+                out.writeByte(node.flags)
+                out.writeInt(firstChild.getValue(node))
+                out.writeShort(node.children.size)
+            }
+        }
+        logger.lifecycle("public_suffix.trie: $ruleCount rules, ${order.size} nodes, ${outFile.length()} bytes")
+    }
+}
+
+/**
+ * Writes emoji_classes.bin, the two-level code point table EmojiTable reads instead of asking ICU
+ * for emoji properties at runtime, from the ICU4J build dependency. The layout and class codes are
+ * documented on EmojiTable, whose fromClassifier() builds the same structure in memory; keep the
+ * two in sync and bump the version on change.
+ */
+abstract class GenerateEmojiTableTask : DefaultTask() {
+    @get:Input
+    abstract val unicodeVersion: Property<String>
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    private fun classOf(codePoint: Int): Int = when {
+        codePoint == 0x200D -> 4 // JOINER
+        codePoint == 0xFE0E || codePoint == 0xFE0F -> 5 // VARIATION_SELECTOR
+        codePoint == 0x20E3 -> 6 // KEYCAP
+        codePoint in 0xE0020..0xE007F -> 7 // TAG
+        UCharacter.hasBinaryProperty(codePoint, UProperty.REGIONAL_INDICATOR) -> 3
+        UCharacter.hasBinaryProperty(codePoint, UProperty.EMOJI_MODIFIER) -> 2
+        UCharacter.hasBinaryProperty(codePoint, UProperty.EXTENDED_PICTOGRAPHIC) ||
+            UCharacter.hasBinaryProperty(codePoint, UProperty.EMOJI_PRESENTATION) ||
+            UCharacter.hasBinaryProperty(codePoint, UProperty.EMOJI_MODIFIER_BASE) -> 1 // PICTOGRAPHIC
+        else -> 0
+    }
+
+    @TaskAction
+    fun generate() {
+        val blockCount = 0x110000 shr 8
+        val index = ByteArray(blockCount)
+        // Leaf 0 is the all-zero block shared by almost every block
+        val leaves = mutableListOf(ByteArray(256))
+        val leafIds = hashMapOf(leaves[0].toList() to 0)
+        var emojiCodePoints = 0
+        for (block in 0 until blockCount) {
+            val leaf = ByteArray(256) { classOf((block shl 8) or it).toByte() }
+            emojiCodePoints += leaf.count { it.toInt() != 0 }
+            val id = leafIds.getOrPut(leaf.toList()) {
+                leaves.add(leaf)
+                leaves.size - 1
+            }
+            check(id < 256) { "Too many distinct emoji blocks for a byte index" }
+            index[block] = id.toByte()
+        }
+
+        val outFile = outputDir.get().file("emoji_classes.bin").asFile
+        outFile.parentFile.mkdirs()
+        DataOutputStream(outFile.outputStream().buffered()).use { out ->
+            out.writeInt(0x5354454D) // "STEM"
+            out.writeInt(1)
+            out.writeUTF(unicodeVersion.get())
+            out.writeInt(blockCount)
+            out.write(index)
+            out.writeInt(leaves.size)
+            leaves.forEach { out.write(it) }
+        }
+        logger.lifecycle(
+            "emoji_classes.bin: Unicode ${unicodeVersion.get()}, $emojiCodePoints code points, " +
+                "${leaves.size} blocks, ${outFile.length()} bytes"
+        )
+    }
+}
+
+androidComponents {
+    onVariants { variant ->
+        val taskName = "generate${variant.name.replaceFirstChar { it.uppercase() }}AppListIndex"
+        val indexTask = tasks.register<GenerateAppListIndexTask>(taskName) {
+            catalog.set(layout.projectDirectory.file("src/main/assets/app_list.json"))
+            outputDir.set(layout.buildDirectory.dir("generated/appListIndex/${variant.name}"))
+        }
+        variant.sources.assets?.addGeneratedSourceDirectory(indexTask, GenerateAppListIndexTask::outputDir)
+
+        val trieTask = tasks.register<GeneratePublicSuffixTrieTask>(
+            "generate${variant.name.replaceFirstChar { it.uppercase() }}PublicSuffixTrie"
+        ) {
+            rules.set(layout.projectDirectory.file("src/main/publicsuffix/public_suffix_list.dat"))
+            outputDir.set(layout.buildDirectory.dir("generated/publicSuffixTrie/${variant.name}"))
+        }
+        variant.sources.assets?.addGeneratedSourceDirectory(trieTask, GeneratePublicSuffixTrieTask::outputDir)
+
+        val emojiTask = tasks.register<GenerateEmojiTableTask>(
+            "generate${variant.name.replaceFirstChar { it.uppercase() }}EmojiTable"
+        ) {
+            unicodeVersion.set(UCharacter.getUnicodeVersion().toString())
+            outputDir.set(layout.buildDirectory.dir("generated/emojiTable/${variant.name}"))
+        }
+        variant.sources.assets?.addGeneratedSourceDirectory(emojiTask, GenerateEmojiTableTask::outputDir)
+    }
+}
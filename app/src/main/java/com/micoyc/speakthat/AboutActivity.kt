@@ -214,6 +214,7 @@ class AboutActivity : AppCompatActivity() {
             StatisticsManager.FILTER_DEDUPLICATION -> getString(R.string.statistics_filter_reason_deduplication)
             StatisticsManager.FILTER_DISMISSAL_MEMORY -> getString(R.string.statistics_filter_reason_dismissal_memory)
             StatisticsManager.FILTER_GROUP_SUMMARY -> getString(R.string.statistics_filter_reason_group_summary)
+            StatisticsManager.FILTER_NO_NEW_MESSAGES -> getString(R.string.statistics_filter_reason_no_new_messages)
             StatisticsManager.FILTER_SELF_PACKAGE -> getString(R.string.statistics_filter_reason_self_package)
             else -> reason
         }
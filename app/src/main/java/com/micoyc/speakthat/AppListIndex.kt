@@ -0,0 +1,194 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+import java.io.DataInputStream
+import java.io.IOException
+import java.io.InputStream
+
+/**
+ * Search index over the bundled app catalogue.
+ *
+ * Normally decoded from `app_list.idx`, which the `generateAppListIndex` build task writes from
+ * `app_list.json` (see app/build.gradle.kts for the writer). Layout, big-endian:
+ *
+ * ```
+ * int magic "STAL", int version
+ * int appCount
+ * appCount x { utf displayName, utf packageName, utf category, bool hasIconSlug, [utf iconSlug],
+ *              short aliasCount, aliasCount x utf alias }
+ * appCount x utf searchText            // lowercased display/package/category/aliases joined by '\n'
+ * int tableSize, tableSize x int slot  // open-addressed package hash table, slot = appIndex + 1
+ * int gramCount, gramCount x { utf trigram, int postingCount, postingCount x int appIndex }
+ * ```
+ *
+ * [fromApps] builds the same structure in memory and is used when the asset is unavailable.
+ */
+class AppListIndex private constructor(
+    val apps: List<AppListData>,
+    private val searchTexts: Array<String>,
+    private val packageTable: IntArray,
+    private val trigrams: Map<String, IntArray>
+) {
+    companion object {
+        const val MAGIC = 0x5354414C // "STAL"
+        const val VERSION = 1
+        const val GRAM_LENGTH = 3
+        private const val FIELD_SEPARATOR = '\n'
+
+        @Throws(IOException::class)
+        fun read(input: InputStream): AppListIndex {
+            val data = DataInputStream(input.buffered())
+            if (data.readInt() != MAGIC) throw IOException("Not an app list index")
+            val version = data.readInt()
+            if (version != VERSION) throw IOException("Unsupported app list index version $version")
+
+            val count = data.readInt()
+            val apps = ArrayList<AppListData>(count)
+            repeat(count) {
+                val displayName = data.readUTF()
+                val packageName = data.readUTF()
+                val category = data.readUTF()
+                val iconSlug = if (data.readBoolean()) data.readUTF() else null
+                val aliasCount = data.readShort().toInt()
+                val aliases = ArrayList<String>(aliasCount)
+                repeat(aliasCount) { aliases.add(data.readUTF()) }
+                apps.add(AppListData(displayName, packageName, category, aliases, iconSlug))
+            }
+            val searchTexts = Array(count) { data.readUTF() }
+
+            val tableSize = data.readInt()
+            val packageTable = IntArray(tableSize) { data.readInt() }
+
+            val gramCount = data.readInt()
+            val trigrams = HashMap<String, IntArray>(gramCount * 2)
+            repeat(gramCount) {
+                val gram = data.readUTF()
+                val postingCount = data.readInt()
+                trigrams[gram] = IntArray(postingCount) { data.readInt() }
+            }
+            return AppListIndex(apps, searchTexts, packageTable, trigrams)
+        }
+
+        fun fromApps(apps: List<AppListData>): AppListIndex {
+            val searchTexts = Array(apps.size) { searchTextFor(apps[it]) }
+
+            var tableSize = 1
+            while (tableSize < apps.size * 2) tableSize = tableSize shl 1
+            val packageTable = IntArray(tableSize)
+            apps.forEachIndexed { index, app ->
+                var slot = app.packageName.lowercase().hashCode() and (tableSize - 1)
+                while (packageTable[slot] != 0) slot = (slot + 1) and (tableSize - 1)
+                packageTable[slot] = index + 1
+            }
+
+            val postings = HashMap<String, MutableList<Int>>()
+            searchTexts.forEachIndexed { index, text ->
+                for (gram in gramsOf(text)) {
+                    val list = postings.getOrPut(gram) { ArrayList() }
+                    if (list.isEmpty() || list[list.size - 1] != index) list.add(index)
+                }
+            }
+            val trigrams = postings.mapValues { it.value.toIntArray() }
+            return AppListIndex(apps, searchTexts, packageTable, trigrams)
+        }
+
+        /** Must match the build-time writer. */
+        fun searchTextFor(app: AppListData): String {
+            return buildString {
+                append(app.displayName.lowercase()).append(FIELD_SEPARATOR)
+                append(app.packageName.lowercase()).append(FIELD_SEPARATOR)
+                append(app.category.lowercase())
+                for (alias in app.aliases) {
+                    append(FIELD_SEPARATOR).append(alias.lowercase())
+                }
+            }
+        }
+
+        /** Distinct trigrams of each field; grams never span a field separator. */
+        fun gramsOf(text: String): Set<String> {
+            val grams = LinkedHashSet<String>()
+            for (field in text.split(FIELD_SEPARATOR)) {
+                for (i in 0..field.length - GRAM_LENGTH) {
+                    grams.add(field.substring(i, i + GRAM_LENGTH))
+                }
+            }
+            return grams
+        }
+    }
+
+    val size: Int get() = apps.size
+
+    /**
+     * Same matches, in the same catalogue order, as filtering with [AppListData.matchesQuery].
+     * Queries of three or more characters are narrowed by trigram postings before verifying.
+     */
+    fun search(query: String): List<AppListData> {
+        val needle = query.lowercase().trim()
+        if (needle.isEmpty()) return apps
+        if (needle.contains(FIELD_SEPARATOR)) return emptyList()
+
+        val results = ArrayList<AppListData>()
+        if (needle.length < GRAM_LENGTH) {
+            for (i in searchTexts.indices) {
+                if (searchTexts[i].contains(needle)) results.add(apps[i])
+            }
+            return results
+        }
+
+        val candidates = candidatesFor(needle) ?: return results
+        for (index in candidates) {
+            if (searchTexts[index].contains(needle)) results.add(apps[index])
+        }
+        return results
+    }
+
+    fun findByPackage(packageName: String): AppListData? {
+        if (packageTable.isEmpty()) return null
+        val lower = packageName.lowercase()
+        val mask = packageTable.size - 1
+        var slot = lower.hashCode() and mask
+        while (true) {
+            val entry = packageTable[slot]
+            if (entry == 0) return null
+            val app = apps[entry - 1]
+            if (app.packageName.equals(packageName, ignoreCase = true)) return app
+            slot = (slot + 1) and mask
+        }
+    }
+
+    /** Intersection of the postings for every trigram in [needle], smallest list first. */
+    private fun candidatesFor(needle: String): IntArray? {
+        val lists = ArrayList<IntArray>()
+        for (i in 0..needle.length - GRAM_LENGTH) {
+            lists.add(trigrams[needle.substring(i, i + GRAM_LENGTH)] ?: return null)
+        }
+        lists.sortBy { it.size }
+        var current = lists[0]
+        for (k in 1 until lists.size) {
+            current = intersect(current, lists[k])
+            if (current.isEmpty()) return null
+        }
+        return current
+    }
+
+    private fun intersect(a: IntArray, b: IntArray): IntArray {
+        val out = IntArray(minOf(a.size, b.size))
+        var i = 0
+        var j = 0
+        var n = 0
+        while (i < a.size && j < b.size) {
+            when {
+                a[i] < b[j] -> i++
+                a[i] > b[j] -> j++
+                else -> { out[n++] = a[i]; i++; j++ }
+            }
+        }
+        return out.copyOf(n)
+    }
+}
@@ -13,38 +13,53 @@ import com.google.gson.Gson
 import com.google.gson.reflect.TypeToken
 
 /**
- * Manager class for loading and searching the app list from JSON
+ * Manager class for loading and searching the bundled app list.
+ *
+ * Reads the prebuilt binary index (`app_list.idx`, generated from `app_list.json` at build time)
+ * and falls back to parsing the JSON with Gson if the index is missing or unreadable.
  */
 object AppListManager {
     private const val TAG = "AppListManager"
     private const val APP_LIST_FILE = "app_list.json"
+    private const val APP_LIST_INDEX_FILE = "app_list.idx"
     
-    private var appList: List<AppListData> = emptyList()
-    private var isLoaded = false
+    @Volatile
+    private var index: AppListIndex? = null
     
     /**
-     * Load the app list from the JSON file
+     * Load the app list (decoding the index on first use)
      */
     fun loadAppList(context: Context): List<AppListData> {
-        if (isLoaded) {
-            Log.d(TAG, "Returning cached app list with ${appList.size} apps")
-            return appList
-        }
+        return loadIndex(context)?.apps ?: emptyList()
+    }
+    
+    @Synchronized
+    private fun loadIndex(context: Context): AppListIndex? {
+        index?.let { return it }
         
+        val started = System.currentTimeMillis()
+        val loaded = try {
+            context.assets.open(APP_LIST_INDEX_FILE).use { AppListIndex.read(it) }
+        } catch (e: Exception) {
+            Log.w(TAG, "App list index unavailable (${e.message}), falling back to JSON")
+            loadFromJson(context)?.let { AppListIndex.fromApps(it) }
+        }
+        if (loaded != null) {
+            index = loaded
+            Log.d(TAG, "Loaded ${loaded.size} apps in ${System.currentTimeMillis() - started}ms")
+        }
+        return loaded
+    }
+    
+    private fun loadFromJson(context: Context): List<AppListData>? {
         return try {
             Log.d(TAG, "Loading app list from JSON file...")
-            val inputStream = context.assets.open(APP_LIST_FILE)
-            val jsonString = inputStream.bufferedReader().use { it.readText() }
-            
+            val jsonString = context.assets.open(APP_LIST_FILE).bufferedReader().use { it.readText() }
             val type = object : TypeToken<List<AppListData>>() {}.type
-            appList = Gson().fromJson(jsonString, type)
-            isLoaded = true
-            
-            Log.d(TAG, "Successfully loaded ${appList.size} apps from JSON")
-            appList
+            Gson().fromJson<List<AppListData>>(jsonString, type)
         } catch (e: Exception) {
             Log.e(TAG, "Error loading app list from JSON", e)
-            emptyList()
+            null
         }
     }
     
@@ -53,12 +68,12 @@ object AppListManager {
      * Searches in displayName, packageName, category, and aliases
      */
     fun searchApps(context: Context, query: String): List<AppListData> {
-        val apps = loadAppList(context)
+        val appIndex = loadIndex(context) ?: return emptyList()
         if (query.isBlank()) {
-            return apps.take(50) // Return first 50 apps if no query
+            return appIndex.apps.take(50) // Return first 50 apps if no query
         }
         
-        return apps.filter { it.matchesQuery(query) }
+        return appIndex.search(query)
     }
     
     /**
@@ -81,15 +96,13 @@ object AppListManager {
      * Find app by package name
      */
     fun findAppByPackage(context: Context, packageName: String): AppListData? {
-        val apps = loadAppList(context)
-        return apps.find { it.packageName.equals(packageName, ignoreCase = true) }
+        return loadIndex(context)?.findByPackage(packageName)
     }
     
     /**
      * Clear the loaded app list (useful for testing or memory management)
      */
     fun clearCache() {
-        appList = emptyList()
-        isLoaded = false
+        index = null
     }
-} 
\ No newline at end of file
+}
@@ -11,13 +11,9 @@ import android.content.Context
 import android.content.Intent
 import android.content.SharedPreferences
 import android.content.pm.ApplicationInfo
-import android.content.pm.PackageInfo
 import android.content.pm.PackageManager
-import android.graphics.drawable.Drawable
 import android.os.Build
 import android.os.Bundle
-import android.os.Handler
-import android.os.Looper
 import android.text.Editable
 import android.text.InputType
 import android.text.TextWatcher
@@ -33,14 +29,11 @@ import androidx.appcompat.app.AppCompatDelegate
 import androidx.core.content.ContextCompat
 import androidx.recyclerview.widget.LinearLayoutManager
 import com.micoyc.speakthat.databinding.ActivityAppPickerBinding
-import java.util.concurrent.Executors
 
 class AppPickerActivity : AppCompatActivity(), AppFilterBottomSheetFragment.Listener {
 
     private lateinit var binding: ActivityAppPickerBinding
     private lateinit var sharedPreferences: SharedPreferences
-    private val executor = Executors.newSingleThreadExecutor()
-    private val mainHandler = Handler(Looper.getMainLooper())
 
     private val allApps = mutableListOf<SelectableApp>()
     private val filteredApps = mutableListOf<SelectableApp>()
@@ -159,58 +152,30 @@ class AppPickerActivity : AppCompatActivity(), AppFilterBottomSheetFragment.List
     }
 
     private fun loadInstalledApps(initialSelection: List<String>) {
-        executor.execute {
-            val pm = packageManager
-            val selectableApps = mutableListOf<SelectableApp>()
-            val selectedSet = initialSelection.toSet()
-
-            val installedApps = pm.getInstalledApplications(PackageManager.GET_META_DATA)
-            val launcherIntent = Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_LAUNCHER)
-            val launchablePackages = pm.queryIntentActivities(launcherIntent, 0)
-                .mapNotNull { it.activityInfo?.packageName }
-                .toSet()
-
-            InAppLogger.log("AppPicker", "Visible installed apps: ${installedApps.size}, launchable: ${launchablePackages.size}")
-
-            installedApps.forEach { appInfo ->
-                try {
-                    val label = pm.getApplicationLabel(appInfo)?.toString().orEmpty()
-                    if (label.isEmpty()) return@forEach
-
-                    val icon = try { pm.getApplicationIcon(appInfo.packageName) } catch (_: Exception) { null }
-
-                    val canPostNotifications = canPostNotifications(pm, appInfo)
-                    val isLaunchable = launchablePackages.contains(appInfo.packageName)
-                    val hasIconOrCanNotify = icon != null || canPostNotifications
-
-                    if (!hasIconOrCanNotify && !isLaunchable) return@forEach
-
-                    val isSelected = selectedSet.contains(appInfo.packageName)
-                    val isPrivate = initialPrivateSet.contains(appInfo.packageName)
-
-                    selectableApps.add(
-                        SelectableApp(
-                            label = label,
-                            packageName = appInfo.packageName,
-                            icon = icon,
-                            selected = isSelected,
-                            isPrivate = isPrivate,
-                            isManual = false,
-                            isHeadlessSystemApp = ((appInfo.flags and ApplicationInfo.FLAG_SYSTEM) != 0) && !isLaunchable
-                        )
+        val selectedSet = initialSelection.toSet()
+        // Labels come from the shared catalog; icons are bound per visible row by the adapter
+        InstalledAppCatalog.getEntries(this) { entries ->
+            if (isFinishing || isDestroyed) return@getEntries
+            val selectableApps = ArrayList<SelectableApp>(entries.size + 1)
+            entries.forEach { entry ->
+                if (entry.packageName == INTERNAL_CLOCK_PACKAGE) return@forEach
+                selectableApps.add(
+                    SelectableApp(
+                        label = entry.label,
+                        packageName = entry.packageName,
+                        selected = selectedSet.contains(entry.packageName),
+                        isPrivate = initialPrivateSet.contains(entry.packageName),
+                        isManual = false,
+                        isHeadlessSystemApp = entry.isHeadlessSystemApp
                     )
-                } catch (e: Exception) {
-                    InAppLogger.logError("AppPicker", "Error loading app ${appInfo.packageName}: ${e.message}")
-                }
+                )
             }
 
-            // Synthetic internal target (not a real installed package); replace any PM collision, then sort with real apps.
-            selectableApps.removeAll { it.packageName == INTERNAL_CLOCK_PACKAGE }
+            // Synthetic internal target (not a real installed package), sorted with real apps.
             selectableApps.add(
                 SelectableApp(
                     label = applicationContext.getString(R.string.app_picker_internal_clock_label),
                     packageName = INTERNAL_CLOCK_PACKAGE,
-                    icon = null,
                     selected = selectedSet.contains(INTERNAL_CLOCK_PACKAGE),
                     isPrivate = initialPrivateSet.contains(INTERNAL_CLOCK_PACKAGE),
                     isManual = false,
@@ -220,34 +185,12 @@ class AppPickerActivity : AppCompatActivity(), AppFilterBottomSheetFragment.List
 
             selectableApps.sortBy { it.label.lowercase() }
 
-            mainHandler.post {
-                setLoading(false)
-                allApps.clear()
-                allApps.addAll(selectableApps)
-                InAppLogger.log("AppPicker", "Loaded ${allApps.size} apps into picker")
-                applyFilter()
-            }
-        }
-    }
-
-    private fun canPostNotifications(pm: PackageManager, appInfo: ApplicationInfo): Boolean {
-        val targetPre33 = appInfo.targetSdkVersion < 33
-        var requestsPermission = false
-        try {
-            val pkgInfo: PackageInfo = pm.getPackageInfo(appInfo.packageName, PackageManager.GET_PERMISSIONS)
-            val permissions = pkgInfo.requestedPermissions
-            if (permissions != null) {
-                for (permission in permissions) {
-                    if ("android.permission.POST_NOTIFICATIONS" == permission) {
-                        requestsPermission = true
-                        break
-                    }
-                }
-            }
-        } catch (_: Exception) {
-            // Ignore and fall back
+            setLoading(false)
+            allApps.clear()
+            allApps.addAll(selectableApps)
+            InAppLogger.log("AppPicker", "Loaded ${allApps.size} apps into picker")
+            applyFilter()
         }
-        return targetPre33 || requestsPermission
     }
 
     private fun applyFilter() {
@@ -397,20 +340,9 @@ class AppPickerActivity : AppCompatActivity(), AppFilterBottomSheetFragment.List
                         getString(R.string.app_picker_manual_placeholder)
                     }
                     
-                    val icon = if (appInfo != null) {
-                        try {
-                            pm.getApplicationIcon(packageName)
-                        } catch (e: Exception) {
-                            null
-                        }
-                    } else {
-                        null
-                    }
-                    
                     val newApp = SelectableApp(
                         label = label,
                         packageName = packageName,
-                        icon = icon,
                         selected = true, // Automatically select when manually added
                         isPrivate = initialPrivateSet.contains(packageName),
                         isManual = true,
@@ -474,11 +406,6 @@ class AppPickerActivity : AppCompatActivity(), AppFilterBottomSheetFragment.List
             .show()
     }
 
-    override fun onDestroy() {
-        super.onDestroy()
-        executor.shutdown()
-    }
-
     override fun onSupportNavigateUp(): Boolean {
         onBackPressedDispatcher.onBackPressed()
         return true
@@ -487,7 +414,6 @@ class AppPickerActivity : AppCompatActivity(), AppFilterBottomSheetFragment.List
     data class SelectableApp(
         val label: String,
         val packageName: String,
-        val icon: Drawable?,
         var selected: Boolean,
         var isPrivate: Boolean,
         val isManual: Boolean,
@@ -35,12 +35,16 @@ class AppPickerAdapter(
         holder.packageName.text = item.packageName
 
         val ctx = holder.itemView.context
-        val iconDrawable = when (item.packageName) {
-            AppPickerActivity.INTERNAL_CLOCK_PACKAGE ->
-                ContextCompat.getDrawable(ctx, R.drawable.ic_speakthat_clock)
-            else -> item.icon ?: ContextCompat.getDrawable(ctx, R.drawable.ic_icon_not_found_32)
+        if (item.packageName == AppPickerActivity.INTERNAL_CLOCK_PACKAGE) {
+            holder.appIcon.setTag(R.id.tag_icon_package, null)
+            holder.appIcon.setImageDrawable(ContextCompat.getDrawable(ctx, R.drawable.ic_speakthat_clock))
+        } else {
+            InstalledAppCatalog.bindIcon(
+                holder.appIcon,
+                item.packageName,
+                ContextCompat.getDrawable(ctx, R.drawable.ic_icon_not_found_32)
+            )
         }
-        holder.appIcon.setImageDrawable(iconDrawable)
 
         holder.selectCheck.setOnCheckedChangeListener(null)
         holder.privateCheck.setOnCheckedChangeListener(null)
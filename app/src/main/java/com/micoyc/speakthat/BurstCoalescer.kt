@@ -0,0 +1,172 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+
+/**
+ * Holds conversation notifications for a short window so a burst from one chat becomes one readout.
+ *
+ * The first message of a burst opens a window; every message that joins the burst pushes the
+ * deadline out by another window, up to [MAX_HOLD_MS] after the first one or [MAX_ITEMS] messages.
+ * The window adapts to each conversation: it is twice the smoothed gap between its recent messages,
+ * clamped to [MIN_WINDOW_MS]..[MAX_WINDOW_MS], so a busy group waits just long enough to catch the
+ * next message. A chat whose messages arrive further apart than [MAX_WINDOW_MS] is not bursting at
+ * all, so it gets [MIN_WINDOW_MS] and is read almost immediately.
+ *
+ * Offers come from the notification processing coroutine and deadlines fire on the [timer]'s
+ * thread, so state is guarded by the instance lock; [emit] is always called outside it.
+ */
+class BurstCoalescer<T : Any> internal constructor(
+    private val timer: HousekeepingScheduler.Timer,
+    private val clock: () -> Long,
+    private val emit: (conversationKey: String, items: List<T>) -> Unit
+) {
+    constructor(emit: (conversationKey: String, items: List<T>) -> Unit) : this(
+        HousekeepingScheduler.HandlerTimer(Handler(Looper.getMainLooper())),
+        SystemClock::elapsedRealtime,
+        emit
+    )
+
+    companion object {
+        const val MIN_WINDOW_MS = 500L
+        const val MAX_WINDOW_MS = 2_500L
+        const val MAX_HOLD_MS = 6_000L
+        const val MAX_ITEMS = 10
+
+        /** Gaps longer than this mean the conversation went quiet; its rhythm is forgotten. */
+        private const val QUIET_GAP_MS = 60_000L
+        private const val MAX_TRACKED_CONVERSATIONS = 64
+    }
+
+    private class Burst<T>(val firstAt: Long) {
+        val items = ArrayList<T>()
+        var deadline = 0L
+    }
+
+    private class Rhythm(var lastArrival: Long, var gapEwmaMs: Long)
+
+    private val pending = LinkedHashMap<String, Burst<T>>()
+    private val rhythms = LinkedHashMap<String, Rhythm>()
+    private var scheduledWakeAt = Long.MAX_VALUE
+    private val wakeRunnable = Runnable { onWake() }
+
+    /** Add [item] to the burst for [conversationKey], opening one if needed. */
+    fun offer(conversationKey: String, item: T) {
+        val full: List<T>?
+        synchronized(this) {
+            val now = clock()
+            val window = windowFor(conversationKey, now)
+            val burst = pending.getOrPut(conversationKey) { Burst(now) }
+            burst.items.add(item)
+            burst.deadline = minOf(now + window, burst.firstAt + MAX_HOLD_MS)
+            full = if (burst.items.size >= MAX_ITEMS) {
+                pending.remove(conversationKey)
+                burst.items
+            } else {
+                null
+            }
+            reschedule(now)
+        }
+        full?.let { emit(conversationKey, it) }
+    }
+
+    /** Drop held items matching [predicate], e.g. because their notification was dismissed. */
+    @Synchronized
+    fun discard(predicate: (T) -> Boolean): Int {
+        var removed = 0
+        val iterator = pending.values.iterator()
+        while (iterator.hasNext()) {
+            val burst = iterator.next()
+            val before = burst.items.size
+            burst.items.removeAll(predicate)
+            removed += before - burst.items.size
+            if (burst.items.isEmpty()) iterator.remove()
+        }
+        if (removed > 0) reschedule(clock())
+        return removed
+    }
+
+    /** Emit every held burst now, e.g. when coalescing is switched off. */
+    fun flushAll() {
+        val held: List<Pair<String, List<T>>>
+        synchronized(this) {
+            held = pending.map { (key, burst) -> key to burst.items }
+            pending.clear()
+            timer.cancel(wakeRunnable)
+            scheduledWakeAt = Long.MAX_VALUE
+        }
+        for ((key, items) in held) emit(key, items)
+    }
+
+    /** Drop everything held, e.g. when the user stops speech. Returns how many items were dropped. */
+    @Synchronized
+    fun clear(): Int {
+        val dropped = pending.values.sumOf { it.items.size }
+        pending.clear()
+        timer.cancel(wakeRunnable)
+        scheduledWakeAt = Long.MAX_VALUE
+        return dropped
+    }
+
+    /** Window for the next message of [conversationKey], updating its rhythm with this arrival. */
+    internal fun windowFor(conversationKey: String, now: Long): Long {
+        val rhythm = rhythms.remove(conversationKey)
+        val window: Long
+        if (rhythm == null || now - rhythm.lastArrival > QUIET_GAP_MS) {
+            window = MIN_WINDOW_MS
+            rhythms[conversationKey] = Rhythm(now, 0L)
+        } else {
+            val gap = now - rhythm.lastArrival
+            rhythm.gapEwmaMs = if (rhythm.gapEwmaMs == 0L) gap else (rhythm.gapEwmaMs + gap) / 2
+            rhythm.lastArrival = now
+            // A steady cadence slower than the longest window would never join a burst anyway
+            window = if (rhythm.gapEwmaMs > MAX_WINDOW_MS) {
+                MIN_WINDOW_MS
+            } else {
+                (rhythm.gapEwmaMs * 2).coerceIn(MIN_WINDOW_MS, MAX_WINDOW_MS)
+            }
+            rhythms[conversationKey] = rhythm
+        }
+        // Re-inserted above, so the first entry is the least recently active conversation
+        while (rhythms.size > MAX_TRACKED_CONVERSATIONS) {
+            rhythms.remove(rhythms.keys.first())
+        }
+        return window
+    }
+
+    private fun onWake() {
+        val due = ArrayList<Pair<String, List<T>>>()
+        synchronized(this) {
+            scheduledWakeAt = Long.MAX_VALUE
+            val now = clock()
+            val iterator = pending.entries.iterator()
+            while (iterator.hasNext()) {
+                val (key, burst) = iterator.next()
+                if (burst.deadline <= now) {
+                    iterator.remove()
+                    due.add(key to burst.items)
+                }
+            }
+            reschedule(now)
+        }
+        for ((key, items) in due) emit(key, items)
+    }
+
+    private fun reschedule(now: Long) {
+        val deadline = pending.values.minOfOrNull { it.deadline } ?: Long.MAX_VALUE
+        if (deadline == scheduledWakeAt) return
+        timer.cancel(wakeRunnable)
+        scheduledWakeAt = deadline
+        if (deadline != Long.MAX_VALUE) {
+            timer.postDelayed(wakeRunnable, (deadline - now).coerceAtLeast(0L))
+        }
+    }
+}
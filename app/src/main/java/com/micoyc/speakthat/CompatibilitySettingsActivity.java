@@ -55,6 +55,9 @@ public class CompatibilitySettingsActivity extends AppCompatActivity {
     private static final String KEY_DISMISSAL_MEMORY_TIMEOUT = "dismissal_memory_timeout";
     private static final String KEY_MEDIA_FILTERING_ENABLED = "media_filtering_enabled";
     private static final String KEY_SCO_DEVICES = "sco_devices";
+    private static final String KEY_SCO_LINGER_MS = "sco_linger_ms";
+    private static final int DEFAULT_SCO_LINGER_MS = 3000;
+    private static final int[] SCO_LINGER_OPTIONS_MS = {0, 2000, 3000, 5000, 10000};
 
     private static final int DEFAULT_AUDIO_USAGE = 0;
     private static final int DEFAULT_CONTENT_TYPE = 0;
@@ -266,6 +269,46 @@ public class CompatibilitySettingsActivity extends AppCompatActivity {
                 }
             }
         });
+        binding.btnScoLinger.setOnClickListener(v -> showScoLingerDialog());
+    }
+
+    /**
+     * How long the call stays open after a notification while more are queued, so a burst of
+     * readouts does not reconnect (and beep) between each one.
+     */
+    private void showScoLingerDialog() {
+        int current = voicePrefs.getInt(KEY_SCO_LINGER_MS, DEFAULT_SCO_LINGER_MS);
+        String[] labels = new String[SCO_LINGER_OPTIONS_MS.length];
+        int checked = -1;
+        for (int i = 0; i < SCO_LINGER_OPTIONS_MS.length; i++) {
+            labels[i] = formatScoLinger(SCO_LINGER_OPTIONS_MS[i]);
+            if (SCO_LINGER_OPTIONS_MS[i] == current) {
+                checked = i;
+            }
+        }
+
+        new MaterialAlertDialogBuilder(this)
+            .setTitle("Keep Call Open Between Notifications")
+            .setSingleChoiceItems(labels, checked, (dialog, which) -> {
+                voicePrefs.edit().putInt(KEY_SCO_LINGER_MS, SCO_LINGER_OPTIONS_MS[which]).apply();
+                updateScoLingerSummary();
+                InAppLogger.log("CompatibilitySettings", "SCO linger set to " + SCO_LINGER_OPTIONS_MS[which] + "ms");
+                dialog.dismiss();
+            })
+            .setNegativeButton(android.R.string.cancel, null)
+            .show();
+    }
+
+    private void updateScoLingerSummary() {
+        binding.txtScoLingerSummary.setText(formatScoLinger(voicePrefs.getInt(KEY_SCO_LINGER_MS, DEFAULT_SCO_LINGER_MS)));
+    }
+
+    private static String formatScoLinger(int lingerMs) {
+        if (lingerMs <= 0) {
+            return "Off";
+        }
+        int seconds = lingerMs / 1000;
+        return seconds == 1 ? "1 second" : seconds + " seconds";
     }
 
     private void showScoDeviceSelectionDialog() {
@@ -440,6 +483,7 @@ public class CompatibilitySettingsActivity extends AppCompatActivity {
 
         // SCO Devices
         updateScoDevicesSummary();
+        updateScoLingerSummary();
 
         // Ducking Compatibility
         binding.switchDisableMediaFallback.setChecked(mainPrefs.getBoolean(KEY_DISABLE_MEDIA_FALLBACK, false));
@@ -17,16 +17,19 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.text.Editable;
 import android.text.format.DateUtils;
 import android.text.TextUtils;
-import android.text.method.ScrollingMovementMethod;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.widget.RadioButton;
 import android.widget.RadioGroup;
 import android.widget.ScrollView;
 import android.widget.TextView;
 import android.widget.Toast;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.app.AppCompatDelegate;
@@ -40,12 +43,17 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.Calendar;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class DevelopmentSettingsActivity extends AppCompatActivity {
     private ActivityDevelopmentSettingsBinding binding;
@@ -64,14 +72,29 @@ public class DevelopmentSettingsActivity extends AppCompatActivity {
     
     private static final long LISTENER_WARNING_THRESHOLD_MS = 5 * 60 * 1000L;
 
-    private boolean isLogAutoRefreshPaused = false;
-    private Runnable logUpdateRunnable;
     private boolean isActivityVisible = false;
     
-    // New variables for smart log display
+    // Log display: pages are read from InAppLogger's buffer, new lines are pushed by its listener
+    private static final int MAX_LOG_LINES = 500;
+    private static final long LOG_APPEND_DELAY_MS = 200;
+    private static final long LOG_SEARCH_DELAY_MS = 250;
+    private final ExecutorService logExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean logAppendPosted = new AtomicBoolean(false);
+    private LogLineAdapter logAdapter;
+    private volatile String logQuery = "";
     private long lastLogUpdateTime = 0;
-    private int lastLogCount = 0;
-    private boolean hasNewLogs = false;
+    // Only touched on logExecutor
+    private List<InAppLogger.LogEntry> shownLogs = new ArrayList<>();
+    private String shownLogQuery = "";
+    private long lastShownLogId = 0;
+    private final Runnable logSearchRunnable = this::refreshLogs;
+    private final Runnable logAppendRunnable = this::appendNewLogs;
+    private final PagedHistoryBuffer.Listener<InAppLogger.LogEntry> logListener = entry -> {
+        // Runs on whichever thread logged; coalesce bursts into one append and never log from here
+        if (logAppendPosted.compareAndSet(false, true)) {
+            uiHandler.postDelayed(logAppendRunnable, LOG_APPEND_DELAY_MS);
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -152,56 +175,30 @@ public class DevelopmentSettingsActivity extends AppCompatActivity {
         super.onResume();
         isActivityVisible = true;
         
-        // Check for new logs instead of starting auto-refresh
-        checkForNewLogs();
+        // Show the current log, then follow new lines while visible
+        InAppLogger.addLogListener(logListener);
+        refreshLogs();
         updateListenerHealthCard();
-        
-        // Start a very slow background check for new logs (every 30 seconds)
-        // This only updates the indicator, not the UI
-        startBackgroundLogCheck();
+        updateNotificationTraceUi();
+        updatePipelineLatencyUi();
         
         InAppLogger.logAppLifecycle("Development Settings resumed", "DevelopmentSettingsActivity");
     }
     
-    /**
-     * Start a very slow background check for new logs (battery-friendly)
-     */
-    private void startBackgroundLogCheck() {
-        // Only check every 30 seconds to save battery
-        uiHandler.postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                if (isActivityVisible && !isDestroyed() && !isFinishing()) {
-                    checkForNewLogs();
-                    // Schedule next check
-                    uiHandler.postDelayed(this, 30000); // 30 seconds
-                }
-            }
-        }, 30000); // 30 seconds
-    }
-
     @Override
     protected void onPause() {
         super.onPause();
         isActivityVisible = false;
         
-        // Stop any remaining auto-refresh and background checks
-        stopLogUpdates();
-        stopBackgroundLogCheck();
-        lastLogCount = InAppLogger.getLogCount();
+        // Stop following the log while hidden
+        InAppLogger.removeLogListener(logListener);
+        uiHandler.removeCallbacks(logAppendRunnable);
+        uiHandler.removeCallbacks(logSearchRunnable);
+        logAppendPosted.set(false);
         
         InAppLogger.logAppLifecycle("Development Settings paused", "DevelopmentSettingsActivity");
     }
     
-    /**
-     * Stop the background log check
-     */
-    private void stopBackgroundLogCheck() {
-        // Remove any pending background checks
-        uiHandler.removeCallbacksAndMessages(null);
-        InAppLogger.log("Development", "Background log check stopped");
-    }
-
     private void applySavedTheme() {
         boolean isDarkMode = sharedPreferences.getBoolean(KEY_DARK_MODE, true); // Default to dark mode
         int desiredMode = isDarkMode ? AppCompatDelegate.MODE_NIGHT_YES : AppCompatDelegate.MODE_NIGHT_NO;
@@ -324,6 +321,8 @@ public class DevelopmentSettingsActivity extends AppCompatActivity {
         });
 
         setupBroadcastToStopCard();
+        setupNotificationTraceCard();
+        setupPipelineLatencyCard();
         
         // Set up deprecated features - Theme toggle
         binding.switchDeprecatedTheme.setOnCheckedChangeListener((buttonView, isChecked) -> {
@@ -362,8 +361,7 @@ public class DevelopmentSettingsActivity extends AppCompatActivity {
 
         
         // Set up log display
-        binding.textLogDisplay.setMovementMethod(new ScrollingMovementMethod());
-        binding.textLogDisplay.setHorizontallyScrolling(true);
+        setupLogDisplay();
         
         // Update crash log button visibility
         updateCrashLogButtonVisibility();
@@ -899,6 +897,77 @@ public class DevelopmentSettingsActivity extends AppCompatActivity {
         });
     }
 
+    private void setupNotificationTraceCard() {
+        binding.switchNotificationTrace.setChecked(NotificationReaderService.isTraceRecording());
+        binding.switchNotificationTrace.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            NotificationReaderService.setTraceRecording(isChecked);
+            updateNotificationTraceUi();
+            InAppLogger.log("Development", "Notification trace recording " + (isChecked ? "started" : "stopped"));
+        });
+        binding.btnExportTraceRedacted.setOnClickListener(v -> exportNotificationTrace(true));
+        binding.btnExportTrace.setOnClickListener(v -> exportNotificationTrace(false));
+        updateNotificationTraceUi();
+    }
+
+    private void updateNotificationTraceUi() {
+        boolean recording = NotificationReaderService.isTraceRecording();
+        int count = NotificationReaderService.getTraceEventCount();
+        binding.textNotificationTraceCount.setVisibility(recording ? View.VISIBLE : View.GONE);
+        binding.textNotificationTraceCount.setText(getString(R.string.dev_notification_trace_count,
+                count, NotificationReaderService.MAX_TRACE_EVENTS));
+        binding.btnExportTraceRedacted.setEnabled(count > 0);
+        binding.btnExportTrace.setEnabled(count > 0);
+    }
+
+    private void exportNotificationTrace(boolean redact) {
+        updateNotificationTraceUi();
+        if (NotificationReaderService.getTraceEventCount() == 0) {
+            Toast.makeText(this, R.string.dev_notification_trace_empty, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        try {
+            String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss", Locale.getDefault()).format(new Date());
+            java.io.StringWriter trace = new java.io.StringWriter();
+            NotificationReaderService.exportNotificationTrace(trace, redact);
+            String filename = "speakthat_trace_" + (redact ? "redacted_" : "") + timestamp + ".json";
+            File traceFile = FileExportHelper.createExportFile(this, "exports", filename, trace.toString());
+            if (traceFile == null) {
+                throw new IOException("File creation failed");
+            }
+
+            Uri fileUri = androidx.core.content.FileProvider.getUriForFile(
+                this,
+                getApplicationContext().getPackageName() + ".fileprovider",
+                traceFile
+            );
+            Intent shareIntent = new Intent(Intent.ACTION_SEND);
+            shareIntent.setType("application/json");
+            shareIntent.putExtra(Intent.EXTRA_STREAM, fileUri);
+            shareIntent.putExtra(Intent.EXTRA_SUBJECT, "SpeakThat! Notification Trace - " + timestamp);
+            shareIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            startActivity(Intent.createChooser(shareIntent, "Export Notification Trace"));
+            InAppLogger.log("Development", "Notification trace exported" + (redact ? " (redacted)" : "") + ": " + traceFile.getName());
+        } catch (Exception e) {
+            Toast.makeText(this, "Failed to export trace: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            InAppLogger.logError("Development", "Notification trace export failed: " + e.getMessage());
+        }
+    }
+
+    private void setupPipelineLatencyCard() {
+        binding.btnRefreshPipelineLatency.setOnClickListener(v -> updatePipelineLatencyUi());
+        binding.btnResetPipelineLatency.setOnClickListener(v -> {
+            PipelineLatency.reset();
+            updatePipelineLatencyUi();
+            InAppLogger.log("Development", "Pipeline latency histograms reset");
+        });
+        updatePipelineLatencyUi();
+    }
+
+    private void updatePipelineLatencyUi() {
+        String summary = PipelineLatency.summary();
+        binding.textPipelineLatency.setText(summary.isEmpty() ? getString(R.string.dev_pipeline_latency_empty) : summary);
+    }
+
     private void updateBroadcastToStopUi(boolean enabled) {
         binding.layoutBroadcastToStopDetails.setVisibility(enabled ? View.VISIBLE : View.GONE);
         if (enabled) {
@@ -918,7 +987,7 @@ public class DevelopmentSettingsActivity extends AppCompatActivity {
     }
 
     private void showNotificationHistory() {
-        List<NotificationReaderService.NotificationData> notifications = NotificationReaderService.getRecentNotifications();
+        List<NotificationReaderService.NotificationData> notifications = NotificationReaderService.getNewestNotifications(Integer.MAX_VALUE);
         
         if (notifications.isEmpty()) {
             AlertDialog.Builder builder = new AlertDialog.Builder(this);
@@ -943,13 +1012,28 @@ public class DevelopmentSettingsActivity extends AppCompatActivity {
         
         titleText.setText("Notification History (" + notifications.size() + " items)");
         
-        // Set up RecyclerView
-        NotificationHistoryAdapter adapter = new NotificationHistoryAdapter(notifications, this::showFilterSuggestionDialog);
+        // Set up RecyclerView, newest first
+        NotificationHistoryAdapter adapter = new NotificationHistoryAdapter(this::showFilterSuggestionDialog);
+        adapter.submitList(notifications);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         recyclerView.setAdapter(adapter);
         
+        // While the dialog is open, new notifications are pushed in at the top
+        PagedHistoryBuffer.Listener<NotificationReaderService.NotificationData> historyListener = entry -> uiHandler.post(() -> {
+            List<NotificationReaderService.NotificationData> updated = new ArrayList<>(adapter.getCurrentList().size() + 1);
+            updated.add(entry);
+            updated.addAll(adapter.getCurrentList());
+            boolean atTop = !recyclerView.canScrollVertically(-1);
+            adapter.submitList(updated, () -> {
+                if (atTop) recyclerView.scrollToPosition(0);
+            });
+            titleText.setText("Notification History (" + updated.size() + " items)");
+        });
+        NotificationReaderService.addHistoryListener(historyListener);
+        
         builder.setView(dialogView)
                .setPositiveButton(R.string.button_close, (dialog, which) -> dialog.dismiss())
+               .setOnDismissListener(dialog -> NotificationReaderService.removeHistoryListener(historyListener))
                .show();
     }
     
@@ -1062,7 +1146,6 @@ public class DevelopmentSettingsActivity extends AppCompatActivity {
 
     private void clearLogs() {
         InAppLogger.clear();
-        binding.textLogDisplay.setText("");
         InAppLogger.log("Development", "Logs cleared");
         refreshLogs();
     }
@@ -1127,82 +1210,115 @@ public class DevelopmentSettingsActivity extends AppCompatActivity {
         }
     }
 
-    private void refreshLogs() {
-        try {
-            String logs = InAppLogger.getRecentLogs(500); // Show full in-memory buffer to avoid hiding recent errors
-            binding.textLogDisplay.setText(logs);
-            
-            // Update indicators
-            lastLogUpdateTime = System.currentTimeMillis();
-            lastLogCount = InAppLogger.getLogCount();
-            hasNewLogs = false;
-            
-            // Update refresh button to show last update time
-            updateRefreshButtonStatus();
-            
-            // Scroll the TextView to the bottom (safe, no parent cast)
-            binding.textLogDisplay.post(() -> {
-                if (binding.textLogDisplay.getLayout() != null) {
-                    int scrollAmount = binding.textLogDisplay.getLayout().getLineTop(binding.textLogDisplay.getLineCount()) - binding.textLogDisplay.getHeight();
-                    if (scrollAmount > 0)
-                        binding.textLogDisplay.scrollTo(0, scrollAmount);
-                    else
-                        binding.textLogDisplay.scrollTo(0, 0);
+    private void setupLogDisplay() {
+        logAdapter = new LogLineAdapter();
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        layoutManager.setStackFromEnd(true);
+        binding.recyclerLogDisplay.setLayoutManager(layoutManager);
+        binding.recyclerLogDisplay.setAdapter(logAdapter);
+        
+        // The log box scrolls inside the settings ScrollView; keep drags that start in it for the list
+        binding.recyclerLogDisplay.addOnItemTouchListener(new RecyclerView.SimpleOnItemTouchListener() {
+            @Override
+            public boolean onInterceptTouchEvent(@NonNull RecyclerView rv, @NonNull MotionEvent e) {
+                if (e.getActionMasked() == MotionEvent.ACTION_DOWN) {
+                    rv.getParent().requestDisallowInterceptTouchEvent(true);
                 }
-            });
+                return false;
+            }
+        });
+        
+        binding.editLogSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
             
-            InAppLogger.log("Development", "Logs refreshed manually - " + lastLogCount + " total logs");
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
             
-        } catch (Exception e) {
-            InAppLogger.logError("Development", "Error refreshing logs: " + e.getMessage());
-            binding.textLogDisplay.setText("Error loading logs: " + e.getMessage());
-        }
+            @Override
+            public void afterTextChanged(Editable s) {
+                logQuery = s.toString().trim();
+                uiHandler.removeCallbacks(logSearchRunnable);
+                uiHandler.postDelayed(logSearchRunnable, LOG_SEARCH_DELAY_MS);
+            }
+        });
     }
 
-    private void startLogUpdates() {
-        // DEPRECATED: No longer using auto-refresh to save battery
-        // Logs are now refreshed manually or when new logs are detected
-        InAppLogger.log("Development", "Auto-refresh disabled - using smart log display system");
+    /**
+     * Reload the newest page of log lines matching the search, searched off the UI thread
+     */
+    private void refreshLogs() {
+        uiHandler.removeCallbacks(logSearchRunnable);
+        final String query = logQuery;
+        logExecutor.execute(() -> {
+            try {
+                long newestId = InAppLogger.getLastLogId();
+                List<InAppLogger.LogEntry> lines = new ArrayList<>(InAppLogger.getLogPage(newestId + 1, MAX_LOG_LINES, query));
+                Collections.reverse(lines);
+                shownLogs = lines;
+                shownLogQuery = query;
+                lastShownLogId = newestId;
+                uiHandler.post(() -> showLogs(lines, true));
+            } catch (Exception e) {
+                InAppLogger.logError("Development", "Error refreshing logs: " + e.getMessage());
+            }
+        });
+        
+        lastLogUpdateTime = System.currentTimeMillis();
+        updateRefreshButtonStatus();
     }
 
-    private void stopLogUpdates() {
-        if (logUpdateRunnable != null) {
-            uiHandler.removeCallbacks(logUpdateRunnable);
-            InAppLogger.log("Development", "Log auto-refresh stopped to save battery");
-        }
-    }
-    
     /**
-     * Check if there are new logs available without updating the UI
+     * Append the lines logged since the last load or append; posted by logListener
      */
-    private void checkForNewLogs() {
-        int currentLogCount = InAppLogger.getLogCount();
+    private void appendNewLogs() {
+        logAppendPosted.set(false);
+        logExecutor.execute(() -> {
+            long newestId = InAppLogger.getLastLogId();
+            List<InAppLogger.LogEntry> added = InAppLogger.getLogsAfter(lastShownLogId, shownLogQuery);
+            if (!added.isEmpty()) {
+                newestId = Math.max(newestId, added.get(added.size() - 1).getId());
+            }
+            lastShownLogId = Math.max(lastShownLogId, newestId);
+            if (added.isEmpty()) return;
+            
+            List<InAppLogger.LogEntry> lines = new ArrayList<>(shownLogs.size() + added.size());
+            lines.addAll(shownLogs);
+            lines.addAll(added);
+            if (lines.size() > MAX_LOG_LINES) {
+                lines = new ArrayList<>(lines.subList(lines.size() - MAX_LOG_LINES, lines.size()));
+            }
+            shownLogs = lines;
+            final List<InAppLogger.LogEntry> shown = lines;
+            uiHandler.post(() -> showLogs(shown, false));
+        });
+    }
+
+    private void showLogs(List<InAppLogger.LogEntry> lines, boolean scrollToEnd) {
+        if (isDestroyed() || logAdapter == null) return;
         
-        if (currentLogCount > lastLogCount) {
-            hasNewLogs = true;
-            updateRefreshButtonStatus();
-            InAppLogger.log("Development", "New logs detected: " + (currentLogCount - lastLogCount) + " new entries");
+        // Follow new lines only while the reader is already at the bottom
+        boolean follow = scrollToEnd || !binding.recyclerLogDisplay.canScrollVertically(1);
+        logAdapter.submitList(lines, () -> {
+            if (follow && !lines.isEmpty() && !isDestroyed()) {
+                binding.recyclerLogDisplay.scrollToPosition(lines.size() - 1);
+            }
+        });
+        
+        if (lines.isEmpty()) {
+            binding.textLogEmpty.setText(logQuery.isEmpty() ? R.string.dev_starting_log_display : R.string.dev_no_matching_logs);
+            binding.textLogEmpty.setVisibility(View.VISIBLE);
+        } else {
+            binding.textLogEmpty.setVisibility(View.GONE);
         }
     }
     
     /**
-     * Update the refresh button to show new logs indicator and last update time
+     * Update the refresh button to show the last update time
      */
     private void updateRefreshButtonStatus() {
-        if (hasNewLogs) {
-            // Show new logs indicator
-            binding.btnRefreshLogs.setBackgroundTintList(ColorStateList.valueOf(ContextCompat.getColor(this, R.color.purple_200)));
-            binding.btnRefreshLogs.setIconTint(ColorStateList.valueOf(Color.WHITE));
-            
-            // Add a subtle animation or indicator
-            binding.btnRefreshLogs.setAlpha(0.8f);
-            
-        } else {
-            // Normal state
-            binding.btnRefreshLogs.setBackgroundTintList(ColorStateList.valueOf(ContextCompat.getColor(this, R.color.purple_300)));
-            binding.btnRefreshLogs.setIconTint(ColorStateList.valueOf(Color.WHITE));
-            binding.btnRefreshLogs.setAlpha(1.0f);
-        }
+        binding.btnRefreshLogs.setBackgroundTintList(ColorStateList.valueOf(ContextCompat.getColor(this, R.color.purple_300)));
+        binding.btnRefreshLogs.setIconTint(ColorStateList.valueOf(Color.WHITE));
         
         // Show last update time in a subtle way
         if (lastLogUpdateTime > 0) {
@@ -1275,26 +1391,6 @@ public class DevelopmentSettingsActivity extends AppCompatActivity {
 
 
 
-    private void toggleLogPause() {
-        // DEPRECATED: Auto-refresh is no longer used
-        // This method now serves as a "check for new logs" function
-        checkForNewLogs();
-        
-        if (hasNewLogs) {
-            // If there are new logs, refresh immediately
-            refreshLogs();
-            Toast.makeText(this, "New logs found and refreshed!", Toast.LENGTH_SHORT).show();
-            InAppLogger.logUserAction("Log refresh - new logs found toast shown", "");
-        } else {
-            // If no new logs, just refresh to show current state
-            refreshLogs();
-            Toast.makeText(this, "Logs refreshed - no new entries", Toast.LENGTH_SHORT).show();
-            InAppLogger.logUserAction("Log refresh - no new entries toast shown", "");
-        }
-        
-        InAppLogger.log("Development", "Manual log check triggered - new logs: " + hasNewLogs);
-    }
-
     @Override
     public boolean onSupportNavigateUp() {
         onBackPressed();
@@ -1305,8 +1401,11 @@ public class DevelopmentSettingsActivity extends AppCompatActivity {
     protected void onDestroy() {
         super.onDestroy();
         
-        // Clean up any remaining handlers
-        stopLogUpdates();
+        // Clean up any remaining log work
+        InAppLogger.removeLogListener(logListener);
+        uiHandler.removeCallbacks(logAppendRunnable);
+        uiHandler.removeCallbacks(logSearchRunnable);
+        logExecutor.shutdownNow();
         
         // Log final state
         InAppLogger.log("Development", "Development Settings destroyed - final log count: " + InAppLogger.getLogCount());
@@ -0,0 +1,162 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * Recently dismissed notification content, kept in a memory-mapped file so it survives the
+ * listener service being killed, rebound or recovered by the watchdog.
+ *
+ * The file is a fixed-size, set-associative hash table of `{ long contentHash, long dismissedAt }`
+ * slots behind a 16-byte header. A hash maps to one bucket of [SLOTS_PER_BUCKET] slots; insert,
+ * lookup and age-out only ever touch that bucket. A full bucket overwrites its oldest (or an
+ * expired) slot, so the table never needs a global sort to stay within its size. Writes go straight
+ * to the shared mapping, so the kernel persists them even if the process dies right after.
+ *
+ * All methods are synchronized: they are called from onNotificationRemoved on the main thread and
+ * from the notification processing coroutine.
+ */
+class DismissalMemory internal constructor(file: File?, bucketCount: Int = DEFAULT_BUCKET_COUNT) {
+
+    companion object {
+        const val FILE_NAME = "dismissal_memory.bin"
+
+        private const val MAGIC = 0x5354444D // "STDM"
+        private const val VERSION = 1
+        private const val HEADER_BYTES = 16
+        private const val SLOT_BYTES = 16
+        const val SLOTS_PER_BUCKET = 8
+        const val DEFAULT_BUCKET_COUNT = 256 // 2048 slots, 32 KB
+
+        /** Hash 0 marks an empty slot, so real hashes are never allowed to be 0. */
+        fun normaliseHash(hash: Long): Long = if (hash == 0L) 1L else hash
+    }
+
+    private val buckets: Int
+    private val table: ByteBuffer
+
+    /** Where the table lives; null when the file could not be mapped and it is heap-only. */
+    val backingFile: File?
+
+    @Volatile
+    var occupied = 0
+        private set
+
+    init {
+        require(bucketCount > 0 && bucketCount and (bucketCount - 1) == 0) { "bucketCount must be a power of two" }
+        buckets = bucketCount
+        val size = HEADER_BYTES + bucketCount * SLOTS_PER_BUCKET * SLOT_BYTES
+        val mapped = file?.let { mapFile(it, size) }
+        backingFile = if (mapped != null) file else null
+        table = mapped ?: ByteBuffer.allocate(size)
+
+        if (table.getInt(0) != MAGIC || table.getInt(4) != VERSION || table.getInt(8) != bucketCount) {
+            for (i in 0 until size step 8) table.putLong(i, 0L)
+            table.putInt(0, MAGIC)
+            table.putInt(4, VERSION)
+            table.putInt(8, bucketCount)
+        } else {
+            for (slot in 0 until bucketCount * SLOTS_PER_BUCKET) {
+                if (hashAt(slot) != 0L) occupied++
+            }
+        }
+    }
+
+    /** Dismissal time for [hash], or null if unknown or older than [timeoutMs]. */
+    @Synchronized
+    fun lookup(hash: Long, now: Long, timeoutMs: Long): Long? {
+        val key = normaliseHash(hash)
+        val first = firstSlot(key)
+        for (slot in first until first + SLOTS_PER_BUCKET) {
+            if (hashAt(slot) == key) {
+                val dismissedAt = timeAt(slot)
+                return if (now - dismissedAt < timeoutMs) dismissedAt else null
+            }
+        }
+        return null
+    }
+
+    /** Record that content with [hash] was dismissed at [now]. Returns true if an older entry was evicted. */
+    @Synchronized
+    fun record(hash: Long, now: Long): Boolean {
+        val key = normaliseHash(hash)
+        val first = firstSlot(key)
+        var victim = -1
+        var victimTime = Long.MAX_VALUE
+        for (slot in first until first + SLOTS_PER_BUCKET) {
+            val slotHash = hashAt(slot)
+            if (slotHash == key) {
+                write(slot, key, now)
+                return false
+            }
+            if (slotHash == 0L) {
+                if (victimTime != Long.MIN_VALUE) {
+                    victim = slot
+                    victimTime = Long.MIN_VALUE
+                }
+            } else if (timeAt(slot) < victimTime) {
+                victim = slot
+                victimTime = timeAt(slot)
+            }
+        }
+        val evicted = victimTime != Long.MIN_VALUE
+        if (!evicted) occupied++
+        write(victim, key, now)
+        return evicted
+    }
+
+    /** Clear entries older than [timeoutMs]; returns how many were removed. */
+    @Synchronized
+    fun purgeExpired(now: Long, timeoutMs: Long): Int {
+        var removed = 0
+        for (slot in 0 until buckets * SLOTS_PER_BUCKET) {
+            if (hashAt(slot) != 0L && now - timeAt(slot) > timeoutMs) {
+                write(slot, 0L, 0L)
+                removed++
+            }
+        }
+        occupied -= removed
+        return removed
+    }
+
+    private fun firstSlot(key: Long): Int {
+        // Mix the high bits in; content hashes are already uniform but the fallback ones may not be
+        val mixed = key xor (key ushr 32)
+        return (mixed.toInt() and (buckets - 1)) * SLOTS_PER_BUCKET
+    }
+
+    private fun offset(slot: Int): Int = HEADER_BYTES + slot * SLOT_BYTES
+
+    private fun hashAt(slot: Int): Long = table.getLong(offset(slot))
+
+    private fun timeAt(slot: Int): Long = table.getLong(offset(slot) + 8)
+
+    private fun write(slot: Int, key: Long, time: Long) {
+        val offset = offset(slot)
+        table.putLong(offset + 8, time)
+        table.putLong(offset, key)
+    }
+
+    private fun mapFile(file: File, size: Int): ByteBuffer? {
+        return try {
+            file.parentFile?.mkdirs()
+            RandomAccessFile(file, "rw").use { raf ->
+                if (raf.length() != size.toLong()) raf.setLength(size.toLong())
+                // The mapping stays valid after the channel is closed
+                raf.channel.map(FileChannel.MapMode.READ_WRITE, 0, size.toLong())
+            }
+        } catch (e: IOException) {
+            null
+        }
+    }
+}
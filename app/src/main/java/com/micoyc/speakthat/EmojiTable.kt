@@ -0,0 +1,247 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+import android.content.Context
+import android.icu.lang.UCharacter
+import android.icu.lang.UProperty
+import android.os.Build
+import android.util.Log
+import java.io.DataInputStream
+import java.io.IOException
+import java.io.InputStream
+
+/**
+ * Emoji class of every Unicode code point, as a two-level table, and the emoji stripper built on it.
+ *
+ * Normally decoded from `emoji_classes.bin`, which the `generateEmojiTable` build task writes from
+ * the ICU4J emoji properties (see app/build.gradle.kts for the writer). Layout, big-endian:
+ *
+ * ```
+ * int magic "STEM", int version
+ * utf unicodeVersion
+ * int blockCount, blockCount x byte leaf   // one entry per 256 code points
+ * int leafCount, leafCount x 256 bytes     // class of each code point in the block; leaf 0 is all NONE
+ * ```
+ *
+ * Looking up a code point is two array reads, where the old check made up to five ICU property
+ * calls. [fromClassifier] builds the same structure in memory; when the asset is unavailable it is
+ * filled from the platform ICU on API 29+ and from the core emoji blocks below that.
+ */
+class EmojiTable private constructor(
+    val unicodeVersion: String,
+    private val index: ByteArray,
+    private val leaves: ByteArray
+) {
+    companion object {
+        const val MAGIC = 0x5354454D // "STEM"
+        const val VERSION = 1
+        const val BLOCK_SHIFT = 8
+        const val BLOCK_SIZE = 1 shl BLOCK_SHIFT
+        const val BLOCK_COUNT = 0x110000 shr BLOCK_SHIFT
+
+        // Code point classes, as written by the generator
+        const val NONE = 0
+        /** Extended_Pictographic, Emoji_Presentation or Emoji_Modifier_Base. */
+        const val PICTOGRAPHIC = 1
+        /** Skin tone modifiers. */
+        const val MODIFIER = 2
+        /** Halves of a flag. */
+        const val REGIONAL_INDICATOR = 3
+        /** ZERO WIDTH JOINER, which glues ZWJ sequences such as families together. */
+        const val JOINER = 4
+        /** VARIATION SELECTOR-15 and -16, choosing text or emoji presentation. */
+        const val VARIATION_SELECTOR = 5
+        /** COMBINING ENCLOSING KEYCAP, as in "1️⃣". */
+        const val KEYCAP = 6
+        /** Tag characters of subdivision flags such as England's. */
+        const val TAG = 7
+
+        private const val TAG_LOG = "EmojiTable"
+        private const val ASSET_FILE = "emoji_classes.bin"
+
+        /** Nothing below this character has an emoji class; the stripper skips such chars outright. */
+        private const val FIRST_EMOJI_CHAR = '©'
+
+        /** Everything Extended_Pictographic, plus the sequence characters, lives in these ranges. */
+        private val ICU_FALLBACK_RANGES = listOf(0x0000..0x33FF, 0x1F000..0x1FFFF, 0xE0000..0xE00FF)
+
+        @Volatile
+        private var shared: EmojiTable? = null
+
+        /** The bundled table, decoded on first use. */
+        @JvmStatic
+        fun get(context: Context): EmojiTable {
+            shared?.let { return it }
+            synchronized(this) {
+                shared?.let { return it }
+                val started = System.currentTimeMillis()
+                val loaded = try {
+                    context.assets.open(ASSET_FILE).use { read(it) }
+                } catch (e: Exception) {
+                    Log.w(TAG_LOG, "Emoji table unavailable (${e.message}), building from platform data")
+                    InAppLogger.logWarning(TAG_LOG, "Emoji table unavailable: ${e.message}")
+                    fromPlatform()
+                }
+                Log.d(TAG_LOG, "Loaded emoji table (Unicode ${loaded.unicodeVersion}) in ${System.currentTimeMillis() - started}ms")
+                shared = loaded
+                return loaded
+            }
+        }
+
+        @Throws(IOException::class)
+        fun read(input: InputStream): EmojiTable {
+            val data = DataInputStream(input.buffered())
+            if (data.readInt() != MAGIC) throw IOException("Not an emoji table")
+            val version = data.readInt()
+            if (version != VERSION) throw IOException("Unsupported emoji table version $version")
+
+            val unicodeVersion = data.readUTF()
+            val blockCount = data.readInt()
+            if (blockCount != BLOCK_COUNT) throw IOException("Unexpected emoji table block count $blockCount")
+            val index = ByteArray(blockCount)
+            data.readFully(index)
+            val leafCount = data.readInt()
+            val leaves = ByteArray(leafCount * BLOCK_SIZE)
+            data.readFully(leaves)
+            return EmojiTable(unicodeVersion, index, leaves)
+        }
+
+        /** Build the table by asking [classOf] about every code point in [ranges]; the rest is [NONE]. */
+        fun fromClassifier(unicodeVersion: String, ranges: List<IntRange>, classOf: (Int) -> Int): EmojiTable {
+            val index = ByteArray(BLOCK_COUNT)
+            val leaves = mutableListOf(ByteArray(BLOCK_SIZE))
+            val leafIds = hashMapOf(leaves[0].toList() to 0)
+            val blocks = ranges.flatMap { (it.first shr BLOCK_SHIFT)..(it.last shr BLOCK_SHIFT) }.toSortedSet()
+            for (block in blocks) {
+                val leaf = ByteArray(BLOCK_SIZE) { offset ->
+                    val codePoint = (block shl BLOCK_SHIFT) or offset
+                    if (ranges.any { codePoint in it }) classOf(codePoint).toByte() else NONE.toByte()
+                }
+                val id = leafIds.getOrPut(leaf.toList()) {
+                    leaves.add(leaf)
+                    leaves.size - 1
+                }
+                index[block] = id.toByte()
+            }
+            val flat = ByteArray(leaves.size * BLOCK_SIZE)
+            leaves.forEachIndexed { i, leaf -> leaf.copyInto(flat, i * BLOCK_SIZE) }
+            return EmojiTable(unicodeVersion, index, flat)
+        }
+
+        private fun fromPlatform(): EmojiTable {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                return fromClassifier(UCharacter.getUnicodeVersion().toString(), ICU_FALLBACK_RANGES) { codePoint ->
+                    sequenceClassOf(codePoint) ?: when {
+                        UCharacter.hasBinaryProperty(codePoint, UProperty.REGIONAL_INDICATOR) -> REGIONAL_INDICATOR
+                        UCharacter.hasBinaryProperty(codePoint, UProperty.EMOJI_MODIFIER) -> MODIFIER
+                        UCharacter.hasBinaryProperty(codePoint, UProperty.EXTENDED_PICTOGRAPHIC) ||
+                            UCharacter.hasBinaryProperty(codePoint, UProperty.EMOJI_PRESENTATION) ||
+                            UCharacter.hasBinaryProperty(codePoint, UProperty.EMOJI_MODIFIER_BASE) -> PICTOGRAPHIC
+                        else -> NONE
+                    }
+                }
+            }
+            // The emoji properties are not exposed before API 29; cover the core emoji blocks
+            return fromClassifier("core", ICU_FALLBACK_RANGES) { codePoint ->
+                sequenceClassOf(codePoint) ?: when (codePoint) {
+                    in 0x1F1E6..0x1F1FF -> REGIONAL_INDICATOR
+                    in 0x1F3FB..0x1F3FF -> MODIFIER
+                    0x00A9, 0x00AE, in 0x2600..0x27BF, in 0x1F000..0x1FAFF -> PICTOGRAPHIC
+                    else -> NONE
+                }
+            }
+        }
+
+        private fun sequenceClassOf(codePoint: Int): Int? = when (codePoint) {
+            0x200D -> JOINER
+            0xFE0E, 0xFE0F -> VARIATION_SELECTOR
+            0x20E3 -> KEYCAP
+            in 0xE0020..0xE007F -> TAG
+            else -> null
+        }
+    }
+
+    fun classOf(codePoint: Int): Int {
+        val leaf = index[codePoint ushr BLOCK_SHIFT].toInt() and 0xFF
+        return leaves[(leaf shl BLOCK_SHIFT) or (codePoint and (BLOCK_SIZE - 1))].toInt()
+    }
+
+    /**
+     * Remove emojis from [text] in one pass, returning [text] itself when there are none.
+     *
+     * Emojis that sit side by side, or with only whitespace between them, are handled as one run,
+     * so a flag, a ZWJ family or "😂😂😂" goes as a whole. With a [spokenToken] each run is replaced
+     * by that word instead of being dropped silently. Variation selectors, keycaps and tags left
+     * without an emoji are removed too (keeping the "1" of "1️⃣"), while lone zero width joiners are
+     * kept, since scripts such as Malayalam use them outside emoji.
+     */
+    fun strip(text: String, spokenToken: String? = null): String {
+        val length = text.length
+        var out: StringBuilder? = null
+        var copied = 0
+        // End of the last emoji run that produced a token, to merge runs split only by whitespace
+        var lastTokenRunEnd = -1
+        var i = 0
+        while (i < length) {
+            if (text[i] < FIRST_EMOJI_CHAR) {
+                i++
+                continue
+            }
+            val first = text.codePointAt(i)
+            if (classOf(first) == NONE) {
+                i += Character.charCount(first)
+                continue
+            }
+
+            val runStart = i
+            var visible = false
+            var onlyJoiners = true
+            while (i < length) {
+                val codePoint = text.codePointAt(i)
+                val codePointClass = classOf(codePoint)
+                if (codePointClass == NONE) break
+                if (codePointClass == PICTOGRAPHIC || codePointClass == MODIFIER || codePointClass == REGIONAL_INDICATOR) {
+                    visible = true
+                }
+                if (codePointClass != JOINER) onlyJoiners = false
+                i += Character.charCount(codePoint)
+            }
+            if (onlyJoiners) continue
+
+            val builder = out ?: StringBuilder(length).also { out = it }
+            if (!visible) {
+                builder.append(text, copied, runStart)
+                copied = i
+                continue
+            }
+            if (spokenToken == null) {
+                builder.append(text, copied, runStart)
+            } else if (lastTokenRunEnd >= 0 && lastTokenRunEnd == copied && isBlank(text, copied, runStart)) {
+                // Same run of emojis as the token just spoken; drop the whitespace between them
+            } else {
+                builder.append(text, copied, runStart)
+                if (builder.isNotEmpty() && !builder[builder.length - 1].isWhitespace()) builder.append(' ')
+                builder.append(spokenToken)
+                if (i < length && Character.isLetterOrDigit(text.codePointAt(i))) builder.append(' ')
+            }
+            copied = i
+            lastTokenRunEnd = i
+        }
+        val builder = out ?: return text
+        builder.append(text, copied, length)
+        return builder.toString()
+    }
+
+    private fun isBlank(text: String, start: Int, end: Int): Boolean {
+        for (i in start until end) {
+            if (!text[i].isWhitespace()) return false
+        }
+        return true
+    }
+}
@@ -9,20 +9,38 @@ package com.micoyc.speakthat;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import com.micoyc.speakthat.StatsSnapshot;
 import com.micoyc.speakthat.automation.AutomationMode;
 import com.micoyc.speakthat.automation.AutomationModeManager;
+import com.micoyc.speakthat.rules.Rule;
 import com.micoyc.speakthat.rules.RuleConfigManager;
 import com.micoyc.speakthat.settings.BehaviorSettingsStore;
+import com.micoyc.speakthat.tts.TtsCatalog;
 
 public class FilterConfigManager {
     
@@ -40,6 +58,7 @@ public class FilterConfigManager {
     private static final String KEY_URL_HANDLING_MODE = "url_handling_mode";
     private static final String KEY_URL_REPLACEMENT_TEXT = "url_replacement_text";
     private static final String KEY_TIDY_SPEECH_REMOVE_EMOJIS = "tidy_speech_remove_emojis";
+    private static final String KEY_TIDY_SPEECH_SAY_EMOJI = "tidy_speech_say_emoji";
     private static final String KEY_TIDY_SPEECH_FORCE_LOWERCASE = "tidy_speech_force_lowercase";
     private static final String KEY_SEPARATE_DIGITS_ENABLED = "separate_digits_enabled";
     private static final String KEY_DIGIT_THRESHOLD = "digit_threshold";
@@ -62,6 +81,7 @@ public class FilterConfigManager {
         public String urlHandlingMode;
         public String urlReplacementText;
         public boolean tidySpeechRemoveEmojis;
+        public boolean tidySpeechSayEmoji;
         public boolean tidySpeechForceLowercase;
         public boolean separateDigitsEnabled;
         public int digitThreshold;
@@ -90,6 +110,7 @@ public class FilterConfigManager {
             this.urlHandlingMode = "domain_only";
             this.urlReplacementText = "";
             this.tidySpeechRemoveEmojis = false;
+            this.tidySpeechSayEmoji = false;
             this.tidySpeechForceLowercase = false;
             this.separateDigitsEnabled = false;
             this.digitThreshold = 5;
@@ -186,6 +207,8 @@ public class FilterConfigManager {
         public boolean notificationWhileReading; // Add notification while reading setting
         public boolean skipRepeatedNotificationPrefix;
         public int prefixMemoryTimeoutSeconds;
+        public int queueMaxAgeSeconds;
+        public boolean burstCoalescingEnabled;
         public boolean waveToStopEnabled;
         public boolean swipeToStopEnabled;
         public boolean stopOnDismissalWatchException;
@@ -230,6 +253,8 @@ public class FilterConfigManager {
             this.notificationWhileReading = false; // Default to false
             this.skipRepeatedNotificationPrefix = false; // Default to false
             this.prefixMemoryTimeoutSeconds = 60; // Default to 60 seconds
+            this.queueMaxAgeSeconds = 300; // 0 keeps queued readouts until they are read
+            this.burstCoalescingEnabled = false;
             this.waveToStopEnabled = false;
             this.waveTimeoutSeconds = 30;
             this.waveHoldDurationMs = 150; // Default wave hold duration
@@ -301,6 +326,8 @@ public class FilterConfigManager {
         public boolean success;
         public String message;
         public int filtersImported;
+        /** Rules carried by a full configuration, or null when it had none. */
+        public List<Rule> rules;
         
         public ImportResult(boolean success, String message, int filtersImported) {
             this.success = success;
@@ -327,6 +354,7 @@ public class FilterConfigManager {
         config.urlHandlingMode = prefs.getString(KEY_URL_HANDLING_MODE, "domain_only");
         config.urlReplacementText = prefs.getString(KEY_URL_REPLACEMENT_TEXT, "");
         config.tidySpeechRemoveEmojis = prefs.getBoolean(KEY_TIDY_SPEECH_REMOVE_EMOJIS, false);
+        config.tidySpeechSayEmoji = prefs.getBoolean(KEY_TIDY_SPEECH_SAY_EMOJI, false);
         config.tidySpeechForceLowercase = prefs.getBoolean(KEY_TIDY_SPEECH_FORCE_LOWERCASE, false);
         config.separateDigitsEnabled = prefs.getBoolean(KEY_SEPARATE_DIGITS_ENABLED, false);
         config.digitThreshold = prefs.getInt(KEY_DIGIT_THRESHOLD, 5);
@@ -335,37 +363,40 @@ public class FilterConfigManager {
         config.filterEmptyText = prefs.getBoolean(KEY_FILTER_EMPTY_TEXT, false);
         config.mediaFilteringEnabled = prefs.getBoolean("media_filtering_enabled", true);
         
-        // Create JSON structure
-        JSONObject json = new JSONObject();
+        // Write the JSON structure section by section
+        JsonWriter json = new JsonWriter(out);
+        json.setIndent("  ");
+        json.beginObject();
         
         // Metadata
-        JSONObject metadata = new JSONObject();
-        metadata.put("exportDate", config.exportDate);
-        metadata.put("appVersion", config.appVersion);
-        metadata.put("configVersion", config.configVersion);
-        metadata.put("exportType", "SpeakThat_FilterConfig");
-        json.put("metadata", metadata);
+        json.name("metadata").beginObject();
+        json.name("exportDate").value(config.exportDate);
+        json.name("appVersion").value(config.appVersion);
+        json.name("configVersion").value(config.configVersion);
+        json.name("exportType").value("SpeakThat_FilterConfig");
+        json.endObject();
         
         // Filter settings
-        JSONObject filters = new JSONObject();
-        filters.put("appListMode", config.appListMode);
-        filters.put("appList", new JSONArray(config.appList));
-        filters.put("appPrivateFlags", new JSONArray(config.appPrivateFlags));
-        filters.put("wordListMode", config.wordListMode);
-        filters.put("wordBlacklist", new JSONArray(config.wordBlacklist));
-        filters.put("wordBlacklistPrivate", new JSONArray(config.wordBlacklistPrivate));
-        filters.put("wordReplacements", config.wordReplacements);
-        filters.put("urlHandlingMode", config.urlHandlingMode);
-        filters.put("urlReplacementText", config.urlReplacementText);
-        filters.put("tidySpeechRemoveEmojis", config.tidySpeechRemoveEmojis);
-        filters.put("tidySpeechForceLowercase", config.tidySpeechForceLowercase);
-        filters.put("separateDigitsEnabled", config.separateDigitsEnabled);
-        filters.put("digitThreshold", config.digitThreshold);
-        filters.put("separatorType", config.separatorType);
-        filters.put("emojiExceptions", config.emojiExceptions);
-        filters.put("filterEmptyText", config.filterEmptyText);
-        filters.put("mediaFilteringEnabled", config.mediaFilteringEnabled);
-        json.put("filters", filters);
+        json.name("filters").beginObject();
+        json.name("appListMode").value(config.appListMode);
+        writeStringArray(json.name("appList"), config.appList);
+        writeStringArray(json.name("appPrivateFlags"), config.appPrivateFlags);
+        json.name("wordListMode").value(config.wordListMode);
+        writeStringArray(json.name("wordBlacklist"), config.wordBlacklist);
+        writeStringArray(json.name("wordBlacklistPrivate"), config.wordBlacklistPrivate);
+        json.name("wordReplacements").value(config.wordReplacements);
+        json.name("urlHandlingMode").value(config.urlHandlingMode);
+        json.name("urlReplacementText").value(config.urlReplacementText);
+        json.name("tidySpeechRemoveEmojis").value(config.tidySpeechRemoveEmojis);
+        json.name("tidySpeechSayEmoji").value(config.tidySpeechSayEmoji);
+        json.name("tidySpeechForceLowercase").value(config.tidySpeechForceLowercase);
+        json.name("separateDigitsEnabled").value(config.separateDigitsEnabled);
+        json.name("digitThreshold").value(config.digitThreshold);
+        json.name("separatorType").value(config.separatorType);
+        json.name("emojiExceptions").value(config.emojiExceptions);
+        json.name("filterEmptyText").value(config.filterEmptyText);
+        json.name("mediaFilteringEnabled").value(config.mediaFilteringEnabled);
+        json.endObject();
         
         // Future extension point - we can add more sections here
         // json.put("behaviorSettings", ...);
@@ -375,16 +406,17 @@ public class FilterConfigManager {
     }
     
     /**
-     * Export full configuration including all settings
+     * Stream the full configuration straight to {@code output} (e.g. a SAF document), optionally
+     * including rules. The document is written field by field, never held in memory as a whole.
+     * The stream is flushed but not closed.
      */
-    public static String exportFullConfiguration(Context context) throws JSONException {
-        return exportFullConfiguration(context, false);
+    public static void exportFullConfiguration(Context context, OutputStream output, boolean includeRules) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writeFullConfiguration(context, writer, includeRules);
+        writer.flush();
     }
 
-    /**
-     * Export full configuration including all settings, optionally including rules.
-     */
-    public static String exportFullConfiguration(Context context, boolean includeRules) throws JSONException {
+    private static void writeFullConfiguration(Context context, Writer out, boolean includeRules) throws IOException {
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         SharedPreferences voicePrefs = context.getSharedPreferences("VoiceSettings", Context.MODE_PRIVATE);
         
@@ -401,6 +433,7 @@ public class FilterConfigManager {
         config.filters.urlHandlingMode = prefs.getString(KEY_URL_HANDLING_MODE, "domain_only");
         config.filters.urlReplacementText = prefs.getString(KEY_URL_REPLACEMENT_TEXT, "");
         config.filters.tidySpeechRemoveEmojis = prefs.getBoolean(KEY_TIDY_SPEECH_REMOVE_EMOJIS, false);
+        config.filters.tidySpeechSayEmoji = prefs.getBoolean(KEY_TIDY_SPEECH_SAY_EMOJI, false);
         config.filters.tidySpeechForceLowercase = prefs.getBoolean(KEY_TIDY_SPEECH_FORCE_LOWERCASE, false);
         config.filters.separateDigitsEnabled = prefs.getBoolean(KEY_SEPARATE_DIGITS_ENABLED, false);
         config.filters.digitThreshold = prefs.getInt(KEY_DIGIT_THRESHOLD, 5);
@@ -459,6 +492,8 @@ public class FilterConfigManager {
         config.behavior.notificationWhileReading = prefs.getBoolean("notification_while_reading", false); // Add notification while reading
         config.behavior.skipRepeatedNotificationPrefix = prefs.getBoolean("skip_notification_repeated_prefix", false);
         config.behavior.prefixMemoryTimeoutSeconds = prefs.getInt("prefix_memory_timeout_seconds", 60);
+        config.behavior.queueMaxAgeSeconds = prefs.getInt("queue_max_age_seconds", 300);
+        config.behavior.burstCoalescingEnabled = prefs.getBoolean("burst_coalescing_enabled", false);
         config.behavior.waveToStopEnabled = prefs.getBoolean("wave_to_stop_enabled", false);
         config.behavior.swipeToStopEnabled = prefs.getBoolean("pref_swip_to_stop", true);
         config.behavior.stopOnDismissalWatchException = prefs.getBoolean("pref_stop_on_dismissal_watch_exception", false);
@@ -503,154 +538,174 @@ public class FilterConfigManager {
         config.statistics.filterReasons = new HashMap<>(statsSnapshot.getFilterReasons());
         config.statistics.appsRead = new HashSet<>(statsSnapshot.getAppsRead());
         
-        // Create JSON structure
-        JSONObject json = new JSONObject();
+        // Write the JSON structure section by section
+        JsonWriter json = new JsonWriter(out);
+        json.setIndent("  ");
+        json.beginObject();
         
         // Metadata
-        JSONObject metadata = new JSONObject();
-        metadata.put("exportDate", config.exportDate);
-        metadata.put("appVersion", config.appVersion);
-        metadata.put("configVersion", config.configVersion);
-        metadata.put("exportType", "SpeakThat_FullConfig");
-        json.put("metadata", metadata);
+        json.name("metadata").beginObject();
+        json.name("exportDate").value(config.exportDate);
+        json.name("appVersion").value(config.appVersion);
+        json.name("configVersion").value(config.configVersion);
+        json.name("exportType").value("SpeakThat_FullConfig");
+        json.endObject();
         
         // Filter settings
-        JSONObject filters = new JSONObject();
-        filters.put("appListMode", config.filters.appListMode);
-        filters.put("appList", new JSONArray(config.filters.appList));
-        filters.put("appPrivateFlags", new JSONArray(config.filters.appPrivateFlags));
-        filters.put("wordListMode", config.filters.wordListMode);
-        filters.put("wordBlacklist", new JSONArray(config.filters.wordBlacklist));
-        filters.put("wordBlacklistPrivate", new JSONArray(config.filters.wordBlacklistPrivate));
-        filters.put("wordReplacements", config.filters.wordReplacements);
-        filters.put("urlHandlingMode", config.filters.urlHandlingMode);
-        filters.put("urlReplacementText", config.filters.urlReplacementText);
-        filters.put("tidySpeechRemoveEmojis", config.filters.tidySpeechRemoveEmojis);
-        filters.put("tidySpeechForceLowercase", config.filters.tidySpeechForceLowercase);
-        filters.put("separateDigitsEnabled", config.filters.separateDigitsEnabled);
-        filters.put("digitThreshold", config.filters.digitThreshold);
-        filters.put("separatorType", config.filters.separatorType);
-        filters.put("emojiExceptions", config.filters.emojiExceptions);
-        filters.put("mediaFilteringEnabled", config.filters.mediaFilteringEnabled);
+        json.name("filters").beginObject();
+        json.name("appListMode").value(config.filters.appListMode);
+        writeStringArray(json.name("appList"), config.filters.appList);
+        writeStringArray(json.name("appPrivateFlags"), config.filters.appPrivateFlags);
+        json.name("wordListMode").value(config.filters.wordListMode);
+        writeStringArray(json.name("wordBlacklist"), config.filters.wordBlacklist);
+        writeStringArray(json.name("wordBlacklistPrivate"), config.filters.wordBlacklistPrivate);
+        json.name("wordReplacements").value(config.filters.wordReplacements);
+        json.name("urlHandlingMode").value(config.filters.urlHandlingMode);
+        json.name("urlReplacementText").value(config.filters.urlReplacementText);
+        json.name("tidySpeechRemoveEmojis").value(config.filters.tidySpeechRemoveEmojis);
+        json.name("tidySpeechSayEmoji").value(config.filters.tidySpeechSayEmoji);
+        json.name("tidySpeechForceLowercase").value(config.filters.tidySpeechForceLowercase);
+        json.name("separateDigitsEnabled").value(config.filters.separateDigitsEnabled);
+        json.name("digitThreshold").value(config.filters.digitThreshold);
+        json.name("separatorType").value(config.filters.separatorType);
+        json.name("emojiExceptions").value(config.filters.emojiExceptions);
+        json.name("mediaFilteringEnabled").value(config.filters.mediaFilteringEnabled);
         // Persistent/silent filtering settings
-        filters.put("persistentFilteringEnabled", config.filters.persistentFilteringEnabled);
-        filters.put("filterPersistent", config.filters.filterPersistent);
-        filters.put("filterSilent", config.filters.filterSilent);
-        filters.put("filterForegroundServices", config.filters.filterForegroundServices);
-        filters.put("filterLowPriority", config.filters.filterLowPriority);
-        filters.put("filterSystemNotifications", config.filters.filterSystemNotifications);
-        json.put("filters", filters);
+        json.name("persistentFilteringEnabled").value(config.filters.persistentFilteringEnabled);
+        json.name("filterPersistent").value(config.filters.filterPersistent);
+        json.name("filterSilent").value(config.filters.filterSilent);
+        json.name("filterForegroundServices").value(config.filters.filterForegroundServices);
+        json.name("filterLowPriority").value(config.filters.filterLowPriority);
+        json.name("filterSystemNotifications").value(config.filters.filterSystemNotifications);
+        json.endObject();
         
         // Voice settings
-        JSONObject voice = new JSONObject();
-        voice.put("speechRate", config.voice.speechRate);
-        voice.put("pitch", config.voice.pitch);
-        voice.put("ttsVolume", config.voice.ttsVolume);
-        voice.put("voiceName", config.voice.voiceName);
-        voice.put("language", config.voice.language);
-        voice.put("ttsLanguage", config.voice.ttsLanguage);           // NEW
-        voice.put("languagePreset", config.voice.languagePreset);   // NEW
-        voice.put("isCustomPreset", config.voice.isCustomPreset);   // NEW
-        voice.put("advancedEnabled", config.voice.advancedEnabled); // NEW
-        voice.put("audioUsage", config.voice.audioUsage);
-        voice.put("contentType", config.voice.contentType);
-        voice.put("ttsEngine", config.voice.ttsEngine);
-        voice.put("speakerphoneEnabled", config.voice.speakerphoneEnabled);
-        voice.put("autoDetectLanguage", config.voice.autoDetectLanguage);
-        json.put("voice", voice);
+        json.name("voice").beginObject();
+        json.name("speechRate").value(config.voice.speechRate);
+        json.name("pitch").value(config.voice.pitch);
+        json.name("ttsVolume").value(config.voice.ttsVolume);
+        json.name("voiceName").value(config.voice.voiceName);
+        json.name("language").value(config.voice.language);
+        json.name("ttsLanguage").value(config.voice.ttsLanguage);           // NEW
+        json.name("languagePreset").value(config.voice.languagePreset);   // NEW
+        json.name("isCustomPreset").value(config.voice.isCustomPreset);   // NEW
+        json.name("advancedEnabled").value(config.voice.advancedEnabled); // NEW
+        json.name("audioUsage").value(config.voice.audioUsage);
+        json.name("contentType").value(config.voice.contentType);
+        json.name("ttsEngine").value(config.voice.ttsEngine);
+        json.name("speakerphoneEnabled").value(config.voice.speakerphoneEnabled);
+        json.name("autoDetectLanguage").value(config.voice.autoDetectLanguage);
+        json.endObject();
         
         // Behavior settings
-        JSONObject behavior = new JSONObject();
-        behavior.put("notificationBehavior", config.behavior.notificationBehavior);
-        behavior.put("priorityApps", new JSONArray(config.behavior.priorityApps));
-        behavior.put("shakeToStopEnabled", config.behavior.shakeToStopEnabled);
-        behavior.put("shakeThreshold", config.behavior.shakeThreshold);
-        behavior.put("shakeTimeoutSeconds", config.behavior.shakeTimeoutSeconds);
-        behavior.put("mediaBehavior", config.behavior.mediaBehavior);
-        behavior.put("duckingVolume", config.behavior.duckingVolume);
-        behavior.put("duckingFallbackStrategy", config.behavior.duckingFallbackStrategy);
-        behavior.put("delayBeforeReadout", config.behavior.delayBeforeReadout);
-        behavior.put("earconMode", config.behavior.earconMode);
-        behavior.put("honourDoNotDisturb", config.behavior.honourDoNotDisturb);
-        behavior.put("honourPhoneCalls", config.behavior.honourPhoneCalls); // Add honour phone calls
-        behavior.put("honourSilentMode", config.behavior.honourSilentMode); // Split audio mode
-        behavior.put("honourVibrateMode", config.behavior.honourVibrateMode); // Split audio mode
-        behavior.put("honourAudioMode", config.behavior.honourAudioMode); // Legacy combined flag
-        behavior.put("persistentNotification", config.behavior.persistentNotification); // Add persistent notification
-        behavior.put("notificationWhileReading", config.behavior.notificationWhileReading); // Add notification while reading
-        behavior.put("skipRepeatedNotificationPrefix", config.behavior.skipRepeatedNotificationPrefix);
-        behavior.put("prefixMemoryTimeoutSeconds", config.behavior.prefixMemoryTimeoutSeconds);
-        behavior.put("waveToStopEnabled", config.behavior.waveToStopEnabled);
-        behavior.put("swipeToStopEnabled", config.behavior.swipeToStopEnabled);
-        behavior.put("stopOnDismissalWatchException", config.behavior.stopOnDismissalWatchException);
-        behavior.put("stopOnDismissalAutoCancel", config.behavior.stopOnDismissalAutoCancel);
-        behavior.put("waveTimeoutSeconds", config.behavior.waveTimeoutSeconds);
-        behavior.put("waveHoldDurationMs", (int) config.behavior.waveHoldDurationMs); // Cast long to int for JSON
-        behavior.put("pocketModeEnabled", config.behavior.pocketModeEnabled);
-        behavior.put("customAppNames", config.behavior.customAppNames);
-        behavior.put("cooldownApps", config.behavior.cooldownApps);
-        behavior.put("speechTemplate", config.behavior.speechTemplate);
-        behavior.put("contentCapMode", config.behavior.contentCapMode);
-        behavior.put("contentCapWordCount", config.behavior.contentCapWordCount);
-        behavior.put("contentCapSentenceCount", config.behavior.contentCapSentenceCount);
-        behavior.put("contentCapTimeLimit", config.behavior.contentCapTimeLimit);
-        behavior.put("notificationDeduplication", config.behavior.notificationDeduplication);
-        behavior.put("includeNotificationTimestamps", config.behavior.includeNotificationTimestamps);
-        behavior.put("dismissalMemoryEnabled", config.behavior.dismissalMemoryEnabled);
-        behavior.put("dismissalMemoryTimeout", config.behavior.dismissalMemoryTimeout);
-        behavior.put("disableMediaFallback", config.behavior.disableMediaFallback);
-        behavior.put("enableLegacyDucking", config.behavior.enableLegacyDucking);
-        behavior.put("dontUseSpeaker", config.behavior.dontUseSpeaker); // NEW
-        behavior.put("androidAutoDisableSpeakThat", config.behavior.androidAutoDisableSpeakThat);
-        behavior.put("androidAutoDisableSco", config.behavior.androidAutoDisableSco);
-        json.put("behavior", behavior);
+        json.name("behavior").beginObject();
+        json.name("notificationBehavior").value(config.behavior.notificationBehavior);
+        writeStringArray(json.name("priorityApps"), config.behavior.priorityApps);
+        json.name("shakeToStopEnabled").value(config.behavior.shakeToStopEnabled);
+        json.name("shakeThreshold").value(config.behavior.shakeThreshold);
+        json.name("shakeTimeoutSeconds").value(config.behavior.shakeTimeoutSeconds);
+        json.name("mediaBehavior").value(config.behavior.mediaBehavior);
+        json.name("duckingVolume").value(config.behavior.duckingVolume);
+        json.name("duckingFallbackStrategy").value(config.behavior.duckingFallbackStrategy);
+        json.name("delayBeforeReadout").value(config.behavior.delayBeforeReadout);
+        json.name("earconMode").value(config.behavior.earconMode);
+        json.name("honourDoNotDisturb").value(config.behavior.honourDoNotDisturb);
+        json.name("honourPhoneCalls").value(config.behavior.honourPhoneCalls); // Add honour phone calls
+        json.name("honourSilentMode").value(config.behavior.honourSilentMode); // Split audio mode
+        json.name("honourVibrateMode").value(config.behavior.honourVibrateMode); // Split audio mode
+        json.name("honourAudioMode").value(config.behavior.honourAudioMode); // Legacy combined flag
+        json.name("persistentNotification").value(config.behavior.persistentNotification); // Add persistent notification
+        json.name("notificationWhileReading").value(config.behavior.notificationWhileReading); // Add notification while reading
+        json.name("skipRepeatedNotificationPrefix").value(config.behavior.skipRepeatedNotificationPrefix);
+        json.name("prefixMemoryTimeoutSeconds").value(config.behavior.prefixMemoryTimeoutSeconds);
+        json.name("queueMaxAgeSeconds").value(config.behavior.queueMaxAgeSeconds);
+        json.name("burstCoalescingEnabled").value(config.behavior.burstCoalescingEnabled);
+        json.name("waveToStopEnabled").value(config.behavior.waveToStopEnabled);
+        json.name("swipeToStopEnabled").value(config.behavior.swipeToStopEnabled);
+        json.name("stopOnDismissalWatchException").value(config.behavior.stopOnDismissalWatchException);
+        json.name("stopOnDismissalAutoCancel").value(config.behavior.stopOnDismissalAutoCancel);
+        json.name("waveTimeoutSeconds").value(config.behavior.waveTimeoutSeconds);
+        json.name("waveHoldDurationMs").value((int) config.behavior.waveHoldDurationMs); // Cast long to int for JSON
+        json.name("pocketModeEnabled").value(config.behavior.pocketModeEnabled);
+        json.name("customAppNames").value(config.behavior.customAppNames);
+        json.name("cooldownApps").value(config.behavior.cooldownApps);
+        json.name("speechTemplate").value(config.behavior.speechTemplate);
+        json.name("contentCapMode").value(config.behavior.contentCapMode);
+        json.name("contentCapWordCount").value(config.behavior.contentCapWordCount);
+        json.name("contentCapSentenceCount").value(config.behavior.contentCapSentenceCount);
+        json.name("contentCapTimeLimit").value(config.behavior.contentCapTimeLimit);
+        json.name("notificationDeduplication").value(config.behavior.notificationDeduplication);
+        json.name("includeNotificationTimestamps").value(config.behavior.includeNotificationTimestamps);
+        json.name("dismissalMemoryEnabled").value(config.behavior.dismissalMemoryEnabled);
+        json.name("dismissalMemoryTimeout").value(config.behavior.dismissalMemoryTimeout);
+        json.name("disableMediaFallback").value(config.behavior.disableMediaFallback);
+        json.name("enableLegacyDucking").value(config.behavior.enableLegacyDucking);
+        json.name("dontUseSpeaker").value(config.behavior.dontUseSpeaker); // NEW
+        json.name("androidAutoDisableSpeakThat").value(config.behavior.androidAutoDisableSpeakThat);
+        json.name("androidAutoDisableSco").value(config.behavior.androidAutoDisableSco);
+        json.endObject();
         
         // General settings
-        JSONObject general = new JSONObject();
-        general.put("darkMode", config.general.darkMode);
-        general.put("autoStartOnBoot", config.general.autoStartOnBoot);
-        general.put("batteryOptimizationDisabled", config.general.batteryOptimizationDisabled);
-        general.put("aggressiveBackgroundProcessing", config.general.aggressiveBackgroundProcessing);
-        general.put("serviceRestartPolicy", config.general.serviceRestartPolicy);
-        general.put("automationMode", config.general.automationMode);
-        json.put("general", general);
+        json.name("general").beginObject();
+        json.name("darkMode").value(config.general.darkMode);
+        json.name("autoStartOnBoot").value(config.general.autoStartOnBoot);
+        json.name("batteryOptimizationDisabled").value(config.general.batteryOptimizationDisabled);
+        json.name("aggressiveBackgroundProcessing").value(config.general.aggressiveBackgroundProcessing);
+        json.name("serviceRestartPolicy").value(config.general.serviceRestartPolicy);
+        json.name("automationMode").value(config.general.automationMode);
+        json.endObject();
 
         // Statistics
-        JSONObject statistics = new JSONObject();
-        statistics.put("notificationsReceived", config.statistics.notificationsReceived);
-        statistics.put("notificationsRead", config.statistics.notificationsRead);
-        statistics.put("readoutsInterrupted", config.statistics.readoutsInterrupted);
-        statistics.put("listenerRebinds", config.statistics.listenerRebinds);
-        statistics.put("listenerRebindsSkipped", config.statistics.listenerRebindsSkipped);
-        statistics.put("listenerRebindsRecovered", config.statistics.listenerRebindsRecovered);
-        statistics.put("logoTaps", config.statistics.logoTaps);
-        statistics.put("filterReasons", new JSONObject(config.statistics.filterReasons));
-        statistics.put("appsRead", new JSONArray(config.statistics.appsRead));
-        json.put("statistics", statistics);
+        json.name("statistics").beginObject();
+        json.name("notificationsReceived").value(config.statistics.notificationsReceived);
+        json.name("notificationsRead").value(config.statistics.notificationsRead);
+        json.name("readoutsInterrupted").value(config.statistics.readoutsInterrupted);
+        json.name("listenerRebinds").value(config.statistics.listenerRebinds);
+        json.name("listenerRebindsSkipped").value(config.statistics.listenerRebindsSkipped);
+        json.name("listenerRebindsRecovered").value(config.statistics.listenerRebindsRecovered);
+        json.name("logoTaps").value(config.statistics.logoTaps);
+        writeIntMap(json.name("filterReasons"), config.statistics.filterReasons);
+        writeStringArray(json.name("appsRead"), config.statistics.appsRead);
+        json.endObject();
 
         // Play donation badge count (safe to read on any flavor; prefs will simply be empty on non-Play builds)
         SharedPreferences donationPrefs = context.getSharedPreferences("play_donations", Context.MODE_PRIVATE);
         int badgeCount = donationPrefs.getInt("badge_count", 0);
         if (badgeCount > 0) {
-            JSONObject playDonations = new JSONObject();
-            playDonations.put("badge_count", badgeCount);
-            json.put("play_donations", playDonations);
+            json.name("play_donations").beginObject();
+            json.name("badge_count").value(badgeCount);
+            json.endObject();
         }
 
         if (includeRules) {
+            // Serialise the rules to a buffer first so a failure cannot leave a half-written array
+            StringWriter rulesBuffer = new StringWriter();
             try {
-                String rulesExport = RuleConfigManager.exportRules(context);
-                JSONObject rulesJson = new JSONObject(rulesExport);
-                JSONArray rulesArray = rulesJson.optJSONArray("rules");
-                if (rulesArray != null) {
-                    json.put("rules", rulesArray);
-                }
+                RuleConfigManager.writeRules(context, new JsonWriter(rulesBuffer));
+                json.name("rules").jsonValue(rulesBuffer.toString());
             } catch (Exception e) {
                 InAppLogger.logError("FilterConfig", "Failed to append rules to export: " + e.getMessage());
             }
         }
-        
-        return json.toString(2); // Pretty print with 2-space indentation
+
+        json.endObject();
+        json.flush();
+    }
+
+    private static void writeStringArray(JsonWriter json, Set<String> values) throws IOException {
+        json.beginArray();
+        for (String value : values) {
+            json.value(value);
+        }
+        json.endArray();
+    }
+
+    private static void writeIntMap(JsonWriter json, Map<String, Integer> values) throws IOException {
+        json.beginObject();
+        for (Map.Entry<String, Integer> entry : values.entrySet()) {
+            json.name(entry.getKey()).value(entry.getValue());
+        }
+        json.endObject();
     }
     
     /**
@@ -751,6 +806,11 @@ public class FilterConfigManager {
                 filtersImported++;
             }
 
+            if (filters.has("tidySpeechSayEmoji")) {
+                editor.putBoolean(KEY_TIDY_SPEECH_SAY_EMOJI, filters.getBoolean("tidySpeechSayEmoji"));
+                filtersImported++;
+            }
+
             if (filters.has("tidySpeechForceLowercase")) {
                 editor.putBoolean(KEY_TIDY_SPEECH_FORCE_LOWERCASE, filters.getBoolean("tidySpeechForceLowercase"));
                 filtersImported++;
@@ -804,635 +864,884 @@ public class FilterConfigManager {
     }
     
     /**
-     * Import full configuration including all settings
+     * Import full configuration streamed from {@code input} (e.g. a SAF document). The stream is
+     * not closed.
      */
-    public static ImportResult importFullConfiguration(Context context, String jsonData) {
+    public static ImportResult importFullConfiguration(Context context, InputStream input) {
+        return importFullConfiguration(context, new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Two passes. The dry run streams the document once, holding at most one section in memory,
+     * validating it and staging its writes. Only when the whole file has been read successfully is
+     * the staged result applied, as a diff against the current values, through one editor per
+     * preferences file. A file that fails half way therefore changes nothing.
+     */
+    private static ImportResult importFullConfiguration(Context context, Reader source) {
         try {
-            JSONObject json = new JSONObject(jsonData);
-            
-            // Validate this is a SpeakThat full config
-            if (!json.has("metadata")) {
-                return new ImportResult(false, "Invalid file format: Missing metadata section", 0);
+            ImportPlan plan = new ImportPlan();
+            String error = readImportPlan(context, new JsonReader(source), plan);
+            if (error != null) {
+                return new ImportResult(false, error, 0);
             }
-            
-            JSONObject metadata = json.getJSONObject("metadata");
-            String exportType = metadata.optString("exportType", "");
-            if (!exportType.equals("SpeakThat_FullConfig") && !exportType.equals("SpeakThat_FilterConfig")) {
-                return new ImportResult(false, "Invalid file format: Not a SpeakThat configuration", 0);
+
+            int changed = plan.mainEditor.applyTo(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+            changed += plan.voiceEditor.applyTo(context.getSharedPreferences("VoiceSettings", Context.MODE_PRIVATE));
+            InAppLogger.log("FilterConfig", "Full import changed " + changed + " stored preferences");
+
+            if (plan.statistics != null) {
+                StatisticsManager.Companion.importSnapshot(context, plan.statistics);
             }
-            
-            // Check version compatibility
-            String importVersion = metadata.optString("configVersion", "1.0");
-            if (!isVersionCompatible(importVersion)) {
-                return new ImportResult(false, "Incompatible configuration version: " + importVersion, 0);
+
+            if (plan.badgeCount >= 0) {
+                SharedPreferences.Editor donationEditor = context.getSharedPreferences("play_donations", Context.MODE_PRIVATE).edit();
+                donationEditor.putInt("badge_count", plan.badgeCount);
+                donationEditor.apply();
+                InAppLogger.log("FilterConfig", "Imported Play donation badge count: " + plan.badgeCount);
+            }
+
+            if (plan.automationMode != null) {
+                new AutomationModeManager(context).setMode(AutomationMode.fromPrefValue(plan.automationMode));
+                InAppLogger.log("FilterConfig", "Imported automation mode: " + plan.automationMode);
             }
             
-            SharedPreferences.Editor mainEditor = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit();
-            SharedPreferences.Editor voiceEditor = context.getSharedPreferences("VoiceSettings", Context.MODE_PRIVATE).edit();
+            // Handle legacy import preset migration
+            processLegacyImportPresets(context);
             
-            int totalImported = 0;
-            String importedAutomationMode = null;
+            // Log the import
+            InAppLogger.log("FilterConfig", "Imported " + plan.totalImported + " settings from full configuration");
             
-            // Import filter settings (if present)
-            if (json.has("filters")) {
-                JSONObject filters = json.getJSONObject("filters");
-                
-                if (filters.has("appListMode")) {
-                    mainEditor.putString(KEY_APP_LIST_MODE, filters.getString("appListMode"));
-                    totalImported++;
-                }
-                
-                if (filters.has("appList")) {
-                    Set<String> appList = jsonArrayToStringSet(filters.getJSONArray("appList"));
-                    mainEditor.putStringSet(KEY_APP_LIST, appList);
-                    totalImported += appList.size();
-                }
-                
-                if (filters.has("appPrivateFlags")) {
-                    Set<String> appPrivateFlags = jsonArrayToStringSet(filters.getJSONArray("appPrivateFlags"));
-                    mainEditor.putStringSet(KEY_APP_PRIVATE_FLAGS, appPrivateFlags);
-                    totalImported += appPrivateFlags.size();
-                }
-                
-                // Import word list mode (default to blacklist for backward compatibility)
-                if (filters.has("wordListMode")) {
-                    mainEditor.putString(KEY_WORD_LIST_MODE, filters.getString("wordListMode"));
-                    totalImported++;
-                } else {
-                    // If importing old config without wordListMode, default to blacklist
-                    mainEditor.putString(KEY_WORD_LIST_MODE, "blacklist");
-                }
-                
-                if (filters.has("wordBlacklist")) {
-                    Set<String> wordBlacklist = jsonArrayToStringSet(filters.getJSONArray("wordBlacklist"));
-                    mainEditor.putStringSet(KEY_WORD_BLACKLIST, wordBlacklist);
-                    totalImported += wordBlacklist.size();
-                }
-                
-                if (filters.has("wordBlacklistPrivate")) {
-                    Set<String> wordBlacklistPrivate = jsonArrayToStringSet(filters.getJSONArray("wordBlacklistPrivate"));
-                    mainEditor.putStringSet(KEY_WORD_BLACKLIST_PRIVATE, wordBlacklistPrivate);
-                    totalImported += wordBlacklistPrivate.size();
-                }
-                
-                if (filters.has("wordReplacements")) {
-                    String wordReplacements = filters.getString("wordReplacements");
-                    String normalized = WordReplacementsStorage.normalizeImportedValue(wordReplacements);
-                    mainEditor.putString(KEY_WORD_REPLACEMENTS, normalized);
-                    if (!normalized.isEmpty()) {
-                        totalImported += WordReplacementsStorage.countSwaps(normalized);
+            ImportResult result = new ImportResult(true, "Successfully imported " + plan.totalImported + " settings from full configuration", plan.totalImported);
+            result.rules = plan.rules;
+            return result;
+            
+        } catch (JSONException | IOException | IllegalStateException e) {
+            // JsonReader reports malformed input as IOException and unexpected tokens as IllegalStateException
+            InAppLogger.logError("FilterConfig", "Full import failed: " + e.getMessage());
+            return new ImportResult(false, "Invalid JSON format: " + e.getMessage(), 0);
+        } catch (Exception e) {
+            InAppLogger.logError("FilterConfig", "Full import error: " + e.getMessage());
+            return new ImportResult(false, "Import failed: " + e.getMessage(), 0);
+        }
+    }
+
+    /**
+     * The dry-run pass: read every top-level section into {@code plan} without touching any
+     * preferences. Returns an error message when the file is not an importable configuration.
+     */
+    private static String readImportPlan(Context context, JsonReader reader, ImportPlan plan) throws IOException, JSONException {
+        boolean hasMetadata = false;
+        boolean hasSnakeCaseDonations = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String section = reader.nextName();
+            switch (section) {
+                case "metadata": {
+                    String error = validateFullConfigMetadata(readObject(reader));
+                    if (error != null) {
+                        return error;
                     }
-                }
-                
-                // Import URL handling settings
-                if (filters.has("urlHandlingMode")) {
-                    mainEditor.putString(KEY_URL_HANDLING_MODE, filters.getString("urlHandlingMode"));
-                    totalImported++;
-                }
-                
-                if (filters.has("urlReplacementText")) {
-                    mainEditor.putString(KEY_URL_REPLACEMENT_TEXT, filters.getString("urlReplacementText"));
-                    totalImported++;
-                }
+                    hasMetadata = true;
+                    break;
+                }
+                case "filters":
+                    plan.totalImported += importFilterSection(readObject(reader), plan.mainEditor);
+                    break;
+                case "voice":
+                    plan.totalImported += importVoiceSection(context, readObject(reader), plan.voiceEditor);
+                    break;
+                case "behavior":
+                    plan.totalImported += importBehaviorSection(readObject(reader), plan.mainEditor);
+                    break;
+                case "general":
+                    plan.totalImported += importGeneralSection(readObject(reader), plan.mainEditor, plan);
+                    break;
+                case "statistics": {
+                    // Overwrites current stats once applied
+                    JSONObject statistics = readObject(reader);
+                    plan.statistics = StatisticsManager.Companion.snapshotFromJson(statistics);
+                    plan.totalImported += countStatistics(statistics);
+                    break;
+                }
+                case "play_donations":
+                case "playDonations": {
+                    JSONObject playDonations = readObject(reader);
+                    // The snake_case section wins when a file carries both spellings
+                    if (section.equals("playDonations") && hasSnakeCaseDonations) {
+                        break;
+                    }
+                    hasSnakeCaseDonations |= section.equals("play_donations");
+                    if (playDonations.has("badge_count") || playDonations.has("badgeCount")) {
+                        int importedBadgeCount = playDonations.has("badge_count") ? playDonations.getInt("badge_count") : playDonations.getInt("badgeCount");
+                        if (importedBadgeCount >= 0) {
+                            if (plan.badgeCount < 0) {
+                                plan.totalImported++;
+                            }
+                            plan.badgeCount = importedBadgeCount;
+                        }
+                    }
+                    break;
+                }
+                case "rules":
+                    plan.rules = RuleConfigManager.readRules(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
 
-                if (filters.has("tidySpeechRemoveEmojis")) {
-                    mainEditor.putBoolean(KEY_TIDY_SPEECH_REMOVE_EMOJIS, filters.getBoolean("tidySpeechRemoveEmojis"));
-                    totalImported++;
-                }
+        if (!hasMetadata) {
+            return "Invalid file format: Missing metadata section";
+        }
+        return null;
+    }
 
-                if (filters.has("tidySpeechForceLowercase")) {
-                    mainEditor.putBoolean(KEY_TIDY_SPEECH_FORCE_LOWERCASE, filters.getBoolean("tidySpeechForceLowercase"));
-                    totalImported++;
-                }
+    private static String validateFullConfigMetadata(JSONObject metadata) {
+        String exportType = metadata.optString("exportType", "");
+        if (!exportType.equals("SpeakThat_FullConfig") && !exportType.equals("SpeakThat_FilterConfig")) {
+            return "Invalid file format: Not a SpeakThat configuration";
+        }
+        
+        // Check version compatibility
+        String importVersion = metadata.optString("configVersion", "1.0");
+        if (!isVersionCompatible(importVersion)) {
+            return "Incompatible configuration version: " + importVersion;
+        }
+        return null;
+    }
 
-                if (filters.has("separateDigitsEnabled")) {
-                    mainEditor.putBoolean(KEY_SEPARATE_DIGITS_ENABLED, filters.getBoolean("separateDigitsEnabled"));
-                    totalImported++;
-                }
+    private static int countStatistics(JSONObject statistics) {
+        int statsImported = 0;
+        if (statistics.has("notificationsReceived")) statsImported++;
+        if (statistics.has("notificationsRead")) statsImported++;
+        if (statistics.has("readoutsInterrupted")) statsImported++;
+        if (statistics.has("listenerRebinds")) statsImported++;
+        if (statistics.has("listenerRebindsSkipped")) statsImported++;
+        if (statistics.has("listenerRebindsRecovered")) statsImported++;
+        if (statistics.has("logoTaps")) statsImported++;
 
-                if (filters.has("digitThreshold")) {
-                    mainEditor.putInt(KEY_DIGIT_THRESHOLD, filters.getInt("digitThreshold"));
-                    totalImported++;
-                }
+        JSONObject filterReasonsJson = statistics.optJSONObject("filterReasons");
+        if (filterReasonsJson != null) {
+            statsImported += filterReasonsJson.length();
+        } else if (statistics.has("filterReasons")) {
+            statsImported++;
+        }
 
-                if (filters.has("separatorType")) {
-                    mainEditor.putString(KEY_SEPARATOR_TYPE, filters.getString("separatorType"));
-                    totalImported++;
-                }
+        JSONArray appsReadJson = statistics.optJSONArray("appsRead");
+        if (appsReadJson != null) {
+            statsImported += appsReadJson.length();
+        } else if (statistics.has("appsRead")) {
+            statsImported++;
+        }
+        return statsImported;
+    }
 
-                if (filters.has("emojiExceptions")) {
-                    mainEditor.putString(KEY_PREF_EMOJI_EXCEPTIONS, filters.getString("emojiExceptions"));
-                    totalImported++;
-                }
+    /**
+     * Stage the "filters" section; returns the number of settings imported.
+     */
+    private static int importFilterSection(JSONObject filters, StagedPreferences mainEditor) throws JSONException {
+        int totalImported = 0;
 
-                if (filters.has("filterEmptyText")) {
-                    mainEditor.putBoolean(KEY_FILTER_EMPTY_TEXT, filters.getBoolean("filterEmptyText"));
-                    totalImported++;
-                }
-                
-                // Import media filtering settings
-                if (filters.has("mediaFilteringEnabled")) {
-                    mainEditor.putBoolean("media_filtering_enabled", filters.getBoolean("mediaFilteringEnabled"));
-                    totalImported++;
-                }
-                
-                // Import persistent/silent filtering settings
-                if (filters.has("persistentFilteringEnabled")) {
-                    mainEditor.putBoolean("persistent_filtering_enabled", filters.getBoolean("persistentFilteringEnabled"));
-                    totalImported++;
-                }
-                
-                if (filters.has("filterPersistent")) {
-                    mainEditor.putBoolean("filter_persistent", filters.getBoolean("filterPersistent"));
-                    totalImported++;
-                }
-                
-                if (filters.has("filterSilent")) {
-                    mainEditor.putBoolean("filter_silent", filters.getBoolean("filterSilent"));
-                    totalImported++;
-                }
-                
-                if (filters.has("filterForegroundServices")) {
-                    mainEditor.putBoolean("filter_foreground_services", filters.getBoolean("filterForegroundServices"));
-                    totalImported++;
-                }
-                
-                if (filters.has("filterLowPriority")) {
-                    mainEditor.putBoolean("filter_low_priority", filters.getBoolean("filterLowPriority"));
-                    totalImported++;
-                }
-                
-                if (filters.has("filterSystemNotifications")) {
-                    mainEditor.putBoolean("filter_system_notifications", filters.getBoolean("filterSystemNotifications"));
-                    totalImported++;
-                }
+        if (filters.has("appListMode")) {
+            mainEditor.putString(KEY_APP_LIST_MODE, filters.getString("appListMode"));
+            totalImported++;
+        }
+        
+        if (filters.has("appList")) {
+            Set<String> appList = jsonArrayToStringSet(filters.getJSONArray("appList"));
+            mainEditor.putStringSet(KEY_APP_LIST, appList);
+            totalImported += appList.size();
+        }
+        
+        if (filters.has("appPrivateFlags")) {
+            Set<String> appPrivateFlags = jsonArrayToStringSet(filters.getJSONArray("appPrivateFlags"));
+            mainEditor.putStringSet(KEY_APP_PRIVATE_FLAGS, appPrivateFlags);
+            totalImported += appPrivateFlags.size();
+        }
+        
+        // Import word list mode (default to blacklist for backward compatibility)
+        if (filters.has("wordListMode")) {
+            mainEditor.putString(KEY_WORD_LIST_MODE, filters.getString("wordListMode"));
+            totalImported++;
+        } else {
+            // If importing old config without wordListMode, default to blacklist
+            mainEditor.putString(KEY_WORD_LIST_MODE, "blacklist");
+        }
+        
+        if (filters.has("wordBlacklist")) {
+            Set<String> wordBlacklist = jsonArrayToStringSet(filters.getJSONArray("wordBlacklist"));
+            mainEditor.putStringSet(KEY_WORD_BLACKLIST, wordBlacklist);
+            totalImported += wordBlacklist.size();
+        }
+        
+        if (filters.has("wordBlacklistPrivate")) {
+            Set<String> wordBlacklistPrivate = jsonArrayToStringSet(filters.getJSONArray("wordBlacklistPrivate"));
+            mainEditor.putStringSet(KEY_WORD_BLACKLIST_PRIVATE, wordBlacklistPrivate);
+            totalImported += wordBlacklistPrivate.size();
+        }
+        
+        if (filters.has("wordReplacements")) {
+            String wordReplacements = filters.getString("wordReplacements");
+            String normalized = WordReplacementsStorage.normalizeImportedValue(wordReplacements);
+            mainEditor.putString(KEY_WORD_REPLACEMENTS, normalized);
+            if (!normalized.isEmpty()) {
+                totalImported += WordReplacementsStorage.countSwaps(normalized);
             }
-            
-            // Import voice settings (if present)
-            if (json.has("voice")) {
-                JSONObject voice = json.getJSONObject("voice");
-                
-                if (voice.has("speechRate")) {
-                    float speechRate = roundToTwoDecimalPlaces((float) voice.getDouble("speechRate"));
-                    voiceEditor.putFloat("speech_rate", speechRate);
-                    totalImported++;
-                }
-                
-                if (voice.has("pitch")) {
-                    float pitch = VoiceSettingsActivity.sanitizePitchForStorage((float) voice.getDouble("pitch"));
-                    voiceEditor.putFloat("pitch", pitch);
-                    totalImported++;
-                }
-                
-                if (voice.has("ttsVolume")) {
-                    voiceEditor.putFloat("tts_volume", Math.min(1.0f, (float) voice.getDouble("ttsVolume")));
-                    totalImported++;
-                }
-                
-                if (voice.has("voiceName")) {
-                    voiceEditor.putString("voice_name", voice.getString("voiceName"));
-                    totalImported++;
-                }
-                
-                if (voice.has("language")) {
-                    voiceEditor.putString("language", voice.getString("language"));
-                    totalImported++;
-                }
-                
-                if (voice.has("audioUsage")) {
-                    voiceEditor.putInt("audio_usage", voice.getInt("audioUsage"));
-                    totalImported++;
-                }
-                
-                if (voice.has("contentType")) {
-                    voiceEditor.putInt("content_type", voice.getInt("contentType"));
-                    totalImported++;
-                }
-                
-                // NEW PRESET FIELDS (with backwards compatibility)
-                if (voice.has("ttsLanguage")) {
-                    voiceEditor.putString("tts_language", voice.getString("ttsLanguage"));
-                    totalImported++;
-                }
-                
-                if (voice.has("languagePreset")) {
-                    voiceEditor.putString("language_preset", voice.getString("languagePreset"));
-                    totalImported++;
-                } else {
-                    // Backwards compatibility: If no preset is specified, try to detect from language setting
-                    if (voice.has("language")) {
-                        String language = voice.getString("language");
-                        String ttsLanguage = voice.optString("ttsLanguage", "system");
-                        String voiceName = voice.optString("voiceName", "");
-                        
-                        // Use LanguagePresetManager to find best matching preset
-                        // This will be applied after preferences are saved
-                        voiceEditor.putString("_legacy_import_language", language);
-                        voiceEditor.putString("_legacy_import_tts_language", ttsLanguage);
-                        voiceEditor.putString("_legacy_import_voice_name", voiceName);
-                    }
-                }
-                
-                if (voice.has("isCustomPreset")) {
-                    voiceEditor.putBoolean("is_custom_preset", voice.getBoolean("isCustomPreset"));
-                    totalImported++;
-                }
-                
-                if (voice.has("advancedEnabled")) {
-                    voiceEditor.putBoolean("show_advanced_voice", voice.getBoolean("advancedEnabled"));
-                    totalImported++;
-                }
-                
-                // Import TTS engine with graceful fallback
-                if (voice.has("ttsEngine")) {
-                    String ttsEngine = voice.getString("ttsEngine");
-                    if (!ttsEngine.isEmpty()) {
-                        // Check if the TTS engine is available on this device
-                        boolean engineAvailable = isTtsEngineAvailable(context, ttsEngine);
-                        if (engineAvailable) {
-                            voiceEditor.putString("tts_engine_package", ttsEngine);
-                            InAppLogger.log("FilterConfig", "Imported TTS engine: " + ttsEngine);
-                        } else {
-                            // Fall back to system default
-                            voiceEditor.putString("tts_engine_package", "");
-                            InAppLogger.log("FilterConfig", "TTS engine not available (" + ttsEngine + "), using system default");
-                        }
-                    } else {
-                        voiceEditor.putString("tts_engine_package", "");
-                    }
-                    totalImported++;
-                }
-                
-                if (voice.has("speakerphoneEnabled")) {
-                    voiceEditor.putBoolean("speakerphone_enabled", voice.getBoolean("speakerphoneEnabled"));
-                    totalImported++;
-                }
+        }
+        
+        // Import URL handling settings
+        if (filters.has("urlHandlingMode")) {
+            mainEditor.putString(KEY_URL_HANDLING_MODE, filters.getString("urlHandlingMode"));
+            totalImported++;
+        }
+        
+        if (filters.has("urlReplacementText")) {
+            mainEditor.putString(KEY_URL_REPLACEMENT_TEXT, filters.getString("urlReplacementText"));
+            totalImported++;
+        }
 
-                if (voice.has("autoDetectLanguage")) {
-                    voiceEditor.putBoolean("auto_detect_language", voice.getBoolean("autoDetectLanguage"));
-                    totalImported++;
-                }
+        if (filters.has("tidySpeechRemoveEmojis")) {
+            mainEditor.putBoolean(KEY_TIDY_SPEECH_REMOVE_EMOJIS, filters.getBoolean("tidySpeechRemoveEmojis"));
+            totalImported++;
+        }
+
+        if (filters.has("tidySpeechSayEmoji")) {
+            mainEditor.putBoolean(KEY_TIDY_SPEECH_SAY_EMOJI, filters.getBoolean("tidySpeechSayEmoji"));
+            totalImported++;
+        }
+
+        if (filters.has("tidySpeechForceLowercase")) {
+            mainEditor.putBoolean(KEY_TIDY_SPEECH_FORCE_LOWERCASE, filters.getBoolean("tidySpeechForceLowercase"));
+            totalImported++;
+        }
+
+        if (filters.has("separateDigitsEnabled")) {
+            mainEditor.putBoolean(KEY_SEPARATE_DIGITS_ENABLED, filters.getBoolean("separateDigitsEnabled"));
+            totalImported++;
+        }
+
+        if (filters.has("digitThreshold")) {
+            mainEditor.putInt(KEY_DIGIT_THRESHOLD, filters.getInt("digitThreshold"));
+            totalImported++;
+        }
+
+        if (filters.has("separatorType")) {
+            mainEditor.putString(KEY_SEPARATOR_TYPE, filters.getString("separatorType"));
+            totalImported++;
+        }
+
+        if (filters.has("emojiExceptions")) {
+            mainEditor.putString(KEY_PREF_EMOJI_EXCEPTIONS, filters.getString("emojiExceptions"));
+            totalImported++;
+        }
+
+        if (filters.has("filterEmptyText")) {
+            mainEditor.putBoolean(KEY_FILTER_EMPTY_TEXT, filters.getBoolean("filterEmptyText"));
+            totalImported++;
+        }
+        
+        // Import media filtering settings
+        if (filters.has("mediaFilteringEnabled")) {
+            mainEditor.putBoolean("media_filtering_enabled", filters.getBoolean("mediaFilteringEnabled"));
+            totalImported++;
+        }
+        
+        // Import persistent/silent filtering settings
+        if (filters.has("persistentFilteringEnabled")) {
+            mainEditor.putBoolean("persistent_filtering_enabled", filters.getBoolean("persistentFilteringEnabled"));
+            totalImported++;
+        }
+        
+        if (filters.has("filterPersistent")) {
+            mainEditor.putBoolean("filter_persistent", filters.getBoolean("filterPersistent"));
+            totalImported++;
+        }
+        
+        if (filters.has("filterSilent")) {
+            mainEditor.putBoolean("filter_silent", filters.getBoolean("filterSilent"));
+            totalImported++;
+        }
+        
+        if (filters.has("filterForegroundServices")) {
+            mainEditor.putBoolean("filter_foreground_services", filters.getBoolean("filterForegroundServices"));
+            totalImported++;
+        }
+        
+        if (filters.has("filterLowPriority")) {
+            mainEditor.putBoolean("filter_low_priority", filters.getBoolean("filterLowPriority"));
+            totalImported++;
+        }
+        
+        if (filters.has("filterSystemNotifications")) {
+            mainEditor.putBoolean("filter_system_notifications", filters.getBoolean("filterSystemNotifications"));
+            totalImported++;
+        }
+
+        return totalImported;
+    }
+
+    /**
+     * Stage the "voice" section; returns the number of settings imported.
+     */
+    private static int importVoiceSection(Context context, JSONObject voice, StagedPreferences voiceEditor) throws JSONException {
+        int totalImported = 0;
+
+        if (voice.has("speechRate")) {
+            float speechRate = roundToTwoDecimalPlaces((float) voice.getDouble("speechRate"));
+            voiceEditor.putFloat("speech_rate", speechRate);
+            totalImported++;
+        }
+        
+        if (voice.has("pitch")) {
+            float pitch = VoiceSettingsActivity.sanitizePitchForStorage((float) voice.getDouble("pitch"));
+            voiceEditor.putFloat("pitch", pitch);
+            totalImported++;
+        }
+        
+        if (voice.has("ttsVolume")) {
+            voiceEditor.putFloat("tts_volume", Math.min(1.0f, (float) voice.getDouble("ttsVolume")));
+            totalImported++;
+        }
+        
+        if (voice.has("voiceName")) {
+            voiceEditor.putString("voice_name", voice.getString("voiceName"));
+            totalImported++;
+        }
+        
+        if (voice.has("language")) {
+            voiceEditor.putString("language", voice.getString("language"));
+            totalImported++;
+        }
+        
+        if (voice.has("audioUsage")) {
+            voiceEditor.putInt("audio_usage", voice.getInt("audioUsage"));
+            totalImported++;
+        }
+        
+        if (voice.has("contentType")) {
+            voiceEditor.putInt("content_type", voice.getInt("contentType"));
+            totalImported++;
+        }
+        
+        // NEW PRESET FIELDS (with backwards compatibility)
+        if (voice.has("ttsLanguage")) {
+            voiceEditor.putString("tts_language", voice.getString("ttsLanguage"));
+            totalImported++;
+        }
+        
+        if (voice.has("languagePreset")) {
+            voiceEditor.putString("language_preset", voice.getString("languagePreset"));
+            totalImported++;
+        } else {
+            // Backwards compatibility: If no preset is specified, try to detect from language setting
+            if (voice.has("language")) {
+                String language = voice.getString("language");
+                String ttsLanguage = voice.optString("ttsLanguage", "system");
+                String voiceName = voice.optString("voiceName", "");
+                
+                // Use LanguagePresetManager to find best matching preset
+                // This will be applied after preferences are saved
+                voiceEditor.putString("_legacy_import_language", language);
+                voiceEditor.putString("_legacy_import_tts_language", ttsLanguage);
+                voiceEditor.putString("_legacy_import_voice_name", voiceName);
             }
-            
-            // Import behavior settings (if present)
-            if (json.has("behavior")) {
-                JSONObject behavior = json.getJSONObject("behavior");
-                
-                if (behavior.has("notificationBehavior")) {
-                    mainEditor.putString("notification_behavior", behavior.getString("notificationBehavior"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("priorityApps")) {
-                    Set<String> priorityApps = jsonArrayToStringSet(behavior.getJSONArray("priorityApps"));
-                    mainEditor.putStringSet("priority_apps", priorityApps);
-                    totalImported += priorityApps.size();
-                }
-                
-                if (behavior.has("shakeToStopEnabled")) {
-                    mainEditor.putBoolean("shake_to_stop_enabled", behavior.getBoolean("shakeToStopEnabled"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("shakeThreshold")) {
-                    mainEditor.putFloat("shake_threshold", (float) behavior.getDouble("shakeThreshold"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("shakeTimeoutSeconds")) {
-                    int timeout = behavior.getInt("shakeTimeoutSeconds");
-                    // Safety validation: ensure timeout is within valid range (0 or 5-300)
-                    if (timeout < 0 || (timeout > 0 && timeout < 5) || timeout > 300) {
-                        timeout = 30; // Reset to safe default
-                        InAppLogger.log("FilterConfig", "Invalid shake timeout value imported, reset to 30 seconds");
-                    }
-                    mainEditor.putInt("shake_timeout_seconds", timeout);
-                    totalImported++;
-                }
-                
-                if (behavior.has("mediaBehavior")) {
-                    mainEditor.putString("media_behavior", behavior.getString("mediaBehavior"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("duckingVolume")) {
-                    mainEditor.putInt("ducking_volume", behavior.getInt("duckingVolume"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("duckingFallbackStrategy")) {
-                    mainEditor.putString("ducking_fallback_strategy", behavior.getString("duckingFallbackStrategy"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("delayBeforeReadout")) {
-                    mainEditor.putInt("delay_before_readout", behavior.getInt("delayBeforeReadout"));
-                    totalImported++;
+        }
+        
+        if (voice.has("isCustomPreset")) {
+            voiceEditor.putBoolean("is_custom_preset", voice.getBoolean("isCustomPreset"));
+            totalImported++;
+        }
+        
+        if (voice.has("advancedEnabled")) {
+            voiceEditor.putBoolean("show_advanced_voice", voice.getBoolean("advancedEnabled"));
+            totalImported++;
+        }
+        
+        // Import TTS engine with graceful fallback
+        if (voice.has("ttsEngine")) {
+            String ttsEngine = voice.getString("ttsEngine");
+            if (!ttsEngine.isEmpty()) {
+                // Check if the TTS engine is available on this device
+                boolean engineAvailable = isTtsEngineAvailable(context, ttsEngine);
+                if (engineAvailable) {
+                    voiceEditor.putString("tts_engine_package", ttsEngine);
+                    InAppLogger.log("FilterConfig", "Imported TTS engine: " + ttsEngine);
+                } else {
+                    // Fall back to system default
+                    voiceEditor.putString("tts_engine_package", "");
+                    InAppLogger.log("FilterConfig", "TTS engine not available (" + ttsEngine + "), using system default");
                 }
+            } else {
+                voiceEditor.putString("tts_engine_package", "");
+            }
+            totalImported++;
+        }
+        
+        if (voice.has("speakerphoneEnabled")) {
+            voiceEditor.putBoolean("speakerphone_enabled", voice.getBoolean("speakerphoneEnabled"));
+            totalImported++;
+        }
 
-                if (behavior.has("earconMode")) {
-                    mainEditor.putString(
-                        BehaviorSettingsStore.KEY_EARCON_MODE,
-                        behavior.getString("earconMode")
-                    );
-                    totalImported++;
-                }
-                
-                if (behavior.has("honourDoNotDisturb")) {
-                    mainEditor.putBoolean("honour_do_not_disturb", behavior.getBoolean("honourDoNotDisturb"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("honourPhoneCalls")) {
-                    mainEditor.putBoolean("honour_phone_calls", behavior.getBoolean("honourPhoneCalls"));
-                    totalImported++;
-                }
-                
-                // Prefer split audio-mode flags; fall back to legacy combined flag
-                if (behavior.has("honourSilentMode")) {
-                    mainEditor.putBoolean("honour_silent_mode", behavior.getBoolean("honourSilentMode"));
-                    totalImported++;
-                }
-                if (behavior.has("honourVibrateMode")) {
-                    mainEditor.putBoolean("honour_vibrate_mode", behavior.getBoolean("honourVibrateMode"));
-                    totalImported++;
-                }
-                if (behavior.has("honourAudioMode")) {
-                    boolean legacyHonour = behavior.getBoolean("honourAudioMode");
-                    mainEditor.putBoolean("honour_audio_mode", legacyHonour);
-                    if (!behavior.has("honourSilentMode")) {
-                        mainEditor.putBoolean("honour_silent_mode", legacyHonour);
-                    }
-                    if (!behavior.has("honourVibrateMode")) {
-                        mainEditor.putBoolean("honour_vibrate_mode", legacyHonour);
-                    }
-                    totalImported++;
-                }
-                
-                if (behavior.has("persistentNotification")) {
-                    mainEditor.putBoolean("persistent_notification", behavior.getBoolean("persistentNotification"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("notificationWhileReading")) {
-                    mainEditor.putBoolean("notification_while_reading", behavior.getBoolean("notificationWhileReading"));
-                    totalImported++;
-                }
+        if (voice.has("autoDetectLanguage")) {
+            voiceEditor.putBoolean("auto_detect_language", voice.getBoolean("autoDetectLanguage"));
+            totalImported++;
+        }
 
-                if (behavior.has("skipRepeatedNotificationPrefix")) {
-                    mainEditor.putBoolean("skip_notification_repeated_prefix", behavior.getBoolean("skipRepeatedNotificationPrefix"));
-                    totalImported++;
-                }
+        return totalImported;
+    }
 
-                if (behavior.has("prefixMemoryTimeoutSeconds")) {
-                    int timeout = behavior.getInt("prefixMemoryTimeoutSeconds");
-                    if (timeout < 5 || timeout > 500) {
-                        timeout = 60;
-                        InAppLogger.log("FilterConfig", "Invalid prefix memory timeout imported, reset to 60 seconds");
-                    }
-                    mainEditor.putInt("prefix_memory_timeout_seconds", timeout);
-                    totalImported++;
-                }
-                
-                if (behavior.has("waveToStopEnabled")) {
-                    mainEditor.putBoolean("wave_to_stop_enabled", behavior.getBoolean("waveToStopEnabled"));
-                    totalImported++;
-                }
+    /**
+     * Stage the "behavior" section; returns the number of settings imported.
+     */
+    private static int importBehaviorSection(JSONObject behavior, StagedPreferences mainEditor) throws JSONException {
+        int totalImported = 0;
 
-                if (behavior.has("swipeToStopEnabled")) {
-                    mainEditor.putBoolean("pref_swip_to_stop", behavior.getBoolean("swipeToStopEnabled"));
-                    totalImported++;
-                }
+        if (behavior.has("notificationBehavior")) {
+            mainEditor.putString("notification_behavior", behavior.getString("notificationBehavior"));
+            totalImported++;
+        }
+        
+        if (behavior.has("priorityApps")) {
+            Set<String> priorityApps = jsonArrayToStringSet(behavior.getJSONArray("priorityApps"));
+            mainEditor.putStringSet("priority_apps", priorityApps);
+            totalImported += priorityApps.size();
+        }
+        
+        if (behavior.has("shakeToStopEnabled")) {
+            mainEditor.putBoolean("shake_to_stop_enabled", behavior.getBoolean("shakeToStopEnabled"));
+            totalImported++;
+        }
+        
+        if (behavior.has("shakeThreshold")) {
+            mainEditor.putFloat("shake_threshold", (float) behavior.getDouble("shakeThreshold"));
+            totalImported++;
+        }
+        
+        if (behavior.has("shakeTimeoutSeconds")) {
+            int timeout = behavior.getInt("shakeTimeoutSeconds");
+            // Safety validation: ensure timeout is within valid range (0 or 5-300)
+            if (timeout < 0 || (timeout > 0 && timeout < 5) || timeout > 300) {
+                timeout = 30; // Reset to safe default
+                InAppLogger.log("FilterConfig", "Invalid shake timeout value imported, reset to 30 seconds");
+            }
+            mainEditor.putInt("shake_timeout_seconds", timeout);
+            totalImported++;
+        }
+        
+        if (behavior.has("mediaBehavior")) {
+            mainEditor.putString("media_behavior", behavior.getString("mediaBehavior"));
+            totalImported++;
+        }
+        
+        if (behavior.has("duckingVolume")) {
+            mainEditor.putInt("ducking_volume", behavior.getInt("duckingVolume"));
+            totalImported++;
+        }
+        
+        if (behavior.has("duckingFallbackStrategy")) {
+            mainEditor.putString("ducking_fallback_strategy", behavior.getString("duckingFallbackStrategy"));
+            totalImported++;
+        }
+        
+        if (behavior.has("delayBeforeReadout")) {
+            mainEditor.putInt("delay_before_readout", behavior.getInt("delayBeforeReadout"));
+            totalImported++;
+        }
 
-                if (behavior.has("stopOnDismissalWatchException")) {
-                    mainEditor.putBoolean("pref_stop_on_dismissal_watch_exception", behavior.getBoolean("stopOnDismissalWatchException"));
-                    totalImported++;
-                }
+        if (behavior.has("earconMode")) {
+            mainEditor.putString(
+                BehaviorSettingsStore.KEY_EARCON_MODE,
+                behavior.getString("earconMode")
+            );
+            totalImported++;
+        }
+        
+        if (behavior.has("honourDoNotDisturb")) {
+            mainEditor.putBoolean("honour_do_not_disturb", behavior.getBoolean("honourDoNotDisturb"));
+            totalImported++;
+        }
+        
+        if (behavior.has("honourPhoneCalls")) {
+            mainEditor.putBoolean("honour_phone_calls", behavior.getBoolean("honourPhoneCalls"));
+            totalImported++;
+        }
+        
+        // Prefer split audio-mode flags; fall back to legacy combined flag
+        if (behavior.has("honourSilentMode")) {
+            mainEditor.putBoolean("honour_silent_mode", behavior.getBoolean("honourSilentMode"));
+            totalImported++;
+        }
+        if (behavior.has("honourVibrateMode")) {
+            mainEditor.putBoolean("honour_vibrate_mode", behavior.getBoolean("honourVibrateMode"));
+            totalImported++;
+        }
+        if (behavior.has("honourAudioMode")) {
+            boolean legacyHonour = behavior.getBoolean("honourAudioMode");
+            mainEditor.putBoolean("honour_audio_mode", legacyHonour);
+            if (!behavior.has("honourSilentMode")) {
+                mainEditor.putBoolean("honour_silent_mode", legacyHonour);
+            }
+            if (!behavior.has("honourVibrateMode")) {
+                mainEditor.putBoolean("honour_vibrate_mode", legacyHonour);
+            }
+            totalImported++;
+        }
+        
+        if (behavior.has("persistentNotification")) {
+            mainEditor.putBoolean("persistent_notification", behavior.getBoolean("persistentNotification"));
+            totalImported++;
+        }
+        
+        if (behavior.has("notificationWhileReading")) {
+            mainEditor.putBoolean("notification_while_reading", behavior.getBoolean("notificationWhileReading"));
+            totalImported++;
+        }
 
-                if (behavior.has("stopOnDismissalAutoCancel")) {
-                    mainEditor.putBoolean("pref_stop_on_dismissal_auto_cancel", behavior.getBoolean("stopOnDismissalAutoCancel"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("waveTimeoutSeconds")) {
-                    int timeout = behavior.getInt("waveTimeoutSeconds");
-                    // Safety validation: ensure timeout is within valid range (0 or 5-300)
-                    if (timeout < 0 || (timeout > 0 && timeout < 5) || timeout > 300) {
-                        timeout = 30; // Reset to safe default
-                        InAppLogger.log("FilterConfig", "Invalid wave timeout value imported, reset to 30 seconds");
-                    }
-                    mainEditor.putInt("wave_timeout_seconds", timeout);
-                    totalImported++;
-                }
-                
-                if (behavior.has("waveHoldDurationMs")) {
-                    int holdDuration = behavior.getInt("waveHoldDurationMs");
-                    // Safety validation
-                    if (holdDuration < 50 || holdDuration > 1000) {
-                        holdDuration = 150; // Reset to safe default
-                        InAppLogger.log("FilterConfig", "Invalid wave hold duration imported, reset to 150ms");
-                    }
-                    mainEditor.putInt("wave_hold_duration_ms", holdDuration);
-                    totalImported++;
-                }
-                
-                if (behavior.has("pocketModeEnabled")) {
-                    mainEditor.putBoolean("pocket_mode_enabled", behavior.getBoolean("pocketModeEnabled"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("customAppNames")) {
-                    mainEditor.putString("custom_app_names", behavior.getString("customAppNames"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("cooldownApps")) {
-                    mainEditor.putString("cooldown_apps", behavior.getString("cooldownApps"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("speechTemplate")) {
-                    mainEditor.putString("speech_template", behavior.getString("speechTemplate"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("contentCapMode")) {
-                    mainEditor.putString("content_cap_mode", behavior.getString("contentCapMode"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("contentCapWordCount")) {
-                    mainEditor.putInt("content_cap_word_count", behavior.getInt("contentCapWordCount"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("contentCapSentenceCount")) {
-                    mainEditor.putInt("content_cap_sentence_count", behavior.getInt("contentCapSentenceCount"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("contentCapTimeLimit")) {
-                    mainEditor.putInt("content_cap_time_limit", behavior.getInt("contentCapTimeLimit"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("notificationDeduplication")) {
-                    mainEditor.putBoolean("notification_deduplication", behavior.getBoolean("notificationDeduplication"));
-                    totalImported++;
-                }
+        if (behavior.has("skipRepeatedNotificationPrefix")) {
+            mainEditor.putBoolean("skip_notification_repeated_prefix", behavior.getBoolean("skipRepeatedNotificationPrefix"));
+            totalImported++;
+        }
 
-                if (behavior.has("includeNotificationTimestamps")) {
-                    mainEditor.putBoolean("include_notification_timestamps", behavior.getBoolean("includeNotificationTimestamps"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("dismissalMemoryEnabled")) {
-                    mainEditor.putBoolean("dismissal_memory_enabled", behavior.getBoolean("dismissalMemoryEnabled"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("dismissalMemoryTimeout")) {
-                    int timeout = behavior.getInt("dismissalMemoryTimeout");
-                    if (timeout < 1 || timeout > 120) {
-                        timeout = 15;
-                        InAppLogger.log("FilterConfig", "Invalid dismissal memory timeout imported, reset to 15 minutes");
-                    }
-                    mainEditor.putInt("dismissal_memory_timeout", timeout);
-                    totalImported++;
-                }
-                
-                if (behavior.has("disableMediaFallback")) {
-                    mainEditor.putBoolean("disable_media_fallback", behavior.getBoolean("disableMediaFallback"));
-                    totalImported++;
-                }
-                
-                if (behavior.has("enableLegacyDucking")) {
-                    mainEditor.putBoolean("enable_legacy_ducking", behavior.getBoolean("enableLegacyDucking"));
-                    totalImported++;
-                }
+        if (behavior.has("prefixMemoryTimeoutSeconds")) {
+            int timeout = behavior.getInt("prefixMemoryTimeoutSeconds");
+            if (timeout < 5 || timeout > 500) {
+                timeout = 60;
+                InAppLogger.log("FilterConfig", "Invalid prefix memory timeout imported, reset to 60 seconds");
+            }
+            mainEditor.putInt("prefix_memory_timeout_seconds", timeout);
+            totalImported++;
+        }
 
-                if (behavior.has("dontUseSpeaker")) {
-                    mainEditor.putBoolean("dont_use_speaker", behavior.getBoolean("dontUseSpeaker"));
-                    totalImported++;
-                }
+        if (behavior.has("queueMaxAgeSeconds")) {
+            int maxAge = behavior.getInt("queueMaxAgeSeconds");
+            if (maxAge < 0 || maxAge > 600) {
+                maxAge = 300;
+                InAppLogger.log("FilterConfig", "Invalid queue max age imported, reset to 300 seconds");
+            }
+            mainEditor.putInt("queue_max_age_seconds", maxAge);
+            totalImported++;
+        }
 
-                if (behavior.has("androidAutoDisableSpeakThat")) {
-                    mainEditor.putBoolean("android_auto_disable_speakthat", behavior.getBoolean("androidAutoDisableSpeakThat"));
-                    totalImported++;
-                }
+        if (behavior.has("burstCoalescingEnabled")) {
+            mainEditor.putBoolean("burst_coalescing_enabled", behavior.getBoolean("burstCoalescingEnabled"));
+            totalImported++;
+        }
+        
+        if (behavior.has("waveToStopEnabled")) {
+            mainEditor.putBoolean("wave_to_stop_enabled", behavior.getBoolean("waveToStopEnabled"));
+            totalImported++;
+        }
 
-                if (behavior.has("androidAutoDisableSco")) {
-                    mainEditor.putBoolean("android_auto_disable_sco", behavior.getBoolean("androidAutoDisableSco"));
-                    totalImported++;
-                }
+        if (behavior.has("swipeToStopEnabled")) {
+            mainEditor.putBoolean("pref_swip_to_stop", behavior.getBoolean("swipeToStopEnabled"));
+            totalImported++;
+        }
+
+        if (behavior.has("stopOnDismissalWatchException")) {
+            mainEditor.putBoolean("pref_stop_on_dismissal_watch_exception", behavior.getBoolean("stopOnDismissalWatchException"));
+            totalImported++;
+        }
+
+        if (behavior.has("stopOnDismissalAutoCancel")) {
+            mainEditor.putBoolean("pref_stop_on_dismissal_auto_cancel", behavior.getBoolean("stopOnDismissalAutoCancel"));
+            totalImported++;
+        }
+        
+        if (behavior.has("waveTimeoutSeconds")) {
+            int timeout = behavior.getInt("waveTimeoutSeconds");
+            // Safety validation: ensure timeout is within valid range (0 or 5-300)
+            if (timeout < 0 || (timeout > 0 && timeout < 5) || timeout > 300) {
+                timeout = 30; // Reset to safe default
+                InAppLogger.log("FilterConfig", "Invalid wave timeout value imported, reset to 30 seconds");
             }
-            
-            // Import general settings (if present)
-            if (json.has("general")) {
-                JSONObject general = json.getJSONObject("general");
-                
-                if (general.has("darkMode")) {
-                    mainEditor.putBoolean("dark_mode", general.getBoolean("darkMode"));
-                    totalImported++;
-                }
-                
-                if (general.has("autoStartOnBoot")) {
-                    mainEditor.putBoolean("auto_start_on_boot", general.getBoolean("autoStartOnBoot"));
-                    totalImported++;
-                }
-                
-                if (general.has("batteryOptimizationDisabled")) {
-                    mainEditor.putBoolean("battery_optimization_disabled", general.getBoolean("batteryOptimizationDisabled"));
-                    totalImported++;
-                }
-                
-                if (general.has("aggressiveBackgroundProcessing")) {
-                    mainEditor.putBoolean("aggressive_background_processing", general.getBoolean("aggressiveBackgroundProcessing"));
-                    totalImported++;
-                }
-                
-                if (general.has("serviceRestartPolicy")) {
-                    mainEditor.putString("service_restart_policy", general.getString("serviceRestartPolicy"));
-                    totalImported++;
-                }
+            mainEditor.putInt("wave_timeout_seconds", timeout);
+            totalImported++;
+        }
+        
+        if (behavior.has("waveHoldDurationMs")) {
+            int holdDuration = behavior.getInt("waveHoldDurationMs");
+            // Safety validation
+            if (holdDuration < 50 || holdDuration > 1000) {
+                holdDuration = 150; // Reset to safe default
+                InAppLogger.log("FilterConfig", "Invalid wave hold duration imported, reset to 150ms");
+            }
+            mainEditor.putInt("wave_hold_duration_ms", holdDuration);
+            totalImported++;
+        }
+        
+        if (behavior.has("pocketModeEnabled")) {
+            mainEditor.putBoolean("pocket_mode_enabled", behavior.getBoolean("pocketModeEnabled"));
+            totalImported++;
+        }
+        
+        if (behavior.has("customAppNames")) {
+            mainEditor.putString("custom_app_names", behavior.getString("customAppNames"));
+            totalImported++;
+        }
+        
+        if (behavior.has("cooldownApps")) {
+            mainEditor.putString("cooldown_apps", behavior.getString("cooldownApps"));
+            totalImported++;
+        }
+        
+        if (behavior.has("speechTemplate")) {
+            mainEditor.putString("speech_template", behavior.getString("speechTemplate"));
+            totalImported++;
+        }
+        
+        if (behavior.has("contentCapMode")) {
+            mainEditor.putString("content_cap_mode", behavior.getString("contentCapMode"));
+            totalImported++;
+        }
+        
+        if (behavior.has("contentCapWordCount")) {
+            mainEditor.putInt("content_cap_word_count", behavior.getInt("contentCapWordCount"));
+            totalImported++;
+        }
+        
+        if (behavior.has("contentCapSentenceCount")) {
+            mainEditor.putInt("content_cap_sentence_count", behavior.getInt("contentCapSentenceCount"));
+            totalImported++;
+        }
+        
+        if (behavior.has("contentCapTimeLimit")) {
+            mainEditor.putInt("content_cap_time_limit", behavior.getInt("contentCapTimeLimit"));
+            totalImported++;
+        }
+        
+        if (behavior.has("notificationDeduplication")) {
+            mainEditor.putBoolean("notification_deduplication", behavior.getBoolean("notificationDeduplication"));
+            totalImported++;
+        }
 
-                // Applied via AutomationModeManager after prefs commit so receiver/master toggle stay in sync
-                if (general.has("automationMode")) {
-                    importedAutomationMode = general.getString("automationMode");
-                    totalImported++;
-                }
+        if (behavior.has("includeNotificationTimestamps")) {
+            mainEditor.putBoolean("include_notification_timestamps", behavior.getBoolean("includeNotificationTimestamps"));
+            totalImported++;
+        }
+        
+        if (behavior.has("dismissalMemoryEnabled")) {
+            mainEditor.putBoolean("dismissal_memory_enabled", behavior.getBoolean("dismissalMemoryEnabled"));
+            totalImported++;
+        }
+        
+        if (behavior.has("dismissalMemoryTimeout")) {
+            int timeout = behavior.getInt("dismissalMemoryTimeout");
+            if (timeout < 1 || timeout > 120) {
+                timeout = 15;
+                InAppLogger.log("FilterConfig", "Invalid dismissal memory timeout imported, reset to 15 minutes");
             }
+            mainEditor.putInt("dismissal_memory_timeout", timeout);
+            totalImported++;
+        }
+        
+        if (behavior.has("disableMediaFallback")) {
+            mainEditor.putBoolean("disable_media_fallback", behavior.getBoolean("disableMediaFallback"));
+            totalImported++;
+        }
+        
+        if (behavior.has("enableLegacyDucking")) {
+            mainEditor.putBoolean("enable_legacy_ducking", behavior.getBoolean("enableLegacyDucking"));
+            totalImported++;
+        }
 
-            // Import statistics (if present) - overwrites current stats
-            if (json.has("statistics")) {
-                JSONObject statistics = json.getJSONObject("statistics");
-                StatsSnapshot snapshot = StatisticsManager.Companion.snapshotFromJson(statistics);
-                StatisticsManager.Companion.importSnapshot(context, snapshot);
-
-                int statsImported = 0;
-                if (statistics.has("notificationsReceived")) statsImported++;
-                if (statistics.has("notificationsRead")) statsImported++;
-                if (statistics.has("readoutsInterrupted")) statsImported++;
-                if (statistics.has("listenerRebinds")) statsImported++;
-                if (statistics.has("listenerRebindsSkipped")) statsImported++;
-                if (statistics.has("listenerRebindsRecovered")) statsImported++;
-                if (statistics.has("logoTaps")) statsImported++;
-
-                JSONObject filterReasonsJson = statistics.optJSONObject("filterReasons");
-                if (filterReasonsJson != null) {
-                    statsImported += filterReasonsJson.length();
-                } else if (statistics.has("filterReasons")) {
-                    statsImported++;
-                }
+        if (behavior.has("dontUseSpeaker")) {
+            mainEditor.putBoolean("dont_use_speaker", behavior.getBoolean("dontUseSpeaker"));
+            totalImported++;
+        }
+
+        if (behavior.has("androidAutoDisableSpeakThat")) {
+            mainEditor.putBoolean("android_auto_disable_speakthat", behavior.getBoolean("androidAutoDisableSpeakThat"));
+            totalImported++;
+        }
+
+        if (behavior.has("androidAutoDisableSco")) {
+            mainEditor.putBoolean("android_auto_disable_sco", behavior.getBoolean("androidAutoDisableSco"));
+            totalImported++;
+        }
+
+        return totalImported;
+    }
 
-                JSONArray appsReadJson = statistics.optJSONArray("appsRead");
-                if (appsReadJson != null) {
-                    statsImported += appsReadJson.length();
-                } else if (statistics.has("appsRead")) {
-                    statsImported++;
+    /**
+     * Stage the "general" section; returns the number of settings imported.
+     */
+    private static int importGeneralSection(JSONObject general, StagedPreferences mainEditor, ImportPlan plan) throws JSONException {
+        int totalImported = 0;
+
+        if (general.has("darkMode")) {
+            mainEditor.putBoolean("dark_mode", general.getBoolean("darkMode"));
+            totalImported++;
+        }
+        
+        if (general.has("autoStartOnBoot")) {
+            mainEditor.putBoolean("auto_start_on_boot", general.getBoolean("autoStartOnBoot"));
+            totalImported++;
+        }
+        
+        if (general.has("batteryOptimizationDisabled")) {
+            mainEditor.putBoolean("battery_optimization_disabled", general.getBoolean("batteryOptimizationDisabled"));
+            totalImported++;
+        }
+        
+        if (general.has("aggressiveBackgroundProcessing")) {
+            mainEditor.putBoolean("aggressive_background_processing", general.getBoolean("aggressiveBackgroundProcessing"));
+            totalImported++;
+        }
+        
+        if (general.has("serviceRestartPolicy")) {
+            mainEditor.putString("service_restart_policy", general.getString("serviceRestartPolicy"));
+            totalImported++;
+        }
+
+        // Applied via AutomationModeManager after prefs commit so receiver/master toggle stay in sync
+        if (general.has("automationMode")) {
+            plan.automationMode = general.getString("automationMode");
+            totalImported++;
+        }
+
+        return totalImported;
+    }
+
+    /** Read one JSON object from the stream into a JSONObject, so a single section can be buffered. */
+    private static JSONObject readObject(JsonReader reader) throws IOException, JSONException {
+        JSONObject object = new JSONObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            object.put(reader.nextName(), readValue(reader));
+        }
+        reader.endObject();
+        return object;
+    }
+
+    private static Object readValue(JsonReader reader) throws IOException, JSONException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                return readObject(reader);
+            case BEGIN_ARRAY: {
+                JSONArray array = new JSONArray();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    array.put(readValue(reader));
+                }
+                reader.endArray();
+                return array;
+            }
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NUMBER: {
+                String number = reader.nextString();
+                try {
+                    return Long.parseLong(number);
+                } catch (NumberFormatException e) {
+                    return Double.parseDouble(number);
                 }
+            }
+            case NULL:
+                reader.nextNull();
+                return JSONObject.NULL;
+            default:
+                return reader.nextString();
+        }
+    }
+
+    /** Everything a full-configuration import will change, gathered by the dry-run pass. */
+    private static class ImportPlan {
+        final StagedPreferences mainEditor = new StagedPreferences();
+        final StagedPreferences voiceEditor = new StagedPreferences();
+        int totalImported = 0;
+        String automationMode;
+        StatsSnapshot statistics;
+        int badgeCount = -1;
+        List<Rule> rules;
+    }
+
+    /**
+     * Preference writes gathered by an import's dry run. {@link #applyTo} later writes only the
+     * values that differ from what is stored, in a single editor.
+     */
+    private static class StagedPreferences {
+        private final Map<String, Object> values = new LinkedHashMap<>();
+        private final Set<String> removals = new HashSet<>();
+
+        StagedPreferences putString(String key, String value) {
+            return stage(key, value);
+        }
+
+        StagedPreferences putStringSet(String key, Set<String> values) {
+            return stage(key, values == null ? null : new HashSet<>(values));
+        }
+
+        StagedPreferences putInt(String key, int value) {
+            return stage(key, value);
+        }
+
+        StagedPreferences putLong(String key, long value) {
+            return stage(key, value);
+        }
+
+        StagedPreferences putFloat(String key, float value) {
+            return stage(key, value);
+        }
+
+        StagedPreferences putBoolean(String key, boolean value) {
+            return stage(key, value);
+        }
+
+        StagedPreferences remove(String key) {
+            values.remove(key);
+            removals.add(key);
+            return this;
+        }
 
-                totalImported += statsImported;
+        private StagedPreferences stage(String key, Object value) {
+            if (value == null) {
+                return remove(key);
             }
+            removals.remove(key);
+            values.put(key, value);
+            return this;
+        }
 
-            // Import Play donation badge count (if present)
-            if (json.has("play_donations") || json.has("playDonations")) {
-                JSONObject playDonations = json.has("play_donations") ? json.getJSONObject("play_donations") : json.getJSONObject("playDonations");
-                if (playDonations.has("badge_count") || playDonations.has("badgeCount")) {
-                    int importedBadgeCount = playDonations.has("badge_count") ? playDonations.getInt("badge_count") : playDonations.getInt("badgeCount");
-                    if (importedBadgeCount >= 0) {
-                        SharedPreferences.Editor donationEditor = context.getSharedPreferences("play_donations", Context.MODE_PRIVATE).edit();
-                        donationEditor.putInt("badge_count", importedBadgeCount);
-                        donationEditor.apply();
-                        totalImported++;
-                        InAppLogger.log("FilterConfig", "Imported Play donation badge count: " + importedBadgeCount);
-                    }
+        /** Write the staged values that differ from {@code prefs}; returns how many were written. */
+        @SuppressWarnings("unchecked")
+        int applyTo(SharedPreferences prefs) {
+            Map<String, ?> current = prefs.getAll();
+            SharedPreferences.Editor editor = prefs.edit();
+            int changed = 0;
+            for (String key : removals) {
+                if (current.containsKey(key)) {
+                    editor.remove(key);
+                    changed++;
                 }
             }
-            
-            // Apply all changes
-            mainEditor.apply();
-            voiceEditor.apply();
-
-            if (importedAutomationMode != null) {
-                new AutomationModeManager(context).setMode(AutomationMode.fromPrefValue(importedAutomationMode));
-                InAppLogger.log("FilterConfig", "Imported automation mode: " + importedAutomationMode);
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                String key = entry.getKey();
+                Object value = entry.getValue();
+                if (value.equals(current.get(key))) {
+                    continue;
+                }
+                if (value instanceof String) {
+                    editor.putString(key, (String) value);
+                } else if (value instanceof Set) {
+                    editor.putStringSet(key, (Set<String>) value);
+                } else if (value instanceof Integer) {
+                    editor.putInt(key, (Integer) value);
+                } else if (value instanceof Long) {
+                    editor.putLong(key, (Long) value);
+                } else if (value instanceof Float) {
+                    editor.putFloat(key, (Float) value);
+                } else if (value instanceof Boolean) {
+                    editor.putBoolean(key, (Boolean) value);
+                }
+                changed++;
             }
-            
-            // Handle legacy import preset migration
-            processLegacyImportPresets(context);
-            
-            // Log the import
-            InAppLogger.log("FilterConfig", "Imported " + totalImported + " settings from full configuration");
-            
-            return new ImportResult(true, "Successfully imported " + totalImported + " settings from full configuration", totalImported);
-            
-        } catch (JSONException e) {
-            InAppLogger.logError("FilterConfig", "Full import failed: " + e.getMessage());
-            return new ImportResult(false, "Invalid JSON format: " + e.getMessage(), 0);
-        } catch (Exception e) {
-            InAppLogger.logError("FilterConfig", "Full import error: " + e.getMessage());
-            return new ImportResult(false, "Import failed: " + e.getMessage(), 0);
+            if (changed > 0) {
+                editor.apply();
+            }
+            return changed;
         }
     }
     
@@ -1536,31 +1845,7 @@ public class FilterConfigManager {
      * @return true if the engine is installed and available, false otherwise
      */
     private static boolean isTtsEngineAvailable(Context context, String enginePackage) {
-        if (enginePackage == null || enginePackage.isEmpty()) {
-            return false;
-        }
-        
-        try {
-            // Check if the package is installed
-            context.getPackageManager().getPackageInfo(enginePackage, 0);
-            
-            // Additionally check if it's a valid TTS engine by checking available engines
-            android.speech.tts.TextToSpeech.EngineInfo[] engines = 
-                new android.speech.tts.TextToSpeech(context, null).getEngines().toArray(
-                    new android.speech.tts.TextToSpeech.EngineInfo[0]);
-            
-            for (android.speech.tts.TextToSpeech.EngineInfo engine : engines) {
-                if (engine.name.equals(enginePackage)) {
-                    return true;
-                }
-            }
-            
-            // Package exists but isn't a TTS engine
-            return false;
-        } catch (Exception e) {
-            // Package not found or other error
-            InAppLogger.log("FilterConfig", "TTS engine check failed for " + enginePackage + ": " + e.getMessage());
-            return false;
-        }
+        // Served from the cached engine catalog rather than binding a throwaway TextToSpeech
+        return TtsCatalog.isEngineInstalled(context, enginePackage);
     }
 } 
\ No newline at end of file
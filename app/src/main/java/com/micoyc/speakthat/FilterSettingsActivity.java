@@ -76,6 +76,7 @@ public class FilterSettingsActivity extends AppCompatActivity {
     private static final String KEY_SEPARATOR_TYPE = "separator_type";
     private static final String KEY_PREF_EMOJI_EXCEPTIONS = "pref_emoji_exceptions";
     private static final String KEY_FILTER_EMPTY_TEXT = "filter_empty_text";
+    private static final String KEY_TIDY_SPEECH_SAY_EMOJI = "tidy_speech_say_emoji";
     private static final String DEFAULT_URL_HANDLING_MODE = "domain_only";
     private static final String DEFAULT_URL_REPLACEMENT_TEXT = "";
     private static final String KEY_DEFAULTS_INITIALIZED = "defaults_initialized";
@@ -404,6 +405,11 @@ public class FilterSettingsActivity extends AppCompatActivity {
         binding.switchFilterEmptyText.setOnCheckedChangeListener((buttonView, isChecked) -> {
             saveFilterEmptyText(isChecked);
         });
+
+        // Set up say emoji switch
+        binding.switchSayEmoji.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            saveTidySpeechSayEmoji(isChecked);
+        });
     }
 
     private void setupAppListRecycler() {
@@ -568,6 +574,9 @@ public class FilterSettingsActivity extends AppCompatActivity {
         
         boolean filterEmptyText = sharedPreferences.getBoolean(KEY_FILTER_EMPTY_TEXT, false); // Default to disabled
         binding.switchFilterEmptyText.setChecked(filterEmptyText);
+
+        boolean sayEmoji = sharedPreferences.getBoolean(KEY_TIDY_SPEECH_SAY_EMOJI, false); // Default to disabled
+        binding.switchSayEmoji.setChecked(sayEmoji);
         
         // Load persistent/silent notification filtering setting
         boolean isPersistentFilteringEnabled = sharedPreferences.getBoolean(KEY_PERSISTENT_FILTERING_ENABLED, true); // Default to enabled
@@ -1018,6 +1027,16 @@ public class FilterSettingsActivity extends AppCompatActivity {
         editor.apply();
     }
 
+    private void saveTidySpeechSayEmoji(boolean enabled) {
+        // Skip saving during initialization to prevent activity recreation loop
+        if (isLoadingSettings) {
+            return;
+        }
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        editor.putBoolean(KEY_TIDY_SPEECH_SAY_EMOJI, enabled);
+        editor.apply();
+    }
+
     private void saveAppList() {
         Set<String> apps = new HashSet<>();
         Set<String> privateApps = new HashSet<>();
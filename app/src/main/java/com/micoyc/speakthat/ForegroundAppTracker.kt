@@ -16,6 +16,11 @@ import android.util.Log
 object ForegroundAppTracker {
     private const val TAG = "ForegroundAppTracker"
 
+    /** Longest the last user app stands in for a SystemUI state that may be stale. */
+    const val MAX_STALE_FALLBACK_MS = 5 * 60_000L
+
+    internal var clock: () -> Long = System::currentTimeMillis
+
     private val ignoredPackages = setOf(
         "android",
         "com.android.systemui"
@@ -40,7 +45,7 @@ object ForegroundAppTracker {
 
         val isChanged = packageName != currentPackageName
         currentPackageName = packageName
-        lastUpdatedAt = System.currentTimeMillis()
+        lastUpdatedAt = clock()
         if (!ignoredPackages.contains(packageName)) {
             lastUserPackageName = packageName
             lastUserUpdatedAt = lastUpdatedAt
@@ -54,15 +59,31 @@ object ForegroundAppTracker {
         return currentPackageName
     }
 
-    fun getEffectivePackage(fallbackWindowMs: Long = 15000L): String? {
+    /**
+     * The foreground app, looking through the shade and other system UI: while system UI is on top,
+     * the last user app is returned if it was seen within [fallbackWindowMs].
+     *
+     * Only window-state events are received, and closing the shade sends none for the app
+     * underneath, so a system UI state older than [fallbackWindowMs] may be stale. It is looked
+     * through as well, but only while [deviceInUse] (screen on and unlocked) and for at most
+     * [MAX_STALE_FALLBACK_MS] after the user app was last seen; a locked screen or a shade left
+     * open stays system UI.
+     */
+    fun getEffectivePackage(fallbackWindowMs: Long = 15000L, deviceInUse: Boolean = true): String? {
         val current = currentPackageName
         if (current == null) {
             return null
         }
-        if (ignoredPackages.contains(current)) {
-            val ageMs = System.currentTimeMillis() - lastUserUpdatedAt
-            if (!lastUserPackageName.isNullOrBlank() && ageMs <= fallbackWindowMs) {
-                return lastUserPackageName
+        val lastUser = lastUserPackageName
+        if (ignoredPackages.contains(current) && !lastUser.isNullOrBlank()) {
+            val now = clock()
+            val userAgeMs = now - lastUserUpdatedAt
+            if (userAgeMs <= fallbackWindowMs) {
+                return lastUser
+            }
+            val systemUiStale = now - lastUpdatedAt > fallbackWindowMs
+            if (systemUiStale && deviceInUse && userAgeMs <= MAX_STALE_FALLBACK_MS) {
+                return lastUser
             }
         }
         return current
@@ -79,4 +100,11 @@ object ForegroundAppTracker {
     fun getLastUserUpdatedAt(): Long {
         return lastUserUpdatedAt
     }
+
+    internal fun reset() {
+        currentPackageName = null
+        lastUpdatedAt = 0L
+        lastUserPackageName = null
+        lastUserUpdatedAt = 0L
+    }
 }
@@ -30,18 +30,16 @@ import com.micoyc.speakthat.permissions.PermissionCatalog;
 import com.micoyc.speakthat.permissions.PermissionSyncManager;
 import com.micoyc.speakthat.permissions.PermissionSyncSession;
 import com.micoyc.speakthat.utils.SeasonalModeHelper;
-import org.json.JSONException;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import com.micoyc.speakthat.rules.Rule;
 import com.micoyc.speakthat.rules.RuleConfigManager;
 import com.micoyc.speakthat.rules.RuleConfigManager.RulePermissionType;
@@ -59,6 +57,8 @@ public class GeneralSettingsActivity extends AppCompatActivity {
     private boolean includeRulesInExport = false;
 
     private PermissionSyncSession permissionSyncSession = null;
+    // Configuration files are streamed off the main thread, one at a time
+    private final ExecutorService configExecutor = Executors.newSingleThreadExecutor();
 
     private static final int REQUEST_RULES_IMPORT_PERMISSIONS = 3001;
 
@@ -565,108 +565,89 @@ public class GeneralSettingsActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // A running import or export finishes; its result is dropped
+        configExecutor.shutdown();
+    }
+
     private boolean checkStoragePermission() {
         return ContextCompat.checkSelfPermission(this, Manifest.permission.WRITE_EXTERNAL_STORAGE) 
                == PackageManager.PERMISSION_GRANTED;
     }
 
     private void performExport() {
-        try {
-            // Generate export data
-            String exportData = FilterConfigManager.exportFullConfiguration(this, includeRulesInExport);
-            
-            // Create filename with timestamp
-            String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss", Locale.getDefault()).format(new Date());
-            String filename = "SpeakThat_Config_" + timestamp + ".json";
-            
-            // Launch file saver
-            Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
-            intent.addCategory(Intent.CATEGORY_OPENABLE);
-            intent.setType("application/json");
-            intent.putExtra(Intent.EXTRA_TITLE, filename);
-            fileSaverLauncher.launch(intent);
-            
-        } catch (JSONException e) {
-            Toast.makeText(this, "Export failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
-        }
+        // Create filename with timestamp; the configuration itself is streamed once a file is chosen
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss", Locale.getDefault()).format(new Date());
+        String filename = "SpeakThat_Config_" + timestamp + ".json";
+        
+        // Launch file saver
+        Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("application/json");
+        intent.putExtra(Intent.EXTRA_TITLE, filename);
+        fileSaverLauncher.launch(intent);
     }
 
     private void exportToUri(Uri uri) {
-        try {
-            // Generate export data
-            String exportData = FilterConfigManager.exportFullConfiguration(this, includeRulesInExport);
-            
-            // Write to file using ContentResolver
+        final boolean includeRules = includeRulesInExport;
+        configExecutor.execute(() -> {
+            String error = null;
+            // Stream the configuration straight into the document chosen by the user
             try (java.io.OutputStream outputStream = getContentResolver().openOutputStream(uri)) {
                 if (outputStream == null) {
                     throw new IOException("Unable to open output stream for URI");
                 }
-                outputStream.write(exportData.getBytes("UTF-8"));
+                FilterConfigManager.exportFullConfiguration(getApplicationContext(), outputStream, includeRules);
+            } catch (Exception e) {
+                error = e.getMessage();
             }
-            
-            Toast.makeText(this, "Configuration exported successfully", Toast.LENGTH_LONG).show();
-            
-        } catch (Exception e) {
-            Toast.makeText(this, "Export failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
-        }
+
+            final String exportError = error;
+            runOnUiThread(() -> {
+                if (isDestroyed()) return;
+                if (exportError == null) {
+                    Toast.makeText(this, "Configuration exported successfully", Toast.LENGTH_LONG).show();
+                } else {
+                    Toast.makeText(this, "Export failed: " + exportError, Toast.LENGTH_LONG).show();
+                }
+            });
+        });
     }
 
     private void importFromUri(Uri uri) {
-        try {
-            // Read file content
-            StringBuilder content = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(new FileReader(getFileFromUri(uri)))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    content.append(line).append("\n");
+        configExecutor.execute(() -> {
+            // Stream the document straight into the importer; nothing is written unless it all reads cleanly
+            FilterConfigManager.ImportResult result;
+            try (java.io.InputStream inputStream = getContentResolver().openInputStream(uri)) {
+                if (inputStream == null) {
+                    throw new IOException("Unable to open input stream from URI");
                 }
+                result = FilterConfigManager.importFullConfiguration(getApplicationContext(), inputStream);
+            } catch (Exception e) {
+                result = new FilterConfigManager.ImportResult(false, e.getMessage(), 0);
             }
-            
-            // Import configuration
-            String importedJson = content.toString();
-            FilterConfigManager.ImportResult result = FilterConfigManager.importFullConfiguration(this, importedJson);
-            
-            if (result.success) {
-                Toast.makeText(this, "Configuration imported successfully: " + result.message, Toast.LENGTH_LONG).show();
-                permissionSyncSession = PermissionSyncManager.startSync(
-                    this,
-                    true,
-                    null,
-                    () -> {
-                        permissionSyncSession = null;
-                        handleOptionalRulesImport(importedJson);
-                    }
-                );
-            } else {
-                Toast.makeText(this, "Import failed: " + result.message, Toast.LENGTH_LONG).show();
-            }
-            
-        } catch (Exception e) {
-            Toast.makeText(this, "Import failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
-        }
-    }
 
-    private File getFileFromUri(Uri uri) throws IOException {
-        // Use ContentResolver to get input stream from URI
-        try (java.io.InputStream inputStream = getContentResolver().openInputStream(uri)) {
-            if (inputStream == null) {
-                throw new IOException("Unable to open input stream from URI");
-            }
-            
-            // Create a temporary file
-            File tempFile = File.createTempFile("speakthat_import", ".json", getCacheDir());
-            
-            // Copy content to temp file
-            try (java.io.FileOutputStream outputStream = new java.io.FileOutputStream(tempFile)) {
-                byte[] buffer = new byte[1024];
-                int bytesRead;
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
+            final FilterConfigManager.ImportResult importResult = result;
+            runOnUiThread(() -> {
+                if (isDestroyed()) return;
+                if (importResult.success) {
+                    Toast.makeText(this, "Configuration imported successfully: " + importResult.message, Toast.LENGTH_LONG).show();
+                    permissionSyncSession = PermissionSyncManager.startSync(
+                        this,
+                        true,
+                        null,
+                        () -> {
+                            permissionSyncSession = null;
+                            handleOptionalRulesImport(importResult.rules);
+                        }
+                    );
+                } else {
+                    Toast.makeText(this, "Import failed: " + importResult.message, Toast.LENGTH_LONG).show();
                 }
-            }
-            
-            return tempFile;
-        }
+            });
+        });
     }
 
     private void clearAllData() {
@@ -816,9 +797,8 @@ public class GeneralSettingsActivity extends AppCompatActivity {
             .show();
     }
 
-    private void handleOptionalRulesImport(String jsonData) {
-        List<Rule> rules = RuleConfigManager.extractRulesFromFullConfig(jsonData);
-        if (rules.isEmpty()) {
+    private void handleOptionalRulesImport(List<Rule> rules) {
+        if (rules == null || rules.isEmpty()) {
             recreate();
             return;
         }
@@ -0,0 +1,193 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import org.json.JSONObject
+
+/**
+ * One timer for the service's periodic housekeeping (TTS health checks, dismissal memory cleanup,
+ * the listener watchdog).
+ *
+ * Each job has an interval and a flex: it may run up to `flexMs` early but never late. The
+ * scheduler sleeps until the earliest deadline and then runs every job whose window has opened, so
+ * jobs with compatible periods share one main-looper wakeup instead of each posting their own.
+ *
+ * Wakeups are counted per source in [WakeupStats] (the clock alarm reports there too) so support
+ * bundles can show how often SpeakThat actually wakes up.
+ */
+class HousekeepingScheduler internal constructor(
+    private val timer: Timer,
+    private val clock: () -> Long
+) {
+    constructor() : this(HandlerTimer(Handler(Looper.getMainLooper())), SystemClock::uptimeMillis)
+
+    /** Where the single wakeup is posted; a main-looper Handler outside of tests. */
+    internal interface Timer {
+        fun postDelayed(task: Runnable, delayMs: Long)
+        fun cancel(task: Runnable)
+    }
+
+    internal class HandlerTimer(private val handler: Handler) : Timer {
+        override fun postDelayed(task: Runnable, delayMs: Long) {
+            handler.postDelayed(task, delayMs)
+        }
+
+        override fun cancel(task: Runnable) {
+            handler.removeCallbacks(task)
+        }
+    }
+
+    private class Job(
+        val name: String,
+        val intervalMs: Long,
+        val flexMs: Long,
+        val action: Runnable,
+        var dueAt: Long
+    ) {
+        var runs = 0L
+    }
+
+    companion object {
+        const val SOURCE_HOUSEKEEPING = "housekeeping"
+    }
+
+    // Touched only from the timer thread (the main looper)
+    private val jobs = LinkedHashMap<String, Job>()
+    private var scheduledWakeAt = Long.MAX_VALUE
+    private val wakeRunnable = Runnable { onWake() }
+
+    /**
+     * Run [action] every [intervalMs], first after one interval. It may run up to [flexMs] early to
+     * share a wakeup with another job. Replaces any job already registered under [name].
+     */
+    fun schedule(name: String, intervalMs: Long, flexMs: Long, action: Runnable) {
+        require(intervalMs > 0) { "intervalMs must be positive" }
+        jobs[name] = Job(name, intervalMs, flexMs.coerceIn(0L, intervalMs), action, clock() + intervalMs)
+        reschedule()
+    }
+
+    fun cancel(name: String) {
+        if (jobs.remove(name) != null) reschedule()
+    }
+
+    fun isScheduled(name: String): Boolean = jobs.containsKey(name)
+
+    fun cancelAll() {
+        jobs.clear()
+        timer.cancel(wakeRunnable)
+        scheduledWakeAt = Long.MAX_VALUE
+    }
+
+    /** Per-job run counts, for diagnostics. */
+    fun jobRuns(): Map<String, Long> = jobs.mapValues { it.value.runs }
+
+    private fun onWake() {
+        scheduledWakeAt = Long.MAX_VALUE
+        val now = clock()
+        WakeupStats.record(SOURCE_HOUSEKEEPING, System.currentTimeMillis())
+        runDue(now)
+        reschedule()
+    }
+
+    /** Run every job whose window has opened at [now]. Returns how many ran. */
+    internal fun runDue(now: Long): Int {
+        var ran = 0
+        for (job in jobs.values.toList()) {
+            if (job.dueAt - job.flexMs > now) continue
+            // Reschedule before running so a job may cancel or replace itself
+            job.dueAt = now + job.intervalMs
+            job.runs++
+            ran++
+            try {
+                job.action.run()
+            } catch (e: Exception) {
+                InAppLogger.logError("Housekeeping", "Job ${job.name} failed: ${e.message}")
+            }
+        }
+        return ran
+    }
+
+    /** Earliest deadline among registered jobs, or [Long.MAX_VALUE] if there are none. */
+    internal fun nextDeadline(): Long = jobs.values.minOfOrNull { it.dueAt } ?: Long.MAX_VALUE
+
+    private fun reschedule() {
+        val deadline = nextDeadline()
+        if (deadline == scheduledWakeAt) return
+        timer.cancel(wakeRunnable)
+        scheduledWakeAt = deadline
+        if (deadline != Long.MAX_VALUE) {
+            timer.postDelayed(wakeRunnable, (deadline - clock()).coerceAtLeast(0L))
+        }
+    }
+
+    /**
+     * Process-wide wakeup accounting. Each source records a wall-clock timestamp per wakeup; the
+     * last hour is kept in a ring buffer and lifetime totals per source alongside.
+     */
+    object WakeupStats {
+        private const val RING_SIZE = 1024
+        private const val HOUR_MS = 60 * 60 * 1000L
+
+        private val ring = LongArray(RING_SIZE)
+        private var ringNext = 0
+        private val totals = LinkedHashMap<String, Long>()
+        private var firstRecordedAt = 0L
+
+        @JvmStatic
+        @Synchronized
+        fun record(source: String, now: Long) {
+            if (firstRecordedAt == 0L) firstRecordedAt = now
+            ring[ringNext] = now
+            ringNext = (ringNext + 1) % RING_SIZE
+            totals[source] = (totals[source] ?: 0L) + 1
+        }
+
+        /** Wakeups recorded in the hour before [now] (capped at the ring size). */
+        @JvmStatic
+        @Synchronized
+        fun lastHour(now: Long): Int {
+            var count = 0
+            for (timestamp in ring) {
+                if (timestamp != 0L && timestamp > now - HOUR_MS && timestamp <= now) count++
+            }
+            return count
+        }
+
+        @JvmStatic
+        @Synchronized
+        fun toJson(now: Long): JSONObject {
+            val json = JSONObject()
+            val total = totals.values.sum()
+            json.put("wakeups_last_hour", lastHour(now))
+            json.put("wakeups_total", total)
+            if (firstRecordedAt > 0L && now > firstRecordedAt) {
+                val hours = (now - firstRecordedAt).toDouble() / HOUR_MS
+                json.put("observed_hours", "%.2f".format(java.util.Locale.US, hours))
+                if (hours >= 1.0 / 60) {
+                    json.put("wakeups_per_hour_avg", "%.2f".format(java.util.Locale.US, total / hours))
+                }
+            }
+            val bySource = JSONObject()
+            for ((source, count) in totals) bySource.put(source, count)
+            json.put("by_source", bySource)
+            return json
+        }
+
+        @JvmStatic
+        @Synchronized
+        fun reset() {
+            ring.fill(0L)
+            ringNext = 0
+            totals.clear()
+            firstRecordedAt = 0L
+        }
+    }
+}
@@ -14,13 +14,14 @@ import java.io.FileWriter
 import java.io.IOException
 import java.text.SimpleDateFormat
 import java.util.*
-import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicLong
 import kotlin.system.exitProcess
 
 
 object InAppLogger {
-    private val logs = CopyOnWriteArrayList<LogEntry>()
     private const val MAX_LOGS = 500 // Keep last 500 log entries
+    private val logs = PagedHistoryBuffer<LogEntry>(MAX_LOGS) { it.id }
+    private val nextLogId = AtomicLong()
     private const val CRASH_LOG_FILENAME = "crash_logs.txt"
     private const val PERSISTENT_LOG_FILENAME = "persistent_logs.txt"
     private const val MAX_PERSISTENT_LOG_SIZE = 1024 * 1024 // 1MB max
@@ -43,19 +44,14 @@ object InAppLogger {
     @JvmField
     var logSystemEvents = true
     
-    private data class LogEntry(
+    /** One log line; [id] grows with every entry, so log viewers use it as a stable item id. */
+    data class LogEntry(
+        val id: Long,
         val timestamp: String,
         val tag: String,
         val message: String,
         val level: String
     ) {
-        constructor(tag: String, message: String, level: String) : this(
-            timestamp = SimpleDateFormat("HH:mm:ss.SSS", Locale.getDefault()).format(Date()),
-            tag = tag,
-            message = message,
-            level = level
-        )
-        
         override fun toString(): String {
             return "[$timestamp] $level/$tag: $message"
         }
@@ -199,7 +195,7 @@ object InAppLogger {
                 val writer = FileWriter(persistentFile, true) // Append mode
                 
                 // Write new logs
-                logs.forEach { logEntry ->
+                logs.oldestFirst().forEach { logEntry ->
                     writer.write("${logEntry}\n")
                 }
                 
@@ -479,16 +475,15 @@ object InAppLogger {
     }
     
     private fun log(tag: String, message: String, level: String) {
-        // Add new log entry
-        logs.add(LogEntry(tag, message, level))
-        
-        // Remove old logs if we exceed the limit
-        while (logs.size > MAX_LOGS) {
-            logs.removeAt(0)
+        // Add new log entry; the buffer drops the oldest once it holds MAX_LOGS.
+        // Ids are taken under the buffer's lock so entries land in id order for the viewers.
+        val timestamp = SimpleDateFormat("HH:mm:ss.SSS", Locale.getDefault()).format(Date())
+        val entry = synchronized(logs) {
+            LogEntry(nextLogId.incrementAndGet(), timestamp, tag, message, level).also { logs.add(it) }
         }
         
         // Save logs periodically (every 100 entries for performance)
-        if (logs.size % 100 == 0) {
+        if (entry.id % 100 == 0L) {
             savePersistentLogs()
         }
         
@@ -513,25 +508,64 @@ object InAppLogger {
     
     @JvmStatic
     fun getRecentLogs(count: Int): String {
-        val start = maxOf(0, logs.size - count)
-        return logs.drop(start).joinToString("\n")
+        return logs.newest(count).asReversed().joinToString("\n")
     }
     
     @JvmStatic
     fun getAllLogs(): String {
-        return logs.joinToString("\n")
+        return logs.oldestFirst().joinToString("\n")
     }
     
     @JvmStatic
     fun getLogsForSupport(): String {
         // Get all logs for support purposes
-        return logs.joinToString("\n")
+        return logs.oldestFirst().joinToString("\n")
+    }
+    
+    /** Id of the newest entry logged so far, or 0 when nothing has been logged. */
+    @JvmStatic
+    fun getLastLogId(): Long = synchronized(logs) { nextLogId.get() }
+    
+    /**
+     * Up to [limit] entries older than [beforeId] whose line contains [query] (ignoring case),
+     * newest first. Pass [Long.MAX_VALUE] for the newest page and null or "" for no filter.
+     */
+    @JvmStatic
+    fun getLogPage(beforeId: Long, limit: Int, query: String?): List<LogEntry> {
+        return logs.page(beforeId, limit, logFilter(query))
+    }
+    
+    /** Entries newer than [afterId] matching [query], oldest first; what a viewer appends. */
+    @JvmStatic
+    fun getLogsAfter(afterId: Long, query: String?): List<LogEntry> {
+        return logs.after(afterId, logFilter(query))
+    }
+    
+    @JvmStatic
+    fun matchesQuery(entry: LogEntry, query: String?): Boolean {
+        return query.isNullOrEmpty() || entry.toString().contains(query, ignoreCase = true)
+    }
+    
+    /** Pushed every new entry on the logging thread; keep the listener cheap and never log from it. */
+    @JvmStatic
+    fun addLogListener(listener: PagedHistoryBuffer.Listener<LogEntry>) {
+        logs.addListener(listener)
+    }
+    
+    @JvmStatic
+    fun removeLogListener(listener: PagedHistoryBuffer.Listener<LogEntry>) {
+        logs.removeListener(listener)
+    }
+    
+    private fun logFilter(query: String?): ((LogEntry) -> Boolean)? {
+        if (query.isNullOrEmpty()) return null
+        return { entry -> matchesQuery(entry, query) }
     }
     
     @JvmStatic
     fun getLogsAsJsonArray(): org.json.JSONArray {
         val jsonArray = org.json.JSONArray()
-        for (log in logs) {
+        for (log in logs.oldestFirst()) {
             val logObj = org.json.JSONObject()
             logObj.put("timestamp", log.timestamp)
             logObj.put("tag", log.tag)
@@ -747,6 +781,7 @@ object InAppLogger {
             StatisticsManager.FILTER_DEDUPLICATION -> context.getString(R.string.statistics_filter_reason_deduplication)
             StatisticsManager.FILTER_DISMISSAL_MEMORY -> context.getString(R.string.statistics_filter_reason_dismissal_memory)
             StatisticsManager.FILTER_GROUP_SUMMARY -> context.getString(R.string.statistics_filter_reason_group_summary)
+            StatisticsManager.FILTER_NO_NEW_MESSAGES -> context.getString(R.string.statistics_filter_reason_no_new_messages)
             StatisticsManager.FILTER_SELF_PACKAGE -> context.getString(R.string.statistics_filter_reason_self_package)
             else -> reason
         }
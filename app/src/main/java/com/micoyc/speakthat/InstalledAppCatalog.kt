@@ -0,0 +1,312 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
+import android.content.pm.ApplicationInfo
+import android.content.pm.PackageManager
+import android.graphics.Bitmap
+import android.graphics.drawable.Drawable
+import android.os.Handler
+import android.os.Looper
+import android.util.LruCache
+import android.widget.ImageView
+import androidx.core.content.ContextCompat
+import androidx.core.graphics.drawable.toBitmap
+import java.lang.ref.WeakReference
+import java.util.concurrent.Executors
+import java.util.function.Predicate
+
+/**
+ * Process-wide catalog of installed apps shared by every app picker.
+ *
+ * Labels and package metadata are enumerated once, kept sorted by lowercase label and refreshed
+ * per package from package broadcasts. Icons are never loaded up front: rows ask for them with
+ * [bindIcon] when they become visible, and decoded bitmaps are kept in a bounded LRU.
+ */
+object InstalledAppCatalog {
+    private const val TAG = "InstalledAppCatalog"
+    private const val ICON_CACHE_MAX_BYTES = 8 * 1024 * 1024
+    private const val DEFAULT_ICON_SIZE_DP = 40
+
+    class Entry internal constructor(
+        @JvmField val label: String,
+        @JvmField val packageName: String,
+        @JvmField val isLaunchable: Boolean,
+        @JvmField val isSystem: Boolean,
+        @JvmField val isUpdatedSystem: Boolean
+    ) {
+        @JvmField val labelLower: String = label.lowercase()
+        @JvmField val packageLower: String = packageName.lowercase()
+
+        /** Preinstalled component with no launcher entry (services, overlays, providers). */
+        val isHeadlessSystemApp: Boolean
+            get() = isSystem && !isLaunchable
+
+        /** Preinstalled app that has not been updated from the store. */
+        val isPureSystemApp: Boolean
+            get() = isSystem && !isUpdatedSystem
+    }
+
+    /** Immutable snapshot; replaced wholesale on reload so readers never need a lock. */
+    private class Index(val entries: List<Entry>, val byPackage: Map<String, Entry>) {
+        constructor(entries: Collection<Entry>) : this(
+            entries.sortedBy { it.labelLower },
+            entries.associateBy { it.packageName }
+        )
+    }
+
+    @Volatile
+    private var index: Index? = null
+
+    private val loadExecutor = Executors.newSingleThreadExecutor()
+    private val iconExecutor = Executors.newFixedThreadPool(2)
+    private val mainHandler = Handler(Looper.getMainLooper())
+    private val pendingCallbacks = mutableListOf<(List<Entry>) -> Unit>()
+    private var isLoading = false
+    private val receiverLock = Any()
+    private var appContext: Context? = null
+
+    private val iconCache = object : LruCache<String, Bitmap>(ICON_CACHE_MAX_BYTES) {
+        override fun sizeOf(key: String, value: Bitmap): Int = value.byteCount
+    }
+    // Views waiting for an in-flight icon, keyed like the cache; several rows can share one decode
+    private val iconWaiters = HashMap<String, MutableList<WeakReference<ImageView>>>()
+
+    private val packageReceiver = object : BroadcastReceiver() {
+        override fun onReceive(context: Context, intent: Intent) {
+            val packageName = intent.data?.schemeSpecificPart ?: return
+            val replacing = intent.getBooleanExtra(Intent.EXTRA_REPLACING, false)
+            if (intent.action == Intent.ACTION_PACKAGE_REMOVED && replacing) {
+                // An ACTION_PACKAGE_ADDED for the same package follows
+                return
+            }
+            loadExecutor.execute { refreshPackage(context.applicationContext, packageName) }
+        }
+    }
+
+    /**
+     * Deliver the catalog on the main thread, enumerating packages in the background the first
+     * time. Concurrent callers share one enumeration.
+     */
+    fun getEntries(context: Context, callback: (List<Entry>) -> Unit) {
+        index?.let { callback(it.entries); return }
+        ensureReceiver(context)
+        synchronized(pendingCallbacks) {
+            pendingCallbacks.add(callback)
+            if (isLoading) return
+            isLoading = true
+        }
+        loadExecutor.execute {
+            val loaded = loadIndexIfNeeded(context.applicationContext)
+            val callbacks = synchronized(pendingCallbacks) {
+                isLoading = false
+                pendingCallbacks.toList().also { pendingCallbacks.clear() }
+            }
+            mainHandler.post { callbacks.forEach { it(loaded.entries) } }
+        }
+    }
+
+    /** Catalog entries, enumerating on the calling thread if needed. Do not call on the main thread. */
+    @JvmStatic
+    fun getEntriesBlocking(context: Context): List<Entry> {
+        ensureReceiver(context)
+        return loadIndexIfNeeded(context.applicationContext).entries
+    }
+
+    @JvmStatic
+    fun findByPackage(packageName: String): Entry? = index?.byPackage?.get(packageName)
+
+    /** First entry whose label equals [label], ignoring case. */
+    @JvmStatic
+    fun findByLabel(context: Context, label: String): Entry? {
+        val lower = label.trim().lowercase()
+        return getEntriesBlocking(context).firstOrNull { it.labelLower == lower }
+    }
+
+    /**
+     * Search the prebuilt lowercase index. Label prefix matches come first (binary search over the
+     * sorted labels), then label or package substring matches, each in alphabetical order.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun search(
+        context: Context,
+        query: String,
+        limit: Int = Int.MAX_VALUE,
+        filter: Predicate<Entry> = Predicate { true }
+    ): List<Entry> {
+        val entries = getEntriesBlocking(context)
+        val needle = query.trim().lowercase()
+        if (needle.isEmpty()) {
+            return entries.asSequence().filter { filter.test(it) }.take(limit).toList()
+        }
+
+        val results = ArrayList<Entry>(minOf(limit, 64))
+        var start = lowerBound(entries, needle)
+        while (start < entries.size && entries[start].labelLower.startsWith(needle) && results.size < limit) {
+            val entry = entries[start]
+            if (filter.test(entry)) results.add(entry)
+            start++
+        }
+        if (results.size >= limit) return results
+
+        for (entry in entries) {
+            if (results.size >= limit) break
+            if (entry.labelLower.startsWith(needle)) continue
+            if ((entry.labelLower.contains(needle) || entry.packageLower.contains(needle)) && filter.test(entry)) {
+                results.add(entry)
+            }
+        }
+        return results
+    }
+
+    /**
+     * Show the icon for [packageName] in [view], decoding it in the background if it is not cached.
+     * Recycled rows are handled by tagging the view with the package it was last bound to.
+     */
+    @JvmStatic
+    fun bindIcon(view: ImageView, packageName: String, placeholder: Drawable?) {
+        val sizePx = view.layoutParams?.width?.takeIf { it > 0 }
+            ?: (DEFAULT_ICON_SIZE_DP * view.resources.displayMetrics.density).toInt()
+        val key = "$packageName@$sizePx"
+        view.setTag(R.id.tag_icon_package, packageName)
+
+        val cached = iconCache.get(key)
+        if (cached != null) {
+            view.setImageBitmap(cached)
+            return
+        }
+        view.setImageDrawable(placeholder)
+
+        synchronized(iconWaiters) {
+            val waiting = iconWaiters[key]
+            if (waiting != null) {
+                waiting.add(WeakReference(view))
+                return
+            }
+            iconWaiters[key] = mutableListOf(WeakReference(view))
+        }
+        val pm = view.context.applicationContext.packageManager
+        iconExecutor.execute {
+            val bitmap = try {
+                pm.getApplicationIcon(packageName).toBitmap(sizePx, sizePx)
+            } catch (_: PackageManager.NameNotFoundException) {
+                null
+            } catch (e: Exception) {
+                InAppLogger.logError(TAG, "Icon load failed for $packageName: ${e.message}")
+                null
+            }
+            if (bitmap != null) iconCache.put(key, bitmap)
+            mainHandler.post {
+                val waiting = synchronized(iconWaiters) { iconWaiters.remove(key) } ?: return@post
+                if (bitmap == null) return@post
+                for (ref in waiting) {
+                    val target = ref.get() ?: continue
+                    if (target.getTag(R.id.tag_icon_package) == packageName) {
+                        target.setImageBitmap(bitmap)
+                    }
+                }
+            }
+        }
+    }
+
+    /** Drop everything; the next request re-enumerates. */
+    @JvmStatic
+    fun invalidate() {
+        index = null
+        iconCache.evictAll()
+    }
+
+    private fun lowerBound(entries: List<Entry>, needle: String): Int {
+        var low = 0
+        var high = entries.size
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (entries[mid].labelLower < needle) low = mid + 1 else high = mid
+        }
+        return low
+    }
+
+    @Synchronized
+    private fun loadIndexIfNeeded(context: Context): Index {
+        index?.let { return it }
+        val started = System.currentTimeMillis()
+        val pm = context.packageManager
+        val launchable = queryLaunchablePackages(pm)
+        val entries = ArrayList<Entry>()
+        for (appInfo in pm.getInstalledApplications(0)) {
+            buildEntry(pm, appInfo, launchable.contains(appInfo.packageName))?.let { entries.add(it) }
+        }
+        val built = Index(entries)
+        index = built
+        InAppLogger.log(
+            TAG,
+            "Indexed ${entries.size} apps (${launchable.size} launchable) in ${System.currentTimeMillis() - started}ms"
+        )
+        return built
+    }
+
+    @Synchronized
+    private fun refreshPackage(context: Context, packageName: String) {
+        val current = index ?: return
+        val pm = context.packageManager
+        val updated = current.byPackage.toMutableMap()
+        val entry = try {
+            val appInfo = pm.getApplicationInfo(packageName, 0)
+            buildEntry(pm, appInfo, pm.getLaunchIntentForPackage(packageName) != null)
+        } catch (_: PackageManager.NameNotFoundException) {
+            null
+        }
+        if (entry != null) updated[packageName] = entry else updated.remove(packageName)
+        index = Index(updated.values)
+        iconCache.snapshot().keys.filter { it.startsWith("$packageName@") }.forEach { iconCache.remove(it) }
+        InAppLogger.log(TAG, "Package ${if (entry != null) "updated" else "removed"}: $packageName")
+    }
+
+    private fun queryLaunchablePackages(pm: PackageManager): Set<String> {
+        val launcherIntent = Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_LAUNCHER)
+        return pm.queryIntentActivities(launcherIntent, 0)
+            .mapNotNullTo(HashSet()) { it.activityInfo?.packageName }
+    }
+
+    private fun buildEntry(pm: PackageManager, appInfo: ApplicationInfo, isLaunchable: Boolean): Entry? {
+        return try {
+            val label = pm.getApplicationLabel(appInfo).toString()
+            if (label.isEmpty()) return null
+            Entry(
+                label = label,
+                packageName = appInfo.packageName,
+                isLaunchable = isLaunchable,
+                isSystem = (appInfo.flags and ApplicationInfo.FLAG_SYSTEM) != 0,
+                isUpdatedSystem = (appInfo.flags and ApplicationInfo.FLAG_UPDATED_SYSTEM_APP) != 0
+            )
+        } catch (e: Exception) {
+            InAppLogger.logError(TAG, "Error indexing ${appInfo.packageName}: ${e.message}")
+            null
+        }
+    }
+
+    private fun ensureReceiver(context: Context) {
+        synchronized(receiverLock) {
+            if (appContext != null) return
+            val app = context.applicationContext
+            appContext = app
+            val filter = IntentFilter().apply {
+                addAction(Intent.ACTION_PACKAGE_ADDED)
+                addAction(Intent.ACTION_PACKAGE_REMOVED)
+                addAction(Intent.ACTION_PACKAGE_CHANGED)
+                addDataScheme("package")
+            }
+            ContextCompat.registerReceiver(app, packageReceiver, filter, ContextCompat.RECEIVER_NOT_EXPORTED)
+        }
+    }
+}
@@ -8,11 +8,6 @@
 package com.micoyc.speakthat;
 
 import android.content.Context;
-import android.content.pm.ApplicationInfo;
-import android.content.pm.PackageManager;
-import android.content.pm.ResolveInfo;
-import android.graphics.drawable.Drawable;
-import android.os.AsyncTask;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -70,7 +65,12 @@ public class LazyAppSearchAdapter extends ArrayAdapter<AppInfo> {
         
         AppInfo app = getItem(position);
         if (app != null) {
-            holder.iconImageView.setImageDrawable(app.icon);
+            if (app.icon != null) {
+                holder.iconImageView.setTag(R.id.tag_icon_package, null);
+                holder.iconImageView.setImageDrawable(app.icon);
+            } else {
+                InstalledAppCatalog.bindIcon(holder.iconImageView, app.packageName, null);
+            }
             holder.nameTextView.setText(app.appName);
             holder.packageTextView.setText(app.packageName);
         }
@@ -131,76 +131,31 @@ public class LazyAppSearchAdapter extends ArrayAdapter<AppInfo> {
         
         private List<AppInfo> searchAppsInBackground(String filterText) {
             List<AppInfo> results = new ArrayList<>();
-            PackageManager pm = context.getPackageManager();
-            
+            String ownPackage = context.getPackageName();
+
             try {
-                // Query for all apps that can be launched
-                android.content.Intent mainIntent = new android.content.Intent(android.content.Intent.ACTION_MAIN, null);
-                mainIntent.addCategory(android.content.Intent.CATEGORY_LAUNCHER);
-                
-                List<ResolveInfo> resolveInfoList = pm.queryIntentActivities(mainIntent, 0);
-                
-                InAppLogger.log("LazyAppSearch", "Searching " + resolveInfoList.size() + " apps for: '" + filterText + "'");
-                
-                for (ResolveInfo resolveInfo : resolveInfoList) {
-                    // Check if we've reached the result limit
-                    if (results.size() >= MAX_RESULTS) {
-                        break;
-                    }
-                    
-                    try {
-                        String packageName = resolveInfo.activityInfo.packageName;
-                        String appName = resolveInfo.loadLabel(pm).toString();
-                        
-                        // Skip our own app
-                        if (packageName.equals(context.getPackageName())) {
-                            continue;
-                        }
-                        
-                        // Check if this is actually a system app using ApplicationInfo flags
-                        try {
-                            ApplicationInfo appInfo = pm.getApplicationInfo(packageName, 0);
-                            // Skip actual system apps (but allow user-installed apps even if they have system-like package names)
-                            if ((appInfo.flags & ApplicationInfo.FLAG_SYSTEM) != 0 && 
-                                (appInfo.flags & ApplicationInfo.FLAG_UPDATED_SYSTEM_APP) == 0) {
-                                // This is a true system app (not a user-installed update)
-                                continue;
-                            }
-                        } catch (Exception e) {
-                            // If we can't get app info, skip it
-                            continue;
-                        }
-                        
-                        // Still filter out known Google system services
-                        if (isGoogleSystemService(packageName)) {
-                            continue;
-                        }
-                        
-                        // Check if app matches search term
-                        boolean nameMatch = appName.toLowerCase().contains(filterText);
-                        boolean packageMatch = packageName.toLowerCase().contains(filterText);
-                        
-                        if (nameMatch || packageMatch) {
-                            // Load icon (this is the expensive operation)
-                            Drawable icon = resolveInfo.loadIcon(pm);
-                            results.add(new AppInfo(appName, packageName, icon));
-                        }
-                        
-                    } catch (Exception e) {
-                        // Skip apps that can't be loaded
-                        InAppLogger.logError("LazyAppSearch", "Error loading app: " + e.getMessage());
-                    }
+                // Matches come from the shared, pre-lowercased catalog; icons are bound lazily in getView
+                List<InstalledAppCatalog.Entry> matches = InstalledAppCatalog.search(
+                    context,
+                    filterText,
+                    MAX_RESULTS,
+                    entry -> entry.isLaunchable
+                        // Skip actual system apps (but allow user-installed updates of system apps)
+                        && !entry.isPureSystemApp()
+                        && !entry.packageName.equals(ownPackage)
+                        && !isGoogleSystemService(entry.packageName)
+                );
+
+                for (InstalledAppCatalog.Entry entry : matches) {
+                    results.add(new AppInfo(entry.label, entry.packageName, null));
                 }
-                
-                // Sort results alphabetically
-                results.sort((a, b) -> a.appName.compareToIgnoreCase(b.appName));
-                
+
                 InAppLogger.log("LazyAppSearch", "Found " + results.size() + " matches for '" + filterText + "'");
-                
+
             } catch (Exception e) {
                 InAppLogger.logError("LazyAppSearch", "Error searching apps: " + e.getMessage());
             }
-            
+
             return results;
         }
     }
@@ -0,0 +1,49 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+import android.view.LayoutInflater
+import android.view.ViewGroup
+import android.widget.TextView
+import androidx.recyclerview.widget.DiffUtil
+import androidx.recyclerview.widget.ListAdapter
+import androidx.recyclerview.widget.RecyclerView
+
+/**
+ * One row per in-app log line. Entries are keyed by their log id, so appending new lines only
+ * binds the new rows instead of laying out the whole log again.
+ */
+class LogLineAdapter : ListAdapter<InAppLogger.LogEntry, LogLineAdapter.ViewHolder>(DIFF) {
+
+    companion object {
+        private val DIFF = object : DiffUtil.ItemCallback<InAppLogger.LogEntry>() {
+            override fun areItemsTheSame(oldItem: InAppLogger.LogEntry, newItem: InAppLogger.LogEntry) =
+                oldItem.id == newItem.id
+
+            // Log entries never change once written
+            override fun areContentsTheSame(oldItem: InAppLogger.LogEntry, newItem: InAppLogger.LogEntry) = true
+        }
+    }
+
+    init {
+        setHasStableIds(true)
+    }
+
+    class ViewHolder(val textLine: TextView) : RecyclerView.ViewHolder(textLine)
+
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): ViewHolder {
+        val view = LayoutInflater.from(parent.context).inflate(R.layout.item_log_line, parent, false)
+        return ViewHolder(view as TextView)
+    }
+
+    override fun onBindViewHolder(holder: ViewHolder, position: Int) {
+        holder.textLine.text = getItem(position).toString()
+    }
+
+    override fun getItemId(position: Int): Long = getItem(position).id
+}
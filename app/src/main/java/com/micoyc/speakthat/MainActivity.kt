@@ -64,6 +64,7 @@ import com.micoyc.speakthat.rules.migration.RuleMigrationManager
 import com.micoyc.speakthat.summary.SummaryConstants
 import com.micoyc.speakthat.summary.SummarySettingsGate
 import com.micoyc.speakthat.tts.SpeakThatTtsManager
+import com.micoyc.speakthat.tts.TtsCatalog
 import com.micoyc.speakthat.utils.SeasonalModeHelper
 import com.micoyc.speakthat.utils.TtsLanguageHelper
 import org.woheller69.freeDroidWarn.FreeDroidWarn
@@ -172,6 +173,7 @@ class MainActivity : AppCompatActivity(), TextToSpeech.OnInitListener, SensorEve
         private const val REQUEST_NOTIFICATION_PERMISSION = 1001
         private const val LOW_BATTERY_THRESHOLD = 20
         private const val FULL_BATTERY_PERCENT = 99
+        private const val HOME_HISTORY_LIMIT = 15
         // TRANSLATION BANNER - REMOVE WHEN NO LONGER NEEDED
     
         @JvmField
@@ -630,15 +632,15 @@ class MainActivity : AppCompatActivity(), TextToSpeech.OnInitListener, SensorEve
 
     private fun updateStatisticsDisplay() {
         try {
-            // Update notification history list
-            val notifications = NotificationReaderService.getRecentNotifications()
+            // Update notification history list (newest first; the adapter diffs against what it shows)
+            val notifications = NotificationReaderService.getNewestNotifications(HOME_HISTORY_LIMIT)
             if (notifications.isEmpty()) {
                 binding.textNotificationHistoryEmpty.visibility = View.VISIBLE
                 binding.recyclerNotificationHistory.visibility = View.GONE
             } else {
                 binding.textNotificationHistoryEmpty.visibility = View.GONE
                 binding.recyclerNotificationHistory.visibility = View.VISIBLE
-                homeNotificationAdapter?.updateNotifications(notifications.reversed())
+                homeNotificationAdapter?.updateNotifications(notifications)
             }
 
             // Update all-time statistics
@@ -1276,8 +1278,8 @@ class MainActivity : AppCompatActivity(), TextToSpeech.OnInitListener, SensorEve
             val z = event.values[2]
             
             val result = shakeEvaluator.evaluate(x, y, z)
-            if (result is com.micoyc.speakthat.gesture.ShakeEvaluator.EvaluationResult.TargetReached) {
-                Log.d(TAG, "Shake detected in MainActivity! Stopping TTS. Shake value: ${result.shakeValue}")
+            if (result == com.micoyc.speakthat.gesture.ShakeEvaluator.RESULT_TARGET_REACHED) {
+                Log.d(TAG, "Shake detected in MainActivity! Stopping TTS. Shake value: ${shakeEvaluator.lastShakeValue}")
                 stopSpeaking("shake")
             }
         } else if (event.sensor.type == Sensor.TYPE_PROXIMITY && isWaveToStopEnabled) {
@@ -1286,7 +1288,7 @@ class MainActivity : AppCompatActivity(), TextToSpeech.OnInitListener, SensorEve
             val isTriggered = ProximityCover.isCovered(proximityValue, proximitySensor)
 
             val result = waveEvaluator.evaluate(isTriggered, true)
-            if (result is com.micoyc.speakthat.gesture.WaveEvaluator.EvaluationResult.TargetReached) {
+            if (result == com.micoyc.speakthat.gesture.WaveEvaluator.RESULT_TARGET_REACHED) {
                 Log.d(TAG, "Wave detected in MainActivity! Stopping TTS. Proximity: $proximityValue cm, maxRange: $maxRange cm")
                 InAppLogger.log("MainActivity", "Wave detected - proximity: ${proximityValue}cm, maxRange: ${maxRange}cm")
                 stopSpeaking("wave")
@@ -1336,7 +1338,7 @@ class MainActivity : AppCompatActivity(), TextToSpeech.OnInitListener, SensorEve
                     else -> "Unknown ($available)"
                 }}\n")
                 
-                val engines = textToSpeech?.engines?.size ?: 0
+                val engines = TtsCatalog.getEngines(this).size
                 status.append("- Available engines: $engines\n")
             } catch (e: Exception) {
                 status.append("- Error checking TTS: ${e.message}\n")
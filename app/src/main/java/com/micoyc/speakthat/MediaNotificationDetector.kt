@@ -8,169 +8,86 @@
 package com.micoyc.speakthat
 
 import android.app.Notification
-import android.service.notification.StatusBarNotification
-import android.util.Log
 
 /**
  * Smart utility class to detect actual media control notifications.
- * 
- * This detector focuses on reliable indicators of media controls:
- * - Media session flags (the most reliable method)
+ *
+ * This detector focuses on reliable indicators of media controls, cheapest first:
+ * - The `MediaStyle` template (what players and podcast apps post)
+ * - Notification categories ([Notification.CATEGORY_TRANSPORT] and other media categories)
+ * - Media session flags (the session, controller or playback state extras are present)
  * - Progress bars/seekbars (actual media controls)
- * - Notification categories (system-level media indicators)
- * 
- * Removed unreliable text-based detection to prevent false positives.
+ *
+ * Removed unreliable text-based detection to prevent false positives. Every signal is read at
+ * ingest into [ParsedNotification] with `containsKey`-style checks, so no text is extracted and
+ * no binder token is unparcelled here, and each re-post is classified afresh.
  */
 class MediaNotificationDetector {
-    
+
     companion object {
-        private const val TAG = "MediaNotificationDetector"
-        
+        private val MEDIA_TEMPLATE_SUFFIXES = arrayOf("\$MediaStyle", "\$DecoratedMediaCustomViewStyle")
+
         // Only check for actual media session flags and progress indicators
         // Removed unreliable text pattern matching
-        
+        private val MEDIA_CATEGORIES = setOf(
+            Notification.CATEGORY_TRANSPORT,
+            "media_session",
+            "media_control",
+            "playback"
+        )
+
         /**
          * Check if a notification contains actual media controls
          * Uses only reliable detection methods to prevent false positives
          */
-        fun isMediaNotification(sbn: StatusBarNotification): Boolean {
-            val notification = sbn.notification
-            val packageName = sbn.packageName
-            val extras = notification.extras
-            val title = extras.getCharSequence(Notification.EXTRA_TITLE)?.toString() ?: ""
-            val text = extras.getCharSequence(Notification.EXTRA_TEXT)?.toString() ?: ""
-            
-            Log.d(TAG, "[isMediaNotification] Package: $packageName | Title: $title | Text: $text")
-            
-            // Method 1: Check for actual media session flags (most reliable)
-            if (hasMediaSessionFlags(notification)) {
-                Log.d(TAG, "[isMediaNotification] Detected media session flags for: $packageName (return true)")
-                return true
-            }
-            
-            // Method 2: Check for progress bar/seekbar (actual media controls)
-            if (hasSeekbar(notification)) {
-                Log.d(TAG, "[isMediaNotification] Detected seekbar/progress bar in notification for: $packageName (return true)")
-                return true
-            }
-            
-            // Method 3: Check for media notification category (system-level indicator)
-            if (hasMediaCategory(notification)) {
-                Log.d(TAG, "[isMediaNotification] Detected media category for: $packageName (return true)")
-                return true
-            }
-            
-            Log.d(TAG, "[isMediaNotification] No reliable media detection for: $packageName (return false)")
-            return false
-        }
-        
-        /**
-         * Check for actual media session flags and extras
-         * This is the most reliable method for detecting media controls
-         */
-        private fun hasMediaSessionFlags(notification: Notification): Boolean {
-            val extras = notification.extras
-            
-            // Check for official Android media session extras
-            val hasMediaSession = extras.containsKey("android.mediaSession")
-            val hasMediaController = extras.containsKey("android.mediaController")
-            val hasPlaybackState = extras.containsKey("android.playbackState")
-            
-            // Check for media session object (most reliable indicator)
-            val mediaSession = if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.TIRAMISU) {
-                extras.getParcelable("android.mediaSession", android.os.Parcelable::class.java)
-            } else {
-                @Suppress("DEPRECATION")
-                extras.getParcelable("android.mediaSession")
-            }
-            val mediaController = if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.TIRAMISU) {
-                extras.getParcelable("android.mediaController", android.os.Parcelable::class.java)
-            } else {
-                @Suppress("DEPRECATION")
-                extras.getParcelable("android.mediaController")
-            }
-            
-            if (hasMediaSession || hasMediaController || hasPlaybackState || mediaSession != null || mediaController != null) {
-                Log.d(TAG, "Detected actual media session flags")
-                return true
-            }
-            
-            return false
-        }
-        
-        /**
-         * Check if notification has a seekbar/progress bar (actual media controls)
-         */
-        private fun hasSeekbar(notification: Notification): Boolean {
-            val extras = notification.extras
-            val hasProgress = extras.containsKey(Notification.EXTRA_PROGRESS)
-            val hasProgressMax = extras.containsKey(Notification.EXTRA_PROGRESS_MAX)
-            val progress = extras.getInt(Notification.EXTRA_PROGRESS, -1)
-            val progressMax = extras.getInt(Notification.EXTRA_PROGRESS_MAX, -1)
-            
-            Log.d(TAG, "[hasSeekbar] hasProgress: $hasProgress, hasProgressMax: $hasProgressMax, progress: $progress, progressMax: $progressMax")
-            
-            // Only consider it a seekbar if both progress and max are set and max > 0
-            val result = hasProgress && hasProgressMax && progressMax > 0
-            Log.d(TAG, "[hasSeekbar] Seekbar detected: $result")
-            return result
-        }
-        
-        /**
-         * Check if notification has media-related category
-         * System-level indicator that's more reliable than text patterns
-         */
-        private fun hasMediaCategory(notification: Notification): Boolean {
-            val category = notification.category
-            if (category == null) return false
-            
-            // Only check for actual media categories, not generic service categories
-            val mediaCategories = setOf(
-                "media_session",
-                "media_control", 
-                "playback"
-            )
-            
-            val isMediaCategory = mediaCategories.contains(category)
-            if (isMediaCategory) {
-                Log.d(TAG, "Detected media category: $category")
-            }
-            
-            return isMediaCategory
-        }
-        
+        fun isMediaNotification(parsed: ParsedNotification): Boolean =
+            hasMediaTemplate(parsed.template) ||
+                hasMediaCategory(parsed.category) ||
+                parsed.hasMediaSession ||
+                parsed.hasSeekbar
+
         /**
          * Get detailed information about why a notification was classified as media
          */
-        fun getMediaDetectionReason(sbn: StatusBarNotification): String {
-            val notification = sbn.notification
+        fun getMediaDetectionReason(parsed: ParsedNotification): String {
             val reasons = mutableListOf<String>()
-            
-            if (hasMediaSessionFlags(notification)) {
+
+            if (hasMediaTemplate(parsed.template)) {
+                reasons.add("Media style: ${parsed.template?.substringAfterLast('$')}")
+            }
+
+            if (hasMediaCategory(parsed.category)) {
+                reasons.add("Media category: ${parsed.category}")
+            }
+
+            if (parsed.hasMediaSession) {
                 reasons.add("Has media session flags")
             }
-            
-            if (hasSeekbar(notification)) {
+
+            if (parsed.hasSeekbar) {
                 reasons.add("Has progress bar/seekbar")
             }
-            
-            if (hasMediaCategory(notification)) {
-                reasons.add("Media category: ${notification.category}")
-            }
-            
+
             return reasons.joinToString(", ")
         }
-        
+
+        private fun hasMediaTemplate(template: String?): Boolean =
+            template != null && MEDIA_TEMPLATE_SUFFIXES.any { template.endsWith(it) }
+
+        /** System-level indicator that's more reliable than text patterns. */
+        private fun hasMediaCategory(category: String?): Boolean =
+            category != null && category in MEDIA_CATEGORIES
+
         /**
          * Filter when the feature is enabled and the notification is a native media-style notification.
          */
-        fun shouldFilterMediaNotification(sbn: StatusBarNotification, userPreferences: MediaFilterPreferences): Boolean {
-            return userPreferences.isMediaFilteringEnabled && isMediaNotification(sbn)
+        fun shouldFilterMediaNotification(parsed: ParsedNotification, userPreferences: MediaFilterPreferences): Boolean {
+            return userPreferences.isMediaFilteringEnabled && isMediaNotification(parsed)
         }
     }
-    
+
     /** Master toggle only; classification uses [isMediaNotification]. */
     data class MediaFilterPreferences(
         val isMediaFilteringEnabled: Boolean = false
     )
-} 
\ No newline at end of file
+}
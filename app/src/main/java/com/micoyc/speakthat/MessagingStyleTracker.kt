@@ -0,0 +1,139 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+import android.app.Notification
+import androidx.core.app.NotificationCompat
+
+/**
+ * Reads only the new messages of a MessagingStyle notification.
+ *
+ * Chat apps re-post the same notification with the whole conversation attached each time a message
+ * arrives. For every notification key we remember the newest message timestamp already handled (the
+ * high-water mark), so each update yields just the messages after it. Apps that stamp every message
+ * with the same time are handled by also remembering how many messages the last update carried.
+ *
+ * Marks are kept for the [maxTrackedKeys] most recently updated keys.
+ */
+class MessagingStyleTracker(private val maxTrackedKeys: Int = DEFAULT_MAX_TRACKED_KEYS) {
+
+    /** One message; [fromSelf] marks messages the user sent, which are never read out. */
+    data class Message(
+        val sender: String?,
+        val text: String,
+        val timestamp: Long,
+        val fromSelf: Boolean = false
+    )
+
+    /** The messages of a MessagingStyle notification, oldest first. */
+    class Conversation(val title: String?, val isGroup: Boolean, val messages: List<Message>)
+
+    private class Mark(var timestamp: Long, var count: Int)
+
+    companion object {
+        const val DEFAULT_MAX_TRACKED_KEYS = 256
+
+        /** At most this many messages are read from one update, e.g. on first sight of a long chat. */
+        const val MAX_MESSAGES_PER_UPDATE = 5
+
+        /** The messages of [notification], or null when it is not a MessagingStyle notification. */
+        fun parse(notification: Notification): Conversation? {
+            val style = NotificationCompat.MessagingStyle.extractMessagingStyleFromNotification(notification)
+                ?: return null
+            if (style.messages.isEmpty()) return null
+            val selfName = style.user.name?.toString()
+            val messages = style.messages.map { message ->
+                val sender = message.person?.name?.toString()
+                Message(
+                    sender = sender,
+                    text = message.text?.toString().orEmpty(),
+                    timestamp = message.timestamp,
+                    // A message without a sender is the user's own, as is one sent under the user's name
+                    fromSelf = message.person == null || (selfName != null && sender == selfName)
+                )
+            }
+            val title = style.conversationTitle?.toString()
+                ?: notification.extras?.getCharSequence(Notification.EXTRA_TITLE)?.toString()
+            return Conversation(title, style.isGroupConversation, messages)
+        }
+
+        /**
+         * Speech text for [messages]: joined into sentences, naming the sender in group chats
+         * whenever it changes. Messages without text are skipped.
+         */
+        fun compose(messages: List<Message>, isGroup: Boolean): String {
+            val builder = StringBuilder()
+            var lastSender: String? = null
+            for (message in messages) {
+                val text = message.text.trim()
+                if (text.isEmpty()) continue
+                if (builder.isNotEmpty()) {
+                    builder.append(if (builder.last() in ".!?") " " else ". ")
+                }
+                if (isGroup && message.sender != null && message.sender != lastSender) {
+                    builder.append(message.sender).append(": ")
+                }
+                lastSender = message.sender
+                builder.append(text)
+            }
+            return builder.toString()
+        }
+    }
+
+    // Access order, so the first entry is the least recently updated key
+    private val marks = LinkedHashMap<String, Mark>(16, 0.75f, true)
+
+    /**
+     * Messages in [messages] that arrived after the mark for [key], excluding the user's own,
+     * capped to the newest [MAX_MESSAGES_PER_UPDATE]. Leaves the mark alone; call [markHandled]
+     * once the readout is accepted, so messages held back (e.g. by a cooldown) come with the next update.
+     */
+    @Synchronized
+    fun peekNew(key: String, messages: List<Message>): List<Message> {
+        val mark = marks[key]
+        val fresh = if (mark == null) {
+            messages
+        } else {
+            messages.filter { it.timestamp > mark.timestamp }.ifEmpty {
+                // Nothing newer by time; a longer list still means messages were added
+                if (messages.size > mark.count) messages.takeLast(messages.size - mark.count) else emptyList()
+            }
+        }
+        return fresh.filterNot { it.fromSelf }.takeLast(MAX_MESSAGES_PER_UPDATE)
+    }
+
+    /** Advance the mark for [key] past every message in [messages]. */
+    @Synchronized
+    fun markHandled(key: String, messages: List<Message>) {
+        val newest = messages.maxOfOrNull { it.timestamp } ?: Long.MIN_VALUE
+        val mark = marks[key]
+        if (mark == null) {
+            marks[key] = Mark(newest, messages.size)
+            while (marks.size > maxTrackedKeys) {
+                marks.remove(marks.keys.first())
+            }
+        } else {
+            mark.timestamp = maxOf(mark.timestamp, newest)
+            mark.count = messages.size
+        }
+    }
+
+    /**
+     * The notification for [key] was removed. Its timestamp mark is kept, so a re-post carrying old
+     * history is not read again, but the message count restarts with the next post.
+     */
+    @Synchronized
+    fun onRemoved(key: String) {
+        marks[key]?.count = 0
+    }
+
+    @Synchronized
+    fun clear() {
+        marks.clear()
+    }
+}
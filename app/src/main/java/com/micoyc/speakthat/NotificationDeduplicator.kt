@@ -0,0 +1,120 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+import com.micoyc.speakthat.text.DedupKeys
+
+/**
+ * Decides whether a posted notification repeats one that was already handled.
+ *
+ * The checks run in order and the first that matches wins:
+ * 1. **Group child repost**: when Android regroups notifications (e.g. a new email arrives and the
+ *    existing ones get bundled) it posts every child again. Content seen in the last
+ *    [GROUP_CHILD_DEDUP_WINDOW_MS] is skipped, unless timestamps are included and the post time is
+ *    newer.
+ * 2. **Duplicate**: the same id with the same content within [DEDUPLICATION_WINDOW_MS].
+ * 3. **Content duplicate**: the same content from the app under any id.
+ * 4. **Gmail id**: Gmail updates a notification in place, so its id alone is enough.
+ * 5. **App duplicate**: the same id from apps known to re-post ([isProblematicApp]).
+ *
+ * Windows are measured from the first time a notification was let through; repeats do not extend
+ * them. Kept free of Android types and read from an injected clock so recorded notification traces
+ * can be replayed against it. Not thread-safe; the service calls it from its processing coroutine.
+ */
+class NotificationDeduplicator(private val nowMs: () -> Long = System::currentTimeMillis) {
+
+    companion object {
+        const val DEDUPLICATION_WINDOW_MS = 30000L // 30 seconds window for deduplication (increased to handle notification updates)
+        const val GROUP_CHILD_DEDUP_WINDOW_MS = 3600000L // 1 hour - covers long gaps between grouped notifications
+        const val MAX_GROUP_DEDUP_ENTRIES = 500
+
+        private const val GMAIL_PACKAGE = "com.google.android.gm"
+
+        private val PROBLEMATIC_APPS = setOf(
+            GMAIL_PACKAGE,
+            "com.google.android.apps.messaging", // Messages
+            "com.whatsapp",
+            "com.tencent.mm", // WeChat
+            "com.instagram.android",
+            "com.twitter.android"
+        )
+
+        fun isProblematicApp(packageName: String): Boolean = packageName in PROBLEMATIC_APPS
+    }
+
+    enum class Verdict { NEW, GROUP_CHILD_REPOST, DUPLICATE, CONTENT_DUPLICATE, GMAIL_ID_DUPLICATE, APP_DUPLICATE }
+
+    /** [sinceMs] is how long ago the matching notification was handled; 0 for [Verdict.NEW]. */
+    class Result(val verdict: Verdict, val sinceMs: Long)
+
+    private val recentNotificationKeys = HashMap<String, Long>() // key -> time first handled
+    // content key -> (time handled, post time)
+    private val groupChildKeys = HashMap<String, Pair<Long, Long>>()
+
+    fun check(
+        packageName: String,
+        notificationId: Int,
+        group: String?,
+        postTime: Long,
+        text: String,
+        includeTimestamps: Boolean
+    ): Result {
+        val now = nowMs()
+
+        if (text.isNotEmpty()) {
+            val groupContentKey = DedupKeys.contentKey(packageName, text)
+            val lastSeen = if (group != null) groupChildKeys[groupContentKey] else null
+            if (lastSeen != null && now - lastSeen.first < GROUP_CHILD_DEDUP_WINDOW_MS) {
+                // With timestamps included, a newer post time tells identical messages apart
+                if (!includeTimestamps || postTime <= lastSeen.second) {
+                    return Result(Verdict.GROUP_CHILD_REPOST, now - lastSeen.first)
+                }
+            }
+            if (groupChildKeys.size > MAX_GROUP_DEDUP_ENTRIES) {
+                groupChildKeys.entries.removeIf { (_, data) -> now - data.first > GROUP_CHILD_DEDUP_WINDOW_MS }
+            }
+            groupChildKeys[groupContentKey] = Pair(now, postTime)
+        }
+
+        recentNotificationKeys.entries.removeIf { (_, timestamp) -> now - timestamp > DEDUPLICATION_WINDOW_MS }
+
+        val notificationKey = DedupKeys.notificationKey(packageName, notificationId, text)
+        recentSince(notificationKey, now)?.let { return Result(Verdict.DUPLICATE, it) }
+        recentNotificationKeys[notificationKey] = now
+
+        val contentKey = DedupKeys.contentKey(packageName, text)
+        recentSince(contentKey, now)?.let { return Result(Verdict.CONTENT_DUPLICATE, it) }
+
+        if (packageName == GMAIL_PACKAGE) {
+            val gmailIdKey = "gmail_id_$notificationId"
+            recentSince(gmailIdKey, now)?.let { return Result(Verdict.GMAIL_ID_DUPLICATE, it) }
+            recentNotificationKeys[gmailIdKey] = now
+        }
+
+        // Only remembered once the notification is going ahead
+        recentNotificationKeys[contentKey] = now
+
+        if (isProblematicApp(packageName)) {
+            val appSpecificKey = "app_${packageName}_$notificationId"
+            recentSince(appSpecificKey, now)?.let { return Result(Verdict.APP_DUPLICATE, it) }
+            recentNotificationKeys[appSpecificKey] = now
+        }
+        return Result(Verdict.NEW, 0L)
+    }
+
+    fun clear() {
+        recentNotificationKeys.clear()
+        groupChildKeys.clear()
+    }
+
+    private fun recentSince(key: String, now: Long): Long? {
+        val last = recentNotificationKeys[key] ?: return null
+        val since = now - last
+        return if (since < DEDUPLICATION_WINDOW_MS) since else null
+    }
+}
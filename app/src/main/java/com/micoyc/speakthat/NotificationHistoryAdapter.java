@@ -12,22 +12,42 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.button.MaterialButton;
 import java.util.List;
 
-public class NotificationHistoryAdapter extends RecyclerView.Adapter<NotificationHistoryAdapter.NotificationViewHolder> {
+/**
+ * History rows keyed by their history id, so new notifications are diffed in rather than
+ * rebinding the whole list.
+ */
+public class NotificationHistoryAdapter extends ListAdapter<NotificationReaderService.NotificationData, NotificationHistoryAdapter.NotificationViewHolder> {
+    
+    private static final DiffUtil.ItemCallback<NotificationReaderService.NotificationData> DIFF_CALLBACK =
+        new DiffUtil.ItemCallback<NotificationReaderService.NotificationData>() {
+            @Override
+            public boolean areItemsTheSame(@NonNull NotificationReaderService.NotificationData oldItem, @NonNull NotificationReaderService.NotificationData newItem) {
+                return oldItem.getHistoryId() == newItem.getHistoryId();
+            }
+            
+            @Override
+            public boolean areContentsTheSame(@NonNull NotificationReaderService.NotificationData oldItem, @NonNull NotificationReaderService.NotificationData newItem) {
+                return oldItem.equals(newItem);
+            }
+        };
     
-    private List<NotificationReaderService.NotificationData> notifications;
-    private OnFilterClickListener filterClickListener;
+    private final OnFilterClickListener filterClickListener;
     
     public interface OnFilterClickListener {
         void onFilterClick(NotificationReaderService.NotificationData notification);
     }
     
-    public NotificationHistoryAdapter(List<NotificationReaderService.NotificationData> notifications, OnFilterClickListener listener) {
-        this.notifications = notifications;
+    /** A null [listener] hides the "Filter Similar" button. */
+    public NotificationHistoryAdapter(OnFilterClickListener listener) {
+        super(DIFF_CALLBACK);
         this.filterClickListener = listener;
+        setHasStableIds(true);
     }
     
     @NonNull
@@ -39,18 +59,16 @@ public class NotificationHistoryAdapter extends RecyclerView.Adapter<Notificatio
     
     @Override
     public void onBindViewHolder(@NonNull NotificationViewHolder holder, int position) {
-        NotificationReaderService.NotificationData notification = notifications.get(position);
-        holder.bind(notification, filterClickListener);
+        holder.bind(getItem(position), filterClickListener);
     }
     
     @Override
-    public int getItemCount() {
-        return notifications.size();
+    public long getItemId(int position) {
+        return getItem(position).getHistoryId();
     }
     
     public void updateNotifications(List<NotificationReaderService.NotificationData> newNotifications) {
-        this.notifications = newNotifications;
-        notifyDataSetChanged();
+        submitList(newNotifications);
     }
     
     static class NotificationViewHolder extends RecyclerView.ViewHolder {
@@ -72,6 +90,7 @@ public class NotificationHistoryAdapter extends RecyclerView.Adapter<Notificatio
             textTimestamp.setText(notification.getTimestamp());
             textNotificationContent.setText(notification.getText());
             
+            btnFilterSimilar.setVisibility(listener != null ? View.VISIBLE : View.GONE);
             btnFilterSimilar.setOnClickListener(v -> {
                 if (listener != null) {
                     listener.onFilterClick(notification);
@@ -79,4 +98,4 @@ public class NotificationHistoryAdapter extends RecyclerView.Adapter<Notificatio
             });
         }
     }
-} 
\ No newline at end of file
+}
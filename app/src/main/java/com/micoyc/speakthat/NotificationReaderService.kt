@@ -40,8 +40,6 @@ import android.os.SystemClock
 import android.os.PowerManager
 import android.util.Log
 import android.util.TypedValue
-import android.icu.lang.UCharacter
-import android.icu.lang.UProperty
 import androidx.core.app.NotificationCompat
 import androidx.core.content.FileProvider
 import com.micoyc.speakthat.VoiceSettingsActivity
@@ -50,6 +48,7 @@ import com.micoyc.speakthat.settings.BehaviorSettingsActivity
 import com.micoyc.speakthat.settings.BehaviorSettingsStore
 import com.micoyc.speakthat.tts.SpeakThatTtsManager
 import com.micoyc.speakthat.tts.SpeechCoordinator
+import com.micoyc.speakthat.tts.TtsCatalog
 import com.micoyc.speakthat.utils.TtsLanguageHelper
 import java.io.File
 import java.io.IOException
@@ -66,9 +65,11 @@ import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.SupervisorJob
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.channels.Channel
-
-/** Ordered word swap rule (matches JSON array order in prefs). */
-private data class WordSwapRule(val from: String, val to: String)
+import com.micoyc.speakthat.text.ContentBlockFilter
+import com.micoyc.speakthat.text.ContentCap
+import com.micoyc.speakthat.text.DedupKeys
+import com.micoyc.speakthat.text.SpeechTemplateFormatter
+import com.micoyc.speakthat.text.UrlHandlingStage
 
 class NotificationReaderService : NotificationListenerService(), TextToSpeech.OnInitListener, SensorEventListener, SharedPreferences.OnSharedPreferenceChangeListener {
     
@@ -76,6 +77,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     private var voiceSettingsPrefs: SharedPreferences? = null
     private var textToSpeech: TextToSpeech? = null
     private var isTtsInitialized = false
+    @Volatile
     private var isCurrentlySpeaking = false
     private var isTemporaryVoiceOverrideActive = false
     private var currentSpeechText = ""
@@ -83,12 +85,16 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     private var currentAppName = ""
     private var currentOriginalAppName = "" // Store original app name for statistics (before privacy modification)
     private var currentTtsText = ""
-    private var currentSbnKey: String? = null
+    // Every notification in the current readout, so dismissing any item of a coalesced batch stops it
+    private var currentSbnKeys: Set<String> = emptySet()
     private var shouldShowEngineFailureWarning = false
     
     // Cached system services for performance
     private val audioManager by lazy { getSystemService(AUDIO_SERVICE) as AudioManager }
     private val cachedPackageManager by lazy { packageManager }
+    private val publicSuffixes by lazy { PublicSuffixTrie.get(this) }
+    private val emojiTable by lazy { EmojiTable.get(this) }
+    private val contentCap = ContentCap()
     
     private val scoAudioManager = com.micoyc.speakthat.utils.ScoAudioManager()
     
@@ -99,10 +105,14 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     private var wordListMode = "blacklist" // Default to blacklist for backward compatibility
     private var blockedWords: Set<String> = emptySet()
     private var privateWords: Set<String> = emptySet()
-    private var wordReplacements: List<WordSwapRule> = emptyList()
+    /** Ordered word swaps (matches JSON array order in prefs). */
+    private var wordReplacements: List<ContentBlockFilter.WordSwap> = emptyList()
     private var urlHandlingMode = DEFAULT_URL_HANDLING_MODE
     private var urlReplacementText = DEFAULT_URL_REPLACEMENT_TEXT
+    /** Word lists, swaps and URL handling compiled from the settings above; rebuilt when they load. */
+    private var contentBlockFilter: ContentBlockFilter? = null
     private var tidySpeechRemoveEmojisEnabled = false
+    private var tidySpeechSayEmojiEnabled = false
     private var tidySpeechForceLowercaseEnabled = false
     private var separateDigitsEnabled = false
     private var digitThreshold = 5
@@ -116,6 +126,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     private var priorityApps: Set<String> = emptySet()
     private var notificationBehavior = "interrupt"
     private var skipRepeatedNotificationPrefix = false
+    private var burstCoalescingEnabled = false
     private var prefixMemoryTimeoutSeconds: Int = 60
     private var lastPrefixTimestamp: Long = 0L
     private var mediaBehavior = "ignore"
@@ -124,6 +135,8 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     private var delayBeforeReadout = 0
     private var earconMode: String = BehaviorSettingsStore.DEFAULT_EARCON_MODE
     private var lastEarconStartMs: Long? = null
+    @Volatile
+    private var speakIssuedNanos = 0L
     private var grantedEarconUri: Uri? = null
     private var grantedEarconEnginePackage: String? = null
     private var isPersistentFilteringEnabled = true
@@ -131,6 +144,10 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     
     // Shake detection
     private var sensorManager: SensorManager? = null
+    private var gestureSensorLooper: com.micoyc.speakthat.gesture.GestureSensorLooper? = null
+    // Bumped on every sensor register/unregister so late gesture hits from a finished readout are ignored
+    @Volatile
+    private var gestureSessionId = 0
     private var accelerometer: Sensor? = null
     private var isShakeToStopEnabled = false
     private var shakeEvaluator = com.micoyc.speakthat.gesture.ShakeEvaluator()
@@ -145,6 +162,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     private var isPocketModeEnabled = false
     private var lastProximityValue = Float.NaN
     private var lastProximityTimestamp = 0L
+    @Volatile
     private var waveEventCount = 0
     private var lastWaveDebugLogTime = 0L
     private var waveNoEventRunnable: Runnable? = null
@@ -202,13 +220,33 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         "{app}: {content}"
     )
     
-    // TTS queue for different behavior modes
-    private val notificationQueue = mutableListOf<QueuedNotification>()
+    // TTS queue for the queue and smart behavior modes; confined to the main looper (see onSpeechScheduler)
+    private val speechScheduler = SpeechScheduler<QueuedNotification>(SystemClock::elapsedRealtime).apply {
+        dropListener = { items, reason ->
+            val apps = items.map { it.appName }.distinct().joinToString()
+            Log.d(TAG, "Dropped queued readout from $apps (${items.size} item(s)): $reason")
+            InAppLogger.logNotification("Dropped queued readout from $apps: ${reason.name.lowercase()}")
+        }
+    }
+    private val speechSchedulerHandler = android.os.Handler(android.os.Looper.getMainLooper())
+
+    // Holds chat notifications briefly so a burst from one conversation is read as one readout
+    private val burstCoalescer = BurstCoalescer<ConversationReadout> { _, items -> emitConversationBurst(items) }
+
+    // Per-notification high-water marks so chat updates are read as just their new messages
+    private val messagingStyleTracker = MessagingStyleTracker()
+
+    /** The new messages of a chat update: the conversation [title] and the composed [body]. */
+    private class MessagingUpdate(val title: String, val body: String) {
+        val content: String get() = if (title.isEmpty()) body else "$title: $body"
+    }
 
     private sealed class IncomingSpeechEvent {
         data class Notification(
             val sbn: StatusBarNotification,
-            val rankingMap: RankingMap? = null
+            val rankingMap: RankingMap? = null,
+            val receivedAt: Long = System.currentTimeMillis(),
+            val receivedNanos: Long = System.nanoTime()
         ) : IncomingSpeechEvent()
         data class ClockTick(val fromAlignedAlarm: Boolean) : IncomingSpeechEvent()
     }
@@ -238,21 +276,24 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     
     // Cooldown tracking
     private val appCooldownTimestamps = HashMap<String, Long>() // packageName -> last notification timestamp
+    private val runtimeState by lazy { RuntimeStateStore.getInstance(this) }
     private val appCooldownSettings = HashMap<String, Int>() // packageName -> cooldown seconds
     
-    // Deduplication tracking - prevent same notification from being processed multiple times
-    private val recentNotificationKeys = HashMap<String, Long>() // notificationKey -> timestamp
-    
-    // Group child deduplication - prevent re-reading old notifications when Android regroups them
-    // Map stores contentKey -> Pair(processedTime, postTime)
-    private val groupChildDeduplicationMap = HashMap<String, Pair<Long, Long>>()
+    // Deduplication tracking - prevent same notification from being processed multiple times,
+    // including group children Android posts again when it regroups them
+    private val deduplicator = NotificationDeduplicator()
     
     // Dismissal memory tracking - prevent re-reading dismissed notifications
-    private val dismissedNotificationKeys = HashMap<String, Long>() // contentHash -> dismissal timestamp
-    private var dismissalMemoryCleanupHandler: android.os.Handler? = null
-    private var dismissalMemoryCleanupRunnable: Runnable? = null
+    // contentHash -> dismissal timestamp, memory-mapped so it survives service restarts
+    private val dismissedNotificationKeys by lazy {
+        DismissalMemory(java.io.File(filesDir, DismissalMemory.FILE_NAME)).also {
+            if (it.backingFile == null) {
+                InAppLogger.logWarning("Service", "Dismissal memory file unavailable - using in-memory table")
+            }
+        }
+    }
     private val DISMISSAL_MEMORY_CLEANUP_INTERVAL_MS = 300000L // 5 minutes
-    private val MAX_DISMISSAL_MEMORY_ENTRIES = 1000 // Prevent memory bloat
+    private val DISMISSAL_MEMORY_CLEANUP_FLEX_MS = 150000L // Expiry is also checked on lookup, so timing is loose
     
     // TTS Recovery tracking
     private var ttsRecoveryAttempts = 0
@@ -261,10 +302,10 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     private var lastTtsFailureTime = 0L
     private var consecutiveTtsFailures = 0
     
-    // Periodic health check
-    private var healthCheckHandler: android.os.Handler? = null
-    private var healthCheckRunnable: Runnable? = null
+    // Periodic housekeeping (health check, dismissal memory cleanup, listener watchdog) shares one timer
+    private val housekeeping = HousekeepingScheduler()
     private val HEALTH_CHECK_INTERVAL_MS = 300000L // 5 minutes
+    private val HEALTH_CHECK_FLEX_MS = 60000L // May run up to a minute early to share a wakeup
     
     // Throttling for repetitive logs
     private var lastTtsVolumeLogTime: Long = 0L
@@ -307,9 +348,16 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     
     companion object {
         private const val TAG = "NotificationReader"
-        private val notificationHistory = ArrayList<NotificationData>()
-        private var notificationHistorySequence = 0L
         private const val MAX_HISTORY_SIZE = 15
+        private val notificationHistory = PagedHistoryBuffer<NotificationData>(MAX_HISTORY_SIZE) { it.historyId }
+        private var notificationHistorySequence = 0L
+        /** Arrivals kept while trace recording is on; memory only, like the history. */
+        const val MAX_TRACE_EVENTS = 500
+        // Keyed by a recording sequence: arrival times can repeat or step back with the wall clock
+        private val notificationTrace = PagedHistoryBuffer<TracedArrival>(MAX_TRACE_EVENTS) { it.sequence }
+        private var notificationTraceSequence = 0L
+        @Volatile
+        private var traceRecording = false
         const val PREFS_NAME = "SpeakThatPrefs"
 
         /** Local broadcast: in-memory notification history changed; MainActivity refreshes history and stats. */
@@ -324,6 +372,8 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         const val PREF_SPEAKTHAT_CLOCK_TEMPLATE = "pref_speakthat_clock_template"
         const val DEFAULT_SPEAKTHAT_CLOCK_TEMPLATE = "This is Speak That! The time is {time}, and your battery is at {batt} percent!"
         const val PREF_SPEAKTHAT_CLOCK_PRECISION_MODE = "pref_speakthat_clock_precision_mode"
+        private const val HOUSEKEEPING_JOB_HEALTH_CHECK = "tts_health_check"
+        private const val HOUSEKEEPING_JOB_DISMISSAL_CLEANUP = "dismissal_memory_cleanup"
 
         private const val ACTION_SPEAKTHAT_CLOCK_ALARM = "com.micoyc.speakthat.ACTION_CLOCK_ALARM"
         private const val CLOCK_ALARM_REQUEST_CODE = 9042
@@ -338,9 +388,6 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         private const val FOREGROUND_SERVICE_ID = 1003
         
         // Deduplication settings
-        private const val DEDUPLICATION_WINDOW_MS = 30000L // 30 seconds window for deduplication (increased to handle notification updates)
-        private const val GROUP_CHILD_DEDUP_WINDOW_MS = 3600000L // 1 hour - covers long gaps between grouped notifications
-        private const val MAX_GROUP_DEDUP_ENTRIES = 500
 
         private const val CLOCK_PACKAGE_NAME = "com.micoyc.speakthat.internal.clock"
         private const val CLOCK_APP_NAME = "SpeakThat Clock"
@@ -378,7 +425,10 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         private const val KEY_NOTIFICATION_BEHAVIOR = "notification_behavior"
         private const val KEY_PRIORITY_APPS = "priority_apps"
         private const val KEY_SKIP_REPEATED_NOTIFICATION_PREFIX = "skip_notification_repeated_prefix"
+        private const val KEY_BURST_COALESCING_ENABLED = "burst_coalescing_enabled"
         private const val KEY_PREFIX_MEMORY_TIMEOUT = "prefix_memory_timeout_seconds"
+        private const val KEY_QUEUE_MAX_AGE_SECONDS = "queue_max_age_seconds"
+        private const val DEFAULT_QUEUE_MAX_AGE_SECONDS = 300
         
         // Media behavior settings
         private const val KEY_MEDIA_BEHAVIOR = "media_behavior"
@@ -414,12 +464,14 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         
         // Cooldown settings
         private const val KEY_COOLDOWN_APPS = "cooldown_apps"
-        private const val KEY_COOLDOWN_TIMESTAMPS = "cooldown_timestamps"
+        private const val KEY_COOLDOWN_TIMESTAMPS = "cooldown_timestamps" // Legacy; now in RuntimeStateStore
+        private const val RUNTIME_COOLDOWN_PREFIX = "cooldown."
         
         // URL handling constants
         private const val KEY_URL_HANDLING_MODE = "url_handling_mode"
         private const val KEY_URL_REPLACEMENT_TEXT = "url_replacement_text"
         private const val KEY_TIDY_SPEECH_REMOVE_EMOJIS = "tidy_speech_remove_emojis"
+        private const val KEY_TIDY_SPEECH_SAY_EMOJI = "tidy_speech_say_emoji"
         private const val KEY_TIDY_SPEECH_FORCE_LOWERCASE = "tidy_speech_force_lowercase"
         private const val KEY_SEPARATE_DIGITS_ENABLED = "separate_digits_enabled"
         private const val KEY_DIGIT_THRESHOLD = "digit_threshold"
@@ -460,9 +512,55 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         @Volatile
         private var listenerConnectedForBridge: Boolean = false
         
+        /** The in-memory history, oldest first. */
         @JvmStatic
         fun getRecentNotifications(): List<NotificationData> {
-            return notificationHistory.toList()
+            return notificationHistory.oldestFirst()
+        }
+
+        /** Up to [limit] history entries, newest first, without copying the rest of the history. */
+        @JvmStatic
+        fun getNewestNotifications(limit: Int): List<NotificationData> {
+            return notificationHistory.newest(limit)
+        }
+
+        @JvmStatic
+        fun findNotificationInHistory(historyId: Long): NotificationData? {
+            return notificationHistory.find(historyId)
+        }
+
+        /** Pushed each new history entry on the service's thread; post to the UI thread from it. */
+        @JvmStatic
+        fun addHistoryListener(listener: PagedHistoryBuffer.Listener<NotificationData>) {
+            notificationHistory.addListener(listener)
+        }
+
+        @JvmStatic
+        fun removeHistoryListener(listener: PagedHistoryBuffer.Listener<NotificationData>) {
+            notificationHistory.removeListener(listener)
+        }
+
+        /**
+         * Records the last [MAX_TRACE_EVENTS] notifications as they arrive, for export as a
+         * [NotificationTrace]. Turning it off discards what was recorded.
+         */
+        @JvmStatic
+        fun setTraceRecording(enabled: Boolean) {
+            traceRecording = enabled
+            if (!enabled) notificationTrace.clear()
+        }
+
+        @JvmStatic
+        fun isTraceRecording(): Boolean = traceRecording
+
+        @JvmStatic
+        fun getTraceEventCount(): Int = notificationTrace.size
+
+        /** Writes the recorded arrivals, oldest first, optionally with every text redacted. */
+        @JvmStatic
+        @Throws(java.io.IOException::class)
+        fun exportNotificationTrace(out: java.io.Writer, redact: Boolean) {
+            NotificationTrace.write(notificationTrace.oldestFirst().map { it.event }, out, redact)
         }
 
         @Synchronized
@@ -471,6 +569,12 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             return notificationHistorySequence
         }
 
+        @Synchronized
+        private fun recordTraceEvent(event: NotificationTrace.Event) {
+            notificationTraceSequence += 1L
+            notificationTrace.add(TracedArrival(notificationTraceSequence, event))
+        }
+
         /**
          * Null-safe read-only bridge for summaries.
          * Returns an empty array when listener is unavailable/disconnected.
@@ -505,7 +609,8 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         fun applyFiltersForSummary(
             sbn: StatusBarNotification,
             appName: String,
-            fallbackText: String
+            fallbackText: String,
+            parsed: ParsedNotification = ParsedNotification.from(sbn)
         ): SummaryFilterBridgeResult {
             val instance = activeServiceInstance ?: return SummaryFilterBridgeResult(
                 shouldInclude = true,
@@ -521,12 +626,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             }
 
             return try {
-                val text = fallbackText.ifBlank {
-                    instance.extractNotificationText(
-                        notification = sbn.notification,
-                        packageNameForLog = sbn.packageName
-                    )
-                }
+                val text = fallbackText.ifBlank { instance.extractNotificationText(parsed) }
                 val result = instance.applyFilters(
                     packageName = sbn.packageName,
                     appName = appName,
@@ -534,7 +634,8 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                     sbn = sbn,
                     isSelfTest = false,
                     rankingMap = null,
-                    isSummary = true
+                    isSummary = true,
+                    parsed = parsed
                 )
                 SummaryFilterBridgeResult(
                     shouldInclude = result.shouldSpeak,
@@ -593,6 +694,12 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             return activeServiceInstance?.isCurrentlySpeaking == true || SpeechCoordinator.isSummaryActive()
         }
 
+        /** Speech queue counters and depth/wait histograms for support bundles; null when the service isn't running. */
+        @JvmStatic
+        fun getSpeechQueueDiagnostics(): org.json.JSONObject? {
+            return activeServiceInstance?.speechScheduler?.diagnosticsJson()
+        }
+
         /**
          * Called when [SummaryExecutionService] finishes so deferred notification readouts can resume.
          */
@@ -600,9 +707,6 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         fun onSummarySessionEnded(context: Context) {
             activeServiceInstance?.resumeDeferredReadoutsAfterSummary()
         }
-        
-        // Pre-compiled regex for URL detection (includes http/https/www URLs, bare domains with TLD, IP addresses, and IPv6)
-        private val URL_PATTERN = Regex("""(?i)(?:https?://[^\s]+|www\.[^\s]+|(?:[a-zA-Z0-9](?:[a-zA-Z0-9-]{0,61}[a-zA-Z0-9])?\.(?:[a-zA-Z]{2,}|[0-9]+)|\[[0-9a-fA-F:]+\])(?::[0-9]+)?(?:/[^\s]*)?)""")
     }
     
     data class NotificationData(
@@ -618,19 +722,43 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         val historyId: Long = nextNotificationHistoryId()
     )
     
+    /** A recorded arrival, under the sequence number that orders it in the trace buffer. */
+    private class TracedArrival(val sequence: Long, val event: NotificationTrace.Event)
+
+    /**
+     * A filtered conversation notification held by [burstCoalescer]. Keeps the parsed
+     * notification only for the few seconds of the burst window, for media behaviour.
+     */
+    private class ConversationReadout(
+        val packageName: String,
+        val appName: String,
+        /** Conversation name for the burst header, or null when it must not be spoken (private). */
+        val conversationLabel: String?,
+        val text: String,
+        val conditionalDelaySeconds: Int,
+        val parsed: ParsedNotification,
+        val speechTemplateOverride: SpeechTemplateOverride?,
+        val voiceOverride: VoiceOverride?,
+        val contentCapOverride: ContentCapOverride?,
+        val processedBlocks: Map<String, String>?
+    )
+
     data class QueuedNotification(
         val appName: String,
         val text: String, // Kept for legacy queue compatibility, though blocks are now used
         val isPriority: Boolean = false,
         val conditionalDelaySeconds: Int = -1,
-        val sbn: StatusBarNotification? = null,
+        val packageName: String? = null, // Coalescing group in the speech scheduler
+        val sbnKey: String? = null, // Queue index; the StatusBarNotification itself is not retained
+        val isSelfTest: Boolean = false,
         val originalAppName: String? = null, // Original app name for statistics (before privacy modification)
         val speechTemplateOverride: SpeechTemplateOverride? = null,
         val voiceOverride: VoiceOverride? = null,
         val contentCapOverride: ContentCapOverride? = null,
         val processedBlocks: Map<String, String>? = null, // Support the new architecture
         val shouldKeepEmojis: Boolean = false,
-        val shouldKeepDigits: Boolean = false
+        val shouldKeepDigits: Boolean = false,
+        val canCoalesce: Boolean = true // False for a conversation burst that already has its header
     )
     
     private lateinit var androidAutoHelper: com.micoyc.speakthat.utils.AndroidAutoHelper
@@ -646,8 +774,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         androidAutoHelper.initialize()
         
         // Clear deduplication caches on service start to prevent stale entries
-        recentNotificationKeys.clear()
-        groupChildDeduplicationMap.clear()
+        deduplicator.clear()
         Log.d(TAG, "Cleared deduplication caches on service start")
         
         try {
@@ -753,8 +880,10 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 for (event in processingChannel) {
                     try {
                         when (event) {
-                            is IncomingSpeechEvent.Notification ->
-                                processPostedNotificationPipeline(event.sbn, event.rankingMap)
+                            is IncomingSpeechEvent.Notification -> {
+                                PipelineLatency.recordSince(PipelineLatency.Stage.CHANNEL_WAIT, event.receivedNanos)
+                                processPostedNotificationPipeline(event.sbn, event.rankingMap, event.receivedAt)
+                            }
                             is IncomingSpeechEvent.ClockTick ->
                                 processSpeakThatClockTimeTick(fromAlignedAlarm = event.fromAlignedAlarm)
                         }
@@ -780,8 +909,10 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         
         try {
             androidAutoHelper.cleanup()
+            scoAudioManager.shutdown(this, audioManager)
             processingChannel.close()
             processingSupervisorJob.cancel()
+            burstCoalescer.clear()
 
             // Process any remaining batch operations
             if (historyBatchQueue.isNotEmpty()) {
@@ -820,15 +951,10 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             SpeakThatTtsManager.shutdown()
             textToSpeech = null
             
-            // Unregister sensors
-            sensorManager?.let { manager ->
-                if (isShakeToStopEnabled && accelerometer != null) {
-                    manager.unregisterListener(this, accelerometer)
-                }
-                if (isWaveToStopEnabled && proximitySensor != null) {
-                    manager.unregisterListener(this, proximitySensor)
-                }
-            }
+            // Unregister sensors and stop the gesture sensor thread
+            gestureSensorLooper?.unregister(this)
+            gestureSensorLooper?.quit()
+            gestureSensorLooper = null
             
             // Cancel any pending handlers
             delayHandler?.removeCallbacksAndMessages(null)
@@ -849,13 +975,11 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             unregisterClockReceiver()
 
             // Clear deduplication caches
-            recentNotificationKeys.clear()
-            groupChildDeduplicationMap.clear()
+            deduplicator.clear()
             Log.d(TAG, "Cleared deduplication caches during cleanup")
             
-            // Clear dismissal memory cache
-            dismissedNotificationKeys.clear()
-            Log.d(TAG, "Cleared dismissal memory cache during cleanup")
+            // Dismissal memory is deliberately kept: it is file-backed so a recreated service
+            // does not re-read notifications the user already dismissed
             
             // Stop dismissal memory cleanup
             stopDismissalMemoryCleanup()
@@ -868,6 +992,11 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             listenerRebindHandler = null
             stopListenerWatchdog("service_destroy")
             listenerWatchdog = null
+
+            // Health check and anything else still registered on the shared housekeeping timer
+            stopPeriodicHealthCheck()
+            housekeeping.cancelAll()
+            InAppLogger.log("Service", "Housekeeping stopped: ${HousekeepingScheduler.WakeupStats.lastHour(System.currentTimeMillis())} wakeups in the last hour")
             
             // Hide all SpeakThat notifications
             PersistentIndicatorManager.requestStop(this)
@@ -1036,19 +1165,23 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             InAppLogger.log("Clock", "Scheduling route: disabled")
             return
         }
-        if (precision) {
+        val alarmManager = getSystemService(Context.ALARM_SERVICE) as AlarmManager
+        if (precision || canScheduleExactAlarmsForClock(alarmManager)) {
+            // One alarm per announcement instead of a TIME_TICK every minute. Precision mode wakes
+            // the device; standard mode uses a non-wakeup alarm that is dropped if it arrives late.
             unregisterClockReceiver()
             cancelSpeakThatClockAlarm()
             registerClockAlarmReceiver()
             scheduleNextClockAlarm()
-            Log.d(TAG, "Clock scheduling route -> precision alarm engine")
-            InAppLogger.log("Clock", "Scheduling route: precision alarm engine")
+            val route = if (precision) "precision alarm engine" else "aligned alarm engine"
+            Log.d(TAG, "Clock scheduling route -> $route")
+            InAppLogger.log("Clock", "Scheduling route: $route")
         } else {
             cancelSpeakThatClockAlarm()
             unregisterClockAlarmReceiver()
             registerClockReceiver()
-            Log.d(TAG, "Clock scheduling route -> TIME_TICK engine")
-            InAppLogger.log("Clock", "Scheduling route: TIME_TICK engine")
+            Log.d(TAG, "Clock scheduling route -> TIME_TICK engine (exact alarms not permitted)")
+            InAppLogger.log("Clock", "Scheduling route: TIME_TICK engine (exact alarms not permitted)")
         }
     }
 
@@ -1059,6 +1192,10 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         return alarmManager.canScheduleExactAlarms()
     }
 
+    private fun isSpeakThatClockPrecisionMode(): Boolean {
+        return sharedPreferences?.getBoolean(PREF_SPEAKTHAT_CLOCK_PRECISION_MODE, false) ?: false
+    }
+
     private fun buildClockAlarmPendingIntent(): PendingIntent {
         val intent = Intent(ACTION_SPEAKTHAT_CLOCK_ALARM).setPackage(packageName)
         return PendingIntent.getBroadcast(
@@ -1102,14 +1239,24 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     private fun scheduleNextClockAlarm() {
         if (!clockAlarmReceiverRegistered) return
         val am = getSystemService(Context.ALARM_SERVICE) as AlarmManager
+        val precision = isSpeakThatClockPrecisionMode()
         if (!canScheduleExactAlarmsForClock(am)) {
-            Log.w(TAG, "Exact alarms not permitted; skipping SpeakThat Clock precision schedule")
+            Log.w(TAG, "Exact alarms not permitted; skipping SpeakThat Clock alarm schedule")
             InAppLogger.logError("Service", "SpeakThat Clock: exact alarms not permitted")
+            if (!precision) {
+                // Permission was revoked after routing; standard mode can still run on TIME_TICK
+                unregisterClockAlarmReceiver()
+                registerClockReceiver()
+            }
             return
         }
         val triggerAt = computeNextClockAlarmTriggerMillis()
         val pi = buildClockAlarmPendingIntent()
         when {
+            !precision -> {
+                // Delivered on time while the device is awake, otherwise at the next wake
+                am.setExact(AlarmManager.RTC, triggerAt, pi)
+            }
             Build.VERSION.SDK_INT >= Build.VERSION_CODES.M -> {
                 am.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAt, pi)
             }
@@ -1121,11 +1268,12 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 am.set(AlarmManager.RTC_WAKEUP, triggerAt, pi)
             }
         }
+        val kind = if (precision) "precision" else "aligned"
         Log.d(
             TAG,
-            "Scheduled SpeakThat Clock precision alarm at $triggerAt (${java.util.Date(triggerAt)})"
+            "Scheduled SpeakThat Clock $kind alarm at $triggerAt (${java.util.Date(triggerAt)})"
         )
-        InAppLogger.log("Clock", "Scheduled precision alarm for ${java.util.Date(triggerAt)}")
+        InAppLogger.log("Clock", "Scheduled $kind alarm for ${java.util.Date(triggerAt)}")
     }
 
     private fun registerClockAlarmReceiver() {
@@ -1332,7 +1480,6 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 speakNotificationImmediate(
                     appName, filterResult.processedText,
                     conditionalDelaySeconds = -1,
-                    sbn = null,
                     speechTemplateOverride = filterResult.speechTemplateOverride,
                     voiceOverride = filterResult.voiceOverride,
                     contentCapOverride = filterResult.contentCapOverride,
@@ -1348,6 +1495,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     private val clockTickBroadcastReceiver = object : android.content.BroadcastReceiver() {
         override fun onReceive(context: android.content.Context?, intent: android.content.Intent?) {
             if (intent?.action != Intent.ACTION_TIME_TICK) return
+            HousekeepingScheduler.WakeupStats.record("clock_tick", System.currentTimeMillis())
             try {
                 processingChannel.trySend(IncomingSpeechEvent.ClockTick(fromAlignedAlarm = false))
             } catch (e: Exception) {
@@ -1359,18 +1507,24 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     private val clockAlarmBroadcastReceiver = object : android.content.BroadcastReceiver() {
         override fun onReceive(context: android.content.Context?, intent: android.content.Intent?) {
             if (intent?.action != ACTION_SPEAKTHAT_CLOCK_ALARM) return
+            HousekeepingScheduler.WakeupStats.record("clock_alarm", System.currentTimeMillis())
             try {
-                Log.d(TAG, "Clock precision alarm broadcast received")
-                InAppLogger.log("Clock", "Precision alarm broadcast received")
-                val powerManager = getSystemService(Context.POWER_SERVICE) as? PowerManager
-                val handoffLock = powerManager?.newWakeLock(
-                    PowerManager.PARTIAL_WAKE_LOCK,
-                    "SpeakThat:ClockHandoff"
-                )
-                handoffLock?.acquire(5000L)
-                val sendResult = processingChannel.trySend(IncomingSpeechEvent.ClockTick(fromAlignedAlarm = true))
-                Log.d(TAG, "Clock precision event queued: success=${sendResult.isSuccess}")
-                InAppLogger.log("Clock", "Precision event queued: success=${sendResult.isSuccess}")
+                val precision = isSpeakThatClockPrecisionMode()
+                Log.d(TAG, "Clock alarm broadcast received (precision=$precision)")
+                InAppLogger.log("Clock", "Alarm broadcast received (precision=$precision)")
+                if (precision) {
+                    val powerManager = getSystemService(Context.POWER_SERVICE) as? PowerManager
+                    val handoffLock = powerManager?.newWakeLock(
+                        PowerManager.PARTIAL_WAKE_LOCK,
+                        "SpeakThat:ClockHandoff"
+                    )
+                    handoffLock?.acquire(5000L)
+                }
+                // A standard-mode alarm held back by sleep is re-checked against the current minute,
+                // matching what TIME_TICK used to do
+                val sendResult = processingChannel.trySend(IncomingSpeechEvent.ClockTick(fromAlignedAlarm = precision))
+                Log.d(TAG, "Clock event queued: success=${sendResult.isSuccess}")
+                InAppLogger.log("Clock", "Event queued: success=${sendResult.isSuccess}")
                 scheduleNextClockAlarm()
             } catch (e: Exception) {
                 Log.e(TAG, "Clock alarm handling failed", e)
@@ -1417,13 +1571,21 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         }
     }
     
-    private suspend fun processPostedNotificationPipeline(sbn: StatusBarNotification, rankingMap: RankingMap? = null) {
+    private suspend fun processPostedNotificationPipeline(
+        sbn: StatusBarNotification,
+        rankingMap: RankingMap? = null,
+        receivedAt: Long = System.currentTimeMillis()
+    ) {
         try {
-            val notification = sbn.notification
             val packageName = sbn.packageName
+            // Read the extras once; every stage below works from this value
+            val parsed = ParsedNotification.from(sbn)
+            if (traceRecording && (packageName != this.packageName || parsed.isSelfTest)) {
+                recordTraceEvent(NotificationTrace.Event(receivedAt, parsed))
+            }
                 
             // Check for SelfTest notification - bypass self-package filter if it's a test
-            val isSelfTest = notification.extras?.getBoolean(SelfTestHelper.EXTRA_IS_SELFTEST, false) ?: false
+            val isSelfTest = parsed.isSelfTest
             if (isSelfTest) {
                 Log.d(TAG, "SelfTest notification detected - bypassing self-package filter")
                 InAppLogger.log("SelfTest", "SelfTest notification received")
@@ -1450,14 +1612,13 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                     Log.d(TAG, "Android Auto connected and Disable SpeakThat is true - skipping notification")
                     InAppLogger.log("AndroidAuto", "Notification ignored due to Android Auto connection")
                     
-                    val title = notification.extras?.getCharSequence(android.app.Notification.EXTRA_TITLE)?.toString() ?: ""
                     val appName = getAppName(packageName)
-                    val text = extractNotificationText(notification = notification, packageNameForLog = packageName)
+                    val text = extractNotificationText(parsed)
                     
                     addToHistory(
                         appName = appName,
                         packageName = packageName,
-                        title = title,
+                        title = parsed.title,
                         text = text,
                         wasRead = false,
                         spokenText = null,
@@ -1473,7 +1634,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             // Group summaries are "container" notifications that show "X notifications" 
             // but don't contain the actual content. Reading them causes duplicates.
             // This is especially important for Android 16's automatic notification grouping.
-            if (notification.flags and Notification.FLAG_GROUP_SUMMARY != 0) {
+            if (parsed.isGroupSummary) {
                 Log.d(TAG, "Skipping group summary notification from $packageName")
                 InAppLogger.logFilter("Skipped group summary notification from $packageName")
                 // Track filter reason
@@ -1484,18 +1645,12 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 }
                 val showSystemBlocks = sharedPreferences?.getBoolean("show_system_blocks_history", false) ?: false
                 if (showSystemBlocks) {
-                    val sysTitle = sbn.notification.extras?.getCharSequence(
-                        android.app.Notification.EXTRA_TITLE
-                    )?.toString() ?: ""
                     val sysAppName = getAppName(packageName)
-                    val sysText = extractNotificationText(
-                        notification = notification,
-                        packageNameForLog = packageName
-                    )
+                    val sysText = extractNotificationText(parsed)
                     addToHistory(
                         appName = sysAppName,
                         packageName = packageName,
-                        title = sysTitle,
+                        title = parsed.title,
                         text = sysText,
                         wasRead = false,
                         spokenText = null,
@@ -1576,12 +1731,46 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             // Get app name
             val appName = getAppName(packageName)
                 
-            // Extract notification text
-            val notificationText = extractNotificationText(
-                notification = notification,
-                packageNameForLog = packageName
-            )
             val showSystemBlocks = sharedPreferences?.getBoolean("show_system_blocks_history", false) ?: false
+
+            // Chat updates carry the whole conversation; only read what arrived since the last one.
+            // The mark moves once the readout is accepted or its content rejected, not before.
+            val messagingConversation = if (isSelfTest) null else parsed.conversation
+            var messagingUpdate: MessagingUpdate? = null
+            if (messagingConversation != null) {
+                val newMessages = messagingStyleTracker.peekNew(sbn.key, messagingConversation.messages)
+                if (newMessages.isEmpty()) {
+                    markConversationHandled(sbn.key, messagingConversation)
+                    Log.d(TAG, "Skipping MessagingStyle update from $packageName - no new messages (${messagingConversation.messages.size} total)")
+                    InAppLogger.logFilter("Skipped $appName update with no new messages")
+                    try {
+                        StatisticsManager.getInstance(this).incrementFilterReason(StatisticsManager.FILTER_NO_NEW_MESSAGES)
+                    } catch (e: Exception) {
+                        Log.e(TAG, "Error tracking no new messages filter", e)
+                    }
+                    if (showSystemBlocks) {
+                        addToHistory(
+                            appName = appName,
+                            packageName = packageName,
+                            title = messagingConversation.title ?: "",
+                            text = extractNotificationText(parsed),
+                            wasRead = false,
+                            spokenText = null,
+                            blockedReason = "System: Blocked chat update with no new messages"
+                        )
+                    }
+                    return
+                }
+                val body = MessagingStyleTracker.compose(newMessages, messagingConversation.isGroup)
+                // New messages without text (e.g. a photo) fall back to the regular extraction
+                if (body.isNotEmpty()) {
+                    messagingUpdate = MessagingUpdate(messagingConversation.title.orEmpty(), body)
+                    Log.d(TAG, "MessagingStyle update from $packageName: ${newMessages.size} new of ${messagingConversation.messages.size} messages")
+                }
+            }
+
+            // Extract notification text
+            val notificationText = messagingUpdate?.content ?: extractNotificationText(parsed)
                 
             // Log notification details for debugging
             Log.d(TAG, "Processing notification - Package: $packageName, ID: ${sbn.id}, Text: '${notificationText.take(100)}...'")
@@ -1595,59 +1784,6 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             val isDeduplicationEnabled = sharedPreferences?.getBoolean("notification_deduplication", true) ?: true
             val includeNotificationTimestamps = sharedPreferences?.getBoolean("include_notification_timestamps", false) ?: false
 
-            // Group child deduplication: when Android regroups notifications (e.g. a new
-            // email arrives and the existing ones get bundled), onNotificationPosted fires
-            // again for every child in the group. The 30-second dedup window will have
-            // expired by then, so we keep a longer-lived map keyed on content.
-            if (isDeduplicationEnabled && !isSelfTest && notificationText.isNotEmpty()) {
-                val groupContentKey = generateContentKey(packageName, notificationText)
-                val now = System.currentTimeMillis()
-                val currentPostTime = sbn.postTime
-                    
-                if (notification.group != null) {
-                    val lastSeenData = groupChildDeduplicationMap[groupContentKey]
-                    if (lastSeenData != null) {
-                        val lastProcessedTime = lastSeenData.first
-                        val lastPostTime = lastSeenData.second
-                        
-                        if (now - lastProcessedTime < GROUP_CHILD_DEDUP_WINDOW_MS) {
-                            // If the switch is ON, we use postTime to distinguish identical messages
-                            if (includeNotificationTimestamps && currentPostTime > lastPostTime) {
-                                Log.d(TAG, "Group child has new postTime ($currentPostTime > $lastPostTime) - processing as new despite identical content")
-                            } else {
-                                Log.d(TAG, "Skipping re-posted group child notification from $packageName (already processed ${now - lastProcessedTime}ms ago)")
-                                InAppLogger.logFilter("Skipped re-posted group child from $packageName (${now - lastProcessedTime}ms ago)")
-                                try {
-                                    StatisticsManager.getInstance(this).incrementFilterReason(StatisticsManager.FILTER_GROUP_CHILD_REPOST)
-                                } catch (e: Exception) {
-                                    Log.e(TAG, "Error tracking group child repost filter", e)
-                                }
-                                if (showSystemBlocks) {
-                                    val sysTitle = sbn.notification.extras?.getCharSequence(
-                                        android.app.Notification.EXTRA_TITLE
-                                    )?.toString() ?: ""
-                                    addToHistory(
-                                        appName = appName,
-                                        packageName = packageName,
-                                        title = sysTitle,
-                                        text = notificationText,
-                                        wasRead = false,
-                                        spokenText = null,
-                                        blockedReason = "System: Blocked group child repost"
-                                    )
-                                }
-                                return
-                            }
-                        }
-                    }
-                }
-                    
-                if (groupChildDeduplicationMap.size > MAX_GROUP_DEDUP_ENTRIES) {
-                    groupChildDeduplicationMap.entries.removeIf { (_, data) -> now - data.first > GROUP_CHILD_DEDUP_WINDOW_MS }
-                }
-                groupChildDeduplicationMap[groupContentKey] = Pair(now, currentPostTime)
-            }
-                
             // Check for duplicate notifications (only if deduplication is enabled)
             // Skip deduplication for SelfTest notifications
             if (isSelfTest) {
@@ -1655,158 +1791,50 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 InAppLogger.log("SelfTest", "Deduplication bypassed for test notification")
             }
             if (isDeduplicationEnabled && !isSelfTest) {
-                val notificationKey = generateNotificationKey(packageName, sbn.id, notificationText)
-                val currentTime = System.currentTimeMillis()
-                    
-                // Clean up old entries from deduplication map
-                val cleanupCount = recentNotificationKeys.entries.removeIf { (_, timestamp) ->
-                    currentTime - timestamp > DEDUPLICATION_WINDOW_MS
-                }
-                if (cleanupCount) {
-                    Log.d(TAG, "Cleaned up $cleanupCount old deduplication entries")
-                }
-                    
-                // Check if this notification was recently processed
-                val lastProcessedTime = recentNotificationKeys[notificationKey]
-                if (lastProcessedTime != null && currentTime - lastProcessedTime < DEDUPLICATION_WINDOW_MS) {
-                    val timeSinceLastProcessed = currentTime - lastProcessedTime
-                    Log.d(TAG, "Duplicate notification detected from $appName - skipping (processed ${timeSinceLastProcessed}ms ago)")
-                    Log.d(TAG, "Deduplication key: $notificationKey")
-                    InAppLogger.logFilter("Duplicate notification from $appName - skipping (processed ${timeSinceLastProcessed}ms ago)")
+                val dedupStart = System.nanoTime()
+                val dedup = deduplicator.check(
+                    packageName,
+                    sbn.id,
+                    parsed.group,
+                    sbn.postTime,
+                    notificationText,
+                    includeNotificationTimestamps
+                )
+                PipelineLatency.recordSince(PipelineLatency.Stage.DEDUP, dedupStart)
+                if (dedup.verdict != NotificationDeduplicator.Verdict.NEW) {
+                    val since = dedup.sinceMs
+                    val isGroupChildRepost = dedup.verdict == NotificationDeduplicator.Verdict.GROUP_CHILD_REPOST
+                    val message = when (dedup.verdict) {
+                        NotificationDeduplicator.Verdict.GROUP_CHILD_REPOST -> "Skipped re-posted group child from $packageName (${since}ms ago)"
+                        NotificationDeduplicator.Verdict.CONTENT_DUPLICATE -> "Content-based duplicate from $appName - skipping (processed ${since}ms ago)"
+                        NotificationDeduplicator.Verdict.GMAIL_ID_DUPLICATE -> "Gmail notification ID recently processed - skipping (processed ${since}ms ago)"
+                        NotificationDeduplicator.Verdict.APP_DUPLICATE -> "App-specific duplicate from $appName - skipping (processed ${since}ms ago)"
+                        else -> "Duplicate notification from $appName - skipping (processed ${since}ms ago)"
+                    }
+                    Log.d(TAG, message)
+                    InAppLogger.logFilter(message)
                     // Track filter reason
                     try {
-                        StatisticsManager.getInstance(this).incrementFilterReason(StatisticsManager.FILTER_DEDUPLICATION)
+                        StatisticsManager.getInstance(this).incrementFilterReason(
+                            if (isGroupChildRepost) StatisticsManager.FILTER_GROUP_CHILD_REPOST else StatisticsManager.FILTER_DEDUPLICATION
+                        )
                     } catch (e: Exception) {
                         Log.e(TAG, "Error tracking deduplication filter", e)
                     }
                     if (showSystemBlocks) {
-                        val sysTitle = sbn.notification.extras?.getCharSequence(
-                            android.app.Notification.EXTRA_TITLE
-                        )?.toString() ?: ""
                         addToHistory(
                             appName = appName,
                             packageName = packageName,
-                            title = sysTitle,
+                            title = parsed.title,
                             text = notificationText,
                             wasRead = false,
                             spokenText = null,
-                            blockedReason = "System: Blocked as duplicate"
+                            blockedReason = if (isGroupChildRepost) "System: Blocked group child repost" else "System: Blocked as duplicate"
                         )
                     }
+                    markConversationHandled(sbn.key, messagingConversation)
                     return
                 }
-                    
-                // Mark this notification as processed
-                recentNotificationKeys[notificationKey] = currentTime
-                Log.d(TAG, "Deduplication: Added notification key for $appName (key: $notificationKey)")
-                Log.d(TAG, "Deduplication map size: ${recentNotificationKeys.size}")
-                    
-                // Enhanced content-based deduplication for all apps (not just problematic ones)
-                // This helps catch notification updates that might have slightly different content
-                var contentKey: String? = null
-                contentKey = generateContentKey(packageName, notificationText)
-                val lastContentTime = recentNotificationKeys[contentKey]
-                if (lastContentTime != null && currentTime - lastContentTime < DEDUPLICATION_WINDOW_MS) {
-                        val timeSinceLastContent = currentTime - lastContentTime
-                        Log.d(TAG, "Content-based duplicate detected from $appName - skipping (processed ${timeSinceLastContent}ms ago)")
-                        InAppLogger.logFilter("Content-based duplicate from $appName - skipping (processed ${timeSinceLastContent}ms ago)")
-                        // Track filter reason
-                        try {
-                            StatisticsManager.getInstance(this).incrementFilterReason(StatisticsManager.FILTER_DEDUPLICATION)
-                        } catch (e: Exception) {
-                            Log.e(TAG, "Error tracking deduplication filter", e)
-                        }
-                        if (showSystemBlocks) {
-                            val sysTitle = sbn.notification.extras?.getCharSequence(
-                                android.app.Notification.EXTRA_TITLE
-                            )?.toString() ?: ""
-                            addToHistory(
-                                appName = appName,
-                                packageName = packageName,
-                                title = sysTitle,
-                                text = notificationText,
-                                wasRead = false,
-                                spokenText = null,
-                                blockedReason = "System: Blocked as duplicate"
-                            )
-                        }
-                        return
-                    }
-                    
-                // Special handling for Gmail: use a more lenient deduplication approach
-                // Gmail updates notifications rather than creating new ones, so we need to be more careful
-                if (packageName == "com.google.android.gm") {
-                    // For Gmail, also check if we recently processed a notification with the same ID
-                    // This helps prevent re-reading the same notification when it gets updated
-                    val gmailIdKey = "gmail_id_${sbn.id}"
-                    val lastGmailIdTime = recentNotificationKeys[gmailIdKey]
-                    if (lastGmailIdTime != null && currentTime - lastGmailIdTime < DEDUPLICATION_WINDOW_MS) {
-                        val timeSinceLastGmailId = currentTime - lastGmailIdTime
-                        Log.d(TAG, "Gmail notification ID recently processed - skipping (processed ${timeSinceLastGmailId}ms ago)")
-                        InAppLogger.logFilter("Gmail notification ID recently processed - skipping (processed ${timeSinceLastGmailId}ms ago)")
-                        // Track filter reason
-                        try {
-                            StatisticsManager.getInstance(this).incrementFilterReason(StatisticsManager.FILTER_DEDUPLICATION)
-                        } catch (e: Exception) {
-                            Log.e(TAG, "Error tracking deduplication filter", e)
-                        }
-                        if (showSystemBlocks) {
-                            val sysTitle = sbn.notification.extras?.getCharSequence(
-                                android.app.Notification.EXTRA_TITLE
-                            )?.toString() ?: ""
-                            addToHistory(
-                                appName = appName,
-                                packageName = packageName,
-                                title = sysTitle,
-                                text = notificationText,
-                                wasRead = false,
-                                spokenText = null,
-                                blockedReason = "System: Blocked as duplicate"
-                            )
-                        }
-                        return
-                    }
-                    recentNotificationKeys[gmailIdKey] = currentTime
-                }
-                    
-                // Only add to recent keys if we're actually going to process this notification
-                // This prevents race conditions in batch processing
-                if (contentKey != null) {
-                    recentNotificationKeys[contentKey] = currentTime
-                }
-                    
-                // Additional app-specific deduplication for known problematic apps
-                if (isProblematicApp(packageName)) {
-                    val appSpecificKey = "app_${packageName}_${sbn.id}"
-                    val lastAppSpecificTime = recentNotificationKeys[appSpecificKey]
-                    if (lastAppSpecificTime != null && currentTime - lastAppSpecificTime < DEDUPLICATION_WINDOW_MS) {
-                        val timeSinceLastAppSpecific = currentTime - lastAppSpecificTime
-                        Log.d(TAG, "App-specific duplicate detected from $appName - skipping (processed ${timeSinceLastAppSpecific}ms ago)")
-                        InAppLogger.logFilter("App-specific duplicate from $appName - skipping (processed ${timeSinceLastAppSpecific}ms ago)")
-                        // Track filter reason
-                        try {
-                            StatisticsManager.getInstance(this).incrementFilterReason(StatisticsManager.FILTER_DEDUPLICATION)
-                        } catch (e: Exception) {
-                            Log.e(TAG, "Error tracking deduplication filter", e)
-                        }
-                        if (showSystemBlocks) {
-                            val sysTitle = sbn.notification.extras?.getCharSequence(
-                                android.app.Notification.EXTRA_TITLE
-                            )?.toString() ?: ""
-                            addToHistory(
-                                appName = appName,
-                                packageName = packageName,
-                                title = sysTitle,
-                                text = notificationText,
-                                wasRead = false,
-                                spokenText = null,
-                                blockedReason = "System: Blocked as duplicate"
-                            )
-                        }
-                        return
-                    }
-                    recentNotificationKeys[appSpecificKey] = currentTime
-                }
             } else {
                 Log.d(TAG, "Deduplication is disabled - processing all notifications")
             }
@@ -1821,12 +1849,12 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                     val dismissalTimeoutMs = dismissalTimeoutMinutes * 60 * 1000L
                         
                     // Check if this content was recently dismissed
-                    val dismissalTime = dismissedNotificationKeys[dismissalContentHash]
-                    if (dismissalTime != null && currentTime - dismissalTime < dismissalTimeoutMs) {
+                    val dismissalTime = dismissedNotificationKeys.lookup(dismissalContentHash, currentTime, dismissalTimeoutMs)
+                    if (dismissalTime != null) {
                         val timeSinceDismissal = currentTime - dismissalTime
                         val timeSinceDismissalMinutes = timeSinceDismissal / (60 * 1000)
                         Log.d(TAG, "Dismissed notification detected from $appName - skipping (dismissed ${timeSinceDismissalMinutes} minutes ago)")
-                        Log.d(TAG, "Dismissal memory: Content hash: $dismissalContentHash, Timeout: ${dismissalTimeoutMinutes} minutes")
+                        Log.d(TAG, "Dismissal memory: Content hash: ${java.lang.Long.toHexString(dismissalContentHash)}, Timeout: ${dismissalTimeoutMinutes} minutes")
                         InAppLogger.logFilter("Dismissed notification from $appName - skipping (dismissed ${timeSinceDismissalMinutes} minutes ago)")
                         // Track filter reason
                         try {
@@ -1835,19 +1863,17 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                             Log.e(TAG, "Error tracking dismissal memory filter", e)
                         }
                         if (showSystemBlocks) {
-                            val sysTitle = sbn.notification.extras?.getCharSequence(
-                                android.app.Notification.EXTRA_TITLE
-                            )?.toString() ?: ""
                             addToHistory(
                                 appName = appName,
                                 packageName = packageName,
-                                title = sysTitle,
+                                title = parsed.title,
                                 text = notificationText,
                                 wasRead = false,
                                 spokenText = null,
                                 blockedReason = "System: Blocked by dismissal memory"
                             )
                         }
+                        markConversationHandled(sbn.key, messagingConversation)
                         return
                     }
                 } catch (e: Exception) {
@@ -1863,14 +1889,18 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             Log.d(TAG, "Processing notification from $appName: '$notificationText' (ID: ${sbn?.id}, time: ${System.currentTimeMillis()})")
                     
                 // Apply filtering first to determine final privacy status
+                val filtersStart = System.nanoTime()
                 val filterResult = applyFilters(
                     packageName,
                     appName,
                     notificationText,
                     sbn,
                     isSelfTest,
-                    rankingMap = rankingMap
+                    rankingMap = rankingMap,
+                    parsed = parsed,
+                    messagingUpdate = messagingUpdate
                 )
+                PipelineLatency.recordSince(PipelineLatency.Stage.FILTERS, filtersStart)
                     
                 // Check if the final result is private (either app-level or word-level)
                 val isAppPrivate = privateApps.contains(packageName)
@@ -1887,6 +1917,8 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 }
                     
                 if (filterResult.shouldSpeak) {
+                    markConversationHandled(sbn.key, messagingConversation)
+
                     // Log for SelfTest if this is a test notification
                     if (isSelfTest) {
                         InAppLogger.log("SelfTest", "SelfTest notification passed filtering")
@@ -1900,7 +1932,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                     Log.d(TAG, "Will speak notification from $finalAppName: '${filterResult.processedText.take(100)}...' (ID: ${sbn?.id})")
                         
                     // Add to history
-                    val rawTitle = if (isPrivateContent) "" else sbn?.notification?.extras?.getCharSequence(android.app.Notification.EXTRA_TITLE)?.toString() ?: ""
+                    val rawTitle = if (isPrivateContent) "" else parsed.title
                     addToHistory(
                         appName = finalAppName,
                         packageName = packageName,
@@ -1911,26 +1943,48 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                         blockedReason = null
                     )
                         
-                    // Handle notification based on behavior mode (pass conditional delay info)
-                    handleNotificationBehavior(
-                        packageName,
-                        finalAppName,
-                        filterResult.processedText,
-                        filterResult.conditionalDelaySeconds,
-                        sbn,
-                        filterResult.speechTemplateOverride,
-                        filterResult.voiceOverride,
-                        filterResult.contentCapOverride,
-                        filterResult.processedBlocks
-                    )
+                    val conversation = if (burstCoalescingEnabled && !isSelfTest) conversationTitleFor(parsed) else null
+                    if (conversation != null) {
+                        // Chat message: hold it briefly in case more of the conversation follows
+                        burstCoalescer.offer(
+                            "$packageName|$conversation",
+                            ConversationReadout(
+                                packageName = packageName,
+                                appName = finalAppName,
+                                conversationLabel = if (isPrivateContent) null else conversation,
+                                text = filterResult.processedText,
+                                conditionalDelaySeconds = filterResult.conditionalDelaySeconds,
+                                parsed = parsed,
+                                speechTemplateOverride = filterResult.speechTemplateOverride,
+                                voiceOverride = filterResult.voiceOverride,
+                                contentCapOverride = filterResult.contentCapOverride,
+                                processedBlocks = filterResult.processedBlocks
+                            )
+                        )
+                    } else {
+                        // Handle notification based on behavior mode (pass conditional delay info)
+                        handleNotificationBehavior(
+                            packageName,
+                            finalAppName,
+                            filterResult.processedText,
+                            filterResult.conditionalDelaySeconds,
+                            parsed,
+                            filterResult.speechTemplateOverride,
+                            filterResult.voiceOverride,
+                            filterResult.contentCapOverride,
+                            filterResult.processedBlocks
+                        )
+                    }
                 } else {
                     // Always log the full blocking reason with details
                     val reasonType = extractBlockingReasonType(filterResult.reason)
+                    if (filterResult.reason.startsWith("Blocked by filter:")) {
+                        // A blocked word stays in the history; carrying it forward would block every later update
+                        markConversationHandled(sbn.key, messagingConversation)
+                    }
                     Log.d(TAG, "Notification blocked from $appName: Blocked: $reasonType (Details: ${filterResult.reason})")
                     InAppLogger.logFilter("Blocked notification from $appName: Blocked: $reasonType (Details: ${filterResult.reason})")
-                    val rawTitle = sbn.notification.extras?.getCharSequence(
-                        android.app.Notification.EXTRA_TITLE
-                    )?.toString() ?: ""
+                    val rawTitle = parsed.title
                     val uiReason = "Silenced by: ${reasonType.replaceFirstChar { if (it.isLowerCase()) it.titlecase() else it.toString() }}"
                     addToHistory(
                         appName = appName,
@@ -1985,46 +2039,27 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     override fun onNotificationRemoved(sbn: StatusBarNotification, rankingMap: RankingMap, reason: Int) {
         super.onNotificationRemoved(sbn, rankingMap, reason)
         
+        val dismissalReason = dismissalStopReason(reason)
+        messagingStyleTracker.onRemoved(sbn.key)
+
         // Handle TTS cancellation if the dismissed notification is currently being read
-        if (sbn.key == currentSbnKey) {
+        if (sbn.key in currentSbnKeys) {
             val swipeToStopEnabled = sharedPreferences?.getBoolean("pref_swip_to_stop", true) ?: true
-            if (swipeToStopEnabled) {
-                val watchException = sharedPreferences?.getBoolean("pref_stop_on_dismissal_watch_exception", false) ?: false
-                val autoCancelEnabled = sharedPreferences?.getBoolean("pref_stop_on_dismissal_auto_cancel", false) ?: false
-                
-                var shouldStop = false
-                var stopReasonStr = ""
-                
-                when (reason) {
-                    REASON_CANCEL, REASON_CLICK, REASON_CANCEL_ALL, REASON_GROUP_SUMMARY_CANCELED -> {
-                        // Always counts as a user dismissal
-                        shouldStop = true
-                        stopReasonStr = "user dismissal (reason=$reason)"
-                    }
-                    REASON_LISTENER_CANCEL, REASON_LISTENER_CANCEL_ALL -> {
-                        // Smartwatch/companion dismissal
-                        if (!watchException) {
-                            shouldStop = true
-                            stopReasonStr = "watch/companion dismissal (reason=$reason)"
-                        } else {
-                            Log.d(TAG, "Ignoring watch dismissal due to watch exception preference")
-                        }
-                    }
-                    REASON_APP_CANCEL -> {
-                        // Auto-cancel
-                        if (autoCancelEnabled) {
-                            shouldStop = true
-                            stopReasonStr = "app auto-cancel (reason=$reason)"
-                        } else {
-                            Log.d(TAG, "Ignoring app auto-cancel due to preference")
-                        }
-                    }
-                }
-                
-                if (shouldStop) {
-                    InAppLogger.log("Service", "Stopping readout due to notification dismissal: $stopReasonStr")
-                    Log.d(TAG, "Stopping readout due to notification dismissal: $stopReasonStr")
-                    stopSpeaking("notification dismissal")
+            if (swipeToStopEnabled && dismissalReason != null) {
+                InAppLogger.log("Service", "Stopping readout due to notification dismissal: $dismissalReason")
+                Log.d(TAG, "Stopping readout due to notification dismissal: $dismissalReason")
+                stopSpeaking("notification dismissal")
+            }
+        } else if (dismissalReason != null) {
+            // Don't read out later what the user has already dealt with
+            val heldDropped = burstCoalescer.discard { it.parsed.key == sbn.key }
+            if (heldDropped > 0) {
+                Log.d(TAG, "Dropped $heldDropped held conversation message(s): $dismissalReason")
+            }
+            onSpeechScheduler {
+                speechScheduler.removeByKey(sbn.key)?.let { dropped ->
+                    InAppLogger.logNotification("Dropped queued readout from ${dropped.appName}: $dismissalReason")
+                    Log.d(TAG, "Dropped queued readout from ${dropped.appName} (queue=${speechScheduler.size}): $dismissalReason")
                 }
             }
         }
@@ -2033,6 +2068,39 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         handleNotificationRemovedLegacy(sbn)
     }
 
+    /**
+     * Whether a removal with this reason code counts as the user dealing with the notification, per
+     * the stop-on-dismissal preferences. Returns a description for the logs, or null if it doesn't.
+     */
+    private fun dismissalStopReason(reason: Int): String? {
+        return when (reason) {
+            // Always counts as a user dismissal
+            REASON_CANCEL, REASON_CLICK, REASON_CANCEL_ALL, REASON_GROUP_SUMMARY_CANCELED ->
+                "user dismissal (reason=$reason)"
+            // Smartwatch/companion dismissal
+            REASON_LISTENER_CANCEL, REASON_LISTENER_CANCEL_ALL -> {
+                val watchException = sharedPreferences?.getBoolean("pref_stop_on_dismissal_watch_exception", false) ?: false
+                if (!watchException) {
+                    "watch/companion dismissal (reason=$reason)"
+                } else {
+                    Log.d(TAG, "Ignoring watch dismissal due to watch exception preference")
+                    null
+                }
+            }
+            // Auto-cancel
+            REASON_APP_CANCEL -> {
+                val autoCancelEnabled = sharedPreferences?.getBoolean("pref_stop_on_dismissal_auto_cancel", false) ?: false
+                if (autoCancelEnabled) {
+                    "app auto-cancel (reason=$reason)"
+                } else {
+                    Log.d(TAG, "Ignoring app auto-cancel due to preference")
+                    null
+                }
+            }
+            else -> null
+        }
+    }
+
     override fun onNotificationRemoved(sbn: StatusBarNotification) {
         super.onNotificationRemoved(sbn)
         handleNotificationRemovedLegacy(sbn)
@@ -2054,10 +2122,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             }
             
             // Extract notification content for tracking
-            val notificationText = extractNotificationText(
-                notification = sbn.notification,
-                packageNameForLog = sbn.packageName
-            )
+            val notificationText = extractNotificationText(ParsedNotification.from(sbn))
             if (notificationText.isEmpty()) {
                 Log.d(TAG, "Dismissed notification has empty content - not tracking")
                 return
@@ -2067,27 +2132,18 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             val contentHash = generateDismissalContentHash(sbn.packageName, notificationText)
             val currentTime = System.currentTimeMillis()
             
-            // Add to dismissed notifications map with memory management
-            dismissedNotificationKeys[contentHash] = currentTime
-            
-            // Memory management: if we exceed the limit, remove oldest entries
-            if (dismissedNotificationKeys.size > MAX_DISMISSAL_MEMORY_ENTRIES) {
-                val entriesToRemove = dismissedNotificationKeys.size - MAX_DISMISSAL_MEMORY_ENTRIES
-                val oldestEntries = dismissedNotificationKeys.entries.sortedBy { it.value }.take(entriesToRemove)
-                oldestEntries.forEach { (key, _) ->
-                    dismissedNotificationKeys.remove(key)
-                }
-                Log.d(TAG, "Dismissal memory limit reached - removed $entriesToRemove oldest entries")
-                InAppLogger.log("Service", "Dismissal memory cleanup: removed $entriesToRemove oldest entries due to limit")
+            // Add to dismissed notifications table; a full bucket overwrites its oldest entry
+            if (dismissedNotificationKeys.record(contentHash, currentTime)) {
+                Log.d(TAG, "Dismissal memory bucket full - replaced its oldest entry")
             }
             
             // Log the dismissal for debugging
             val appName = getAppName(sbn.packageName)
-            Log.d(TAG, "Notification dismissed from $appName - tracking for dismissal memory (hash: $contentHash)")
+            Log.d(TAG, "Notification dismissed from $appName - tracking for dismissal memory (hash: ${java.lang.Long.toHexString(contentHash)})")
             InAppLogger.logFilter("Notification dismissed from $appName - tracking for dismissal memory")
             
             // Log dismissal memory stats
-            Log.d(TAG, "Dismissal memory stats - Total tracked: ${dismissedNotificationKeys.size}")
+            Log.d(TAG, "Dismissal memory stats - Total tracked: ${dismissedNotificationKeys.occupied}")
             
         } catch (e: Exception) {
             Log.e(TAG, "Error tracking dismissed notification", e)
@@ -2416,7 +2472,8 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 lastActivityProvider = { lastListenerEventTimestamp },
                 checkIntervalMs = WATCHDOG_INTERVAL_MS,
                 staleThresholdMs = WATCHDOG_STALE_THRESHOLD_MS,
-                rebindCooldownMs = WATCHDOG_REBIND_COOLDOWN_MS
+                rebindCooldownMs = WATCHDOG_REBIND_COOLDOWN_MS,
+                scheduler = housekeeping
             )
         }
     }
@@ -2534,8 +2591,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
      * Start periodic TTS health checks
      */
     private fun startPeriodicHealthCheck() {
-        healthCheckHandler = android.os.Handler(android.os.Looper.getMainLooper())
-        healthCheckRunnable = Runnable {
+        housekeeping.schedule(HOUSEKEEPING_JOB_HEALTH_CHECK, HEALTH_CHECK_INTERVAL_MS, HEALTH_CHECK_FLEX_MS, Runnable {
             try {
                 Log.d(TAG, "Running periodic TTS health check")
                 InAppLogger.log("Service", "Running periodic TTS health check")
@@ -2547,20 +2603,11 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
 
                 checkListenerHealth()
                 
-                // Schedule next health check
-                healthCheckHandler?.postDelayed(healthCheckRunnable!!, HEALTH_CHECK_INTERVAL_MS)
-                
             } catch (e: Exception) {
                 Log.e(TAG, "Error during periodic health check", e)
                 InAppLogger.logError("Service", "Error during periodic health check: " + e.message)
-                
-                // Still schedule next health check even if this one failed
-                healthCheckHandler?.postDelayed(healthCheckRunnable!!, HEALTH_CHECK_INTERVAL_MS)
             }
-        }
-        
-        // Start the first health check
-        healthCheckHandler?.postDelayed(healthCheckRunnable!!, HEALTH_CHECK_INTERVAL_MS)
+        })
         Log.d(TAG, "Periodic TTS health check started (every ${HEALTH_CHECK_INTERVAL_MS / 1000} seconds)")
         InAppLogger.log("Service", "Periodic TTS health check started (every ${HEALTH_CHECK_INTERVAL_MS / 1000} seconds)")
     }
@@ -2569,11 +2616,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
      * Stop periodic TTS health checks
      */
     private fun stopPeriodicHealthCheck() {
-        healthCheckRunnable?.let { runnable ->
-            healthCheckHandler?.removeCallbacks(runnable)
-            healthCheckRunnable = null
-        }
-        healthCheckHandler = null
+        housekeeping.cancel(HOUSEKEEPING_JOB_HEALTH_CHECK)
         Log.d(TAG, "Periodic TTS health check stopped")
         InAppLogger.log("Service", "Periodic TTS health check stopped")
     }
@@ -2583,45 +2626,21 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
      * Removes old dismissed notification entries to prevent memory bloat
      */
     private fun startDismissalMemoryCleanup() {
-        try {
-            // Create handler if it doesn't exist
-            if (dismissalMemoryCleanupHandler == null) {
-                dismissalMemoryCleanupHandler = android.os.Handler(android.os.Looper.getMainLooper())
-            }
-            
-            // Create cleanup runnable
-            dismissalMemoryCleanupRunnable = Runnable {
-                try {
-                    cleanupDismissalMemory()
-                    
-                    // Schedule next cleanup
-                    dismissalMemoryCleanupHandler?.postDelayed(dismissalMemoryCleanupRunnable!!, DISMISSAL_MEMORY_CLEANUP_INTERVAL_MS)
-                } catch (e: Exception) {
-                    Log.e(TAG, "Error in dismissal memory cleanup", e)
-                    InAppLogger.logError("Service", "Error in dismissal memory cleanup: " + e.message)
-                }
-            }
-            
-            // Start the first cleanup
-            dismissalMemoryCleanupHandler?.postDelayed(dismissalMemoryCleanupRunnable!!, DISMISSAL_MEMORY_CLEANUP_INTERVAL_MS)
-            Log.d(TAG, "Dismissal memory cleanup started (every ${DISMISSAL_MEMORY_CLEANUP_INTERVAL_MS / 1000} seconds)")
-            InAppLogger.log("Service", "Dismissal memory cleanup started (every ${DISMISSAL_MEMORY_CLEANUP_INTERVAL_MS / 1000} seconds)")
-            
-        } catch (e: Exception) {
-            Log.e(TAG, "Error starting dismissal memory cleanup", e)
-            InAppLogger.logError("Service", "Error starting dismissal memory cleanup: " + e.message)
-        }
+        housekeeping.schedule(
+            HOUSEKEEPING_JOB_DISMISSAL_CLEANUP,
+            DISMISSAL_MEMORY_CLEANUP_INTERVAL_MS,
+            DISMISSAL_MEMORY_CLEANUP_FLEX_MS,
+            Runnable { cleanupDismissalMemory() }
+        )
+        Log.d(TAG, "Dismissal memory cleanup started (every ${DISMISSAL_MEMORY_CLEANUP_INTERVAL_MS / 1000} seconds)")
+        InAppLogger.log("Service", "Dismissal memory cleanup started (every ${DISMISSAL_MEMORY_CLEANUP_INTERVAL_MS / 1000} seconds)")
     }
     
     /**
      * Stop periodic dismissal memory cleanup
      */
     private fun stopDismissalMemoryCleanup() {
-        dismissalMemoryCleanupRunnable?.let { runnable ->
-            dismissalMemoryCleanupHandler?.removeCallbacks(runnable)
-            dismissalMemoryCleanupRunnable = null
-        }
-        dismissalMemoryCleanupHandler = null
+        housekeeping.cancel(HOUSEKEEPING_JOB_DISMISSAL_CLEANUP)
         Log.d(TAG, "Dismissal memory cleanup stopped")
         InAppLogger.log("Service", "Dismissal memory cleanup stopped")
     }
@@ -2636,17 +2655,9 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             val timeoutMinutes = sharedPreferences?.getInt(KEY_DISMISSAL_MEMORY_TIMEOUT, DEFAULT_DISMISSAL_MEMORY_TIMEOUT_MINUTES) ?: DEFAULT_DISMISSAL_MEMORY_TIMEOUT_MINUTES
             val timeoutMs = timeoutMinutes * 60 * 1000L
             
-            // Count entries before cleanup
-            val entriesBeforeCleanup = dismissedNotificationKeys.size
-            
             // Remove expired entries
-            dismissedNotificationKeys.entries.removeIf { (_, dismissalTime) ->
-                currentTime - dismissalTime > timeoutMs
-            }
-            
-            // Log cleanup results
-            val entriesAfterCleanup = dismissedNotificationKeys.size
-            val entriesRemoved = entriesBeforeCleanup - entriesAfterCleanup
+            val entriesRemoved = dismissedNotificationKeys.purgeExpired(currentTime, timeoutMs)
+            val entriesAfterCleanup = dismissedNotificationKeys.occupied
             
             if (entriesRemoved > 0) {
                 Log.d(TAG, "Dismissal memory cleanup: Removed $entriesRemoved expired entries (timeout: ${timeoutMinutes} minutes)")
@@ -2801,19 +2812,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
      * Removed timestamp to better handle notification updates
      */
     private fun generateNotificationKey(packageName: String, notificationId: Int, content: String): String {
-        // Create a more robust hash of the content using SHA-256
-        val contentHash = try {
-            val digest = java.security.MessageDigest.getInstance("SHA-256")
-            val hashBytes = digest.digest(content.toByteArray())
-            hashBytes.take(8).joinToString("") { "%02x".format(it) } // Use first 8 bytes as hex string
-        } catch (e: Exception) {
-            Log.e(TAG, "Error generating content hash, falling back to hashCode", e)
-            content.hashCode().toString()
-        }
-        
-        // Remove timestamp to better handle notification updates
-        // Use package name, notification ID, and content hash only
-        return "${packageName}_${notificationId}_${contentHash}"
+        return DedupKeys.notificationKey(packageName, notificationId, content)
     }
     
     /**
@@ -2821,154 +2820,39 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
      * Used for all apps to catch notification updates with similar content
      */
     private fun generateContentKey(packageName: String, content: String): String {
-        // Normalize content for better deduplication (remove extra whitespace, normalize case)
-        val normalizedContent = content.trim().replace(Regex("\\s+"), " ").lowercase()
-        
-        val contentHash = try {
-            val digest = java.security.MessageDigest.getInstance("SHA-256")
-            val hashBytes = digest.digest(normalizedContent.toByteArray())
-            hashBytes.take(6).joinToString("") { "%02x".format(it) } // Use first 6 bytes as hex string for better uniqueness
-        } catch (e: Exception) {
-            Log.e(TAG, "Error generating content hash, falling back to hashCode", e)
-            normalizedContent.hashCode().toString()
-        }
-        return "content_${packageName}_${contentHash}"
+        return DedupKeys.contentKey(packageName, content)
     }
     
     /**
-     * Generate a content hash for dismissal memory tracking
+     * Generate a 64-bit content hash for dismissal memory tracking
      * Uses package name and normalized content to identify dismissed notifications
      * More aggressive normalization for better dismissal detection
      */
-    private fun generateDismissalContentHash(packageName: String, content: String): String {
-        try {
-            // Normalize content more aggressively for dismissal tracking
-            // Remove extra whitespace, normalize case, and remove common punctuation
-            val normalizedContent = content.trim()
-                .replace(Regex("\\s+"), " ") // Normalize whitespace
-                .lowercase() // Normalize case
-                .replace(Regex("[.,!?;:]"), "") // Remove common punctuation
-                .trim() // Final trim
-            
-            // Fallback for empty content
-            if (normalizedContent.isEmpty()) {
-                Log.w(TAG, "Empty content after normalization - using package name only for dismissal hash")
-                return "dismissal_${packageName}_empty"
-            }
-            
-            val contentHash = try {
-                val digest = java.security.MessageDigest.getInstance("SHA-256")
-                val hashBytes = digest.digest(normalizedContent.toByteArray())
-                hashBytes.take(8).joinToString("") { "%02x".format(it) } // Use first 8 bytes as hex string
-            } catch (e: Exception) {
-                Log.e(TAG, "Error generating dismissal content hash, falling back to hashCode", e)
-                normalizedContent.hashCode().toString()
-            }
-            
-            // Include package name in hash for app-specific dismissal tracking
-            return "dismissal_${packageName}_${contentHash}"
-            
+    private fun generateDismissalContentHash(packageName: String, content: String): Long {
+        return try {
+            DedupKeys.dismissalContentHash(packageName, content)
         } catch (e: Exception) {
             // Ultimate fallback: use package name and content length
             Log.e(TAG, "Critical error generating dismissal content hash, using fallback", e)
-            return "dismissal_${packageName}_fallback_${content.length}"
+            (packageName.hashCode().toLong() shl 32) or (content.length.toLong() and 0xffffffffL)
         }
     }
     
     /**
      * Check if an app is known to have problematic duplicate notifications
      */
-    private fun isProblematicApp(packageName: String): Boolean {
-        return packageName == "com.google.android.gm" || // Gmail
-               packageName == "com.google.android.apps.messaging" || // Messages
-               packageName == "com.whatsapp" || // WhatsApp
-               packageName == "com.tencent.mm" || // WeChat
-               packageName == "com.instagram.android" || // Instagram
-               packageName == "com.twitter.android" // Twitter
-    }
-    
-    private fun extractNotificationText(
-        notification: Notification,
-        packageNameForLog: String? = null
-    ): String {
-        val safePackageName = packageNameForLog ?: "unknown"
-        return try {
-            val extras = notification.extras
-            val title = extras?.getCharSequence(Notification.EXTRA_TITLE)?.toString() ?: ""
-            val text = extras?.getCharSequence(Notification.EXTRA_TEXT)?.toString() ?: ""
-            val bigText = extras?.getCharSequence(Notification.EXTRA_BIG_TEXT)?.toString() ?: ""
-            val summaryText = extras?.getCharSequence(Notification.EXTRA_SUMMARY_TEXT)?.toString() ?: ""
-            val infoText = extras?.getCharSequence(Notification.EXTRA_INFO_TEXT)?.toString() ?: ""
-            
+    private fun extractNotificationText(parsed: ParsedNotification): String {
+        val extracted = parsed.readoutText()
+        if (parsed.extrasReadable) {
             // Log the available notification content for debugging
-            Log.d(TAG, "Notification content - Title: '$title', Text: '$text', BigText: '$bigText', Summary: '$summaryText', Info: '$infoText'")
-            
-            val extracted = if (extras?.getString("android.template")?.contains("gmail") == true ||
-                title.contains("Gmail", ignoreCase = true) ||
-                summaryText.contains("new message", ignoreCase = true) ||
-                text.contains("new message", ignoreCase = true)) {
-                
-                Log.d(TAG, "Detected Gmail-style notification - applying special content extraction logic")
-                
-                when {
-                    bigText.isNotEmpty() && !bigText.contains("new message", ignoreCase = true) -> {
-                        Log.d(TAG, "Gmail: Using bigText as primary content: '$bigText'")
-                        bigText
-                    }
-                    text.isNotEmpty() && !text.contains("new message", ignoreCase = true) -> {
-                        Log.d(TAG, "Gmail: Using text as primary content: '$text'")
-                        text
-                    }
-                    title.isNotEmpty() && text.isNotEmpty() -> {
-                        val combinedText = if (text.contains("new message", ignoreCase = true)) {
-                            title
-                        } else {
-                            "$title: $text"
-                        }
-                        Log.d(TAG, "Gmail: Using combined title/text: '$combinedText'")
-                        combinedText
-                    }
-                    else -> {
-                        val fallbackContent = bigText.ifEmpty { text.ifEmpty { title.ifEmpty { summaryText.ifEmpty { infoText } } } }
-                        Log.d(TAG, "Gmail: Using fallback content: '$fallbackContent'")
-                        fallbackContent
-                    }
-                }
-            } else {
-                when {
-                    title.isNotEmpty() && bigText.isNotEmpty() -> "$title: $bigText"
-                    title.isNotEmpty() && text.isNotEmpty() -> "$title: $text"
-                    title.isNotEmpty() && summaryText.isNotEmpty() -> "$title: $summaryText"
-                    title.isNotEmpty() && infoText.isNotEmpty() -> "$title: $infoText"
-                    bigText.isNotEmpty() -> bigText
-                    title.isNotEmpty() -> title
-                    text.isNotEmpty() -> text
-                    summaryText.isNotEmpty() -> summaryText
-                    infoText.isNotEmpty() -> infoText
-                    else -> ""
-                }
-            }
-            maybeBlankClockFiringFallback(extracted, notification, packageNameForLog)
-        } catch (e: Exception) {
-            val fallbackMessage = "Failed to unparcel extras for $safePackageName - using fallback"
-            Log.w(TAG, "$fallbackMessage (${e.javaClass.simpleName}: ${e.message})", e)
-            InAppLogger.logWarning("Development", fallbackMessage)
-            
-            val tickerFallback = try {
-                notification.tickerText?.toString()?.trim().orEmpty()
-            } catch (tickerException: Exception) {
-                Log.w(TAG, "tickerText fallback failed for $safePackageName", tickerException)
-                InAppLogger.logWarning("Development", "tickerText fallback failed for $safePackageName - returning empty text")
-                ""
-            }
-            
-            if (tickerFallback.isNotEmpty()) {
-                InAppLogger.log("Extraction", "Using tickerText fallback for $safePackageName")
-            } else {
-                InAppLogger.logWarning("Development", "No tickerText fallback available for $safePackageName - returning empty text")
-            }
-            maybeBlankClockFiringFallback(tickerFallback, notification, packageNameForLog)
+            Log.d(TAG, "Notification content - Title: '${parsed.title}', Text: '${parsed.text}', BigText: '${parsed.bigText}', Summary: '${parsed.summaryText}', Info: '${parsed.infoText}'")
+        } else if (extracted.isNotEmpty()) {
+            // The extras could not be unparcelled when the notification was parsed
+            InAppLogger.log("Extraction", "Using tickerText fallback for ${parsed.packageName}")
+        } else {
+            InAppLogger.logWarning("Development", "No tickerText fallback available for ${parsed.packageName} - returning empty text")
         }
+        return maybeBlankClockFiringFallback(extracted, parsed)
     }
     
     /**
@@ -2977,35 +2861,31 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
      */
     private fun maybeBlankClockFiringFallback(
         extracted: String,
-        notification: Notification,
-        packageNameForLog: String?
+        parsed: ParsedNotification
     ): String {
         if (extracted.isNotBlank()) return extracted
         
-        val pkg = packageNameForLog?.lowercase(Locale.ROOT) ?: ""
+        val pkg = parsed.packageName.lowercase(Locale.ROOT)
         val isClockLike = CLOCK_PACKAGE_SUBSTRINGS.any { pkg.contains(it) }
         if (!isClockLike) return extracted
         
-        val actions = notification.actions
-        val hasPauseAction = actions?.any { action ->
-            action.title?.toString()?.lowercase(Locale.ROOT)?.contains("pause") == true
-        } == true
+        val actionTitles = parsed.actionTitles.map { it.lowercase(Locale.ROOT) }
+        val hasPauseAction = actionTitles.any { it.contains("pause") }
         if (hasPauseAction) return ""
         
         val firingSignal = when {
-            notification.fullScreenIntent != null -> "fullScreenIntent"
-            notification.category == Notification.CATEGORY_ALARM -> "CATEGORY_ALARM"
-            actions?.any { action ->
-                val t = action.title?.toString()?.lowercase(Locale.ROOT) ?: return@any false
+            parsed.hasFullScreenIntent -> "fullScreenIntent"
+            parsed.category == Notification.CATEGORY_ALARM -> "CATEGORY_ALARM"
+            actionTitles.any { t ->
                 t.contains("stop") || t.contains("dismiss") || t.contains("turn off")
-            } == true -> "dismiss_or_stop_action"
+            } -> "dismiss_or_stop_action"
             else -> null
         }
         
         return if (firingSignal != null) {
             Log.d(
                 TAG,
-                "Blank clock notification fallback: package=${packageNameForLog ?: "unknown"}, signal=$firingSignal"
+                "Blank clock notification fallback: package=${parsed.packageName}, signal=$firingSignal"
             )
             getString(R.string.fallback_timer_complete)
         } else {
@@ -3038,14 +2918,9 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 processHistoryBatch()
             }
             
-            // Keep history list in memory for immediate access
+            // Keep history in memory for immediate access; the oldest entry drops off at the limit
             notificationHistory.add(notificationData)
             
-            // Maintain history size limit
-            if (notificationHistory.size > MAX_HISTORY_SIZE) {
-                notificationHistory.removeAt(0)
-            }
-            
             Log.d(TAG, "Added notification to history batch queue: $appName")
 
             notifyHistoryUpdated()
@@ -3099,6 +2974,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     
     private fun initializeShakeDetection() {
         sensorManager = getSystemService(SENSOR_SERVICE) as SensorManager
+        gestureSensorLooper = sensorManager?.let { com.micoyc.speakthat.gesture.GestureSensorLooper(it) }
         accelerometer = sensorManager?.getDefaultSensor(Sensor.TYPE_ACCELEROMETER)
         proximitySensor = sensorManager?.getDefaultSensor(Sensor.TYPE_PROXIMITY)
         
@@ -3172,35 +3048,43 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         )
     }
     
-    // Sensor timeout for safety
-    private var sensorTimeoutHandler: android.os.Handler? = null
-    private var sensorTimeoutRunnable: Runnable? = null
-
-    private fun registerShakeListener() {
-        shakeEvaluator.reset()
-        val sessionStart = System.currentTimeMillis()
-        val lastNear = if (!lastProximityValue.isNaN()) {
-            ProximityCover.isCovered(lastProximityValue, proximitySensor)
-        } else {
-            false
-        }
-        waveEvaluator.prepareForSpeechSession(
-            sessionStart,
-            isPocketModeEnabled,
-            lastProximityTimestamp,
-            lastNear,
-            PROXIMITY_START_SNAPSHOT_MAX_AGE_MS
-        )
-        if (isPocketModeEnabled) {
-            val hasRecent = lastProximityTimestamp > 0L &&
-                sessionStart - lastProximityTimestamp <= PROXIMITY_START_SNAPSHOT_MAX_AGE_MS
-            if (hasRecent) {
-                Log.d(
-                    TAG,
-                    "Pocket mode: Readout starting - using recent proximity sample, covered at start: ${waveEvaluator.pocketCoveredAtStart()}"
-                )
+    // Sensor timeout for safety
+    private var sensorTimeoutHandler: android.os.Handler? = null
+    private var sensorTimeoutRunnable: Runnable? = null
+
+    private fun registerShakeListener() {
+        val looper = gestureSensorLooper ?: return
+        gestureSessionId++
+        // Sensor events carry elapsed-realtime timestamps, so the session clock uses the same base
+        val sessionStart = android.os.SystemClock.elapsedRealtime()
+        val pocketModeEnabled = isPocketModeEnabled
+        // Evaluator state is owned by the gesture thread; posting before registering keeps the
+        // prepare step ahead of the first sample in the looper queue.
+        looper.post {
+            shakeEvaluator.reset()
+            val lastNear = if (!lastProximityValue.isNaN()) {
+                ProximityCover.isCovered(lastProximityValue, proximitySensor)
             } else {
-                Log.d(TAG, "Pocket mode: Readout starting - no recent proximity sample, defaulting to uncovered")
+                false
+            }
+            waveEvaluator.prepareForSpeechSession(
+                sessionStart,
+                pocketModeEnabled,
+                lastProximityTimestamp,
+                lastNear,
+                PROXIMITY_START_SNAPSHOT_MAX_AGE_MS
+            )
+            if (pocketModeEnabled) {
+                val hasRecent = lastProximityTimestamp > 0L &&
+                    sessionStart - lastProximityTimestamp <= PROXIMITY_START_SNAPSHOT_MAX_AGE_MS
+                if (hasRecent) {
+                    Log.d(
+                        TAG,
+                        "Pocket mode: Readout starting - using recent proximity sample, covered at start: ${waveEvaluator.pocketCoveredAtStart()}"
+                    )
+                } else {
+                    Log.d(TAG, "Pocket mode: Readout starting - no recent proximity sample, defaulting to uncovered")
+                }
             }
         }
         Log.d(
@@ -3208,13 +3092,13 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             "Wave session start - hold=${waveHoldDurationMs}ms, timeout=${waveTimeoutSeconds}s, pocketMode=$isPocketModeEnabled"
         )
         if (isShakeToStopEnabled && accelerometer != null) {
-            sensorManager?.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_NORMAL)
-            Log.d(TAG, "Shake listener registered (TTS active)")
+            looper.register(this, accelerometer!!, SensorManager.SENSOR_DELAY_NORMAL)
+            Log.d(TAG, "Shake listener registered (TTS active, batched=${accelerometer!!.fifoMaxEventCount > 0})")
             InAppLogger.logSystemEvent("Shake listener started", "TTS playback active")
         }
         if (isWaveToStopEnabled && proximitySensor != null) {
-            sensorManager?.registerListener(this, proximitySensor, SensorManager.SENSOR_DELAY_NORMAL)
-            Log.d(TAG, "Wave listener registered (TTS active)")
+            looper.register(this, proximitySensor!!, SensorManager.SENSOR_DELAY_NORMAL)
+            Log.d(TAG, "Wave listener registered (TTS active, wakeUp=${proximitySensor!!.isWakeUpSensor})")
             val sensorName = proximitySensor?.name ?: "unknown"
             InAppLogger.logSystemEvent(
                 "Wave listener started",
@@ -3264,9 +3148,15 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     }
 
     private fun unregisterShakeListener() {
-        shakeEvaluator.reset()
-        waveEvaluator.reset()
-        sensorManager?.unregisterListener(this)
+        gestureSessionId++
+        gestureSensorLooper?.let { looper ->
+            looper.unregister(this)
+            looper.postIfRunning {
+                shakeEvaluator.reset()
+                waveEvaluator.reset()
+                pendingWaveTriggerRunnable = null
+            }
+        }
         Log.d(TAG, "Shake and wave listeners unregistered (TTS inactive)")
         InAppLogger.logSystemEvent("Shake and wave listeners stopped", "TTS playback finished")
         // Cancel timeout
@@ -3274,8 +3164,6 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         sensorTimeoutRunnable = null
         waveNoEventRunnable?.let { sensorTimeoutHandler?.removeCallbacks(it) }
         waveNoEventRunnable = null
-        pendingWaveTriggerRunnable?.let { sensorTimeoutHandler?.removeCallbacks(it) }
-        pendingWaveTriggerRunnable = null
 
         // Sensor timeout can call this while TTS is still active; only drop the DIY
         // abort receiver when the readout itself has ended.
@@ -3314,15 +3202,12 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 val cooldownSeconds = jsonObject.optInt("cooldownSeconds", 5)
                 appCooldownSettings[packageName] = cooldownSeconds
             }
-            val cooldownTimestampsJson = sharedPreferences?.getString(KEY_COOLDOWN_TIMESTAMPS, "{}") ?: "{}"
-            val timestampObject = org.json.JSONObject(cooldownTimestampsJson)
-            val iterator = timestampObject.keys()
-            while (iterator.hasNext()) {
-                val packageName = iterator.next()
+            migrateCooldownTimestamps()
+            for ((packageName, lastTimestamp) in runtimeState.entriesWithPrefix(RUNTIME_COOLDOWN_PREFIX)) {
                 if (!appCooldownSettings.containsKey(packageName)) {
+                    runtimeState.remove(RUNTIME_COOLDOWN_PREFIX + packageName)
                     continue
                 }
-                val lastTimestamp = timestampObject.optLong(packageName, 0L)
                 if (lastTimestamp > 0L) {
                     appCooldownTimestamps[packageName] = lastTimestamp
                 }
@@ -3357,22 +3242,31 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         }
         // Update timestamp for this app
         appCooldownTimestamps[packageName] = currentTime
-        persistCooldownTimestamps()
+        runtimeState.putLong(RUNTIME_COOLDOWN_PREFIX + packageName, currentTime)
         return FilterResult(true, "", "Cooldown passed")
     }
 
-    private fun persistCooldownTimestamps() {
+    /**
+     * Cooldown timestamps used to be a JSON blob in SpeakThatPrefs, rewritten on every passing
+     * notification. Move them into the runtime state store once and drop the old key.
+     */
+    private fun migrateCooldownTimestamps() {
+        val prefs = sharedPreferences ?: return
+        val legacyJson = prefs.getString(KEY_COOLDOWN_TIMESTAMPS, null) ?: return
         try {
-            val timestampObject = org.json.JSONObject()
-            for ((packageName, timestamp) in appCooldownTimestamps) {
-                timestampObject.put(packageName, timestamp)
+            val timestampObject = org.json.JSONObject(legacyJson)
+            val iterator = timestampObject.keys()
+            while (iterator.hasNext()) {
+                val packageName = iterator.next()
+                val lastTimestamp = timestampObject.optLong(packageName, 0L)
+                if (lastTimestamp > 0L) {
+                    runtimeState.putLong(RUNTIME_COOLDOWN_PREFIX + packageName, lastTimestamp)
+                }
             }
-            sharedPreferences?.edit()
-                ?.putString(KEY_COOLDOWN_TIMESTAMPS, timestampObject.toString())
-                ?.apply()
         } catch (e: Exception) {
-            Log.e(TAG, "Error persisting cooldown timestamps", e)
+            Log.e(TAG, "Error migrating cooldown timestamps", e)
         }
+        prefs.edit().remove(KEY_COOLDOWN_TIMESTAMPS).apply()
     }
     
     private fun loadFilterSettings() {
@@ -3387,7 +3281,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         val prefsNonNull = sharedPreferences
         wordReplacements = if (prefsNonNull != null) {
             WordReplacementsStorage.loadWithAutoMigrate(prefsNonNull, KEY_WORD_REPLACEMENTS)
-                .map { WordSwapRule(it.from, it.to) }
+                .map { ContentBlockFilter.WordSwap(it.from, it.to) }
         } else {
             emptyList()
         }
@@ -3397,9 +3291,11 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         urlHandlingMode = sharedPreferences?.getString(KEY_URL_HANDLING_MODE, DEFAULT_URL_HANDLING_MODE) ?: DEFAULT_URL_HANDLING_MODE
         urlReplacementText = sharedPreferences?.getString(KEY_URL_REPLACEMENT_TEXT, DEFAULT_URL_REPLACEMENT_TEXT) ?: DEFAULT_URL_REPLACEMENT_TEXT
         Log.d(TAG, "Loaded URL handling: mode=$urlHandlingMode, replacement='$urlReplacementText'")
+        contentBlockFilter = buildContentBlockFilter()
 
         // Load tidy speech settings
         tidySpeechRemoveEmojisEnabled = sharedPreferences?.getBoolean(KEY_TIDY_SPEECH_REMOVE_EMOJIS, false) ?: false
+        tidySpeechSayEmojiEnabled = sharedPreferences?.getBoolean(KEY_TIDY_SPEECH_SAY_EMOJI, false) ?: false
         tidySpeechForceLowercaseEnabled = sharedPreferences?.getBoolean(KEY_TIDY_SPEECH_FORCE_LOWERCASE, false) ?: false
         separateDigitsEnabled = sharedPreferences?.getBoolean(KEY_SEPARATE_DIGITS_ENABLED, false) ?: false
         digitThreshold = sharedPreferences?.getInt(KEY_DIGIT_THRESHOLD, 5) ?: 5
@@ -3409,7 +3305,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             .map { it.trim() }
             .filter { it.isNotEmpty() }
         filterEmptyTextEnabled = sharedPreferences?.getBoolean(KEY_FILTER_EMPTY_TEXT, false) ?: false
-        Log.d(TAG, "Loaded tidy speech settings: removeEmojis=$tidySpeechRemoveEmojisEnabled, filterEmptyText=$filterEmptyTextEnabled")
+        Log.d(TAG, "Loaded tidy speech settings: removeEmojis=$tidySpeechRemoveEmojisEnabled, sayEmoji=$tidySpeechSayEmojiEnabled, filterEmptyText=$filterEmptyTextEnabled")
         
         // Load Content Cap settings
         contentCapMode = sharedPreferences?.getString(KEY_CONTENT_CAP_MODE, DEFAULT_CONTENT_CAP_MODE) ?: DEFAULT_CONTENT_CAP_MODE
@@ -3423,7 +3319,9 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         notificationBehavior = sharedPreferences?.getString(KEY_NOTIFICATION_BEHAVIOR, "interrupt") ?: "interrupt"
         priorityApps = HashSet(sharedPreferences?.getStringSet(KEY_PRIORITY_APPS, HashSet()) ?: HashSet())
         skipRepeatedNotificationPrefix = sharedPreferences?.getBoolean(KEY_SKIP_REPEATED_NOTIFICATION_PREFIX, false) ?: false
+        burstCoalescingEnabled = sharedPreferences?.getBoolean(KEY_BURST_COALESCING_ENABLED, false) ?: false
         prefixMemoryTimeoutSeconds = sharedPreferences?.getInt(KEY_PREFIX_MEMORY_TIMEOUT, 60) ?: 60
+        applyQueueMaxAge()
 
         // Load media behavior settings
         mediaBehavior = sharedPreferences?.getString(KEY_MEDIA_BEHAVIOR, "ignore") ?: "ignore"
@@ -3502,6 +3400,13 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         val timeLimit: Int
     )
     
+    /** Move the chat's high-water mark past [conversation], if this notification is a chat update. */
+    private fun markConversationHandled(key: String, conversation: MessagingStyleTracker.Conversation?) {
+        if (conversation != null) {
+            messagingStyleTracker.markHandled(key, conversation.messages)
+        }
+    }
+
     /**
      * Extract a user-friendly blocking reason type from the detailed reason string.
      * This allows us to always log why a notification was blocked without revealing sensitive details.
@@ -3533,8 +3438,13 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         isSelfTest: Boolean = false,
         isSystemEvent: Boolean = false,
         rankingMap: RankingMap? = null,
-        isSummary: Boolean = false
+        isSummary: Boolean = false,
+        parsed: ParsedNotification? = null,
+        messagingUpdate: MessagingUpdate? = null
     ): FilterResult {
+        // Callers that did not parse the notification at ingest get it parsed once here
+        val parsedNotification = parsed ?: sbn?.let { ParsedNotification.from(it) }
+
         // 1. Check app filtering
         val appFilterResult = checkAppFilter(packageName, isSelfTest, isSystemEvent)
         if (!appFilterResult.shouldSpeak) {
@@ -3547,8 +3457,8 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         }
         
         // 3. Apply media notification filtering (if StatusBarNotification is available)
-        if (sbn != null) {
-            val mediaFilterResult = applyMediaFiltering(sbn)
+        if (parsedNotification != null) {
+            val mediaFilterResult = applyMediaFiltering(parsedNotification)
             if (!mediaFilterResult.shouldSpeak) {
                 return mediaFilterResult
             }
@@ -3563,7 +3473,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         }
         
         // 5. Evaluate conditional rules (Smart Rules system)
-        val notificationContext = buildNotificationContext(packageName, text, sbn)
+        val notificationContext = buildNotificationContext(packageName, text, parsedNotification)
         val outcome = evaluateRuleEffects(notificationContext)
         val effects = outcome?.effects.orEmpty()
         
@@ -3621,8 +3531,8 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         val templateToUse = resolveSpeechTemplateForPlayback(effectiveSpeechTemplateOverride)
         val requiredBlocks = getRequiredContentBlocks(templateToUse)
         
-        val extractedBlocks = if (sbn != null && sbn.notification != null) {
-            extractRequestedContentBlocks(sbn.notification, packageName, requiredBlocks)
+        val extractedBlocks = if (parsedNotification != null) {
+            extractRequestedContentBlocks(parsedNotification, requiredBlocks, messagingUpdate)
         } else {
             val fallbackMap = mutableMapOf<String, String>()
             if (requiredBlocks.contains("content")) fallbackMap["content"] = text
@@ -3705,7 +3615,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             InAppLogger.logFilter("Rule effect: override TTS voice")
         }
 
-        if (shouldFilterEmojiEmptyText(sbn, text, notificationContext.shouldKeepEmojis)) {
+        if (shouldFilterEmojiEmptyText(parsedNotification, text, notificationContext.shouldKeepEmojis)) {
             return FilterResult(false, "", "Empty text after emoji removal")
         }
 
@@ -3869,101 +3779,72 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             ), processedBlocks)
         }
 
-        // ESCALATION CHECK: Check for private words across all blocks
-        if (!overridePrivate) {
-            for ((_, text) in blocks) {
-                for (privateWord in privateWords) {
-                    if (matchesWordFilter(text, privateWord)) {
-                        val privateText = getLocalizedTemplate("private_notification", appName, "")
-                        Log.d(TAG, "Private word '$privateWord' detected - entire notification made private")
-                        InAppLogger.logFilter("Made notification private due to word: $privateWord")
-                        blocks.keys.forEach { processedBlocks[it] = privateText }
-                        return Pair(FilterResult(
-                            true, privateText, "Private word detected",
-                            speechTemplateOverride = SpeechTemplateOverride("{content}", null)
-                        ), processedBlocks)
-                    }
+        val filter = contentBlockFilter ?: buildContentBlockFilter().also { contentBlockFilter = it }
+        return when (val result = filter.process(blocks, checkPrivateWords = !overridePrivate)) {
+            is ContentBlockFilter.Result.Private -> {
+                // ESCALATION: a private word in any block makes the entire notification private
+                val privateText = getLocalizedTemplate("private_notification", appName, "")
+                Log.d(TAG, "Private word '${result.word}' detected - entire notification made private")
+                InAppLogger.logFilter("Made notification private due to word: ${result.word}")
+                blocks.keys.forEach { processedBlocks[it] = privateText }
+                Pair(FilterResult(
+                    true, privateText, "Private word detected",
+                    speechTemplateOverride = SpeechTemplateOverride("{content}", null)
+                ), processedBlocks)
+            }
+            is ContentBlockFilter.Result.Blocked -> {
+                try {
+                    StatisticsManager.getInstance(this).incrementFilterReason(StatisticsManager.FILTER_WORD_FILTERS)
+                } catch (e: Exception) {
+                    Log.e(TAG, "Error tracking word filter", e)
+                }
+                if (result.word != null) {
+                    Log.d(TAG, "Notification blocked by blacklist word: ${result.word} in block: ${result.blockKey}")
+                    Pair(FilterResult(false, "", "Blocked by blacklist word: ${result.word}"), emptyMap())
+                } else {
+                    Log.d(TAG, "Notification blocked - no whitelist word found across any block")
+                    Pair(FilterResult(false, "", "Blocked - no whitelist word match"), emptyMap())
                 }
             }
+            is ContentBlockFilter.Result.Passed -> Pair(FilterResult(true, "", "Passed all filters"), result.blocks)
         }
+    }
 
-        var foundWhitelistMatch = false
-        val requiresWhitelist = wordListMode == "whitelist" && blockedWords.isNotEmpty()
-
-        for ((key, originalText) in blocks) {
-            var text = originalText
-
-            // BLACKLIST CHECK
-            if (wordListMode == "blacklist") {
-                for (blockedWord in blockedWords) {
-                    if (matchesWordFilter(text, blockedWord)) {
-                        try {
-                            StatisticsManager.getInstance(this).incrementFilterReason(StatisticsManager.FILTER_WORD_FILTERS)
-                        } catch (e: Exception) {
-                            Log.e(TAG, "Error tracking word filter", e)
-                        }
-                        Log.d(TAG, "Notification blocked by blacklist word: $blockedWord in block: $key")
-                        return Pair(FilterResult(false, "", "Blocked by blacklist word: $blockedWord"), emptyMap())
-                    }
+    /**
+     * Compile the word lists, word swaps and URL handling settings into the content block stage.
+     */
+    private fun buildContentBlockFilter(): ContentBlockFilter {
+        val urlStage = if (urlHandlingMode != "read_full") {
+            UrlHandlingStage(
+                mode = urlHandlingMode,
+                replacementText = urlReplacementText,
+                registrableDomain = { host -> publicSuffixes.registrableDomain(host) },
+                onReplaced = { url, replacement ->
+                    Log.d(TAG, "URL handling applied: '$url' -> '$replacement' (mode=$urlHandlingMode, replacementText='$urlReplacementText')")
+                    InAppLogger.logFilter("URL handling applied: '$url' -> '$replacement' (mode=$urlHandlingMode, replacementText='$urlReplacementText')")
                 }
-            }
-
-            // WHITELIST CHECK (Aggregate)
-            if (requiresWhitelist && !foundWhitelistMatch) {
-                for (allowedWord in blockedWords) {
-                    if (matchesWordFilter(text, allowedWord)) {
-                        foundWhitelistMatch = true
-                        Log.d(TAG, "Notification allowed by whitelist word: $allowedWord in block: $key")
-                        break
-                    }
+            )
+        } else {
+            null
+        }
+        return ContentBlockFilter(
+            privateWords = privateWords,
+            filterWords = blockedWords,
+            wordListMode = wordListMode,
+            wordSwaps = wordReplacements,
+            urlStage = urlStage,
+            listener = object : ContentBlockFilter.Listener {
+                override fun onWordSwapsApplied(blockKey: String, applied: List<String>, before: String, after: String) {
+                    InAppLogger.logFilter("Word swaps applied on block '$blockKey': ${applied.joinToString(", ")} | Before: '$before' | After: '$after'")
                 }
-            }
 
-            // WORD SWAPS
-            val wordSwapStartText = text
-            var wordSwapChangesMade = false
-            val appliedReplacements = mutableListOf<String>()
-            
-            if (wordReplacements.isNotEmpty()) {
-                for (rule in wordReplacements) {
-                    val from = rule.from
-                    val to = rule.to
-                    val tempText = text
-                    text = text.replace(from, to, ignoreCase = true)
-                    if (tempText != text) {
-                        wordSwapChangesMade = true
-                        appliedReplacements.add("'$from' -> '$to'")
-                    } else if (InAppLogger.verboseMode) {
+                override fun onWordSwapMiss(from: String, text: String) {
+                    if (InAppLogger.verboseMode) {
                         logWordSwapMissDiagnostics(from, text)
                     }
                 }
             }
-            
-            if (wordSwapChangesMade) {
-                val changesSummary = appliedReplacements.joinToString(", ")
-                InAppLogger.logFilter("Word swaps applied on block '$key': $changesSummary | Before: '$wordSwapStartText' | After: '$text'")
-            }
-
-            // URL HANDLING
-            if (urlHandlingMode != "read_full") {
-                text = applyUrlHandling(text)
-            }
-
-            processedBlocks[key] = text
-        }
-
-        // Final Whitelist Validation
-        if (requiresWhitelist && !foundWhitelistMatch) {
-            try {
-                StatisticsManager.getInstance(this).incrementFilterReason(StatisticsManager.FILTER_WORD_FILTERS)
-            } catch (e: Exception) {
-                Log.e(TAG, "Error tracking word filter", e)
-            }
-            Log.d(TAG, "Notification blocked - no whitelist word found across any block")
-            return Pair(FilterResult(false, "", "Blocked - no whitelist word match"), emptyMap())
-        }
-
-        return Pair(FilterResult(true, "", "Passed all filters"), processedBlocks)
+        )
     }
 
     private fun applyEmojiRemovalIfEnabled(text: String, shouldKeepEmojis: Boolean): String {
@@ -3978,7 +3859,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 return text
             }
         }
-        return removeSpokenEmojis(text)
+        return emojiTable.strip(text, if (tidySpeechSayEmojiEnabled) getString(R.string.tidy_speech_emoji_spoken_token) else null)
     }
 
     private fun applySeparateDigitsIfEnabled(text: String, shouldKeepDigits: Boolean): String {
@@ -4006,7 +3887,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     }
 
     private fun shouldFilterEmojiEmptyText(
-        sbn: StatusBarNotification?,
+        parsed: ParsedNotification?,
         fallbackText: String,
         shouldKeepEmojis: Boolean
     ): Boolean {
@@ -4014,10 +3895,9 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
 
         val rawText: String
         val rawBigText: String
-        if (sbn?.notification != null) {
-            val extras = sbn.notification.extras
-            rawText = extras?.getCharSequence(Notification.EXTRA_TEXT)?.toString() ?: ""
-            rawBigText = extras?.getCharSequence(Notification.EXTRA_BIG_TEXT)?.toString() ?: ""
+        if (parsed != null) {
+            rawText = parsed.text
+            rawBigText = parsed.bigText
         } else {
             rawText = fallbackText
             rawBigText = ""
@@ -4048,96 +3928,6 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     }
     
     
-    /**
-     * Handles URL processing based on user preferences
-     * Supports various URL formats: http, https, www, bare domains (e.g., speakthat.app, youtu.be), localhost, IP addresses, IPv6
-     */
-    private fun applyUrlHandling(text: String): String {
-        if (urlHandlingMode == "read_full") {
-            return text // No processing needed
-        }
-        
-        // Skip processing for very long texts to prevent performance issues
-        if (text.length > 10000) {
-            Log.w(TAG, "Text too long for URL processing (${text.length} chars), skipping")
-            return text
-        }
-        
-        return URL_PATTERN.replace(text) { matchResult ->
-            val url = matchResult.value
-            val replacement = when (urlHandlingMode) {
-                "domain_only" -> extractDomain(url)
-                "dont_read" -> if (urlReplacementText.isNotEmpty()) urlReplacementText else ""
-                else -> url // Fallback to original URL
-            }
-            
-            Log.d(TAG, "URL handling applied: '$url' -> '$replacement' (mode=$urlHandlingMode, replacementText='$urlReplacementText')")
-            InAppLogger.logFilter("URL handling applied: '$url' -> '$replacement' (mode=$urlHandlingMode, replacementText='$urlReplacementText')")
-            replacement
-        }
-    }
-    
-    /**
-     * Extracts the domain from a URL, handling various formats
-     * Examples:
-     * - https://www.speakthat.app/subdirectory -> speakthat.app
-     * - www.amazon.com/dp/B08N5WRWNW -> amazon.com
-     * - speakthat.app -> speakthat.app
-     * - youtu.be -> youtu.be
-     * - localhost:8080 -> localhost
-     * - 192.168.1.1:3000 -> 192.168.1.1
-     * Note: Never includes protocol (http/https) in the result
-     */
-    private fun extractDomain(url: String): String {
-        try {
-            // Validate input
-            if (url.isBlank()) {
-                Log.w(TAG, "Empty URL provided to extractDomain")
-                return "link"
-            }
-            
-            // Remove protocol if present (https:// or http://)
-            var cleanUrl = url.replace(Regex("^https?://"), "")
-            
-            // Remove www. prefix if present
-            cleanUrl = cleanUrl.replace(Regex("^www\\."), "")
-            
-            // Split by / to get the host part
-            val hostPart = cleanUrl.split("/")[0]
-            
-            // Split by : to remove port if present
-            val domainPart = hostPart.split(":")[0]
-            
-            // Validate domain part
-            if (domainPart.isBlank()) {
-                Log.w(TAG, "Empty domain part extracted from URL '$url'")
-                return "link"
-            }
-            
-            // For localhost and IP addresses, return as-is
-            if (domainPart == "localhost" || domainPart.matches(Regex("^\\d+\\.\\d+\\.\\d+\\.\\d+$"))) {
-                return domainPart
-            }
-            
-            // For IPv6 addresses (in brackets), return as-is
-            if (domainPart.startsWith("[") && domainPart.endsWith("]")) {
-                return domainPart
-            }
-            
-            // For regular domains, extract the main domain (last two parts)
-            val parts = domainPart.split(".")
-            return if (parts.size >= 2) {
-                parts.takeLast(2).joinToString(".")
-            } else {
-                domainPart
-            }
-        } catch (e: Exception) {
-            Log.w(TAG, "Error extracting domain from URL '$url': ${e.message}")
-            // Return a safe fallback instead of original URL to avoid reading long URLs
-            return "link"
-        }
-    }
-    
     /**
      * Apply Content Cap to limit notification length
      * Supports word count, sentence count, and time limit modes
@@ -4182,14 +3972,14 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                     Log.d(TAG, "Applying word cap...")
                     InAppLogger.log("Service", "Applying WORD cap...")
                 }
-                applyWordCap(text, wordCount)
+                contentCap.capWords(text, wordCount)
             }
             "sentences" -> {
                 if (InAppLogger.verboseMode) {
                     Log.d(TAG, "Applying sentence cap...")
                     InAppLogger.log("Service", "Applying SENTENCE cap...")
                 }
-                applySentenceCap(text, sentenceCount)
+                capSentences(text, sentenceCount)
             }
             "time" -> {
                 if (InAppLogger.verboseMode) {
@@ -4220,87 +4010,18 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         return safeResult
     }
     
-    /**
-     * Apply word count limit
-     * Splits text by whitespace and takes first N words
-     */
-    private fun applyWordCap(text: String, wordCount: Int): String {
-        val words = text.split("\\s+".toRegex())
-        
-        // If text has fewer words than limit, return original
-        if (words.size <= wordCount) {
-            Log.d(TAG, "Word cap: Text has ${words.size} words, limit is $wordCount - no cap needed")
-            return text
-        }
-        
-        val cappedText = words.take(wordCount).joinToString(" ")
-        Log.d(TAG, "Word cap applied: ${words.size} words → $wordCount words")
-        InAppLogger.log("Service", "Word cap applied: ${words.size} words → $wordCount words")
-        
-        return cappedText
-    }
-    
     /**
      * Apply sentence count limit
      * Uses BreakIterator for proper international sentence detection
      */
-    private fun applySentenceCap(text: String, sentenceCountLimit: Int): String {
-        try {
-            InAppLogger.log("Service", "=== SENTENCE CAP START ===")
-            InAppLogger.log("Service", "Text to cap: ${text.take(100)}... (${text.length} chars)")
-            InAppLogger.log("Service", "Sentence limit: $sentenceCountLimit")
-            
-            // Use BreakIterator for proper sentence boundary detection
-            // This handles international punctuation and line breaks correctly
-            val iterator = java.text.BreakIterator.getSentenceInstance(java.util.Locale.getDefault())
-            iterator.setText(text)
-            
-            var sentenceCount = 0
-            var endIndex = 0
-            var start = iterator.first()
-            
-            InAppLogger.log("Service", "Starting sentence detection loop...")
-            while (start != java.text.BreakIterator.DONE && sentenceCount < sentenceCountLimit) {
-                val end = iterator.next()
-                InAppLogger.log("Service", "Loop iteration: sentenceCount=$sentenceCount, start=$start, end=$end")
-                if (end == java.text.BreakIterator.DONE) {
-                    endIndex = text.length
-                    sentenceCount++
-                    InAppLogger.log("Service", "Reached DONE - endIndex=$endIndex, sentenceCount=$sentenceCount")
-                    break
-                }
-                endIndex = end
-                sentenceCount++
-                InAppLogger.log("Service", "Found sentence boundary at $end - sentenceCount=$sentenceCount")
-            }
-            
-            InAppLogger.log("Service", "Loop complete: sentenceCount=$sentenceCount, endIndex=$endIndex, textLength=${text.length}")
-            
-            // If text has fewer sentences than limit, return original
-            if (sentenceCount <= sentenceCountLimit && endIndex >= text.length) {
-                Log.d(TAG, "Sentence cap: Text has $sentenceCount sentences, limit is $sentenceCountLimit - no cap needed")
-                InAppLogger.log("Service", "Sentence cap: NO CAP NEEDED - Text has $sentenceCount sentences (limit: $sentenceCountLimit)")
-                return text
-            }
-            
-            InAppLogger.log("Service", "Applying cap - will substring from 0 to $endIndex")
-            val cappedText = if (endIndex > 0 && endIndex <= text.length) {
-                text.substring(0, endIndex).trim()
-            } else {
-                InAppLogger.log("Service", "ERROR: Invalid endIndex=$endIndex, returning original")
-                text
-            }
-            
-            InAppLogger.log("Service", "Capped text: ${cappedText.take(100)}... (${cappedText.length} chars)")
-            Log.d(TAG, "Sentence cap applied: Capped to $contentCapSentenceCount sentence(s)")
-            InAppLogger.log("Service", "Sentence cap applied: Capped to $contentCapSentenceCount sentence(s)")
-            
-            return cappedText
+    private fun capSentences(text: String, sentenceCountLimit: Int): String {
+        return try {
+            contentCap.capSentences(text, sentenceCountLimit)
         } catch (e: Exception) {
             Log.e(TAG, "Error applying sentence cap: ${e.message}", e)
             InAppLogger.logError("Service", "Error applying sentence cap: ${e.message}")
             // Fallback to original text on error
-            return text
+            text
         }
     }
     
@@ -4312,7 +4033,9 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 InAppLogger.logFilter("Rule manager not initialized, allowing notification")
                 null
             } else {
+                val rulesStart = System.nanoTime()
                 val outcome = ruleManager.evaluateNotification(notificationContext)
+                PipelineLatency.recordSince(PipelineLatency.Stage.RULES, rulesStart)
                 applyMasterSwitchEffects(outcome.effects)
                 logUnappliedRuleEffects(outcome.effects)
                 outcome
@@ -4326,32 +4049,20 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     private fun buildNotificationContext(
         packageName: String,
         fallbackText: String,
-        sbn: StatusBarNotification?
+        parsed: ParsedNotification?
     ): com.micoyc.speakthat.rules.NotificationContext {
-        val notification = sbn?.notification
-        val extras = notification?.extras
-        val isOngoing = notification?.let { note ->
-            val flags = note.flags
-            (flags and Notification.FLAG_ONGOING_EVENT) != 0 ||
-                (flags and Notification.FLAG_NO_CLEAR) != 0
-        } ?: false
-
+        // Missing extras were parsed as empty strings; rules expect them absent
         return com.micoyc.speakthat.rules.NotificationContext(
             packageName = packageName,
-            title = extras?.getCharSequence(Notification.EXTRA_TITLE),
-            text = extras?.getCharSequence(Notification.EXTRA_TEXT) ?: fallbackText,
-            subText = extras?.getCharSequence(Notification.EXTRA_SUB_TEXT),
-            bigText = extras?.getCharSequence(Notification.EXTRA_BIG_TEXT),
-            ticker = notification?.tickerText,
-            category = notification?.category,
-            channelId = if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
-                notification?.channelId
-            } else {
-                null
-            },
-            isOngoing = isOngoing,
-            postTime = sbn?.postTime ?: System.currentTimeMillis(),
-            extras = extras
+            title = parsed?.title?.ifEmpty { null },
+            text = parsed?.text?.ifEmpty { null } ?: fallbackText,
+            subText = parsed?.subText?.ifEmpty { null },
+            bigText = parsed?.bigText?.ifEmpty { null },
+            ticker = parsed?.tickerText?.ifEmpty { null },
+            category = parsed?.category,
+            channelId = parsed?.channelId,
+            isOngoing = parsed?.isOngoing ?: false,
+            postTime = parsed?.postTime ?: System.currentTimeMillis()
         )
     }
 
@@ -4379,19 +4090,16 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         }
     }
     
-    private fun applyMediaFiltering(sbn: StatusBarNotification): FilterResult {
+    private fun applyMediaFiltering(parsed: ParsedNotification): FilterResult {
         if (!mediaFilterPreferences.isMediaFilteringEnabled) {
             return FilterResult(true, "", "Media filtering disabled")
         }
 
-        val shouldFilter = MediaNotificationDetector.shouldFilterMediaNotification(sbn, mediaFilterPreferences)
+        val shouldFilter = MediaNotificationDetector.shouldFilterMediaNotification(parsed, mediaFilterPreferences)
         if (shouldFilter) {
-            val reason = MediaNotificationDetector.getMediaDetectionReason(sbn)
+            val reason = MediaNotificationDetector.getMediaDetectionReason(parsed)
             Log.d(TAG, "Media notification filtered out (unified logic): $reason")
-            InAppLogger.logFilter("Blocked media notification from ${sbn.packageName}: $reason (unified logic)")
-            // Log all extras for debugging
-            val extras = sbn.notification.extras
-            Log.d(TAG, "[UnifiedFilter] Notification extras: $extras")
+            InAppLogger.logFilter("Blocked media notification from ${parsed.packageName}: $reason (unified logic)")
             return FilterResult(false, "", "Media notification filtered: $reason (unified logic)")
         }
 
@@ -4598,20 +4306,24 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         }
     }
     
+    /**
+     * Runs on the [com.micoyc.speakthat.gesture.GestureSensorLooper] thread, not the main looper.
+     * Only a completed gesture hops back to the main thread via [postGestureStop].
+     */
     override fun onSensorChanged(event: SensorEvent) {
+        val now = event.timestamp / 1_000_000L
         if (event.sensor.type == Sensor.TYPE_ACCELEROMETER && isShakeToStopEnabled) {
             val x = event.values[0]
             val y = event.values[1]
             val z = event.values[2]
             
-            val result = shakeEvaluator.evaluate(x, y, z)
-            if (result is com.micoyc.speakthat.gesture.ShakeEvaluator.EvaluationResult.TargetReached) {
-                Log.d(TAG, "Shake detected! Stopping TTS. Shake value: ${result.shakeValue}")
-                stopSpeaking("shake")
+            val result = shakeEvaluator.evaluate(x, y, z, now)
+            if (result == com.micoyc.speakthat.gesture.ShakeEvaluator.RESULT_TARGET_REACHED) {
+                Log.d(TAG, "Shake detected! Stopping TTS. Shake value: ${shakeEvaluator.lastShakeValue}")
+                postGestureStop("shake")
             }
         } else if (event.sensor.type == Sensor.TYPE_PROXIMITY && isWaveToStopEnabled) {
             val proximityValue = event.values[0]
-            val now = System.currentTimeMillis()
             val maxRange = proximitySensor?.maximumRange ?: 5.0f
             waveEventCount += 1
             
@@ -4627,18 +4339,18 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 )
             }
 
-            val result = waveEvaluator.evaluate(isNear, isCurrentlySpeaking, now)
-            
-            when (result) {
-                is com.micoyc.speakthat.gesture.WaveEvaluator.EvaluationResult.TargetReached -> {
+            when (waveEvaluator.evaluate(isNear, isCurrentlySpeaking, now)) {
+                com.micoyc.speakthat.gesture.WaveEvaluator.RESULT_TARGET_REACHED -> {
                     Log.d(TAG, "Wave detected! Stopping TTS. Proximity: $proximityValue cm, maxRange: $maxRange cm")
                     InAppLogger.logSystemEvent("Wave detected", "Proximity: ${proximityValue}cm, maxRange: ${maxRange}cm")
-                    stopSpeaking("wave")
+                    postGestureStop("wave")
                 }
-                is com.micoyc.speakthat.gesture.WaveEvaluator.EvaluationResult.HoldScheduled -> {
+                com.micoyc.speakthat.gesture.WaveEvaluator.RESULT_HOLD_SCHEDULED -> {
                     if (pendingWaveTriggerRunnable == null) {
-                        Log.i(TAG, "Wave hold scheduled - hold=${result.holdDurationMs}ms")
-                        pendingWaveTriggerRunnable = Runnable {
+                        val holdDurationMs = waveEvaluator.holdDurationMs
+                        Log.i(TAG, "Wave hold scheduled - hold=${holdDurationMs}ms")
+                        val holdRunnable = Runnable {
+                            pendingWaveTriggerRunnable = null
                             if (!isCurrentlySpeaking || !isWaveToStopEnabled || !waveEvaluator.isSensorCurrentlyCovered()) {
                                 return@Runnable
                             }
@@ -4648,14 +4360,15 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                             }
                             Log.d(TAG, "Wave detected! Stopping TTS. Proximity value: ${lastProximityValue} cm, maxRange: $maxRange cm")
                             InAppLogger.logSystemEvent("Wave detected", "Proximity: ${lastProximityValue}cm, maxRange: ${maxRange}cm")
-                            stopSpeaking("wave")
+                            postGestureStop("wave")
                         }
-                        sensorTimeoutHandler?.postDelayed(pendingWaveTriggerRunnable!!, result.holdDurationMs)
+                        pendingWaveTriggerRunnable = holdRunnable
+                        gestureSensorLooper?.postDelayed(holdRunnable, holdDurationMs)
                     }
                 }
-                is com.micoyc.speakthat.gesture.WaveEvaluator.EvaluationResult.HoldCancelled -> {
-                    pendingWaveTriggerRunnable?.let { sensorTimeoutHandler?.removeCallbacks(it) }
-                    if (pendingWaveTriggerRunnable != null) {
+                com.micoyc.speakthat.gesture.WaveEvaluator.RESULT_HOLD_CANCELLED -> {
+                    pendingWaveTriggerRunnable?.let { runnable ->
+                        gestureSensorLooper?.removeCallbacks(runnable)
                         Log.i(TAG, "Wave hold cancelled - sensor uncovered")
                     }
                     pendingWaveTriggerRunnable = null
@@ -4666,6 +4379,21 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             }
         }
     }
+
+    /**
+     * Hand a detected gesture to the main thread. The session id check drops hits that were
+     * queued before the readout ended (or before the next one started).
+     */
+    private fun postGestureStop(triggerType: String) {
+        val sessionId = gestureSessionId
+        sensorTimeoutHandler?.post {
+            if (sessionId == gestureSessionId) {
+                stopSpeaking(triggerType)
+            } else {
+                Log.d(TAG, "Ignoring stale $triggerType gesture from a finished sensor session")
+            }
+        }
+    }
     
     override fun onAccuracyChanged(sensor: Sensor?, accuracy: Int) {
         // Not needed for this implementation
@@ -4673,7 +4401,8 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     
     private fun stopSpeaking(triggerType: String = "unknown") {
         // Clear any queued notifications since user wants to stop
-        notificationQueue.clear()
+        onSpeechScheduler { speechScheduler.clear() }
+        burstCoalescer.clear()
         
         // Cancel any pending delayed readouts
         pendingReadoutRunnable?.let { runnable ->
@@ -4707,7 +4436,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     }
 
     private fun resumeQueueAfterSpeechEnd(reason: String) {
-        if (notificationQueue.isEmpty()) {
+        if (speechScheduler.isEmpty()) {
             return
         }
         if (isCurrentlySpeaking) {
@@ -4719,8 +4448,8 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             InAppLogger.log("Service", "Queue resume skipped ($reason) - master switch disabled")
             return
         }
-        Log.d(TAG, "Resuming queue after $reason (size=${notificationQueue.size})")
-        InAppLogger.log("Service", "Resuming queue after $reason (size=${notificationQueue.size})")
+        Log.d(TAG, "Resuming queue after $reason (size=${speechScheduler.size})")
+        InAppLogger.log("Service", "Resuming queue after $reason (size=${speechScheduler.size})")
         processNotificationQueue()
     }
 
@@ -4790,7 +4519,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         currentAppName = ""
         currentOriginalAppName = ""
         currentTtsText = ""
-        currentSbnKey = null
+        currentSbnKeys = emptySet()
         stopForegroundService()
         unregisterShakeListener()
 
@@ -4837,7 +4566,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
      * Respect the simplified focus-only path by default, but allow legacy behavior to be toggled
      * back on from Development Settings when deeper hacks are necessary.
      */
-    private fun handleMediaBehavior(appName: String, _text: String, sbn: StatusBarNotification? = null): Boolean {
+    private fun handleMediaBehavior(appName: String, _text: String, parsed: ParsedNotification? = null): Boolean {
         val isMusicActive = audioManager.isMusicActive
         Log.d(
             TAG,
@@ -4853,8 +4582,8 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             return true
         }
 
-        if (sbn != null && MediaNotificationDetector.isMediaNotification(sbn)) {
-            val reason = MediaNotificationDetector.getMediaDetectionReason(sbn)
+        if (parsed != null && MediaNotificationDetector.isMediaNotification(parsed)) {
+            val reason = MediaNotificationDetector.getMediaDetectionReason(parsed)
             Log.d(TAG, "Notification detected as media control; skipping speech. Reason: $reason")
             InAppLogger.logFilter("Blocked media control notification from $appName: $reason")
             return false
@@ -6609,32 +6338,38 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         appName: String,
         text: String,
         conditionalDelaySeconds: Int = -1,
-        sbn: StatusBarNotification? = null,
+        parsed: ParsedNotification? = null,
         speechTemplateOverride: SpeechTemplateOverride? = null,
         voiceOverride: VoiceOverride? = null,
         contentCapOverride: ContentCapOverride? = null,
         processedBlocks: Map<String, String>? = null,
-        shouldKeepEmojis: Boolean = false
+        shouldKeepEmojis: Boolean = false,
+        sbnKey: String? = parsed?.key,
+        canCoalesce: Boolean = true
     ) {
         val isPriorityApp = priorityApps.contains(packageName)
         
         // Get original app name for statistics tracking (before privacy modification)
         val originalAppName = getAppName(packageName)
+        val isSelfTest = parsed?.isSelfTest ?: false
         val queuedNotification = QueuedNotification(
             appName = appName,
             text = text,
             isPriority = isPriorityApp,
             conditionalDelaySeconds = conditionalDelaySeconds,
-            sbn = sbn,
+            packageName = packageName,
+            sbnKey = sbnKey,
+            isSelfTest = isSelfTest,
             originalAppName = originalAppName,
             speechTemplateOverride = speechTemplateOverride,
             voiceOverride = voiceOverride,
             contentCapOverride = contentCapOverride,
             processedBlocks = processedBlocks,
-            shouldKeepEmojis = shouldKeepEmojis
+            shouldKeepEmojis = shouldKeepEmojis,
+            canCoalesce = canCoalesce
         )
         
-        Log.d(TAG, "Handling notification behavior - Mode: $notificationBehavior, App: $appName, Currently speaking: $isCurrentlySpeaking, Queue size: ${notificationQueue.size}")
+        Log.d(TAG, "Handling notification behavior - Mode: $notificationBehavior, App: $appName, Currently speaking: $isCurrentlySpeaking, Queue size: ${speechScheduler.size}")
         InAppLogger.logNotification("Processing notification from $appName (mode: $notificationBehavior, speaking: $isCurrentlySpeaking)")
 
         if (SpeechCoordinator.isSummaryActive()) {
@@ -6642,10 +6377,10 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             return
         }
         
-        // Check media behavior first, now with sbn for strict filtering
-        if (!handleMediaBehavior(appName, text, sbn)) {
-            Log.d(TAG, "Media behavior blocked notification from $appName (sbn: ${sbn?.packageName})")
-            InAppLogger.logFilter("Media behavior blocked notification from $appName (sbn: ${sbn?.packageName})")
+        // Check media behavior first, now with the parsed notification for strict filtering
+        if (!handleMediaBehavior(appName, text, parsed)) {
+            Log.d(TAG, "Media behavior blocked notification from $appName (package: ${parsed?.packageName})")
+            InAppLogger.logFilter("Media behavior blocked notification from $appName (package: ${parsed?.packageName})")
             // Track filter reason
             try {
                 StatisticsManager.getInstance(this).incrementFilterReason(StatisticsManager.FILTER_MEDIA_BEHAVIOR)
@@ -6658,18 +6393,20 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         when (notificationBehavior) {
             "interrupt" -> {
                 Log.d(TAG, "INTERRUPT mode: Speaking immediately and interrupting any current speech")
-                speakNotificationImmediate(appName, text, conditionalDelaySeconds, sbn, originalAppName, speechTemplateOverride, voiceOverride, queuedNotification.contentCapOverride, queuedNotification.processedBlocks, true, queuedNotification.shouldKeepEmojis, queuedNotification.shouldKeepDigits)
+                speakNotificationImmediate(appName, text, conditionalDelaySeconds, sbnKey, isSelfTest, originalAppName, speechTemplateOverride, voiceOverride, queuedNotification.contentCapOverride, queuedNotification.processedBlocks, true, queuedNotification.shouldKeepEmojis, queuedNotification.shouldKeepDigits)
             }
             "queue" -> {
-                Log.d(TAG, "QUEUE mode: Adding to queue")
-                notificationQueue.add(queuedNotification)
-                Log.d(TAG, "Added to queue. New queue size: ${notificationQueue.size}")
-                processNotificationQueue()
+                Log.d(TAG, "QUEUE mode: Adding to queue${if (isPriorityApp) " (priority tier)" else ""}")
+                onSpeechScheduler {
+                    enqueueReadout(queuedNotification)
+                    Log.d(TAG, "Added to queue. New queue size: ${speechScheduler.size}")
+                    processNotificationQueue()
+                }
             }
             "skip" -> {
                 if (!isCurrentlySpeaking) {
                     Log.d(TAG, "SKIP mode: Not currently speaking, will speak now")
-                    speakNotificationImmediate(appName, text, conditionalDelaySeconds, sbn, originalAppName, speechTemplateOverride, voiceOverride, queuedNotification.contentCapOverride, queuedNotification.processedBlocks, true, queuedNotification.shouldKeepEmojis, queuedNotification.shouldKeepDigits)
+                    speakNotificationImmediate(appName, text, conditionalDelaySeconds, sbnKey, isSelfTest, originalAppName, speechTemplateOverride, voiceOverride, queuedNotification.contentCapOverride, queuedNotification.processedBlocks, true, queuedNotification.shouldKeepEmojis, queuedNotification.shouldKeepDigits)
                 } else {
                     Log.d(TAG, "SKIP mode: Currently speaking, skipping notification from $appName")
                     // Track filter reason
@@ -6683,67 +6420,128 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             "smart" -> {
                 if (isPriorityApp) {
                     Log.d(TAG, "SMART mode: Priority app $appName - interrupting")
-                    speakNotificationImmediate(appName, text, conditionalDelaySeconds, sbn, originalAppName, speechTemplateOverride, voiceOverride, queuedNotification.contentCapOverride, queuedNotification.processedBlocks, true, queuedNotification.shouldKeepEmojis, queuedNotification.shouldKeepDigits)
+                    speakNotificationImmediate(appName, text, conditionalDelaySeconds, sbnKey, isSelfTest, originalAppName, speechTemplateOverride, voiceOverride, queuedNotification.contentCapOverride, queuedNotification.processedBlocks, true, queuedNotification.shouldKeepEmojis, queuedNotification.shouldKeepDigits)
                 } else {
                     Log.d(TAG, "SMART mode: Regular app $appName - adding to queue")
-                    notificationQueue.add(queuedNotification)
-                    processNotificationQueue()
+                    onSpeechScheduler {
+                        enqueueReadout(queuedNotification)
+                        processNotificationQueue()
+                    }
                 }
             }
             else -> {
                 Log.d(TAG, "UNKNOWN mode '$notificationBehavior': Defaulting to interrupt")
-                speakNotificationImmediate(appName, text, conditionalDelaySeconds, sbn, originalAppName, speechTemplateOverride, voiceOverride, queuedNotification.contentCapOverride, queuedNotification.processedBlocks, true, queuedNotification.shouldKeepEmojis, queuedNotification.shouldKeepDigits)
+                speakNotificationImmediate(appName, text, conditionalDelaySeconds, sbnKey, isSelfTest, originalAppName, speechTemplateOverride, voiceOverride, queuedNotification.contentCapOverride, queuedNotification.processedBlocks, true, queuedNotification.shouldKeepEmojis, queuedNotification.shouldKeepDigits)
+            }
+        }
+    }
+
+    /** Queued readouts older than the configured age (0 = no limit) are dropped instead of read. */
+    private fun applyQueueMaxAge() {
+        val seconds = sharedPreferences?.getInt(KEY_QUEUE_MAX_AGE_SECONDS, DEFAULT_QUEUE_MAX_AGE_SECONDS)
+            ?: DEFAULT_QUEUE_MAX_AGE_SECONDS
+        onSpeechScheduler { speechScheduler.maxAgeMs = seconds.coerceAtLeast(0) * 1000L }
+    }
+
+    /** Run [block] on the main looper, where every speech scheduler mutation happens. */
+    private fun onSpeechScheduler(block: () -> Unit) {
+        if (android.os.Looper.myLooper() == android.os.Looper.getMainLooper()) {
+            block()
+        } else {
+            speechSchedulerHandler.post(block)
+        }
+    }
+
+    /**
+     * Queue a readout. Priority apps go in the priority tier; an update replaces the pending
+     * readout of the same notification, and items from an app that already has one waiting join it.
+     * Items carrying rule overrides or a conditional delay are never joined, so one item's voice or
+     * template is not applied to another. Must run on the main looper.
+     */
+    private fun enqueueReadout(queuedNotification: QueuedNotification) {
+        val tier = if (queuedNotification.isPriority) SpeechScheduler.TIER_PRIORITY else SpeechScheduler.TIER_NORMAL
+        val hasOverrides = queuedNotification.speechTemplateOverride != null ||
+            queuedNotification.voiceOverride != null ||
+            queuedNotification.contentCapOverride != null ||
+            queuedNotification.conditionalDelaySeconds > 0
+        val group = if (queuedNotification.isSelfTest || !queuedNotification.canCoalesce || hasOverrides) {
+            null
+        } else {
+            queuedNotification.packageName
+        }
+        when (speechScheduler.offer(queuedNotification.sbnKey, group, tier, queuedNotification)) {
+            SpeechScheduler.Offer.REPLACED -> {
+                Log.d(TAG, "Coalesced queued update from ${queuedNotification.appName} (key=${queuedNotification.sbnKey})")
+                InAppLogger.logNotification("Replaced queued readout from ${queuedNotification.appName} with its update")
+            }
+            SpeechScheduler.Offer.COALESCED -> {
+                Log.d(TAG, "Merged ${queuedNotification.appName} notification into its pending readout")
+                InAppLogger.logNotification("Merged ${queuedNotification.appName} notification into its pending readout")
             }
+            // A rejected readout is logged by the drop listener
+            SpeechScheduler.Offer.ADDED, SpeechScheduler.Offer.REJECTED -> Unit
         }
     }
 
     private fun deferNotificationForActiveSummary(queuedNotification: QueuedNotification) {
-        notificationQueue.add(queuedNotification)
-        Log.d(
-            TAG,
-            "Summary active - deferred notification from ${queuedNotification.appName}. Queue size: ${notificationQueue.size}"
-        )
-        InAppLogger.logNotification(
-            "Deferred ${queuedNotification.appName} readout until summary completes (queue=${notificationQueue.size})"
-        )
+        onSpeechScheduler {
+            enqueueReadout(queuedNotification)
+            Log.d(
+                TAG,
+                "Summary active - deferred notification from ${queuedNotification.appName}. Queue size: ${speechScheduler.size}"
+            )
+            InAppLogger.logNotification(
+                "Deferred ${queuedNotification.appName} readout until summary completes (queue=${speechScheduler.size})"
+            )
+        }
     }
 
     private fun resumeDeferredReadoutsAfterSummary() {
-        if (notificationQueue.isEmpty()) {
+        if (speechScheduler.isEmpty()) {
             return
         }
-        Log.d(TAG, "Summary ended - resuming ${notificationQueue.size} deferred notification(s)")
-        InAppLogger.log("Service", "Summary ended - resuming ${notificationQueue.size} deferred notification(s)")
+        Log.d(TAG, "Summary ended - resuming ${speechScheduler.size} deferred notification(s)")
+        InAppLogger.log("Service", "Summary ended - resuming ${speechScheduler.size} deferred notification(s)")
         processNotificationQueue()
     }
 
     private fun processNotificationQueue() {
+        if (android.os.Looper.myLooper() != android.os.Looper.getMainLooper()) {
+            speechSchedulerHandler.post { processNotificationQueue() }
+            return
+        }
         if (SpeechCoordinator.isSummaryActive()) {
-            Log.d(TAG, "Queue processing deferred - summary is active (size=${notificationQueue.size})")
+            Log.d(TAG, "Queue processing deferred - summary is active (size=${speechScheduler.size})")
             return
         }
         if (!MainActivity.isMasterSwitchEnabled(this)) {
-            Log.d(TAG, "Queue processing skipped - master switch disabled (size=${notificationQueue.size})")
+            Log.d(TAG, "Queue processing skipped - master switch disabled (size=${speechScheduler.size})")
             InAppLogger.log("Service", "Queue processing skipped - master switch disabled")
             return
         }
-        Log.d(TAG, "Processing queue - Currently speaking: $isCurrentlySpeaking, Queue size: ${notificationQueue.size}")
-        if (!isCurrentlySpeaking && notificationQueue.isNotEmpty()) {
-            val queuedNotification = notificationQueue.removeAt(0)
-            Log.d(TAG, "Processing next queued notification from ${queuedNotification.appName}")
+        Log.d(TAG, "Processing queue - Currently speaking: $isCurrentlySpeaking, Queue size: ${speechScheduler.size}")
+        val batch = if (!isCurrentlySpeaking) speechScheduler.poll() else null
+        if (batch != null) {
+            // Only items without overrides are coalesced, so the newest item's flags speak for the batch
+            val latest = batch.items.last()
+            val batchKeys = batch.items.mapNotNull { it.sbnKey }
+            Log.d(TAG, "Processing next queued readout from ${latest.appName} (${batch.items.size} item(s), waited ${batch.waitedMs}ms)")
+            PipelineLatency.recordMillis(PipelineLatency.Stage.QUEUE_WAIT, batch.waitedMs)
             speakNotificationImmediate(
-                queuedNotification.appName,
-                queuedNotification.text,
-                queuedNotification.conditionalDelaySeconds,
-                queuedNotification.sbn,
-                queuedNotification.originalAppName,
-                queuedNotification.speechTemplateOverride,
-                queuedNotification.voiceOverride,
-                queuedNotification.contentCapOverride,
-                queuedNotification.processedBlocks,
+                latest.appName,
+                if (batch.items.size == 1) latest.text else composeCoalescedReadout(batch.items),
+                latest.conditionalDelaySeconds,
+                latest.sbnKey,
+                latest.isSelfTest,
+                latest.originalAppName,
+                latest.speechTemplateOverride,
+                latest.voiceOverride,
+                latest.contentCapOverride,
+                latest.processedBlocks,
                 ttsFlushIncoming = false,
-                shouldKeepEmojis = queuedNotification.shouldKeepEmojis,
-                shouldKeepDigits = queuedNotification.shouldKeepDigits
+                shouldKeepEmojis = latest.shouldKeepEmojis,
+                shouldKeepDigits = latest.shouldKeepDigits,
+                batchSbnKeys = batchKeys
             )
         } else if (isCurrentlySpeaking) {
             Log.d(TAG, "Still speaking, queue will be processed when current speech finishes")
@@ -6752,11 +6550,101 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         }
     }
 
+    /** "3 notifications from Signal." followed by each queued readout, oldest first. */
+    private fun composeCoalescedReadout(items: List<QueuedNotification>): String {
+        val header = resources.getQuantityString(
+            R.plurals.queue_coalesced_readout_header,
+            items.size,
+            items.size,
+            items.first().appName
+        )
+        return joinReadouts(header, items.map { it.text })
+    }
+
+    private fun joinReadouts(header: String, texts: List<String>): String {
+        return texts.joinToString(" ", prefix = "$header ") { raw ->
+            val text = raw.trim()
+            if (text.isEmpty() || text.last() in ".!?") text else "$text."
+        }
+    }
+
+    /**
+     * Conversation a chat notification belongs to, or null if it isn't one: the conversation title
+     * (group chats), else the title of a MessagingStyle notification (the other person in a 1:1 chat).
+     */
+    private fun conversationTitleFor(parsed: ParsedNotification): String? {
+        parsed.conversationTitle.takeIf { it.isNotBlank() }?.let { return it }
+        if (!parsed.isMessagingStyle) return null
+        return parsed.title.takeIf { it.isNotBlank() }
+    }
+
+    /**
+     * Hand a finished burst to the behaviour mode: "4 messages from Family: ...". Messages are only
+     * joined while their rule overrides and delay agree; a message with different ones starts a new
+     * readout, so its voice or template never applies to its neighbours.
+     */
+    private fun emitConversationBurst(items: List<ConversationReadout>) {
+        var start = 0
+        for (i in 1..items.size) {
+            if (i == items.size || !hasSameReadoutSettings(items[start], items[i])) {
+                emitConversationReadout(items.subList(start, i))
+                start = i
+            }
+        }
+    }
+
+    private fun hasSameReadoutSettings(a: ConversationReadout, b: ConversationReadout): Boolean {
+        return a.conditionalDelaySeconds == b.conditionalDelaySeconds &&
+            a.speechTemplateOverride == b.speechTemplateOverride &&
+            a.voiceOverride == b.voiceOverride &&
+            a.contentCapOverride == b.contentCapOverride
+    }
+
+    private fun emitConversationReadout(items: List<ConversationReadout>) {
+        val latest = items.last()
+        if (items.size == 1) {
+            handleNotificationBehavior(
+                latest.packageName,
+                latest.appName,
+                latest.text,
+                latest.conditionalDelaySeconds,
+                latest.parsed,
+                latest.speechTemplateOverride,
+                latest.voiceOverride,
+                latest.contentCapOverride,
+                latest.processedBlocks
+            )
+            return
+        }
+        // Any private message in the burst keeps the conversation name out of the header
+        val label = items.first().conversationLabel?.takeIf { items.all { item -> item.conversationLabel != null } }
+            ?: latest.appName
+        val header = resources.getQuantityString(R.plurals.burst_readout_header, items.size, items.size, label)
+        Log.d(TAG, "Coalesced ${items.size} messages from one ${latest.appName} conversation")
+        InAppLogger.logNotification("Coalesced ${items.size} ${latest.appName} messages into one readout")
+        val sharedKey = latest.parsed.key?.takeIf { key -> items.all { it.parsed.key == key } }
+        // The burst already has its header, so the speech scheduler must not merge it into another
+        handleNotificationBehavior(
+            latest.packageName,
+            latest.appName,
+            joinReadouts(header, items.map { it.text }),
+            latest.conditionalDelaySeconds,
+            latest.parsed,
+            latest.speechTemplateOverride,
+            latest.voiceOverride,
+            latest.contentCapOverride,
+            processedBlocks = null,
+            sbnKey = sharedKey,
+            canCoalesce = false
+        )
+    }
+
     private fun speakNotificationImmediate(
         appName: String,
         text: String,
         conditionalDelaySeconds: Int = -1,
-        sbn: StatusBarNotification? = null,
+        sbnKey: String? = null,
+        isSelfTest: Boolean = false,
         originalAppName: String? = null,
         speechTemplateOverride: SpeechTemplateOverride? = null,
         voiceOverride: VoiceOverride? = null,
@@ -6764,15 +6652,14 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         processedBlocks: Map<String, String>? = null,
         ttsFlushIncoming: Boolean = true,
         shouldKeepEmojis: Boolean = false,
-        shouldKeepDigits: Boolean = false
+        shouldKeepDigits: Boolean = false,
+        batchSbnKeys: List<String> = emptyList()
     ) {
         if (!isTtsInitialized || textToSpeech == null) {
             Log.w(TAG, "TTS not initialized, cannot speak notification")
             return
         }
         
-        // Check if this is a SelfTest notification
-        val isSelfTest = sbn?.notification?.extras?.getBoolean(SelfTestHelper.EXTRA_IS_SELFTEST, false) ?: false
         if (isSelfTest) {
             InAppLogger.log("SelfTest", "SelfTest notification speaking")
             Log.d(TAG, "SelfTest notification about to be spoken")
@@ -6815,7 +6702,9 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             voiceOverride,
             delayMs = delayMs,
             ttsFlushIncoming = ttsFlushIncoming,
-            sbn = sbn
+            sbnKey = sbnKey,
+            isSelfTest = isSelfTest,
+            batchSbnKeys = batchSbnKeys
         )
     }
     
@@ -6827,7 +6716,9 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         voiceOverride: VoiceOverride? = null,
         delayMs: Long = 0L,
         ttsFlushIncoming: Boolean = true,
-        sbn: StatusBarNotification? = null
+        sbnKey: String? = null,
+        isSelfTest: Boolean = false,
+        batchSbnKeys: List<String> = emptyList()
     ) {
         if (SpeechCoordinator.isSummaryActive()) {
             Log.d(TAG, "Summary active - refusing notification speech at executeSpeech")
@@ -6866,7 +6757,9 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         // The voice settings will respect the override logic (specific voice > language)
         Log.d(TAG, "=== DUCKING DEBUG: Refreshing voice settings before speech execution ===")
         InAppLogger.log("Service", "=== DUCKING DEBUG: Refreshing voice settings before speech execution ===")
+        val voiceSettingsStart = System.nanoTime()
         applyVoiceSettings()
+        PipelineLatency.recordSince(PipelineLatency.Stage.VOICE_SETTINGS, voiceSettingsStart)
         val voiceSettingsPrefs = getSharedPreferences(TtsLanguageHelper.PREFS_VOICE_SETTINGS, MODE_PRIVATE)
         if (voiceOverride != null && applyTemporaryVoiceOverride(voiceOverride)) {
             isTemporaryVoiceOverrideActive = true
@@ -6879,7 +6772,8 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 this,
                 voiceSettingsPrefs,
                 textToSpeech,
-                speechText
+                speechText,
+                conversationKey = sbnKey ?: originalAppName ?: appName
             )
             val globalLangPref = voiceSettingsPrefs.getString(TtsLanguageHelper.KEY_LANGUAGE, "en_US") ?: "en_US"
             val globalBaseForLog = globalLangPref.split("_", "-").firstOrNull()?.lowercase().orEmpty()
@@ -6983,7 +6877,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         }
         
         isCurrentlySpeaking = true
-        currentSbnKey = sbn?.key
+        currentSbnKeys = batchSbnKeys.toSet() + listOfNotNull(sbnKey)
         
         // Set the current app name and text for the reading notification
         currentAppName = appName
@@ -7073,6 +6967,11 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             override fun onStart(utteranceId: String?) {
                 Log.d(TAG, "=== DUCKING DEBUG: TTS utterance STARTED: $utteranceId ===")
                 InAppLogger.log("Service", "=== DUCKING DEBUG: TTS utterance STARTED: $utteranceId ===")
+                val speakIssuedAt = speakIssuedNanos
+                if (speakIssuedAt != 0L) {
+                    speakIssuedNanos = 0L
+                    PipelineLatency.recordSince(PipelineLatency.Stage.TTS_START, speakIssuedAt)
+                }
 
                 val readoutStartMs = SystemClock.elapsedRealtime()
                 lastEarconStartMs?.let { earconMs ->
@@ -7092,7 +6991,6 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 Log.d(TAG, "=== DUCKING DEBUG: TTS started - Music volume: $currentVolume/$maxVolume ===")
                 InAppLogger.log("Service", "=== DUCKING DEBUG: TTS started - Music volume: $currentVolume/$maxVolume ===")
 
-                val isSelfTest = sbn?.notification?.extras?.getBoolean(SelfTestHelper.EXTRA_IS_SELFTEST, false) ?: false
                 if (isSelfTest && contentCapMode == "time" && contentCapTimeLimit > 0) {
                     Log.d(TAG, "SelfTest bypass - skipping Content Cap time limit")
                     InAppLogger.log("SelfTest", "Bypassing Content Cap time limit for SelfTest notification")
@@ -7116,15 +7014,15 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                         releaseSpeechWakeLock()
 
                         isCurrentlySpeaking = false
-                        currentSbnKey = null
+                        currentSbnKeys = emptySet()
                         contentCapTimerRunnable = null
                         cancelSpeechSafetyTimeout("content cap")
                         restoreGlobalVoiceSettingsIfNeeded("content cap stop")
                         stopForegroundService()
                         unregisterShakeListener()
 
+                        scoAudioManager.release(this@NotificationReaderService, audioManager, moreSpeechQueued = !speechScheduler.isEmpty())
                         android.os.Handler(android.os.Looper.getMainLooper()).postDelayed({
-                            scoAudioManager.cleanupSco(this@NotificationReaderService, audioManager)
                             cleanupMediaBehavior()
                         }, 250)
 
@@ -7143,7 +7041,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 InAppLogger.log("Service", "=== DUCKING DEBUG: TTS utterance COMPLETED: $utteranceId ===")
                 releaseSpeechWakeLock()
                 isCurrentlySpeaking = false
-                currentSbnKey = null
+                currentSbnKeys = emptySet()
                 cancelSpeechSafetyTimeout("utterance_done")
 
                 contentCapTimerRunnable?.let { runnable ->
@@ -7180,8 +7078,9 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                     Log.e(TAG, "Error tracking notification read", e)
                 }
 
+                // Keep the SCO link for the next readout when more are queued
+                scoAudioManager.release(this@NotificationReaderService, audioManager, moreSpeechQueued = !speechScheduler.isEmpty())
                 android.os.Handler(android.os.Looper.getMainLooper()).postDelayed({
-                    scoAudioManager.cleanupSco(this@NotificationReaderService, audioManager)
                     cleanupMediaBehavior()
                 }, 250)
                 processNotificationQueue()
@@ -7191,7 +7090,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 Log.e(TAG, "TTS utterance error: $utteranceId")
                 releaseSpeechWakeLock()
                 isCurrentlySpeaking = false
-                currentSbnKey = null
+                currentSbnKeys = emptySet()
                 cancelSpeechSafetyTimeout("utterance_error")
 
                 contentCapTimerRunnable?.let { runnable ->
@@ -7217,8 +7116,13 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 restoreGlobalVoiceSettingsIfNeeded("utterance error")
                 attemptTtsRecovery("Utterance error: $utteranceId")
 
+                scoAudioManager.release(
+                    this@NotificationReaderService,
+                    audioManager,
+                    moreSpeechQueued = !speechScheduler.isEmpty(),
+                    tailMs = 1000
+                )
                 android.os.Handler(android.os.Looper.getMainLooper()).postDelayed({
-                    scoAudioManager.cleanupSco(this@NotificationReaderService, audioManager)
                     cleanupMediaBehavior()
                 }, 1000)
                 processNotificationQueue()
@@ -7262,13 +7166,13 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 Log.e(TAG, "TTS stop during JIT suppression", e)
             }
             isCurrentlySpeaking = false
-            currentSbnKey = null
+            currentSbnKeys = emptySet()
             restoreGlobalVoiceSettingsIfNeeded("JIT global suppression: $jitSuppressReason")
             releaseSpeechWakeLock()
             unregisterShakeListener()
             stopForegroundService()
+            scoAudioManager.release(this@NotificationReaderService, audioManager, moreSpeechQueued = !speechScheduler.isEmpty())
             android.os.Handler(android.os.Looper.getMainLooper()).postDelayed({
-                scoAudioManager.cleanupSco(this@NotificationReaderService, audioManager)
                 cleanupMediaBehavior()
             }, 250)
             processNotificationQueue()
@@ -7284,13 +7188,13 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 Log.e(TAG, "TTS stop during JIT suppression", e)
             }
             isCurrentlySpeaking = false
-            currentSbnKey = null
+            currentSbnKeys = emptySet()
             restoreGlobalVoiceSettingsIfNeeded("JIT global suppression: No speakable text remaining")
             releaseSpeechWakeLock()
             unregisterShakeListener()
             stopForegroundService()
+            scoAudioManager.release(this@NotificationReaderService, audioManager, moreSpeechQueued = !speechScheduler.isEmpty())
             android.os.Handler(android.os.Looper.getMainLooper()).postDelayed({
-                scoAudioManager.cleanupSco(this@NotificationReaderService, audioManager)
                 cleanupMediaBehavior()
             }, 250)
             processNotificationQueue()
@@ -7356,6 +7260,8 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             }
 
             val playAction = {
+                // A cue or delay queued ahead would be measured too, so only bare readouts count
+                speakIssuedNanos = if (delayMs > 0L || useEarcon) 0L else System.nanoTime()
                 val speakResult = SpeakThatTtsManager.speak(
                     context = this,
                     text = finalSpeechText,
@@ -7380,7 +7286,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                     InAppLogger.logError("Service", "TTS.speak() returned ERROR - attempting recovery")
                     attemptTtsRecovery("speak() returned ERROR")
                     isCurrentlySpeaking = false
-                    currentSbnKey = null
+                    currentSbnKeys = emptySet()
                     unregisterShakeListener()
                     restoreGlobalVoiceSettingsIfNeeded("speak() error")
                     releaseSpeechWakeLock()
@@ -7394,6 +7300,8 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 
                 // Ensure we have audio focus to duck the car's music
                 requestSpeechAudioFocus(AudioManager.AUDIOFOCUS_GAIN_TRANSIENT_MAY_DUCK)
+                // Drop a link still lingering from before Android Auto connected
+                scoAudioManager.cleanupSco(this, audioManager)
                 
                 playAction()
             } else {
@@ -7607,7 +7515,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
 
         val selectedVoiceName = override.voiceName?.trim().orEmpty()
         if (selectedVoiceName.isNotEmpty()) {
-            val matchingVoice = tts.voices?.firstOrNull { it.name == selectedVoiceName }
+            val matchingVoice = TtsCatalog.getVoices(tts).voiceByName(selectedVoiceName)
             if (matchingVoice != null) {
                 val voiceResult = tts.setVoice(matchingVoice)
                 InAppLogger.log(
@@ -7662,11 +7570,24 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 Log.d(TAG, "Skip repeated prefix notification setting updated: $skipRepeatedNotificationPrefix")
                 InAppLogger.log("Service", "Skip repeated prefix notification setting updated: $skipRepeatedNotificationPrefix")
             }
+            KEY_BURST_COALESCING_ENABLED -> {
+                burstCoalescingEnabled = sharedPreferences?.getBoolean(KEY_BURST_COALESCING_ENABLED, false) ?: false
+                if (!burstCoalescingEnabled) {
+                    // Release anything still held rather than dropping it
+                    burstCoalescer.flushAll()
+                }
+                Log.d(TAG, "Burst coalescing setting updated: $burstCoalescingEnabled")
+                InAppLogger.log("Service", "Burst coalescing setting updated: $burstCoalescingEnabled")
+            }
             KEY_PREFIX_MEMORY_TIMEOUT -> {
                 prefixMemoryTimeoutSeconds = sharedPreferences?.getInt(KEY_PREFIX_MEMORY_TIMEOUT, 60) ?: 60
                 Log.d(TAG, "Prefix memory timeout setting updated: $prefixMemoryTimeoutSeconds")
                 InAppLogger.log("Service", "Prefix memory timeout setting updated: $prefixMemoryTimeoutSeconds")
             }
+            KEY_QUEUE_MAX_AGE_SECONDS -> {
+                applyQueueMaxAge()
+                InAppLogger.log("Service", "Queued readout max age updated")
+            }
             KEY_MEDIA_BEHAVIOR, KEY_DUCKING_VOLUME, KEY_DUCKING_FALLBACK_STRATEGY -> {
                 // Reload media behavior settings
                 mediaBehavior = sharedPreferences?.getString(KEY_MEDIA_BEHAVIOR, "ignore") ?: "ignore"
@@ -7698,6 +7619,11 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                 Log.d(TAG, "Tidy speech setting updated: removeEmojis=$tidySpeechRemoveEmojisEnabled")
                 InAppLogger.log("Service", "Tidy speech setting updated: removeEmojis=$tidySpeechRemoveEmojisEnabled")
             }
+            KEY_TIDY_SPEECH_SAY_EMOJI -> {
+                tidySpeechSayEmojiEnabled = sharedPreferences?.getBoolean(KEY_TIDY_SPEECH_SAY_EMOJI, false) ?: false
+                Log.d(TAG, "Tidy speech setting updated: sayEmoji=$tidySpeechSayEmojiEnabled")
+                InAppLogger.log("Service", "Tidy speech setting updated: sayEmoji=$tidySpeechSayEmojiEnabled")
+            }
             KEY_TIDY_SPEECH_FORCE_LOWERCASE -> {
                 tidySpeechForceLowercaseEnabled = sharedPreferences?.getBoolean(KEY_TIDY_SPEECH_FORCE_LOWERCASE, false) ?: false
                 Log.d(TAG, "Tidy speech setting updated: forceLowercase=$tidySpeechForceLowercaseEnabled")
@@ -7799,7 +7725,8 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
                     if (isCurrentlySpeaking) {
                         stopSpeaking("master switch")
                     } else {
-                        notificationQueue.clear()
+                        onSpeechScheduler { speechScheduler.clear() }
+                        burstCoalescer.clear()
                         pendingReadoutRunnable?.let { runnable ->
                             delayHandler?.removeCallbacks(runnable)
                             pendingReadoutRunnable = null
@@ -7839,8 +7766,7 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             }
             PREF_SPEAKTHAT_CLOCK_INTERVAL_MINUTES -> {
                 val enabled = sharedPreferences?.getBoolean(PREF_SPEAKTHAT_CLOCK_ENABLED, false) ?: false
-                val precision = sharedPreferences?.getBoolean(PREF_SPEAKTHAT_CLOCK_PRECISION_MODE, false) ?: false
-                if (enabled && precision) {
+                if (enabled && clockAlarmReceiverRegistered) {
                     cancelSpeakThatClockAlarm()
                     scheduleNextClockAlarm()
                 }
@@ -7852,50 +7778,6 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         }
     }
 
-    private fun matchesWordFilter(text: String, word: String): Boolean {
-        return text.contains(word, ignoreCase = true)
-    }
-
-    private fun isSpokenEmojiCodePoint(codePoint: Int): Boolean {
-        return UCharacter.hasBinaryProperty(codePoint, UProperty.EXTENDED_PICTOGRAPHIC) ||
-            UCharacter.hasBinaryProperty(codePoint, UProperty.EMOJI_PRESENTATION) ||
-            UCharacter.hasBinaryProperty(codePoint, UProperty.EMOJI_MODIFIER) ||
-            UCharacter.hasBinaryProperty(codePoint, UProperty.EMOJI_MODIFIER_BASE) ||
-            UCharacter.hasBinaryProperty(codePoint, UProperty.REGIONAL_INDICATOR)
-    }
-
-    private fun isEmojiSequenceControl(codePoint: Int): Boolean {
-        return codePoint == 0x200D || // ZERO WIDTH JOINER
-            codePoint == 0xFE0F ||    // VARIATION SELECTOR-16
-            codePoint == 0xFE0E       // VARIATION SELECTOR-15
-    }
-
-    private fun removeSpokenEmojis(text: String): String {
-        var index = 0
-        var hasEmoji = false
-        while (index < text.length) {
-            val codePoint = text.codePointAt(index)
-            if (isSpokenEmojiCodePoint(codePoint) || isEmojiSequenceControl(codePoint)) {
-                hasEmoji = true
-                break
-            }
-            index += Character.charCount(codePoint)
-        }
-        if (!hasEmoji) {
-            return text
-        }
-        val builder = StringBuilder(text.length)
-        index = 0
-        while (index < text.length) {
-            val codePoint = text.codePointAt(index)
-            if (!isSpokenEmojiCodePoint(codePoint) && !isEmojiSequenceControl(codePoint)) {
-                builder.appendCodePoint(codePoint)
-            }
-            index += Character.charCount(codePoint)
-        }
-        return builder.toString()
-    }
-    
     private fun isEffectivelyEmpty(text: String): Boolean {
         if (text.isBlank()) return true
         
@@ -7921,20 +7803,37 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
         sbn: StatusBarNotification?,
         speechTemplateOverride: SpeechTemplateOverride? = null
     ): String {
-        // Get current time and date
-        val time = android.text.format.DateFormat.getTimeFormat(this).format(Date())
-        val date = SimpleDateFormat("MMMM dd", Locale.getDefault()).format(Date())
-        val timestamp = "$time $date"
+        // Handle template localization + varied/custom modes
+        val templateToUse = resolveSpeechTemplateForPlayback(speechTemplateOverride)
         
-        // Handle app name with custom names and privacy settings
-        val appDisplayName = when {
-            privateApps.contains(packageName) -> "An app"
-            else -> getCustomAppName(packageName) ?: appName
+        // Time, date and notification metadata are only worked out when the template uses them
+        val time by lazy { android.text.format.DateFormat.getTimeFormat(this).format(Date()) }
+        val date by lazy { SimpleDateFormat("MMMM dd", Locale.getDefault()).format(Date()) }
+        
+        return SpeechTemplateFormatter.format(templateToUse) { name ->
+            when (name) {
+                // Handle app name with custom names and privacy settings
+                "app" -> if (privateApps.contains(packageName)) "An app" else getCustomAppName(packageName) ?: appName
+                "package" -> packageName
+                "content", "title", "text", "subtext", "bigtext", "summary", "info", "ticker" -> processedBlocks[name] ?: ""
+                "time" -> time
+                "date" -> date
+                "timestamp" -> "$time $date"
+                "priority" -> notificationPriorityLabel(sbn)
+                "category" -> sbn?.notification?.category ?: "Unknown"
+                "channel" -> if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
+                    sbn?.notification?.channelId ?: "Unknown"
+                } else {
+                    "Unknown"
+                }
+                else -> null
+            }
         }
-        
-        // Get notification metadata
+    }
+
+    private fun notificationPriorityLabel(sbn: StatusBarNotification?): String {
         @Suppress("DEPRECATION")
-        val priority = when (sbn?.notification?.let { getPriorityLegacy(it) } ?: Notification.PRIORITY_DEFAULT) {
+        return when (sbn?.notification?.let { getPriorityLegacy(it) } ?: Notification.PRIORITY_DEFAULT) {
             Notification.PRIORITY_MIN -> "Min"
             Notification.PRIORITY_LOW -> "Low"
             Notification.PRIORITY_DEFAULT -> "Default"
@@ -7942,39 +7841,6 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
             Notification.PRIORITY_MAX -> "Max"
             else -> "Default"
         }
-        
-        val category = sbn?.notification?.category ?: "Unknown"
-        val channel = if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
-            sbn?.notification?.channelId ?: "Unknown"
-        } else {
-            "Unknown"
-        }
-        
-        // Handle template localization + varied/custom modes
-        val templateToUse = resolveSpeechTemplateForPlayback(speechTemplateOverride)
-        
-        // Process the template with all available placeholders
-        var processedTemplate = templateToUse
-            .replace("{app}", appDisplayName)
-            .replace("{package}", packageName)
-            .replace("{content}", processedBlocks["content"] ?: "")
-            .replace("{title}", processedBlocks["title"] ?: "")
-            .replace("{text}", processedBlocks["text"] ?: "")
-            .replace("{subtext}", processedBlocks["subtext"] ?: "")
-            .replace("{bigtext}", processedBlocks["bigtext"] ?: "")
-            .replace("{summary}", processedBlocks["summary"] ?: "")
-            .replace("{info}", processedBlocks["info"] ?: "")
-            .replace("{ticker}", processedBlocks["ticker"] ?: "")
-            .replace("{time}", time)
-            .replace("{date}", date)
-            .replace("{timestamp}", timestamp)
-            .replace("{priority}", priority)
-            .replace("{category}", category)
-            .replace("{channel}", channel)
-        
-
-        
-        return processedTemplate.trim()
     }
 
     // Skip Repeated Notification Prefix added by RoboMWM
@@ -8133,51 +7999,35 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     }
     
     private fun extractRequestedContentBlocks(
-        notification: Notification,
-        packageNameForLog: String,
-        requiredBlocks: Set<String>
+        parsed: ParsedNotification,
+        requiredBlocks: Set<String>,
+        messagingUpdate: MessagingUpdate? = null
     ): Map<String, String> {
         val extractedBlocks = mutableMapOf<String, String>()
-        val safePackageName = packageNameForLog
         
-        try {
-            val extras = notification.extras
-            val rawTitle = extras?.getCharSequence(Notification.EXTRA_TITLE)?.toString() ?: ""
-            val rawText = extras?.getCharSequence(Notification.EXTRA_TEXT)?.toString() ?: ""
-            val rawBigText = extras?.getCharSequence(Notification.EXTRA_BIG_TEXT)?.toString() ?: ""
-            val rawSubText = extras?.getCharSequence(Notification.EXTRA_SUB_TEXT)?.toString() ?: ""
-            val rawSummaryText = extras?.getCharSequence(Notification.EXTRA_SUMMARY_TEXT)?.toString() ?: ""
-            val rawInfoText = extras?.getCharSequence(Notification.EXTRA_INFO_TEXT)?.toString() ?: ""
-            val rawTickerText = notification.tickerText?.toString() ?: ""
-            
-            if (requiredBlocks.contains("title")) extractedBlocks["title"] = rawTitle
-            if (requiredBlocks.contains("text")) extractedBlocks["text"] = rawText
-            if (requiredBlocks.contains("subtext")) extractedBlocks["subtext"] = rawSubText
-            if (requiredBlocks.contains("bigtext")) extractedBlocks["bigtext"] = rawBigText
-            if (requiredBlocks.contains("summary")) extractedBlocks["summary"] = rawSummaryText
-            if (requiredBlocks.contains("info")) extractedBlocks["info"] = rawInfoText
-            if (requiredBlocks.contains("ticker")) extractedBlocks["ticker"] = rawTickerText
+        if (parsed.extrasReadable) {
+            if (requiredBlocks.contains("title")) extractedBlocks["title"] = parsed.title
+            if (requiredBlocks.contains("text")) extractedBlocks["text"] = parsed.text
+            if (requiredBlocks.contains("subtext")) extractedBlocks["subtext"] = parsed.subText
+            if (requiredBlocks.contains("bigtext")) extractedBlocks["bigtext"] = parsed.bigText
+            if (requiredBlocks.contains("summary")) extractedBlocks["summary"] = parsed.summaryText
+            if (requiredBlocks.contains("info")) extractedBlocks["info"] = parsed.infoText
+            if (requiredBlocks.contains("ticker")) extractedBlocks["ticker"] = parsed.tickerText
             
             // Handle composite {content} block explicitly by using original logic
             if (requiredBlocks.contains("content")) {
-                extractedBlocks["content"] = extractNotificationText(notification, safePackageName)
+                extractedBlocks["content"] = messagingUpdate?.content ?: extractNotificationText(parsed)
             }
-        } catch (e: Exception) {
-            val fallbackMessage = "Failed to unparcel extras for $safePackageName - using fallback"
-            Log.w(TAG, "$fallbackMessage (${e.javaClass.simpleName}: ${e.message})", e)
-            InAppLogger.logWarning("Development", fallbackMessage)
-            
-            val tickerFallback = try {
-                notification.tickerText?.toString()?.trim().orEmpty()
-            } catch (tickerException: Exception) {
-                Log.w(TAG, "tickerText fallback failed for $safePackageName", tickerException)
-                InAppLogger.logWarning("Development", "tickerText fallback failed for $safePackageName - returning empty text")
-                ""
+
+            // Chat updates: the text blocks hold only the new messages, not the whole conversation
+            if (messagingUpdate != null) {
+                if (requiredBlocks.contains("text")) extractedBlocks["text"] = messagingUpdate.body
+                if (requiredBlocks.contains("bigtext")) extractedBlocks["bigtext"] = messagingUpdate.body
             }
-            
-            // Populate all required blocks with the fallback if parsing fails
+        } else {
+            // Populate all required blocks with the ticker fallback if the extras could not be read
+            val fallbackToUse = maybeBlankClockFiringFallback(parsed.tickerText.trim(), parsed)
             requiredBlocks.forEach { block ->
-                val fallbackToUse = maybeBlankClockFiringFallback(tickerFallback, notification, safePackageName)
                 extractedBlocks[block] = fallbackToUse
             }
         }
@@ -8465,7 +8315,8 @@ class NotificationReaderService : NotificationListenerService(), TextToSpeech.On
     private fun stopTts() {
         try {
             // Clear notification queue
-            notificationQueue.clear()
+            onSpeechScheduler { speechScheduler.clear() }
+            burstCoalescer.clear()
             
             // Stop current TTS
             textToSpeech?.stop()
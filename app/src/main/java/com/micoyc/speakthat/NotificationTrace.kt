@@ -0,0 +1,279 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
+import com.google.gson.stream.JsonWriter
+import com.micoyc.speakthat.text.DedupKeys
+import java.io.IOException
+import java.io.Reader
+import java.io.Writer
+
+/**
+ * Notifications as they arrived at the listener, recorded so their arrival pattern (group child
+ * reposts, apps that update every second, media sessions) can be replayed off the device.
+ *
+ * A trace is one JSON object:
+ * ```
+ * {"format": "speakthat-notification-trace", "version": 1, "redacted": false,
+ *  "events": [{"at": 0, "package": "com.whatsapp", "key": "0|com.whatsapp|1|null|10245", "id": 1,
+ *              "postTime": -40, "flags": 16, "category": "msg", "channel": "...", "group": "...",
+ *              "template": "android.app.Notification$MessagingStyle", "title": "...", "text": "...",
+ *              "messages": [{"sender": "Sam", "text": "...", "time": -40}], ...}]}
+ * ```
+ * Times are in ms relative to the first arrival (`at`), so no absolute timestamps are exported.
+ * Empty text fields and false flags are left out. [Event.notification] is the [ParsedNotification]
+ * the service built at ingest, so a replay runs the same stages on the same values.
+ *
+ * Redacting replaces each distinct text with `[n] ` followed by its shape: letters become `x`,
+ * digits `0`, while spaces and punctuation stay. Texts that were equal after the normalisation
+ * the dedup keys use get the same `n`, so deduplication behaves as it did; word filters, of
+ * course, no longer match. Keys and group names are redacted the same way, as they can carry
+ * account names.
+ */
+object NotificationTrace {
+
+    const val FORMAT = "speakthat-notification-trace"
+    const val VERSION = 1
+
+    /** [arrivedAt] is when the listener received [notification], on the same clock as its post time. */
+    class Event(val arrivedAt: Long, val notification: ParsedNotification)
+
+    class Trace(val events: List<Event>, val redacted: Boolean)
+
+    @Throws(IOException::class)
+    fun write(events: List<Event>, out: Writer, redact: Boolean) {
+        val origin = events.firstOrNull()?.arrivedAt ?: 0L
+        val redactor = if (redact) Redactor() else null
+        fun text(value: String): String = redactor?.redact(value) ?: value
+        fun optional(value: String?): String? = if (value == null) null else text(value)
+
+        val json = JsonWriter(out)
+        json.beginObject()
+        json.name("format").value(FORMAT)
+        json.name("version").value(VERSION.toLong())
+        json.name("redacted").value(redact)
+        json.name("events").beginArray()
+        for (event in events) {
+            val n = event.notification
+            json.beginObject()
+            json.name("at").value(event.arrivedAt - origin)
+            json.name("package").value(n.packageName)
+            optional(n.key)?.let { json.name("key").value(it) }
+            json.name("id").value(n.id.toLong())
+            json.name("postTime").value(n.postTime - origin)
+            json.name("flags").value(n.flags.toLong())
+            n.category?.let { json.name("category").value(it) }
+            n.channelId?.let { json.name("channel").value(it) }
+            optional(n.group)?.let { json.name("group").value(it) }
+            n.template?.let { json.name("template").value(it) }
+            writeText(json, "title", text(n.title))
+            writeText(json, "text", text(n.text))
+            writeText(json, "bigText", text(n.bigText))
+            writeText(json, "subText", text(n.subText))
+            writeText(json, "summaryText", text(n.summaryText))
+            writeText(json, "infoText", text(n.infoText))
+            writeText(json, "tickerText", text(n.tickerText))
+            writeText(json, "conversationTitle", text(n.conversationTitle))
+            if (n.actionTitles.isNotEmpty()) {
+                // Button labels are the app's own wording, and clock fallbacks read them
+                json.name("actions").beginArray()
+                n.actionTitles.forEach { json.value(it) }
+                json.endArray()
+            }
+            writeFlag(json, "messagingStyle", n.isMessagingStyle)
+            writeFlag(json, "selfTest", n.isSelfTest)
+            writeFlag(json, "fullScreenIntent", n.hasFullScreenIntent)
+            writeFlag(json, "mediaSession", n.hasMediaSession)
+            writeFlag(json, "seekbar", n.hasSeekbar)
+            if (!n.extrasReadable) json.name("extrasReadable").value(false)
+            n.conversation?.let { conversation ->
+                optional(conversation.title)?.let { json.name("conversation").value(it) }
+                writeFlag(json, "groupConversation", conversation.isGroup)
+                json.name("messages").beginArray()
+                for (message in conversation.messages) {
+                    json.beginObject()
+                    optional(message.sender)?.let { json.name("sender").value(it) }
+                    json.name("text").value(text(message.text))
+                    json.name("time").value(message.timestamp - origin)
+                    if (message.fromSelf) json.name("fromSelf").value(true)
+                    json.endObject()
+                }
+                json.endArray()
+            }
+            json.endObject()
+        }
+        json.endArray()
+        json.endObject()
+        json.flush()
+    }
+
+    /** Reads a trace written by [write]; times come back relative to the first arrival. */
+    @Throws(IOException::class)
+    fun read(source: Reader): Trace {
+        val reader = JsonReader(source)
+        val events = ArrayList<Event>()
+        var format: String? = null
+        var redacted = false
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "format" -> format = reader.nextString()
+                "version" -> {
+                    val version = reader.nextInt()
+                    if (version > VERSION) throw IOException("Unsupported trace version $version")
+                }
+                "redacted" -> redacted = reader.nextBoolean()
+                "events" -> {
+                    reader.beginArray()
+                    while (reader.hasNext()) events.add(readEvent(reader))
+                    reader.endArray()
+                }
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+        if (format != FORMAT) throw IOException("Not a notification trace")
+        return Trace(events, redacted)
+    }
+
+    private fun readEvent(reader: JsonReader): Event {
+        var at = 0L
+        var packageName = ""
+        var key: String? = null
+        var id = 0
+        var postTime = 0L
+        var flags = 0
+        var category: String? = null
+        var channel: String? = null
+        var group: String? = null
+        var template: String? = null
+        val texts = HashMap<String, String>()
+        val actions = ArrayList<String>()
+        val booleans = HashMap<String, Boolean>()
+        var conversationTitle: String? = null
+        var messages: MutableList<MessagingStyleTracker.Message>? = null
+
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (val name = reader.nextName()) {
+                "at" -> at = reader.nextLong()
+                "package" -> packageName = reader.nextString()
+                "key" -> key = reader.nextString()
+                "id" -> id = reader.nextInt()
+                "postTime" -> postTime = reader.nextLong()
+                "flags" -> flags = reader.nextInt()
+                "category" -> category = reader.nextString()
+                "channel" -> channel = reader.nextString()
+                "group" -> group = reader.nextString()
+                "template" -> template = reader.nextString()
+                "title", "text", "bigText", "subText", "summaryText", "infoText", "tickerText",
+                "conversationTitle" -> texts[name] = reader.nextString()
+                "actions" -> {
+                    reader.beginArray()
+                    while (reader.hasNext()) actions.add(reader.nextString())
+                    reader.endArray()
+                }
+                "conversation" -> conversationTitle = reader.nextString()
+                "messages" -> {
+                    val list = ArrayList<MessagingStyleTracker.Message>()
+                    reader.beginArray()
+                    while (reader.hasNext()) list.add(readMessage(reader))
+                    reader.endArray()
+                    messages = list
+                }
+                else -> if (reader.peek() == JsonToken.BOOLEAN) booleans[name] = reader.nextBoolean() else reader.skipValue()
+            }
+        }
+        reader.endObject()
+
+        val conversation = messages?.let {
+            MessagingStyleTracker.Conversation(conversationTitle, booleans["groupConversation"] == true, it)
+        }
+        return Event(
+            at,
+            ParsedNotification(
+                packageName = packageName,
+                key = key,
+                id = id,
+                postTime = postTime,
+                title = texts["title"].orEmpty(),
+                text = texts["text"].orEmpty(),
+                bigText = texts["bigText"].orEmpty(),
+                subText = texts["subText"].orEmpty(),
+                summaryText = texts["summaryText"].orEmpty(),
+                infoText = texts["infoText"].orEmpty(),
+                tickerText = texts["tickerText"].orEmpty(),
+                conversationTitle = texts["conversationTitle"].orEmpty(),
+                template = template,
+                isMessagingStyle = booleans["messagingStyle"] == true,
+                isSelfTest = booleans["selfTest"] == true,
+                flags = flags,
+                category = category,
+                channelId = channel,
+                group = group,
+                hasFullScreenIntent = booleans["fullScreenIntent"] == true,
+                actionTitles = actions,
+                hasMediaSession = booleans["mediaSession"] == true,
+                hasSeekbar = booleans["seekbar"] == true,
+                conversation = conversation,
+                extrasReadable = booleans["extrasReadable"] != false
+            )
+        )
+    }
+
+    private fun readMessage(reader: JsonReader): MessagingStyleTracker.Message {
+        var sender: String? = null
+        var text = ""
+        var time = 0L
+        var fromSelf = false
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "sender" -> sender = reader.nextString()
+                "text" -> text = reader.nextString()
+                "time" -> time = reader.nextLong()
+                "fromSelf" -> fromSelf = reader.nextBoolean()
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+        return MessagingStyleTracker.Message(sender, text, time, fromSelf)
+    }
+
+    private fun writeText(json: JsonWriter, name: String, value: String) {
+        if (value.isNotEmpty()) json.name(name).value(value)
+    }
+
+    private fun writeFlag(json: JsonWriter, name: String, value: Boolean) {
+        if (value) json.name(name).value(true)
+    }
+
+    /** Numbers each distinct text (as the dedup keys normalise it) and keeps only its shape. */
+    private class Redactor {
+        private val numbers = HashMap<String, Int>()
+
+        fun redact(value: String): String {
+            if (value.isEmpty()) return value
+            val normalized = DedupKeys.collapseWhitespace(value.trim()).lowercase()
+            val number = numbers.getOrPut(normalized) { numbers.size + 1 }
+            val out = StringBuilder(value.length + 6).append('[').append(number).append("] ")
+            for (c in value) {
+                out.append(
+                    when {
+                        Character.isLetter(c) -> 'x'
+                        Character.isDigit(c) -> '0'
+                        else -> c
+                    }
+                )
+            }
+            return out.toString()
+        }
+    }
+}
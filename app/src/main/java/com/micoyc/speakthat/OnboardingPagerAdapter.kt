@@ -376,46 +376,17 @@ class OnboardingPagerAdapter(
                     // Input is not a package name, try to find by app name
                     InAppLogger.log("OnboardingAppSelector", "Input '$input' is not a package name, searching by app name...")
                     
-                    // Query for all launchable apps
-                    val mainIntent = android.content.Intent(android.content.Intent.ACTION_MAIN, null)
-                    mainIntent.addCategory(android.content.Intent.CATEGORY_LAUNCHER)
-                    
-                    val resolveInfoList = packageManager.queryIntentActivities(mainIntent, 0)
-                    
-                    for (resolveInfo in resolveInfoList) {
-                        try {
-                            val packageName = resolveInfo.activityInfo.packageName
-                            val appName = resolveInfo.loadLabel(packageManager).toString()
-                            
-                            // Skip our own app
-                            if (packageName == binding.root.context.packageName) {
-                                continue
-                            }
-                            
-                            // Check if this is actually a system app using ApplicationInfo flags
-                            try {
-                                val appInfo = packageManager.getApplicationInfo(packageName, 0)
-                                // Skip actual system apps (but allow user-installed apps even if they have system-like package names)
-                                if ((appInfo.flags and android.content.pm.ApplicationInfo.FLAG_SYSTEM) != 0 && 
-                                    (appInfo.flags and android.content.pm.ApplicationInfo.FLAG_UPDATED_SYSTEM_APP) == 0) {
-                                    // This is a true system app (not a user-installed update)
-                                    continue
-                                }
-                            } catch (e: Exception) {
-                                // If we can't get app info, skip it
-                                continue
-                            }
-                            
-                            // Check if app name matches input
-                            if (appName.equals(input, ignoreCase = true)) {
-                                packageNameToAdd = packageName
-                                InAppLogger.log("OnboardingAppSelector", "Found app match: '$input' -> $packageNameToAdd")
-                                break
-                            }
-                        } catch (e: Exception) {
-                            // Skip apps that can't be loaded
-                            continue
-                        }
+                    // Look the name up in the shared installed-app catalog (launchable, non-system apps)
+                    val ownPackage = binding.root.context.packageName
+                    val match = InstalledAppCatalog.search(binding.root.context, input).firstOrNull { entry ->
+                        entry.labelLower == input.trim().lowercase() &&
+                            entry.isLaunchable &&
+                            !entry.isPureSystemApp &&
+                            entry.packageName != ownPackage
+                    }
+                    if (match != null) {
+                        packageNameToAdd = match.packageName
+                        InAppLogger.log("OnboardingAppSelector", "Found app match: '$input' -> $packageNameToAdd")
                     }
                 }
                 
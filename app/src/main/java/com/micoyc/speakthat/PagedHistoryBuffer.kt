@@ -0,0 +1,115 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+import java.util.concurrent.CopyOnWriteArraySet
+
+/**
+ * A fixed-size ring of entries with increasing ids, read in pages and watched through listeners.
+ *
+ * Backs the in-app log and the notification history. Adding is O(1) with no copying, where the
+ * lists it replaced shifted or copied every entry on each add. Viewers load the newest page, page
+ * backwards by id as they scroll, and are pushed each new entry instead of reloading everything.
+ * Searches run over the buffer itself, so a viewer can filter on a background thread without
+ * holding the full list.
+ *
+ * Ids must increase with each [add]; [idOf] reads them from the entry.
+ */
+class PagedHistoryBuffer<T : Any>(
+    val capacity: Int,
+    private val idOf: (T) -> Long
+) {
+    fun interface Listener<T> {
+        /** Called on the thread that added [entry], after it is readable from the buffer. */
+        fun onAdded(entry: T)
+    }
+
+    private val ring = arrayOfNulls<Any>(capacity)
+    /** Index of the oldest entry. */
+    private var head = 0
+    private var count = 0
+    private val listeners = CopyOnWriteArraySet<Listener<T>>()
+
+    val size: Int
+        @Synchronized get() = count
+
+    fun add(entry: T) {
+        synchronized(this) {
+            ring[(head + count) % capacity] = entry
+            if (count < capacity) {
+                count++
+            } else {
+                head = (head + 1) % capacity
+            }
+        }
+        for (listener in listeners) listener.onAdded(entry)
+    }
+
+    @Synchronized
+    fun clear() {
+        ring.fill(null)
+        head = 0
+        count = 0
+    }
+
+    fun addListener(listener: Listener<T>) {
+        listeners.add(listener)
+    }
+
+    fun removeListener(listener: Listener<T>) {
+        listeners.remove(listener)
+    }
+
+    /** Every entry, oldest first. */
+    @Synchronized
+    fun oldestFirst(): List<T> = List(count) { get(it) }
+
+    /** Up to [limit] of the newest entries, newest first. */
+    fun newest(limit: Int, filter: ((T) -> Boolean)? = null): List<T> = page(Long.MAX_VALUE, limit, filter)
+
+    /** Up to [limit] entries older than [beforeId] that pass [filter], newest first. */
+    @Synchronized
+    fun page(beforeId: Long, limit: Int, filter: ((T) -> Boolean)? = null): List<T> {
+        val result = ArrayList<T>(minOf(limit, count))
+        var i = count - 1
+        while (i >= 0 && result.size < limit) {
+            val entry = get(i--)
+            if (idOf(entry) >= beforeId) continue
+            if (filter == null || filter(entry)) result.add(entry)
+        }
+        return result
+    }
+
+    /** Entries newer than [afterId] that pass [filter], oldest first. */
+    @Synchronized
+    fun after(afterId: Long, filter: ((T) -> Boolean)? = null): List<T> {
+        // Walk back to the first newer entry, then forward in order
+        var start = count
+        while (start > 0 && idOf(get(start - 1)) > afterId) start--
+        val result = ArrayList<T>(count - start)
+        for (i in start until count) {
+            val entry = get(i)
+            if (filter == null || filter(entry)) result.add(entry)
+        }
+        return result
+    }
+
+    @Synchronized
+    fun find(id: Long): T? {
+        for (i in count - 1 downTo 0) {
+            val entry = get(i)
+            val entryId = idOf(entry)
+            if (entryId == id) return entry
+            if (entryId < id) return null
+        }
+        return null
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun get(index: Int): T = ring[(head + index) % capacity] as T
+}
@@ -0,0 +1,176 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+import android.app.Notification
+import android.os.Build
+import android.service.notification.StatusBarNotification
+import android.util.Log
+
+/**
+ * Everything the pipeline reads from a posted notification, taken from its extras once.
+ *
+ * Each `extras.getCharSequence()` unparcels and each `toString()` copies, so the service builds
+ * one of these at ingest and every stage (filters, rules, history, media detection, the summary)
+ * reads from it instead of going back to [Notification.extras].
+ *
+ * If the extras cannot be unparcelled (a malformed or oversized Bundle) every text field is empty,
+ * [extrasReadable] is false and only [tickerText] is available as a fallback.
+ */
+data class ParsedNotification(
+    val packageName: String,
+    val key: String?,
+    val id: Int,
+    val postTime: Long,
+    val title: String = "",
+    val text: String = "",
+    val bigText: String = "",
+    val subText: String = "",
+    val summaryText: String = "",
+    val infoText: String = "",
+    val tickerText: String = "",
+    val conversationTitle: String = "",
+    val template: String? = null,
+    /** Carries `EXTRA_MESSAGES` or uses a MessagingStyle template. */
+    val isMessagingStyle: Boolean = false,
+    val isSelfTest: Boolean = false,
+    val flags: Int = 0,
+    val category: String? = null,
+    val channelId: String? = null,
+    val group: String? = null,
+    val hasFullScreenIntent: Boolean = false,
+    val actionTitles: List<String> = emptyList(),
+    /** Media session, controller or playback state extras are present. */
+    val hasMediaSession: Boolean = false,
+    /** Progress and a positive progress maximum are set, as on a media seekbar. */
+    val hasSeekbar: Boolean = false,
+    /** The messages of a MessagingStyle notification, oldest first. */
+    val conversation: MessagingStyleTracker.Conversation? = null,
+    val extrasReadable: Boolean = true
+) {
+    val isGroupSummary: Boolean get() = flags and Notification.FLAG_GROUP_SUMMARY != 0
+
+    val isOngoing: Boolean
+        get() = flags and Notification.FLAG_ONGOING_EVENT != 0 || flags and Notification.FLAG_NO_CLEAR != 0
+
+    val isForegroundService: Boolean get() = flags and Notification.FLAG_FOREGROUND_SERVICE != 0
+
+    /**
+     * The text a readout is built from: the title joined to the richest body field, or the ticker
+     * when the extras could not be read. Gmail-style "N new messages" bodies are skipped in favour
+     * of the message itself.
+     */
+    fun readoutText(): String {
+        if (!extrasReadable) return tickerText.trim()
+        val isGmailStyle = template?.contains("gmail") == true ||
+            title.contains("Gmail", ignoreCase = true) ||
+            summaryText.contains("new message", ignoreCase = true) ||
+            text.contains("new message", ignoreCase = true)
+        if (isGmailStyle) {
+            return when {
+                bigText.isNotEmpty() && !bigText.contains("new message", ignoreCase = true) -> bigText
+                text.isNotEmpty() && !text.contains("new message", ignoreCase = true) -> text
+                title.isNotEmpty() && text.isNotEmpty() -> {
+                    if (text.contains("new message", ignoreCase = true)) title else "$title: $text"
+                }
+                else -> bigText.ifEmpty { text.ifEmpty { title.ifEmpty { summaryText.ifEmpty { infoText } } } }
+            }
+        }
+        return when {
+            title.isNotEmpty() && bigText.isNotEmpty() -> "$title: $bigText"
+            title.isNotEmpty() && text.isNotEmpty() -> "$title: $text"
+            title.isNotEmpty() && summaryText.isNotEmpty() -> "$title: $summaryText"
+            title.isNotEmpty() && infoText.isNotEmpty() -> "$title: $infoText"
+            bigText.isNotEmpty() -> bigText
+            title.isNotEmpty() -> title
+            text.isNotEmpty() -> text
+            summaryText.isNotEmpty() -> summaryText
+            infoText.isNotEmpty() -> infoText
+            else -> ""
+        }
+    }
+
+    companion object {
+        private const val TAG = "ParsedNotification"
+
+        private val MEDIA_SESSION_KEYS = arrayOf("android.mediaSession", "android.mediaController", "android.playbackState")
+
+        @JvmStatic
+        fun from(sbn: StatusBarNotification): ParsedNotification =
+            from(sbn.notification, sbn.packageName, sbn.key, sbn.id, sbn.postTime)
+
+        @JvmStatic
+        fun from(
+            notification: Notification,
+            packageName: String,
+            key: String? = null,
+            id: Int = 0,
+            postTime: Long = System.currentTimeMillis()
+        ): ParsedNotification {
+            val base = ParsedNotification(
+                packageName = packageName,
+                key = key,
+                id = id,
+                postTime = postTime,
+                tickerText = readTicker(notification, packageName),
+                flags = notification.flags,
+                category = notification.category,
+                channelId = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) notification.channelId else null,
+                group = notification.group,
+                hasFullScreenIntent = notification.fullScreenIntent != null,
+                actionTitles = notification.actions?.mapNotNull { it.title?.toString() } ?: emptyList()
+            )
+            return try {
+                val extras = notification.extras ?: return base
+                val template = extras.getString(Notification.EXTRA_TEMPLATE)
+                val isMessagingStyle = extras.containsKey(Notification.EXTRA_MESSAGES) ||
+                    template?.endsWith("\$MessagingStyle") == true
+                base.copy(
+                    title = extras.getCharSequence(Notification.EXTRA_TITLE)?.toString() ?: "",
+                    text = extras.getCharSequence(Notification.EXTRA_TEXT)?.toString() ?: "",
+                    bigText = extras.getCharSequence(Notification.EXTRA_BIG_TEXT)?.toString() ?: "",
+                    subText = extras.getCharSequence(Notification.EXTRA_SUB_TEXT)?.toString() ?: "",
+                    summaryText = extras.getCharSequence(Notification.EXTRA_SUMMARY_TEXT)?.toString() ?: "",
+                    infoText = extras.getCharSequence(Notification.EXTRA_INFO_TEXT)?.toString() ?: "",
+                    conversationTitle = extras.getCharSequence(Notification.EXTRA_CONVERSATION_TITLE)?.toString() ?: "",
+                    template = template,
+                    isMessagingStyle = isMessagingStyle,
+                    isSelfTest = extras.getBoolean(SelfTestHelper.EXTRA_IS_SELFTEST, false),
+                    hasMediaSession = MEDIA_SESSION_KEYS.any { extras.containsKey(it) },
+                    hasSeekbar = extras.containsKey(Notification.EXTRA_PROGRESS) &&
+                        extras.getInt(Notification.EXTRA_PROGRESS_MAX, -1) > 0,
+                    conversation = if (isMessagingStyle) readConversation(notification, packageName) else null
+                )
+            } catch (e: Exception) {
+                val fallbackMessage = "Failed to unparcel extras for $packageName - using fallback"
+                Log.w(TAG, "$fallbackMessage (${e.javaClass.simpleName}: ${e.message})", e)
+                InAppLogger.logWarning("Development", fallbackMessage)
+                base.copy(extrasReadable = false)
+            }
+        }
+
+        private fun readTicker(notification: Notification, packageName: String): String {
+            return try {
+                notification.tickerText?.toString() ?: ""
+            } catch (e: Exception) {
+                Log.w(TAG, "tickerText read failed for $packageName", e)
+                ""
+            }
+        }
+
+        private fun readConversation(notification: Notification, packageName: String): MessagingStyleTracker.Conversation? {
+            return try {
+                MessagingStyleTracker.parse(notification)
+            } catch (e: Exception) {
+                Log.w(TAG, "Failed to read MessagingStyle messages from $packageName - using full text", e)
+                InAppLogger.logWarning("Development", "MessagingStyle parse failed for $packageName: ${e.message}")
+                null
+            }
+        }
+    }
+}
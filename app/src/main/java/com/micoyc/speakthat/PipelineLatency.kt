@@ -0,0 +1,179 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+import org.json.JSONObject
+import java.util.Locale
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Latency histograms for each stage a notification passes through on its way to being spoken, so
+ * "SpeakThat reads late" reports show where the time went.
+ *
+ * Recording is lock-free and allocation-free (a few atomic increments on preallocated arrays), so
+ * it stays on in production. Percentiles are read from the buckets, accurate to within 1/8 of the
+ * value. Counts live in memory only and start again with the process.
+ */
+object PipelineLatency {
+
+    enum class Stage(val key: String) {
+        /** From the listener callback until the processing coroutine picks the notification up. */
+        CHANNEL_WAIT("channel_wait"),
+        DEDUP("dedup"),
+        /** Smart Rules evaluation. */
+        RULES("rules"),
+        /** All of applyFilters, rules included. */
+        FILTERS("filters"),
+        /** Time a readout waited in the speech queue behind other readouts. */
+        QUEUE_WAIT("queue_wait"),
+        VOICE_SETTINGS("voice_settings"),
+        /** From speak() until the engine reports the utterance started. */
+        TTS_START("tts_start")
+    }
+
+    private val stages = Stage.values()
+    private val histograms = Array(stages.size) { Histogram() }
+
+    /** Records the time since [startNanos], a [System.nanoTime] reading. */
+    @JvmStatic
+    fun recordSince(stage: Stage, startNanos: Long) {
+        histograms[stage.ordinal].record((System.nanoTime() - startNanos) / 1_000L)
+    }
+
+    @JvmStatic
+    fun recordMillis(stage: Stage, millis: Long) {
+        histograms[stage.ordinal].record(millis * 1_000L)
+    }
+
+    @JvmStatic
+    fun histogram(stage: Stage): Histogram = histograms[stage.ordinal]
+
+    @JvmStatic
+    fun toJson(): JSONObject {
+        val json = JSONObject()
+        for (stage in stages) {
+            val histogram = histograms[stage.ordinal]
+            json.put(
+                stage.key,
+                JSONObject()
+                    .put("count", histogram.count())
+                    .put("p50_us", histogram.percentileMicros(50.0))
+                    .put("p95_us", histogram.percentileMicros(95.0))
+                    .put("p99_us", histogram.percentileMicros(99.0))
+                    .put("max_us", histogram.maxMicros())
+            )
+        }
+        return json
+    }
+
+    /** One line per stage with samples, e.g. `dedup  p50 0.04  p95 0.11  p99 0.30 ms  (n=812)`. */
+    @JvmStatic
+    fun summary(): String {
+        val lines = ArrayList<String>()
+        for (stage in stages) {
+            val histogram = histograms[stage.ordinal]
+            val count = histogram.count()
+            if (count == 0L) continue
+            lines.add(
+                String.format(
+                    Locale.US,
+                    "%-14s p50 %s  p95 %s  p99 %s ms  (n=%d)",
+                    stage.key,
+                    formatMillis(histogram.percentileMicros(50.0)),
+                    formatMillis(histogram.percentileMicros(95.0)),
+                    formatMillis(histogram.percentileMicros(99.0)),
+                    count
+                )
+            )
+        }
+        return lines.joinToString("\n")
+    }
+
+    @JvmStatic
+    fun reset() {
+        histograms.forEach { it.reset() }
+    }
+
+    private fun formatMillis(micros: Long): String = when {
+        micros < 10_000L -> String.format(Locale.US, "%.2f", micros / 1000.0)
+        micros < 100_000L -> String.format(Locale.US, "%.1f", micros / 1000.0)
+        else -> (micros / 1000L).toString()
+    }
+
+    /**
+     * Log-linear histogram of microsecond values: exact below 8, then 8 buckets per power of two
+     * up to about 70 minutes; anything longer lands in the last bucket.
+     */
+    class Histogram {
+        private companion object {
+            const val SUB_BITS = 3
+            const val SUB_BUCKETS = 1 shl SUB_BITS
+            const val MAX_EXPONENT = 31
+            const val BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) shl SUB_BITS
+
+            const val COUNT = 0
+            const val MAX = 1
+
+            fun bucketOf(micros: Long): Int {
+                if (micros < SUB_BUCKETS) return micros.toInt()
+                val exponent = 63 - java.lang.Long.numberOfLeadingZeros(micros)
+                if (exponent > MAX_EXPONENT) return BUCKETS - 1
+                val sub = ((micros ushr (exponent - SUB_BITS)) and (SUB_BUCKETS - 1).toLong()).toInt()
+                return ((exponent - SUB_BITS + 1) shl SUB_BITS) + sub
+            }
+
+            /** The largest value that falls in [bucket]. */
+            fun upperBound(bucket: Int): Long {
+                if (bucket < SUB_BUCKETS) return bucket.toLong()
+                val exponent = (bucket shr SUB_BITS) + SUB_BITS - 1
+                val sub = bucket and (SUB_BUCKETS - 1)
+                return ((SUB_BUCKETS + sub + 1).toLong() shl (exponent - SUB_BITS)) - 1
+            }
+        }
+
+        private val counts = AtomicLongArray(BUCKETS)
+        private val totals = AtomicLongArray(2)
+
+        fun record(micros: Long) {
+            val value = if (micros < 0L) 0L else micros
+            counts.incrementAndGet(bucketOf(value))
+            totals.incrementAndGet(COUNT)
+            var max = totals.get(MAX)
+            while (value > max && !totals.compareAndSet(MAX, max, value)) {
+                max = totals.get(MAX)
+            }
+        }
+
+        fun count(): Long = totals.get(COUNT)
+
+        fun maxMicros(): Long = totals.get(MAX)
+
+        /**
+         * The upper bound of the bucket holding the [percentile] (0-100) sample, capped at the
+         * largest value seen (which the last bucket reports); 0 when nothing was recorded. Safe to call while others record.
+         */
+        fun percentileMicros(percentile: Double): Long {
+            var total = 0L
+            for (i in 0 until BUCKETS) total += counts.get(i)
+            if (total == 0L) return 0L
+            val rank = maxOf(1L, Math.ceil(total * percentile / 100.0).toLong())
+            var seen = 0L
+            for (i in 0 until BUCKETS) {
+                seen += counts.get(i)
+                if (seen >= rank) return if (i == BUCKETS - 1) maxMicros() else minOf(upperBound(i), maxMicros())
+            }
+            return maxMicros()
+        }
+
+        fun reset() {
+            for (i in 0 until BUCKETS) counts.set(i, 0L)
+            totals.set(COUNT, 0L)
+            totals.set(MAX, 0L)
+        }
+    }
+}
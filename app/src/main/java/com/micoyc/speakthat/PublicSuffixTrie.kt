@@ -0,0 +1,194 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+import android.content.Context
+import android.util.Log
+import java.io.DataInputStream
+import java.io.IOException
+import java.io.InputStream
+import java.util.Locale
+
+/**
+ * Public Suffix List rules as a trie of domain labels, walked from the TLD inwards to find the
+ * registrable domain of a host ("news.bbc.co.uk" -> "bbc.co.uk", "user.github.io" stays whole).
+ *
+ * Normally decoded from `public_suffix.trie`, which the `generatePublicSuffixTrie` build task
+ * compiles from `src/main/publicsuffix/public_suffix_list.dat` (see app/build.gradle.kts for the
+ * writer). Layout, big-endian:
+ *
+ * ```
+ * int magic "STPS", int version
+ * int nodeCount
+ * nodeCount x { utf label, byte flags, int firstChild, short childCount }
+ * ```
+ *
+ * Node 0 is the root and its children are TLDs. Nodes are stored breadth-first, so the children of
+ * a node are contiguous and sorted by label. Flags: 1 = a rule ends at this node, 2 = an exception
+ * rule ("!") ends here. A wildcard rule ("*.ck") is a child labelled "*".
+ *
+ * [fromRules] builds the same structure from list text; it is used by tests. Without the asset the
+ * list's implicit "*" rule still applies, which treats every TLD as a one-label suffix.
+ */
+class PublicSuffixTrie private constructor(
+    private val labels: Array<String>,
+    private val flags: ByteArray,
+    private val firstChild: IntArray,
+    private val childCount: IntArray
+) {
+    companion object {
+        const val MAGIC = 0x53545053 // "STPS"
+        const val VERSION = 1
+        const val FLAG_RULE = 1
+        const val FLAG_EXCEPTION = 2
+        private const val WILDCARD = "*"
+        private const val TAG = "PublicSuffixTrie"
+        private const val ASSET_FILE = "public_suffix.trie"
+
+        @Volatile
+        private var shared: PublicSuffixTrie? = null
+
+        /** The bundled list, decoded on first use. */
+        @JvmStatic
+        fun get(context: Context): PublicSuffixTrie {
+            shared?.let { return it }
+            synchronized(this) {
+                shared?.let { return it }
+                val started = System.currentTimeMillis()
+                val loaded = try {
+                    context.assets.open(ASSET_FILE).use { read(it) }
+                } catch (e: Exception) {
+                    Log.w(TAG, "Public suffix trie unavailable (${e.message}), using TLD-only rule")
+                    InAppLogger.logWarning(TAG, "Public suffix trie unavailable: ${e.message}")
+                    fromRules(emptySequence())
+                }
+                Log.d(TAG, "Loaded ${loaded.size} public suffix nodes in ${System.currentTimeMillis() - started}ms")
+                shared = loaded
+                return loaded
+            }
+        }
+
+        @Throws(IOException::class)
+        fun read(input: InputStream): PublicSuffixTrie {
+            val data = DataInputStream(input.buffered())
+            if (data.readInt() != MAGIC) throw IOException("Not a public suffix trie")
+            val version = data.readInt()
+            if (version != VERSION) throw IOException("Unsupported public suffix trie version $version")
+
+            val count = data.readInt()
+            val labels = arrayOfNulls<String>(count)
+            val flags = ByteArray(count)
+            val firstChild = IntArray(count)
+            val childCount = IntArray(count)
+            for (i in 0 until count) {
+                labels[i] = data.readUTF()
+                flags[i] = data.readByte()
+                firstChild[i] = data.readInt()
+                childCount[i] = data.readUnsignedShort()
+            }
+            @Suppress("UNCHECKED_CAST")
+            return PublicSuffixTrie(labels as Array<String>, flags, firstChild, childCount)
+        }
+
+        /** Build the trie from lines in `public_suffix_list.dat` format. */
+        fun fromRules(lines: Sequence<String>): PublicSuffixTrie {
+            class Node(val label: String) {
+                var flags = 0
+                val children = sortedMapOf<String, Node>()
+            }
+
+            val root = Node("")
+            for (line in lines) {
+                val rule = line.trim().substringBefore(' ').lowercase(Locale.ROOT)
+                if (rule.isEmpty() || rule.startsWith("//")) continue
+                val exception = rule.startsWith("!")
+                var node = root
+                for (label in rule.removePrefix("!").split('.').asReversed()) {
+                    node = node.children.getOrPut(label) { Node(label) }
+                }
+                node.flags = node.flags or if (exception) FLAG_EXCEPTION else FLAG_RULE
+            }
+
+            val order = mutableListOf(root)
+            var i = 0
+            while (i < order.size) order.addAll(order[i++].children.values)
+            val firstChild = IntArray(order.size)
+            var next = 1
+            order.forEachIndexed { index, node ->
+                firstChild[index] = next
+                next += node.children.size
+            }
+            return PublicSuffixTrie(
+                Array(order.size) { order[it].label },
+                ByteArray(order.size) { order[it].flags.toByte() },
+                firstChild,
+                IntArray(order.size) { order[it].children.size }
+            )
+        }
+    }
+
+    val size: Int get() = labels.size
+
+    /**
+     * How many trailing labels of [hostLabels] form the public suffix, per the list's algorithm:
+     * the longest matching rule wins, an exception rule removes its leftmost label, and a TLD with
+     * no rule is a one-label suffix. Labels must already be lowercase.
+     */
+    fun publicSuffixLength(hostLabels: List<String>): Int {
+        var suffixLength = 1
+        var node = 0
+        var depth = 0
+        for (i in hostLabels.indices.reversed()) {
+            val child = findChild(node, hostLabels[i])
+            if (child >= 0 && flags[child].toInt() and FLAG_EXCEPTION != 0) {
+                return depth
+            }
+            val wildcard = findChild(node, WILDCARD)
+            if ((child >= 0 && flags[child].toInt() and FLAG_RULE != 0) ||
+                (wildcard >= 0 && flags[wildcard].toInt() and FLAG_RULE != 0)
+            ) {
+                suffixLength = depth + 1
+            }
+            if (child < 0) break
+            node = child
+            depth++
+        }
+        return suffixLength
+    }
+
+    /**
+     * The public suffix plus one label of [host], keeping the host's case; [host] itself when it is
+     * a public suffix or not a plain dotted name.
+     */
+    fun registrableDomain(host: String): String {
+        val name = host.trimEnd('.')
+        val hostLabels = name.lowercase(Locale.ROOT).split('.')
+        if (hostLabels.any { it.isEmpty() }) return host
+        val keep = publicSuffixLength(hostLabels) + 1
+        if (hostLabels.size <= keep) return name
+
+        var start = name.length
+        repeat(keep) { start = name.lastIndexOf('.', start - 1) }
+        return name.substring(start + 1)
+    }
+
+    private fun findChild(node: Int, label: String): Int {
+        var low = firstChild[node]
+        var high = low + childCount[node] - 1
+        while (low <= high) {
+            val mid = (low + high) ushr 1
+            val cmp = labels[mid].compareTo(label)
+            when {
+                cmp < 0 -> low = mid + 1
+                cmp > 0 -> high = mid - 1
+                else -> return mid
+            }
+        }
+        return -1
+    }
+}
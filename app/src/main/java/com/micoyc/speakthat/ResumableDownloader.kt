@@ -0,0 +1,241 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.security.MessageDigest
+
+/**
+ * Downloads a file over HTTP, resuming from where a dropped connection left off and hashing the
+ * bytes as they are written.
+ *
+ * Bytes go to `<target>.part`, with the server's ETag kept beside it in `<target>.part.etag`. A
+ * later attempt, in this call or after the app was restarted, asks for the rest with `Range` and
+ * `If-Range`, so a file that changed on the server is sent whole again instead of being spliced.
+ * The SHA-256 is updated with each buffer written; only a partial file left by an earlier run has
+ * to be read back, once, to seed it. When the download completes the part file is renamed to the
+ * target.
+ *
+ * Progress is reported as a percentage when it has changed and either [progressMinBytes] more have
+ * arrived or [progressMinIntervalMs] has passed since the last report, and always at 100.
+ *
+ * Kept free of Android types so the resume paths can be tested against a local server.
+ */
+class ResumableDownloader(
+    private val client: OkHttpClient,
+    private val bufferSize: Int = DEFAULT_BUFFER_SIZE,
+    private val progressMinBytes: Long = DEFAULT_PROGRESS_MIN_BYTES,
+    private val progressMinIntervalMs: Long = DEFAULT_PROGRESS_MIN_INTERVAL_MS,
+    private val nowMs: () -> Long = { System.nanoTime() / 1_000_000 }
+) {
+    companion object {
+        const val DEFAULT_BUFFER_SIZE = 64 * 1024
+        const val DEFAULT_PROGRESS_MIN_BYTES = 256L * 1024
+        const val DEFAULT_PROGRESS_MIN_INTERVAL_MS = 250L
+        const val DEFAULT_MAX_ATTEMPTS = 4
+        private const val PART_SUFFIX = ".part"
+        private const val ETAG_SUFFIX = ".part.etag"
+
+        fun partFileFor(target: File) = File(target.path + PART_SUFFIX)
+
+        fun etagFileFor(target: File) = File(target.path + ETAG_SUFFIX)
+    }
+
+    class Result(
+        val file: File,
+        /** Lowercase hex SHA-256 of the whole file. */
+        val sha256: String,
+        val length: Long,
+        /** Bytes already on disk from an earlier run when this call started. */
+        val resumedFrom: Long,
+        val attempts: Int
+    )
+
+    /**
+     * Download [url] into [target]. With [expectedSha256] the finished file must match it, or the
+     * partial data is discarded and an [IOException] is thrown. Connection failures are retried up
+     * to [maxAttempts] times, each continuing from the bytes already written.
+     */
+    @Throws(IOException::class)
+    fun download(
+        url: String,
+        target: File,
+        expectedSha256: String? = null,
+        maxAttempts: Int = DEFAULT_MAX_ATTEMPTS,
+        onProgress: (Int) -> Unit = {}
+    ): Result {
+        val part = partFileFor(target)
+        val etagFile = etagFileFor(target)
+        var etag = etagFile.takeIf { it.exists() }?.readText()?.trim()?.ifEmpty { null }
+        if (etag == null && part.exists()) {
+            // Without a validator the bytes on disk cannot be trusted to belong to this file
+            part.delete()
+        }
+
+        val digest = MessageDigest.getInstance("SHA-256")
+        var written = if (part.exists()) seedDigest(digest, part) else 0L
+        val resumedFrom = written
+        val progress = ProgressThrottle(onProgress)
+
+        var attempt = 0
+        var lastError: IOException? = null
+        while (attempt < maxAttempts) {
+            attempt++
+            val requestBuilder = Request.Builder().url(url)
+            if (written > 0 && etag != null) {
+                requestBuilder.header("Range", "bytes=$written-")
+                requestBuilder.header("If-Range", etag)
+            }
+
+            try {
+                client.newCall(requestBuilder.build()).execute().use { response ->
+                    val append = when (response.code) {
+                        206 -> {
+                            val rangeStart = parseContentRangeStart(response.header("Content-Range"))
+                            if (rangeStart != written) throw IOException("Server resumed at $rangeStart, expected $written")
+                            true
+                        }
+                        in 200..299 -> false
+                        416 -> {
+                            // What is on disk does not fit the file any more; start over
+                            discard(part, etagFile, digest)
+                            written = 0
+                            etag = null
+                            throw IOException("Range not satisfiable")
+                        }
+                        else -> throw HttpStatusException(response.code)
+                    }
+                    if (!append) {
+                        digest.reset()
+                        written = 0
+                        etag = response.header("ETag")
+                        if (etag != null) etagFile.writeText(etag!!) else etagFile.delete()
+                    }
+
+                    val body = response.body ?: throw IOException("Empty response body")
+                    val bodyLength = body.contentLength()
+                    val total = if (bodyLength >= 0) written + bodyLength else -1L
+                    FileOutputStream(part, append).use { output ->
+                        body.byteStream().use { input ->
+                            val buffer = ByteArray(bufferSize)
+                            while (true) {
+                                val read = input.read(buffer)
+                                if (read == -1) break
+                                output.write(buffer, 0, read)
+                                digest.update(buffer, 0, read)
+                                written += read
+                                progress.onBytes(written, total)
+                            }
+                        }
+                    }
+                    if (total >= 0 && written != total) {
+                        throw IOException("Download ended at $written of $total bytes")
+                    }
+                }
+                lastError = null
+                break
+            } catch (e: HttpStatusException) {
+                throw e
+            } catch (e: IOException) {
+                lastError = e
+                if (etag == null) {
+                    // Nothing to resume against; the next attempt starts over
+                    discard(part, etagFile, digest)
+                    written = 0
+                }
+            }
+        }
+        lastError?.let { throw IOException("Download failed after $attempt attempts: ${it.message}", it) }
+
+        val sha256 = digest.digest().toHex()
+        if (expectedSha256 != null && !expectedSha256.equals(sha256, ignoreCase = true)) {
+            discard(part, etagFile, null)
+            throw IOException("SHA-256 mismatch: expected $expectedSha256, got $sha256")
+        }
+
+        if (target.exists() && !target.delete()) throw IOException("Cannot replace ${target.name}")
+        if (!part.renameTo(target)) throw IOException("Cannot move download to ${target.name}")
+        etagFile.delete()
+        progress.finish()
+        return Result(target, sha256, written, resumedFrom, attempt)
+    }
+
+    /** A non-retryable HTTP status, such as 404 for a release asset that was removed. */
+    class HttpStatusException(val code: Int) : IOException("HTTP $code")
+
+    private fun seedDigest(digest: MessageDigest, part: File): Long {
+        var length = 0L
+        FileInputStream(part).use { input ->
+            val buffer = ByteArray(bufferSize)
+            while (true) {
+                val read = input.read(buffer)
+                if (read == -1) break
+                digest.update(buffer, 0, read)
+                length += read
+            }
+        }
+        return length
+    }
+
+    private fun discard(part: File, etagFile: File, digest: MessageDigest?) {
+        part.delete()
+        etagFile.delete()
+        digest?.reset()
+    }
+
+    private fun parseContentRangeStart(header: String?): Long {
+        // "bytes 1000-4999/5000"
+        val range = header?.trim()?.removePrefix("bytes")?.trim() ?: return -1L
+        return range.substringBefore('-').toLongOrNull() ?: -1L
+    }
+
+    private fun ByteArray.toHex(): String {
+        val hex = "0123456789abcdef"
+        val out = StringBuilder(size * 2)
+        for (byte in this) {
+            val value = byte.toInt() and 0xFF
+            out.append(hex[value ushr 4]).append(hex[value and 0x0F])
+        }
+        return out.toString()
+    }
+
+    private inner class ProgressThrottle(private val onProgress: (Int) -> Unit) {
+        private var lastPercent = -1
+        private var lastBytes = 0L
+        private var lastAt = Long.MIN_VALUE
+
+        fun onBytes(written: Long, total: Long) {
+            if (total <= 0) return
+            val percent = ((written * 100) / total).toInt().coerceIn(0, 100)
+            if (percent == lastPercent) return
+            val now = nowMs()
+            if (percent < 100 && written - lastBytes < progressMinBytes &&
+                lastAt != Long.MIN_VALUE && now - lastAt < progressMinIntervalMs
+            ) {
+                return
+            }
+            emit(percent, written, now)
+        }
+
+        fun finish() {
+            if (lastPercent != 100) emit(100, lastBytes, nowMs())
+        }
+
+        private fun emit(percent: Int, written: Long, now: Long) {
+            lastPercent = percent
+            lastBytes = written
+            lastAt = now
+            onProgress(percent)
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+import android.content.Context
+import android.util.Log
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.zip.CRC32
+
+/**
+ * Write-optimised store for runtime bookkeeping: cooldown timestamps, statistics counters and the
+ * like. Configuration stays in SpeakThatPrefs, which is then only rewritten when the user changes
+ * a setting.
+ *
+ * Values are longs kept in memory and persisted as an append-only log of
+ * `{ int length, byte op, utf key, [long value], int crc32 }` records. Mutations only mark a key
+ * dirty; a single writer thread appends the latest value of every dirty key, so a burst of
+ * increments costs one small append. When dead records outnumber live ones the log is compacted by
+ * writing a fresh snapshot and renaming it over the old file. A torn or corrupt tail (process killed
+ * mid-append) ends replay at the last good record and triggers compaction.
+ */
+class RuntimeStateStore internal constructor(
+    private val file: File,
+    private val writer: ExecutorService = Executors.newSingleThreadExecutor()
+) {
+    companion object {
+        private const val TAG = "RuntimeStateStore"
+        const val FILE_NAME = "runtime_state.log"
+
+        private const val OP_PUT: Byte = 1
+        private const val OP_REMOVE: Byte = 2
+
+        /** Compact once the log holds this many records more than there are live keys. */
+        private const val MIN_COMPACTION_SLACK = 512
+
+        @Volatile
+        private var instance: RuntimeStateStore? = null
+
+        @JvmStatic
+        fun getInstance(context: Context): RuntimeStateStore {
+            instance?.let { return it }
+            return synchronized(this) {
+                instance ?: RuntimeStateStore(File(context.applicationContext.filesDir, FILE_NAME)).also {
+                    it.loadError?.let { error -> Log.w(TAG, "Recovered runtime state log: $error") }
+                    instance = it
+                }
+            }
+        }
+    }
+
+    private val values = ConcurrentHashMap<String, Long>()
+    private val dirtyKeys: MutableSet<String> = ConcurrentHashMap.newKeySet()
+    private val drainScheduled = AtomicBoolean(false)
+
+    // Touched only on the writer thread (and during construction, before it is published)
+    private var output: DataOutputStream? = null
+    private var recordCount = 0
+
+    /** True when no log existed yet; owners use this to migrate their old SharedPreferences keys. */
+    val isNew: Boolean
+
+    /** Description of the corruption recovered from while loading, if any. */
+    var loadError: String? = null
+        private set
+
+    init {
+        isNew = !file.exists()
+        if (!isNew) {
+            replay()
+            if (loadError != null) compact()
+        }
+    }
+
+    fun getLong(key: String, defaultValue: Long = 0L): Long = values[key] ?: defaultValue
+
+    fun contains(key: String): Boolean = values.containsKey(key)
+
+    fun putLong(key: String, value: Long) {
+        if (values.put(key, value) != value) markDirty(key)
+    }
+
+    /** Atomically add [delta] to [key] (absent counts as zero) and return the new value. */
+    @JvmOverloads
+    fun increment(key: String, delta: Long = 1L): Long {
+        val updated = values.merge(key, delta) { old, add -> old + add } ?: delta
+        markDirty(key)
+        return updated
+    }
+
+    fun remove(key: String) {
+        if (values.remove(key) != null) markDirty(key)
+    }
+
+    /** Every entry whose key starts with [prefix], with the prefix stripped. */
+    fun entriesWithPrefix(prefix: String): Map<String, Long> {
+        val result = HashMap<String, Long>()
+        for ((key, value) in values) {
+            if (key.startsWith(prefix)) result[key.substring(prefix.length)] = value
+        }
+        return result
+    }
+
+    fun removePrefix(prefix: String) {
+        for (key in values.keys) {
+            if (key.startsWith(prefix)) remove(key)
+        }
+    }
+
+    /** Block until everything written so far is on disk. Not for the main thread. */
+    fun flush() {
+        writer.submit { drain() }.get(5, TimeUnit.SECONDS)
+    }
+
+    private fun markDirty(key: String) {
+        dirtyKeys.add(key)
+        if (drainScheduled.compareAndSet(false, true)) {
+            writer.execute { drain() }
+        }
+    }
+
+    private fun drain() {
+        drainScheduled.set(false)
+        if (dirtyKeys.isEmpty()) return
+        try {
+            val out = output ?: openForAppend()
+            val iterator = dirtyKeys.iterator()
+            while (iterator.hasNext()) {
+                val key = iterator.next()
+                iterator.remove()
+                writeRecord(out, key, values[key])
+                recordCount++
+            }
+            out.flush()
+            if (recordCount - values.size > maxOf(MIN_COMPACTION_SLACK, values.size)) compact()
+        } catch (e: IOException) {
+            Log.e(TAG, "Error appending runtime state", e)
+            closeOutput()
+        }
+    }
+
+    private fun openForAppend(): DataOutputStream {
+        file.parentFile?.mkdirs()
+        return DataOutputStream(FileOutputStream(file, true).buffered()).also { output = it }
+    }
+
+    private fun writeRecord(out: DataOutputStream, key: String, value: Long?) {
+        val body = ByteArrayOutputStream(key.length + 16)
+        DataOutputStream(body).use { data ->
+            data.writeByte(if (value != null) OP_PUT.toInt() else OP_REMOVE.toInt())
+            data.writeUTF(key)
+            if (value != null) data.writeLong(value)
+        }
+        val bytes = body.toByteArray()
+        out.writeInt(bytes.size)
+        out.write(bytes)
+        out.writeInt(checksum(bytes))
+    }
+
+    private fun replay() {
+        try {
+            DataInputStream(file.inputStream().buffered()).use { input ->
+                while (true) {
+                    val length = try {
+                        input.readInt()
+                    } catch (_: EOFException) {
+                        break
+                    }
+                    if (length <= 0 || length > 0xFFFF + 16) {
+                        loadError = "bad record length $length after $recordCount records"
+                        break
+                    }
+                    val bytes = ByteArray(length)
+                    input.readFully(bytes)
+                    if (input.readInt() != checksum(bytes)) {
+                        loadError = "checksum mismatch after $recordCount records"
+                        break
+                    }
+                    applyRecord(bytes)
+                    recordCount++
+                }
+            }
+        } catch (e: EOFException) {
+            loadError = "truncated record after $recordCount records"
+        } catch (e: IOException) {
+            loadError = "read failed after $recordCount records: ${e.message}"
+        }
+    }
+
+    private fun applyRecord(bytes: ByteArray) {
+        val data = DataInputStream(bytes.inputStream())
+        val op = data.readByte()
+        val key = data.readUTF()
+        when (op) {
+            OP_PUT -> values[key] = data.readLong()
+            OP_REMOVE -> values.remove(key)
+        }
+    }
+
+    /**
+     * Rewrite the log as one record per live key, replacing the old file atomically. The snapshot
+     * is synced before the rename so a crash leaves either the old log or the complete snapshot.
+     */
+    private fun compact() {
+        closeOutput()
+        val temp = File(file.path + ".tmp")
+        try {
+            var written = 0
+            FileOutputStream(temp).use { stream ->
+                val out = DataOutputStream(stream.buffered())
+                for ((key, value) in values) {
+                    writeRecord(out, key, value)
+                    written++
+                }
+                out.flush()
+                stream.fd.sync()
+            }
+            if (!temp.renameTo(file)) throw IOException("rename failed")
+            recordCount = written
+        } catch (e: IOException) {
+            Log.e(TAG, "Error compacting runtime state", e)
+            temp.delete()
+        }
+    }
+
+    private fun closeOutput() {
+        try {
+            output?.close()
+        } catch (_: IOException) {
+        }
+        output = null
+    }
+
+    private fun checksum(bytes: ByteArray): Int {
+        val crc = CRC32()
+        crc.update(bytes)
+        return crc.value.toInt()
+    }
+}
@@ -17,6 +17,7 @@ import android.view.View
 import android.widget.Toast
 import android.os.Handler
 import android.os.Looper
+import java.util.concurrent.Executors
 import androidx.appcompat.app.AlertDialog
 import androidx.appcompat.app.AppCompatActivity
 import androidx.recyclerview.widget.LinearLayoutManager
@@ -27,14 +28,21 @@ import com.micoyc.speakthat.settings.BehaviorSettingsActivity
 import com.micoyc.speakthat.summary.SummarySettingsActivity
 
 class SettingsActivity : AppCompatActivity() {
+
+    companion object {
+        private const val SEARCH_DEBOUNCE_MS = 250L
+    }
     
     private lateinit var binding: ActivitySettingsBinding
     private lateinit var searchAdapter: SearchResultsAdapter
     private val settingsCategories = mutableListOf<SettingsCategory>()
-    private val allSettings = mutableListOf<SettingsItem>()
+    private var allSettings: List<SettingsItem> = emptyList()
     private val donationManager: DonationManager by lazy { DonationManagerProvider.get(this) }
     private val searchHandler = Handler(Looper.getMainLooper())
     private var pendingSearch: Runnable? = null
+    private val searchExecutor = Executors.newSingleThreadExecutor()
+    // Bumped for every keystroke so results from a superseded query are dropped
+    private var searchGeneration = 0
     
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
@@ -103,6 +111,7 @@ class SettingsActivity : AppCompatActivity() {
 
     private fun scheduleSearch(query: String) {
         pendingSearch?.let { searchHandler.removeCallbacks(it) }
+        val generation = ++searchGeneration
         if (query.isBlank()) {
             binding.searchProgressBar.visibility = View.GONE
             binding.searchResultsRecyclerView.visibility = View.GONE
@@ -111,16 +120,15 @@ class SettingsActivity : AppCompatActivity() {
         }
 
         binding.searchProgressBar.visibility = View.VISIBLE
-        val runnable = Runnable {
-            performSearch(query)
-            binding.searchProgressBar.visibility = View.GONE
-        }
+        val runnable = Runnable { performSearch(query, generation) }
         pendingSearch = runnable
-        searchHandler.postDelayed(runnable, 300)
+        searchHandler.postDelayed(runnable, SEARCH_DEBOUNCE_MS)
     }
 
     override fun onDestroy() {
         pendingSearch?.let { searchHandler.removeCallbacks(it) }
+        searchGeneration++
+        searchExecutor.shutdownNow()
         super.onDestroy()
     }
     
@@ -198,19 +206,21 @@ class SettingsActivity : AppCompatActivity() {
     }
     
     private fun setupAllSettings() {
-        allSettings.clear()
-        allSettings.addAll(SettingsDatabase.getAllSettings(this))
+        allSettings = SettingsDatabase.getAllSettings(this)
     }
     
-    private fun performSearch(query: String) {
-        if (query.isBlank()) {
-            binding.searchResultsRecyclerView.visibility = View.GONE
-            binding.settingsScrollView.visibility = View.VISIBLE
-            return
+    private fun performSearch(query: String, generation: Int) {
+        val settings = allSettings
+        searchExecutor.execute {
+            val groups = SettingsSearchEngine.search(this, query, settings)
+            searchHandler.post {
+                if (generation == searchGeneration && !isDestroyed) showSearchResults(groups)
+            }
         }
+    }
 
-        val groups = SettingsSearchEngine.search(this, query, allSettings)
-
+    private fun showSearchResults(groups: List<SettingsSearchEngine.SearchCategoryGroup>) {
+        binding.searchProgressBar.visibility = View.GONE
         if (groups.isNotEmpty()) {
             searchAdapter.updateResults(groups)
             binding.searchResultsRecyclerView.visibility = View.VISIBLE
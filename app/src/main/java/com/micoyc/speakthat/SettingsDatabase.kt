@@ -13,8 +13,17 @@ import com.micoyc.speakthat.CompatibilitySettingsActivity
 import com.micoyc.speakthat.summary.SummarySettingsActivity
 
 object SettingsDatabase {
-    
+
+    // Items hold only resource IDs and context-free lambdas, so one list serves every caller
+    @Volatile
+    private var cachedSettings: List<SettingsItem>? = null
+
     fun getAllSettings(context: android.content.Context): List<SettingsItem> {
+        cachedSettings?.let { return it }
+        return buildAllSettings().also { cachedSettings = it }
+    }
+
+    private fun buildAllSettings(): List<SettingsItem> {
         val currentFlavor = BuildConfig.DISTRIBUTION_CHANNEL
         return listOf(
             // General Settings
@@ -573,6 +582,28 @@ object SettingsDatabase {
                 searchKeywordsRes = R.string.search_keywords_prefix_memory_timeout,
                 navigationAction = { context, id -> context.startActivity(Intent(context, BehaviorSettingsActivity::class.java).putExtra("SCROLL_TO_SETTING", id)) }
             ),
+            SettingsItem(
+                id = "burst_coalescing",
+                titleRes = R.string.search_title_burst_coalescing,
+                descriptionRes = R.string.search_desc_burst_coalescing,
+                category = "behavior",
+                categoryTitleRes = R.string.search_cat_behavior,
+                categoryIconRes = R.drawable.ic_notification_settings_24,
+                settingType = SettingType.SWITCH,
+                searchKeywordsRes = R.string.search_keywords_burst_coalescing,
+                navigationAction = { context, id -> context.startActivity(Intent(context, BehaviorSettingsActivity::class.java).putExtra("SCROLL_TO_SETTING", id)) }
+            ),
+            SettingsItem(
+                id = "queue_max_age",
+                titleRes = R.string.search_title_queue_max_age,
+                descriptionRes = R.string.search_desc_queue_max_age,
+                category = "behavior",
+                categoryTitleRes = R.string.search_cat_behavior,
+                categoryIconRes = R.drawable.ic_notification_settings_24,
+                settingType = SettingType.SEEK_BAR,
+                searchKeywordsRes = R.string.search_keywords_queue_max_age,
+                navigationAction = { context, id -> context.startActivity(Intent(context, BehaviorSettingsActivity::class.java).putExtra("SCROLL_TO_SETTING", id)) }
+            ),
             SettingsItem(
                 id = "honour_do_not_disturb",
                 titleRes = R.string.search_title_honour_do_not_disturb,
@@ -906,6 +937,17 @@ object SettingsDatabase {
                 searchKeywordsRes = R.string.search_keywords_filter_empty_text,
                 navigationAction = { context, id -> context.startActivity(Intent(context, FilterSettingsActivity::class.java).putExtra("SCROLL_TO_SETTING", id)) }
             ),
+            SettingsItem(
+                id = "tidy_speech_say_emoji",
+                titleRes = R.string.tidy_speech_say_emoji_title,
+                descriptionRes = R.string.tidy_speech_say_emoji_description,
+                category = "filter",
+                categoryTitleRes = R.string.title_filter_settings,
+                categoryIconRes = R.drawable.ic_filter_list_24,
+                settingType = SettingType.SWITCH,
+                searchKeywordsRes = R.string.search_keywords_tidy_speech_say_emoji,
+                navigationAction = { context, id -> context.startActivity(Intent(context, FilterSettingsActivity::class.java).putExtra("SCROLL_TO_SETTING", id)) }
+            ),
             SettingsItem(
                 id = "url_handling",
                 titleRes = R.string.search_title_url_handling,
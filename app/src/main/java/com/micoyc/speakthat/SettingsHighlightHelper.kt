@@ -78,6 +78,8 @@ object SettingsHighlightHelper {
         "speech_formatting" to R.id.spinnerSpeechTemplate,
         "skip_repeated_prefix" to R.id.switchSkipRepeatedNotificationPrefixes,
         "prefix_memory_timeout" to R.id.sliderPrefixMemoryTimeout,
+        "queue_max_age" to R.id.sliderQueueMaxAge,
+        "burst_coalescing" to R.id.switchBurstCoalescing,
         "honour_do_not_disturb" to R.id.switchHonourDoNotDisturb,
         "honour_audio_mode" to R.id.switchHonourSilentMode,
         "honour_silent_mode" to R.id.switchHonourSilentMode,
@@ -110,6 +112,7 @@ object SettingsHighlightHelper {
         "tidy_speech_separate_digits_separator" to R.id.spinnerSeparatorType,
         "tidy_speech_emoji_exceptions" to R.id.emojiExceptionsSection,
         "filter_empty_text" to R.id.switchFilterEmptyText,
+        "tidy_speech_say_emoji" to R.id.switchSayEmoji,
         "url_handling" to R.id.urlHandlingModeGroup,
         "persistent_filtering" to R.id.switchPersistentFiltering,
         "filter_persistent" to R.id.switchFilterPersistent,
@@ -23,60 +23,62 @@ object SettingsSearchEngine {
         val items: List<SettingsItem>
     )
 
+    // Guarded by indexFor's monitor
+    private var cachedIndex: SettingsSearchIndex? = null
+    private var cachedLocales: String? = null
+    private var cachedSettings: List<SettingsItem>? = null
+
+    /**
+     * Search [allSettings] using an index built once per locale. Resolves every string on the first
+     * call after a locale change, so call this off the main thread.
+     */
     fun search(context: Context, query: String, allSettings: List<SettingsItem>): List<SearchCategoryGroup> {
-        val normalized = query.trim().lowercase()
-        if (normalized.isEmpty()) return emptyList()
-
-        val ranked = allSettings.mapNotNull { item ->
-            val title = context.getString(item.titleRes).lowercase()
-            val description = context.getString(item.descriptionRes).lowercase()
-            val keywords = item.searchKeywordsRes
-                ?.let { context.getString(it) }
-                ?.split(',')
-                ?.map { it.trim().lowercase() }
-                ?.filter { it.isNotEmpty() }
-                ?: emptyList()
-
-            val tier = matchTier(normalized, title, description, keywords) ?: return@mapNotNull null
-            RankedResult(item, tier)
-        }.sortedWith(compareBy({ it.tier }, { context.getString(it.item.titleRes).lowercase() }))
-
-        return ranked
-            .groupBy { it.item.category }
-            .map { (_, results) ->
-                val first = results.first().item
-                SearchCategoryGroup(
-                    category = first.category,
-                    categoryTitleRes = first.categoryTitleRes,
-                    categoryIconRes = first.categoryIconRes,
-                    items = results.map { it.item }
-                )
-            }
-            // Preserve best-tier ordering of first appearance
-            .sortedBy { group ->
-                ranked.indexOfFirst { it.item.category == group.category }
-            }
+        if (query.isBlank()) return emptyList()
+        return group(indexFor(context, allSettings).search(query))
     }
 
-    private fun matchTier(
-        query: String,
-        title: String,
-        description: String,
-        keywords: List<String>
-    ): Int? {
-        // Tier 1: exact or contains on title
-        if (title == query || title.contains(query)) return 1
-
-        // Tier 2: exact or contains on description or keywords
-        if (description == query || description.contains(query)) return 2
-        if (keywords.any { it == query || it.contains(query) || query.contains(it) }) return 2
-
-        // Tier 3: Levenshtein distance of exactly 1 on title words or keywords
-        val titleWords = title.split(Regex("\\s+")).filter { it.isNotEmpty() }
-        if (titleWords.any { levenshtein(query, it) == 1 }) return 3
-        if (keywords.any { levenshtein(query, it) == 1 }) return 3
+    /**
+     * Ranking tiers: 1 = title contains the query; 2 = description or a keyword contains it, or it
+     * contains a keyword; 3 = edit distance of exactly one from a title word or keyword.
+     */
+    fun group(ranked: List<RankedResult>): List<SearchCategoryGroup> {
+        // Ranked results are sorted by tier, so insertion order is the best-tier first appearance
+        val byCategory = LinkedHashMap<String, MutableList<SettingsItem>>()
+        for (result in ranked) {
+            byCategory.getOrPut(result.item.category) { ArrayList() }.add(result.item)
+        }
+        return byCategory.values.map { items ->
+            val first = items.first()
+            SearchCategoryGroup(
+                category = first.category,
+                categoryTitleRes = first.categoryTitleRes,
+                categoryIconRes = first.categoryIconRes,
+                items = items
+            )
+        }
+    }
 
-        return null
+    @Synchronized
+    private fun indexFor(context: Context, allSettings: List<SettingsItem>): SettingsSearchIndex {
+        val locales = context.resources.configuration.locales.toLanguageTags()
+        val current = cachedIndex
+        if (current != null && cachedLocales == locales && cachedSettings === allSettings) return current
+
+        val started = System.currentTimeMillis()
+        val documents = allSettings.map { item ->
+            SettingsSearchIndex.Document(
+                item = item,
+                title = context.getString(item.titleRes),
+                description = context.getString(item.descriptionRes),
+                keywords = item.searchKeywordsRes?.let { context.getString(it).split(',') } ?: emptyList()
+            )
+        }
+        val built = SettingsSearchIndex(documents)
+        cachedIndex = built
+        cachedLocales = locales
+        cachedSettings = allSettings
+        InAppLogger.log("SettingsSearch", "Indexed ${built.size} settings for $locales in ${System.currentTimeMillis() - started}ms")
+        return built
     }
 
     /** Returns edit distance between two strings. Early-exits when distance would exceed [max]. */
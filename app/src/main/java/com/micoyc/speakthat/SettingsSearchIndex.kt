@@ -0,0 +1,183 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+/**
+ * Precomputed search index over the settings catalogue for one locale.
+ *
+ * Every string is resolved and lowercased once at build time. Substring lookups go through a sorted
+ * table of every token suffix (a flattened prefix trie: all suffixes sharing a prefix sit in one
+ * contiguous run), reverse keyword containment through a keyword hash table, and edit-distance-1
+ * lookups through a deletion neighbourhood map. Candidates are always verified against the
+ * normalised strings, so results follow the tier rules of [SettingsSearchEngine] exactly.
+ */
+class SettingsSearchIndex(documents: List<Document>) {
+
+    /** Resolved, not yet normalised, strings for one setting. */
+    class Document(
+        val item: SettingsItem,
+        title: String,
+        description: String,
+        keywords: List<String>
+    ) {
+        val title: String = normalise(title)
+        val description: String = normalise(description)
+        val keywords: List<String> = keywords.map { normalise(it) }.filter { it.isNotEmpty() }
+        val titleWords: List<String> = tokenise(this.title)
+    }
+
+    companion object {
+        private val WHITESPACE = Regex("\\s+")
+
+        fun normalise(text: String): String = text.trim().lowercase()
+
+        fun tokenise(text: String): List<String> = text.split(WHITESPACE).filter { it.isNotEmpty() }
+    }
+
+    private val docs: Array<Document> = documents.toTypedArray()
+
+    // Distinct tokens of title, description and keywords, and the documents containing each
+    private val tokenDocs: Array<IntArray>
+
+    // Every suffix of every distinct token, sorted, with the token it came from
+    private val suffixes: Array<String>
+    private val suffixToken: IntArray
+
+    private val keywordDocs = HashMap<String, IntArray>()
+    private val longestKeyword: Int
+
+    // Title words and keywords keyed by themselves and each of their single-character deletions
+    private val deletionNeighbours = HashMap<String, MutableList<String>>()
+    private val fuzzyTermDocs = HashMap<String, IntArray>()
+
+    val size: Int get() = docs.size
+
+    init {
+        val tokenIds = LinkedHashMap<String, Int>()
+        val postings = ArrayList<MutableList<Int>>()
+        val keywordPostings = HashMap<String, MutableList<Int>>()
+        val fuzzyPostings = HashMap<String, MutableList<Int>>()
+
+        docs.forEachIndexed { docIndex, doc ->
+            val tokens = LinkedHashSet<String>()
+            tokens.addAll(doc.titleWords)
+            tokens.addAll(tokenise(doc.description))
+            doc.keywords.forEach { tokens.addAll(tokenise(it)) }
+            for (token in tokens) {
+                val id = tokenIds.getOrPut(token) { postings.add(ArrayList()); postings.size - 1 }
+                postings[id].add(docIndex)
+            }
+            for (keyword in doc.keywords) addPosting(keywordPostings, keyword, docIndex)
+            for (term in doc.titleWords + doc.keywords) addPosting(fuzzyPostings, term, docIndex)
+        }
+        tokenDocs = Array(postings.size) { postings[it].toIntArray() }
+
+        val suffixPairs = ArrayList<Pair<String, Int>>()
+        for ((token, id) in tokenIds) {
+            for (start in token.indices) suffixPairs.add(token.substring(start) to id)
+        }
+        suffixPairs.sortBy { it.first }
+        suffixes = Array(suffixPairs.size) { suffixPairs[it].first }
+        suffixToken = IntArray(suffixPairs.size) { suffixPairs[it].second }
+
+        keywordPostings.forEach { (keyword, list) -> keywordDocs[keyword] = list.toIntArray() }
+        longestKeyword = keywordDocs.keys.maxOfOrNull { it.length } ?: 0
+
+        fuzzyPostings.forEach { (term, list) ->
+            fuzzyTermDocs[term] = list.toIntArray()
+            for (key in deletionsOf(term)) deletionNeighbours.getOrPut(key) { ArrayList(2) }.add(term)
+        }
+    }
+
+    /** Matching settings ranked by tier, then by title, each paired with its tier. */
+    fun search(query: String): List<SettingsSearchEngine.RankedResult> {
+        val needle = normalise(query)
+        if (needle.isEmpty()) return emptyList()
+
+        val tiers = IntArray(docs.size)
+
+        // Tiers 1 and 2 (contains): every match contains each query token inside one of its own
+        // tokens, so the rarest-looking (longest) query token bounds the candidate set
+        val longestToken = tokenise(needle).maxByOrNull { it.length }
+        if (longestToken != null) {
+            forEachDocContaining(longestToken) { docIndex ->
+                if (tiers[docIndex] == 0) {
+                    val doc = docs[docIndex]
+                    tiers[docIndex] = when {
+                        doc.title.contains(needle) -> 1
+                        doc.description.contains(needle) -> 2
+                        doc.keywords.any { it.contains(needle) } -> 2
+                        else -> 0
+                    }
+                }
+            }
+        }
+
+        // Tier 2 (keyword inside query): look up every substring up to the longest keyword
+        for (start in needle.indices) {
+            val end = minOf(needle.length, start + longestKeyword)
+            for (stop in start + 1..end) {
+                keywordDocs[needle.substring(start, stop)]?.forEach { docIndex ->
+                    if (tiers[docIndex] == 0) tiers[docIndex] = 2
+                }
+            }
+        }
+
+        // Tier 3: edit distance of exactly one on a title word or keyword
+        val seenTerms = HashSet<String>()
+        for (key in deletionsOf(needle)) {
+            val terms = deletionNeighbours[key] ?: continue
+            for (term in terms) {
+                if (!seenTerms.add(term)) continue
+                if (SettingsSearchEngine.levenshtein(needle, term) != 1) continue
+                fuzzyTermDocs[term]?.forEach { docIndex ->
+                    if (tiers[docIndex] == 0) tiers[docIndex] = 3
+                }
+            }
+        }
+
+        val ranked = ArrayList<SettingsSearchEngine.RankedResult>()
+        val order = ArrayList<Int>()
+        for (i in docs.indices) if (tiers[i] != 0) order.add(i)
+        order.sortWith(compareBy({ tiers[it] }, { docs[it].title }))
+        for (i in order) ranked.add(SettingsSearchEngine.RankedResult(docs[i].item, tiers[i]))
+        return ranked
+    }
+
+    private inline fun forEachDocContaining(fragment: String, action: (Int) -> Unit) {
+        var low = 0
+        var high = suffixes.size
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (suffixes[mid] < fragment) low = mid + 1 else high = mid
+        }
+        val seenTokens = HashSet<Int>()
+        var i = low
+        while (i < suffixes.size && suffixes[i].startsWith(fragment)) {
+            val token = suffixToken[i]
+            if (seenTokens.add(token)) tokenDocs[token].forEach(action)
+            i++
+        }
+    }
+
+    private fun addPosting(map: HashMap<String, MutableList<Int>>, key: String, docIndex: Int) {
+        val list = map.getOrPut(key) { ArrayList(1) }
+        if (list.isEmpty() || list[list.size - 1] != docIndex) list.add(docIndex)
+    }
+
+    /**
+     * [term] plus each single-character deletion. Two strings are within one edit of each other
+     * only if these sets intersect, which is what makes the lookup exhaustive.
+     */
+    private fun deletionsOf(term: String): Set<String> {
+        val keys = HashSet<String>(term.length + 1)
+        keys.add(term)
+        for (i in term.indices) keys.add(term.removeRange(i, i + 1))
+        return keys
+    }
+}
@@ -10,9 +10,15 @@ package com.micoyc.speakthat;
 import android.accessibilityservice.AccessibilityService;
 import android.accessibilityservice.AccessibilityServiceInfo;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import com.micoyc.speakthat.rules.RuleManager;
+
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Accessibility Service for SpeakThat
@@ -25,10 +31,31 @@ import android.view.accessibility.AccessibilityEvent;
  * 
  * This service is completely optional - core app functionality works without it.
  * All processing stays on-device with no data collection.
+ *
+ * The event subscription is kept as narrow as possible and recomputed whenever the relevant
+ * settings change: window-state events are only requested while an enabled rule uses the
+ * Foreground App condition, and key filtering only while Press to Stop is on. With neither in
+ * use the service receives nothing at all.
  */
-public class SpeakThatAccessibilityService extends AccessibilityService {
+public class SpeakThatAccessibilityService extends AccessibilityService
+        implements SharedPreferences.OnSharedPreferenceChangeListener {
     
     private static final String TAG = "SpeakThatAccessibility";
+    private static final String PREFS_NAME = "SpeakThatPrefs";
+    private static final String RULES_PREFS_NAME = "SpeakThatRules";
+    private static final String KEY_PRESS_TO_STOP_ENABLED = "press_to_stop_enabled";
+
+    // Window-state changes arrive in bursts during activity transitions; coalesce them
+    private static final long EVENT_NOTIFICATION_TIMEOUT_MS = 250;
+
+    // Diagnostics: how many events reached the service and how many were not used
+    private static final AtomicLong eventsReceived = new AtomicLong();
+    private static final AtomicLong eventsDropped = new AtomicLong();
+
+    private SharedPreferences prefs;
+    private SharedPreferences rulesPrefs;
+    private volatile boolean pressToStopEnabled = false;
+    private volatile boolean foregroundTrackingEnabled = false;
     
     // Track volume button states for simultaneous press detection
     private boolean volumeUpPressed = false;
@@ -40,35 +67,91 @@ public class SpeakThatAccessibilityService extends AccessibilityService {
     @Override
     public void onServiceConnected() {
         Log.d(TAG, "Accessibility service connected");
-        
-        // Read current Press to Stop setting for debugging
-        // Note: The service will automatically disable key event processing if the feature is turned off
+
+        prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        rulesPrefs = getSharedPreferences(RULES_PREFS_NAME, MODE_PRIVATE);
+        prefs.registerOnSharedPreferenceChangeListener(this);
+        rulesPrefs.registerOnSharedPreferenceChangeListener(this);
+
+        updateServiceSubscription();
+    }
+
+    @Override
+    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+        if (key == null
+                || KEY_PRESS_TO_STOP_ENABLED.equals(key)
+                || (sharedPreferences == rulesPrefs)) {
+            updateServiceSubscription();
+        }
+    }
+
+    /**
+     * Recompute which events and flags the service needs and push them to the system.
+     * Only changes the subscription when something actually differs.
+     */
+    private void updateServiceSubscription() {
+        boolean pressToStop = false;
+        boolean needsForegroundApp = false;
         try {
-            android.content.SharedPreferences prefs = getSharedPreferences("SpeakThatPrefs", MODE_PRIVATE);
-            boolean pressToStopEnabled = prefs.getBoolean("press_to_stop_enabled", false);
-            Log.d(TAG, "Press to Stop setting: " + pressToStopEnabled);
-            if (!pressToStopEnabled) {
-                Log.d(TAG, "Press to Stop is disabled - key events will be passed through to system");
-            }
+            pressToStop = prefs != null && prefs.getBoolean(KEY_PRESS_TO_STOP_ENABLED, false);
+            // Fresh manager: a long-lived one would serve rules from its short-lived cache
+            needsForegroundApp = new RuleManager(this).needsForegroundAppTracking();
         } catch (Exception e) {
             Log.e(TAG, "Error reading settings: " + e.getMessage());
         }
-        
-        // Configure the accessibility service
+
+        AccessibilityServiceInfo info = getServiceInfo();
+        if (info == null) {
+            info = new AccessibilityServiceInfo();
+        }
+        int eventTypes = needsForegroundApp ? AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED : 0;
         // FLAG_REQUEST_FILTER_KEY_EVENTS is crucial for intercepting hardware key events
-        AccessibilityServiceInfo info = new AccessibilityServiceInfo();
-        info.eventTypes = AccessibilityEvent.TYPE_VIEW_CLICKED |
-                         AccessibilityEvent.TYPE_VIEW_FOCUSED |
-                         AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED |
-                         AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED;
-        info.feedbackType = AccessibilityServiceInfo.FEEDBACK_GENERIC;
-        info.flags = AccessibilityServiceInfo.FLAG_REPORT_VIEW_IDS |
-                    AccessibilityServiceInfo.FLAG_RETRIEVE_INTERACTIVE_WINDOWS |
-                    AccessibilityServiceInfo.FLAG_REQUEST_FILTER_KEY_EVENTS; // Essential for key event interception
-        info.notificationTimeout = 100;
+        int flags = pressToStop ? AccessibilityServiceInfo.FLAG_REQUEST_FILTER_KEY_EVENTS : 0;
+        boolean unchanged = info.eventTypes == eventTypes
+                && info.flags == flags
+                && info.notificationTimeout == EVENT_NOTIFICATION_TIMEOUT_MS
+                && pressToStopEnabled == pressToStop
+                && foregroundTrackingEnabled == needsForegroundApp;
+        if (unchanged) {
+            return;
+        }
 
+        info.eventTypes = eventTypes;
+        info.feedbackType = AccessibilityServiceInfo.FEEDBACK_GENERIC;
+        info.flags = flags;
+        info.notificationTimeout = EVENT_NOTIFICATION_TIMEOUT_MS;
         setServiceInfo(info);
-        Log.d(TAG, "Accessibility service configured with key event filtering");
+
+        boolean trackingJustEnabled = needsForegroundApp && !foregroundTrackingEnabled;
+        pressToStopEnabled = pressToStop;
+        foregroundTrackingEnabled = needsForegroundApp;
+
+        if (trackingJustEnabled) {
+            seedForegroundPackage();
+        }
+
+        Log.d(TAG, "Accessibility subscription updated - foregroundApp: " + needsForegroundApp
+                + ", pressToStop: " + pressToStop);
+        InAppLogger.logSystemEvent("Accessibility subscription updated",
+                "foregroundApp=" + needsForegroundApp + ", pressToStop=" + pressToStop);
+    }
+
+    /**
+     * Window-state events only arrive on the next app switch, so take the current package
+     * from the active window when tracking starts.
+     */
+    private void seedForegroundPackage() {
+        try {
+            AccessibilityNodeInfo root = getRootInActiveWindow();
+            if (root != null) {
+                CharSequence pkg = root.getPackageName();
+                if (pkg != null) {
+                    ForegroundAppTracker.INSTANCE.updateForegroundPackage(pkg.toString());
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Unable to seed foreground package: " + e.getMessage());
+        }
     }
     
     @Override
@@ -76,17 +159,28 @@ public class SpeakThatAccessibilityService extends AccessibilityService {
         if (event == null) {
             return;
         }
+        eventsReceived.incrementAndGet();
 
         // Track foreground app for rule conditions
-        int eventType = event.getEventType();
-        if (eventType == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED ||
-            eventType == AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED ||
-            eventType == AccessibilityEvent.TYPE_VIEW_FOCUSED) {
-            CharSequence pkg = event.getPackageName();
-            if (pkg != null) {
-                ForegroundAppTracker.INSTANCE.updateForegroundPackage(pkg.toString());
-            }
+        if (!foregroundTrackingEnabled
+                || event.getEventType() != AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED) {
+            eventsDropped.incrementAndGet();
+            return;
+        }
+        CharSequence pkg = event.getPackageName();
+        if (pkg == null) {
+            eventsDropped.incrementAndGet();
+            return;
         }
+        ForegroundAppTracker.INSTANCE.updateForegroundPackage(pkg.toString());
+    }
+
+    public static long getEventsReceived() {
+        return eventsReceived.get();
+    }
+
+    public static long getEventsDropped() {
+        return eventsDropped.get();
     }
     
     @Override
@@ -94,8 +188,6 @@ public class SpeakThatAccessibilityService extends AccessibilityService {
         Log.d(TAG, "Key event received: " + event.getKeyCode() + ", action: " + event.getAction());
 
         // Early exit if Press to Stop is disabled to save resources
-        android.content.SharedPreferences prefs = getSharedPreferences("SpeakThatPrefs", MODE_PRIVATE);
-        boolean pressToStopEnabled = prefs.getBoolean("press_to_stop_enabled", false);
         if (!pressToStopEnabled) {
             return super.onKeyEvent(event); // Let system handle the event normally
         }
@@ -164,10 +256,7 @@ public class SpeakThatAccessibilityService extends AccessibilityService {
     private void handleSimultaneousVolumePress() {
         Log.d(TAG, "Handling simultaneous volume press");
         
-        // Check if Press to Stop is enabled in settings
-        android.content.SharedPreferences prefs = getSharedPreferences("SpeakThatPrefs", MODE_PRIVATE);
-        boolean pressToStopEnabled = prefs.getBoolean("press_to_stop_enabled", false);
-        
+        // Check if Press to Stop is enabled in settings (kept current by the preference listener)
         Log.d(TAG, "Press to Stop enabled: " + pressToStopEnabled);
         
         if (pressToStopEnabled) {
@@ -197,6 +286,12 @@ public class SpeakThatAccessibilityService extends AccessibilityService {
     @Override
     public void onDestroy() {
         Log.d(TAG, "Accessibility service destroyed");
+        if (prefs != null) {
+            prefs.unregisterOnSharedPreferenceChangeListener(this);
+        }
+        if (rulesPrefs != null) {
+            rulesPrefs.unregisterOnSharedPreferenceChangeListener(this);
+        }
         super.onDestroy();
     }
 }
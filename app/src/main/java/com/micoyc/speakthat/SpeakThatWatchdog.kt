@@ -7,21 +7,23 @@
 
 package com.micoyc.speakthat
 
-import android.os.Handler
-import android.os.Looper
 import android.util.Log
 
 /**
  * Lightweight watchdog that periodically checks whether the notification listener
  * has received any events recently. If it detects a stale listener, it requests
  * a soft rebind through the supplied callback while respecting strict cooldowns.
+ *
+ * Checks run as a job on the supplied [HousekeepingScheduler] so they can share wakeups with the
+ * service's other periodic work.
  */
 class SpeakThatWatchdog(
     private val callback: Callback,
     private val lastActivityProvider: () -> Long,
     private val checkIntervalMs: Long = DEFAULT_CHECK_INTERVAL_MS,
     private val staleThresholdMs: Long = DEFAULT_STALE_THRESHOLD_MS,
-    private val rebindCooldownMs: Long = DEFAULT_REBIND_COOLDOWN_MS
+    private val rebindCooldownMs: Long = DEFAULT_REBIND_COOLDOWN_MS,
+    private val scheduler: HousekeepingScheduler = HousekeepingScheduler()
 ) {
 
     interface Callback {
@@ -35,9 +37,9 @@ class SpeakThatWatchdog(
         private const val DEFAULT_STALE_THRESHOLD_MS = 3 * 60 * 1000L
         private const val DEFAULT_REBIND_COOLDOWN_MS = 2 * 60 * 1000L
         private const val STALE_LOG_THROTTLE_MS = 60_000L
+        private const val JOB_NAME = "listener_watchdog"
     }
 
-    private val handler = Handler(Looper.getMainLooper())
     private val checkRunnable = Runnable { performCheck() }
 
     @Volatile
@@ -56,7 +58,8 @@ class SpeakThatWatchdog(
         }
         Log.d(TAG, "Starting watchdog ($reason)")
         isRunning = true
-        scheduleNextCheck()
+        // A check may come up to a third of an interval early to share a wakeup
+        scheduler.schedule(JOB_NAME, checkIntervalMs, checkIntervalMs / 3, checkRunnable)
     }
 
     fun stop(reason: String) {
@@ -66,7 +69,7 @@ class SpeakThatWatchdog(
         }
         Log.d(TAG, "Stopping watchdog ($reason)")
         isRunning = false
-        handler.removeCallbacks(checkRunnable)
+        scheduler.cancel(JOB_NAME)
     }
 
     /**
@@ -84,7 +87,6 @@ class SpeakThatWatchdog(
         }
 
         if (!callback.isWatchdogAllowed()) {
-            scheduleNextCheck()
             return
         }
 
@@ -109,8 +111,6 @@ class SpeakThatWatchdog(
                 Log.d(TAG, "Watchdog idle=${idleMs}ms but waiting for cooldown (${rebindCooldownMs}ms)")
             }
         }
-
-        scheduleNextCheck()
     }
 
     private fun maybeLogStaleState(idleMs: Long, now: Long) {
@@ -124,13 +124,6 @@ class SpeakThatWatchdog(
             "Listener idle for ${idleMs / 1000}s (threshold=${staleThresholdMs / 1000}s)"
         )
     }
-
-    private fun scheduleNextCheck() {
-        handler.removeCallbacks(checkRunnable)
-        if (isRunning) {
-            handler.postDelayed(checkRunnable, checkIntervalMs)
-        }
-    }
 }
 
 
@@ -0,0 +1,243 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+import org.json.JSONArray
+import org.json.JSONObject
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Pending readouts for the queue and smart behaviour modes.
+ *
+ * Readouts are served by priority tier first (lower tier number wins) and then oldest first. Each
+ * tier is an insertion-ordered map, so enqueue, dequeue and removal by notification key are O(1).
+ *
+ * - **Updates** of a notification that is still waiting replace it in place, keeping its position.
+ * - **Coalescing**: an item offered with a group (the package) joins that group's pending readout
+ *   in the same tier, up to [maxBatch] items, so a burst from one app is read as one readout.
+ * - **Bounded**: at [capacity] pending readouts the oldest readout of the lowest tier is dropped,
+ *   never one of a higher tier than the incoming item; with none to drop the incoming item is.
+ * - **Aging**: readouts not updated for [maxAgeMs] are dropped instead of being read late.
+ *
+ * Not thread-safe. The service confines every mutation to the main looper; only [size] and
+ * [diagnosticsJson] may be read from other threads.
+ */
+class SpeechScheduler<T : Any>(
+    private val clock: () -> Long,
+    private val tierCount: Int = 2,
+    private val capacity: Int = DEFAULT_CAPACITY,
+    private val maxBatch: Int = DEFAULT_MAX_BATCH
+) {
+    companion object {
+        const val TIER_PRIORITY = 0
+        const val TIER_NORMAL = 1
+        const val DEFAULT_CAPACITY = 50
+        const val DEFAULT_MAX_BATCH = 5
+
+        private const val ANONYMOUS_PREFIX = "anon:"
+        private val DEPTH_BOUNDS = longArrayOf(0, 1, 2, 4, 8, 16, 32)
+        private val WAIT_BOUNDS_MS = longArrayOf(250, 1_000, 2_000, 5_000, 10_000, 30_000, 60_000, 300_000)
+    }
+
+    enum class Offer { ADDED, REPLACED, COALESCED, REJECTED }
+
+    enum class DropReason { EVICTED, EXPIRED, REJECTED }
+
+    /** One readout handed to the speaker: a single item, or a coalesced burst from one group. */
+    class Batch<T>(val items: List<T>, val tier: Int, val group: String?, val waitedMs: Long)
+
+    private class Readout<T>(val tier: Int, val group: String?, val enqueuedAt: Long) {
+        val items = LinkedHashMap<String, T>()
+        var updatedAt = enqueuedAt
+    }
+
+    private val tiers = Array(tierCount) { LinkedHashMap<Readout<T>, Unit>() }
+    private val byKey = HashMap<String, Readout<T>>()
+    private val byGroup = HashMap<String, Readout<T>>()
+    private var anonymousSequence = 0L
+
+    /** Readouts not updated for this long are dropped; 0 keeps them until they are read. */
+    var maxAgeMs = 0L
+
+    /** Told about readouts dropped for capacity or age, for logging. */
+    var dropListener: ((items: List<T>, reason: DropReason) -> Unit)? = null
+
+    /** Pending readouts (a coalesced burst counts once). */
+    @Volatile
+    var size = 0
+        private set
+
+    private val depthHistogram = Histogram(DEPTH_BOUNDS)
+    private val waitHistogram = Histogram(WAIT_BOUNDS_MS)
+    private val counters = AtomicLongArray(Counter.values().size)
+
+    private enum class Counter { OFFERED, REPLACED, COALESCED, SERVED, REMOVED, EVICTED, EXPIRED, REJECTED, CLEARED }
+
+    fun isEmpty(): Boolean = size == 0
+
+    fun isNotEmpty(): Boolean = size != 0
+
+    /**
+     * Queue [item] under notification [key] (null for items that have none). A non-null [group]
+     * lets it coalesce with other pending items of that group in the same [tier].
+     */
+    fun offer(key: String?, group: String?, tier: Int, item: T): Offer {
+        require(tier in 0 until tierCount) { "tier out of range: $tier" }
+        val now = clock()
+        counters.incrementAndGet(Counter.OFFERED.ordinal)
+        depthHistogram.record(size.toLong())
+
+        if (key != null) {
+            byKey[key]?.let { existing ->
+                existing.items[key] = item
+                existing.updatedAt = now
+                counters.incrementAndGet(Counter.REPLACED.ordinal)
+                return Offer.REPLACED
+            }
+        }
+        val itemKey = key ?: "$ANONYMOUS_PREFIX${anonymousSequence++}"
+
+        val groupKey = group?.let { "$tier|$it" }
+        val pendingGroup = groupKey?.let { byGroup[it] }
+        if (pendingGroup != null && pendingGroup.items.size < maxBatch) {
+            pendingGroup.items[itemKey] = item
+            pendingGroup.updatedAt = now
+            byKey[itemKey] = pendingGroup
+            counters.incrementAndGet(Counter.COALESCED.ordinal)
+            return Offer.COALESCED
+        }
+
+        if (size >= capacity && !evictOldest(tier)) {
+            counters.incrementAndGet(Counter.REJECTED.ordinal)
+            dropListener?.invoke(listOf(item), DropReason.REJECTED)
+            return Offer.REJECTED
+        }
+        val readout = Readout<T>(tier, group, now)
+        readout.items[itemKey] = item
+        tiers[tier][readout] = Unit
+        byKey[itemKey] = readout
+        // A full batch stays queued but stops accepting; the new readout takes over its group
+        if (groupKey != null) byGroup[groupKey] = readout
+        size++
+        return Offer.ADDED
+    }
+
+    /** Remove the item queued under [key], e.g. because its notification was dismissed. */
+    fun removeByKey(key: String): T? {
+        val readout = byKey.remove(key) ?: return null
+        val item = readout.items.remove(key)
+        if (readout.items.isEmpty()) unlink(readout)
+        counters.incrementAndGet(Counter.REMOVED.ordinal)
+        return item
+    }
+
+    /** Dequeue the next readout, dropping any that have aged out first. */
+    fun poll(): Batch<T>? {
+        val now = clock()
+        if (maxAgeMs > 0) expire(now)
+        for (tier in tiers) {
+            val head = tier.keys.firstOrNull() ?: continue
+            unlink(head)
+            val waited = now - head.enqueuedAt
+            waitHistogram.record(waited)
+            counters.incrementAndGet(Counter.SERVED.ordinal)
+            return Batch(head.items.values.toList(), head.tier, head.group, waited)
+        }
+        return null
+    }
+
+    fun clear() {
+        if (size > 0) counters.addAndGet(Counter.CLEARED.ordinal, size.toLong())
+        tiers.forEach { it.clear() }
+        byKey.clear()
+        byGroup.clear()
+        size = 0
+    }
+
+    /** Counters plus queue-depth-at-enqueue and wait-until-spoken histograms. */
+    fun diagnosticsJson(): JSONObject {
+        val json = JSONObject()
+        json.put("pending", size)
+        json.put("max_age_ms", maxAgeMs)
+        for (counter in Counter.values()) {
+            json.put(counter.name.lowercase(), counters.get(counter.ordinal))
+        }
+        json.put("depth_at_enqueue", depthHistogram.toJson(""))
+        json.put("wait_before_speech", waitHistogram.toJson("ms"))
+        return json
+    }
+
+    private fun expire(now: Long) {
+        for (tier in tiers) {
+            val iterator = tier.keys.iterator()
+            while (iterator.hasNext()) {
+                val readout = iterator.next()
+                if (now - readout.updatedAt <= maxAgeMs) continue
+                iterator.remove()
+                forget(readout)
+                counters.incrementAndGet(Counter.EXPIRED.ordinal)
+                dropListener?.invoke(readout.items.values.toList(), DropReason.EXPIRED)
+            }
+        }
+    }
+
+    /** Drop the oldest readout of the lowest tier no higher than [incomingTier]; false if there is none. */
+    private fun evictOldest(incomingTier: Int): Boolean {
+        for (tier in tiers.indices.reversed()) {
+            if (tier < incomingTier) break
+            val oldest = tiers[tier].keys.firstOrNull() ?: continue
+            unlink(oldest)
+            counters.incrementAndGet(Counter.EVICTED.ordinal)
+            dropListener?.invoke(oldest.items.values.toList(), DropReason.EVICTED)
+            return true
+        }
+        return false
+    }
+
+    private fun unlink(readout: Readout<T>) {
+        tiers[readout.tier].remove(readout)
+        forget(readout)
+    }
+
+    /** Drop the group and key index entries of a readout already removed from its tier. */
+    private fun forget(readout: Readout<T>) {
+        readout.group?.let { group ->
+            val groupKey = "${readout.tier}|$group"
+            if (byGroup[groupKey] === readout) byGroup.remove(groupKey)
+        }
+        for (itemKey in readout.items.keys) {
+            if (byKey[itemKey] === readout) byKey.remove(itemKey)
+        }
+        size--
+    }
+
+    /** Fixed-bucket histogram; bucket i counts values <= bounds[i], the last one everything above. */
+    private class Histogram(private val bounds: LongArray) {
+        private val counts = AtomicLongArray(bounds.size + 1)
+
+        fun record(value: Long) {
+            var bucket = bounds.size
+            for (i in bounds.indices) {
+                if (value <= bounds[i]) {
+                    bucket = i
+                    break
+                }
+            }
+            counts.incrementAndGet(bucket)
+        }
+
+        fun toJson(unit: String): JSONArray {
+            val array = JSONArray()
+            for (i in 0..bounds.size) {
+                val label = if (i < bounds.size) "<=${bounds[i]}$unit" else ">${bounds.last()}$unit"
+                array.put(JSONObject().put("bucket", label).put("count", counts.get(i)))
+            }
+            return array
+        }
+    }
+}
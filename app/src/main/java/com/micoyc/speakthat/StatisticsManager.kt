@@ -25,10 +25,10 @@ import com.google.gson.reflect.TypeToken
  * - Apps that have been read
  * 
  * Features:
- * - Battery-efficient storage using SharedPreferences
+ * - Counters live in [RuntimeStateStore], so counting never rewrites the SpeakThatPrefs XML
  * - Offline-only (no network access)
  * - Minimal memory footprint
- * - Async writes using apply() to minimize battery impact
+ * - Async, coalesced appends to minimize battery impact
  */
 data class StatsSnapshot(
     val notificationsReceived: Int,
@@ -49,6 +49,11 @@ class StatisticsManager private constructor(private val context: Context) {
         private const val PREFS_NAME = "SpeakThatPrefs"
         private const val LEGACY_PREFS_NAME = "NotificationStatistics"
         private const val KEY_STATS_MIGRATED = "stats_migrated_from_notificationstatistics"
+
+        // Runtime state store namespaces
+        private const val STORE_PREFIX = "stats."
+        private const val STORE_FILTER_REASON_PREFIX = "stats.filter_reason."
+        private const val STORE_APP_READ_PREFIX = "stats.app_read."
         
         // Keys for statistics
         private const val KEY_NOTIFICATIONS_RECEIVED = "notifications_received"
@@ -75,6 +80,7 @@ class StatisticsManager private constructor(private val context: Context) {
         const val FILTER_DISMISSAL_MEMORY = "dismissal_memory"
         const val FILTER_GROUP_SUMMARY = "group_summary"
         const val FILTER_GROUP_CHILD_REPOST = "group_child_repost"
+        const val FILTER_NO_NEW_MESSAGES = "no_new_messages"
         const val FILTER_SELF_PACKAGE = "self_package"
         
         // Use WeakReference to prevent memory leaks
@@ -155,20 +161,25 @@ class StatisticsManager private constructor(private val context: Context) {
     }
     
     private val prefs: SharedPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+    private val store = RuntimeStateStore.getInstance(context)
     private val gson = Gson()
 
     init {
+        migrateMainPrefsIfNeeded()
         migrateLegacyPrefsIfNeeded()
     }
+
+    private fun counter(key: String): Int = store.getLong(STORE_PREFIX + key).toInt()
+
+    private fun incrementCounter(key: String): Int = store.increment(STORE_PREFIX + key).toInt()
     
     /**
      * Increment the count of notifications received
      */
     fun incrementReceived() {
-        val currentCount = prefs.getInt(KEY_NOTIFICATIONS_RECEIVED, 0)
-        prefs.edit().putInt(KEY_NOTIFICATIONS_RECEIVED, currentCount + 1).apply()
+        val updatedCount = incrementCounter(KEY_NOTIFICATIONS_RECEIVED)
         
-        Log.d(TAG, "Notifications received incremented: ${currentCount + 1}")
+        Log.d(TAG, "Notifications received incremented: $updatedCount")
     }
     
     /**
@@ -176,15 +187,11 @@ class StatisticsManager private constructor(private val context: Context) {
      */
     fun incrementRead(appName: String) {
         // Increment read count
-        val currentCount = prefs.getInt(KEY_NOTIFICATIONS_READ, 0)
-        prefs.edit().putInt(KEY_NOTIFICATIONS_READ, currentCount + 1).apply()
+        val updatedCount = incrementCounter(KEY_NOTIFICATIONS_READ)
         
         // Track app name
-        val appsRead = getAppsRead().toMutableSet()
-        appsRead.add(appName)
-        saveAppsRead(appsRead)
+        store.putLong(STORE_APP_READ_PREFIX + appName, 1L)
         
-        val updatedCount = currentCount + 1
         Log.d(TAG, "Notifications read incremented: $updatedCount, app: $appName")
         InAppLogger.log("Statistics", "Notification read from $appName (total reads: $updatedCount)")
     }
@@ -193,8 +200,7 @@ class StatisticsManager private constructor(private val context: Context) {
      * Increment total SpeakThat logo taps and return updated count
      */
     fun incrementLogoTaps(): Int {
-        val currentCount = prefs.getInt(KEY_LOGO_TAPS, 0) + 1
-        prefs.edit().putInt(KEY_LOGO_TAPS, currentCount).apply()
+        val currentCount = incrementCounter(KEY_LOGO_TAPS)
         
         Log.d(TAG, "Logo taps incremented: $currentCount")
         InAppLogger.log("Statistics", "SpeakThat logo tapped (total taps: $currentCount)")
@@ -205,50 +211,46 @@ class StatisticsManager private constructor(private val context: Context) {
      * Get total SpeakThat logo taps
      */
     fun getLogoTaps(): Int {
-        return prefs.getInt(KEY_LOGO_TAPS, 0)
+        return counter(KEY_LOGO_TAPS)
     }
     
     /**
      * Increment the count of readouts interrupted
      */
     fun incrementReadoutsInterrupted() {
-        val currentCount = prefs.getInt(KEY_READOUTS_INTERRUPTED, 0)
-        prefs.edit().putInt(KEY_READOUTS_INTERRUPTED, currentCount + 1).apply()
+        val updatedCount = incrementCounter(KEY_READOUTS_INTERRUPTED)
         
-        Log.d(TAG, "Readouts interrupted incremented: ${currentCount + 1}")
+        Log.d(TAG, "Readouts interrupted incremented: $updatedCount")
     }
     
     /**
      * Increment the count for a specific filter reason
      */
     fun incrementFilterReason(reason: String) {
-        val filterReasons = getFilterReasons().toMutableMap()
-        val currentCount = filterReasons.getOrDefault(reason, 0)
-        filterReasons[reason] = currentCount + 1
-        saveFilterReasons(filterReasons)
+        val updatedCount = store.increment(STORE_FILTER_REASON_PREFIX + reason)
         
-        Log.d(TAG, "Filter reason incremented: $reason = ${currentCount + 1}")
+        Log.d(TAG, "Filter reason incremented: $reason = $updatedCount")
     }
     
     /**
      * Get total notifications received
      */
     fun getNotificationsReceived(): Int {
-        return prefs.getInt(KEY_NOTIFICATIONS_RECEIVED, 0)
+        return counter(KEY_NOTIFICATIONS_RECEIVED)
     }
     
     /**
      * Get total notifications read
      */
     fun getNotificationsRead(): Int {
-        return prefs.getInt(KEY_NOTIFICATIONS_READ, 0)
+        return counter(KEY_NOTIFICATIONS_READ)
     }
     
     /**
      * Get total readouts interrupted
      */
     fun getReadoutsInterrupted(): Int {
-        return prefs.getInt(KEY_READOUTS_INTERRUPTED, 0)
+        return counter(KEY_READOUTS_INTERRUPTED)
     }
     
     /**
@@ -266,36 +268,14 @@ class StatisticsManager private constructor(private val context: Context) {
      * Get filter reasons map (reason -> count)
      */
     fun getFilterReasons(): Map<String, Int> {
-        val json = prefs.getString(KEY_FILTER_REASONS, null)
-        return if (json != null && json.isNotEmpty()) {
-            try {
-                val type = object : TypeToken<Map<String, Int>>() {}.type
-                gson.fromJson(json, type) ?: emptyMap()
-            } catch (e: Exception) {
-                Log.e(TAG, "Error parsing filter reasons JSON", e)
-                emptyMap()
-            }
-        } else {
-            emptyMap()
-        }
+        return store.entriesWithPrefix(STORE_FILTER_REASON_PREFIX).mapValues { it.value.toInt() }
     }
     
     /**
      * Get set of apps that have been read
      */
     fun getAppsRead(): Set<String> {
-        val json = prefs.getString(KEY_APPS_READ, null)
-        return if (json != null && json.isNotEmpty()) {
-            try {
-                val type = object : TypeToken<Set<String>>() {}.type
-                gson.fromJson(json, type) ?: emptySet()
-            } catch (e: Exception) {
-                Log.e(TAG, "Error parsing apps read JSON", e)
-                emptySet()
-            }
-        } else {
-            emptySet()
-        }
+        return store.entriesWithPrefix(STORE_APP_READ_PREFIX).keys
     }
     
     /**
@@ -318,71 +298,42 @@ class StatisticsManager private constructor(private val context: Context) {
     }
 
     fun incrementListenerRebindRequested() {
-        val currentCount = prefs.getInt(KEY_LISTENER_REBINDS, 0)
-        prefs.edit().putInt(KEY_LISTENER_REBINDS, currentCount + 1).apply()
-        Log.d(TAG, "Listener rebind requested count: ${currentCount + 1}")
+        val updatedCount = incrementCounter(KEY_LISTENER_REBINDS)
+        Log.d(TAG, "Listener rebind requested count: $updatedCount")
     }
 
     fun incrementListenerRebindSkipped() {
-        val currentCount = prefs.getInt(KEY_LISTENER_REBINDS_SKIPPED, 0)
-        prefs.edit().putInt(KEY_LISTENER_REBINDS_SKIPPED, currentCount + 1).apply()
-        Log.d(TAG, "Listener rebind skipped count: ${currentCount + 1}")
+        val updatedCount = incrementCounter(KEY_LISTENER_REBINDS_SKIPPED)
+        Log.d(TAG, "Listener rebind skipped count: $updatedCount")
     }
 
     fun incrementListenerRebindRecovered() {
-        val currentCount = prefs.getInt(KEY_LISTENER_REBINDS_RECOVERED, 0)
-        prefs.edit().putInt(KEY_LISTENER_REBINDS_RECOVERED, currentCount + 1).apply()
-        Log.d(TAG, "Listener rebind recovered count: ${currentCount + 1}")
+        val updatedCount = incrementCounter(KEY_LISTENER_REBINDS_RECOVERED)
+        Log.d(TAG, "Listener rebind recovered count: $updatedCount")
     }
 
     fun getListenerRebinds(): Int {
-        return prefs.getInt(KEY_LISTENER_REBINDS, 0)
+        return counter(KEY_LISTENER_REBINDS)
     }
 
     fun getListenerRebindsSkipped(): Int {
-        return prefs.getInt(KEY_LISTENER_REBINDS_SKIPPED, 0)
+        return counter(KEY_LISTENER_REBINDS_SKIPPED)
     }
 
     fun getListenerRebindsRecovered(): Int {
-        return prefs.getInt(KEY_LISTENER_REBINDS_RECOVERED, 0)
+        return counter(KEY_LISTENER_REBINDS_RECOVERED)
     }
     
     /**
      * Reset all statistics
      */
     fun resetStats() {
-        prefs.edit()
-            .remove(KEY_NOTIFICATIONS_RECEIVED)
-            .remove(KEY_NOTIFICATIONS_READ)
-            .remove(KEY_READOUTS_INTERRUPTED)
-            .remove(KEY_FILTER_REASONS)
-            .remove(KEY_APPS_READ)
-            .remove(KEY_LISTENER_REBINDS)
-            .remove(KEY_LISTENER_REBINDS_SKIPPED)
-            .remove(KEY_LISTENER_REBINDS_RECOVERED)
-            .remove(KEY_LOGO_TAPS)
-            .apply()
+        store.removePrefix(STORE_PREFIX)
         
         Log.d(TAG, "Statistics reset")
         InAppLogger.log("Statistics", "Statistics reset")
     }
     
-    /**
-     * Save filter reasons map
-     */
-    private fun saveFilterReasons(reasons: Map<String, Int>) {
-        val json = gson.toJson(reasons)
-        prefs.edit().putString(KEY_FILTER_REASONS, json).apply()
-    }
-    
-    /**
-     * Save apps read set
-     */
-    private fun saveAppsRead(apps: Set<String>) {
-        val json = gson.toJson(apps)
-        prefs.edit().putString(KEY_APPS_READ, json).apply()
-    }
-
     private fun migrateLegacyPrefsIfNeeded() {
         val alreadyMigrated = prefs.getBoolean(KEY_STATS_MIGRATED, false)
         if (alreadyMigrated) return
@@ -408,30 +359,74 @@ class StatisticsManager private constructor(private val context: Context) {
         prefs.edit().putBoolean(KEY_STATS_MIGRATED, true).apply()
         legacyPrefs.edit().clear().apply()
 
-        InAppLogger.log("Statistics", "Migrated statistics from legacy NotificationStatistics prefs to SpeakThatPrefs")
+        InAppLogger.log("Statistics", "Migrated statistics from legacy NotificationStatistics prefs to the runtime state store")
+    }
+
+    /**
+     * Counters used to live in SpeakThatPrefs itself. Move them into the runtime state store once
+     * and drop the old keys so the configuration XML stops churning.
+     */
+    private fun migrateMainPrefsIfNeeded() {
+        if (!hasStatsKeys(prefs)) return
+
+        val snapshot = readSnapshotFromPrefs(prefs)
+        overwriteStats(snapshot)
+        prefs.edit()
+            .remove(KEY_NOTIFICATIONS_RECEIVED)
+            .remove(KEY_NOTIFICATIONS_READ)
+            .remove(KEY_READOUTS_INTERRUPTED)
+            .remove(KEY_FILTER_REASONS)
+            .remove(KEY_APPS_READ)
+            .remove(KEY_LISTENER_REBINDS)
+            .remove(KEY_LISTENER_REBINDS_SKIPPED)
+            .remove(KEY_LISTENER_REBINDS_RECOVERED)
+            .remove(KEY_LOGO_TAPS)
+            .apply()
+
+        InAppLogger.log("Statistics", "Moved statistics counters from SpeakThatPrefs to the runtime state store")
+    }
+
+    private fun hasStatsKeys(sourcePrefs: SharedPreferences): Boolean {
+        return sourcePrefs.contains(KEY_NOTIFICATIONS_RECEIVED) ||
+            sourcePrefs.contains(KEY_NOTIFICATIONS_READ) ||
+            sourcePrefs.contains(KEY_READOUTS_INTERRUPTED) ||
+            sourcePrefs.contains(KEY_FILTER_REASONS) ||
+            sourcePrefs.contains(KEY_APPS_READ) ||
+            sourcePrefs.contains(KEY_LISTENER_REBINDS) ||
+            sourcePrefs.contains(KEY_LISTENER_REBINDS_SKIPPED) ||
+            sourcePrefs.contains(KEY_LISTENER_REBINDS_RECOVERED) ||
+            sourcePrefs.contains(KEY_LOGO_TAPS)
     }
 
     private fun getSnapshot(): StatsSnapshot {
-        return readSnapshotFromPrefs(prefs)
+        return StatsSnapshot(
+            notificationsReceived = counter(KEY_NOTIFICATIONS_RECEIVED),
+            notificationsRead = counter(KEY_NOTIFICATIONS_READ),
+            readoutsInterrupted = counter(KEY_READOUTS_INTERRUPTED),
+            listenerRebinds = counter(KEY_LISTENER_REBINDS),
+            listenerRebindsSkipped = counter(KEY_LISTENER_REBINDS_SKIPPED),
+            listenerRebindsRecovered = counter(KEY_LISTENER_REBINDS_RECOVERED),
+            logoTaps = counter(KEY_LOGO_TAPS),
+            filterReasons = getFilterReasons(),
+            appsRead = getAppsRead()
+        )
     }
 
     private fun overwriteStats(snapshot: StatsSnapshot) {
-        val editor = prefs.edit()
-        editor.putInt(KEY_NOTIFICATIONS_RECEIVED, snapshot.notificationsReceived)
-        editor.putInt(KEY_NOTIFICATIONS_READ, snapshot.notificationsRead)
-        editor.putInt(KEY_READOUTS_INTERRUPTED, snapshot.readoutsInterrupted)
-        editor.putInt(KEY_LISTENER_REBINDS, snapshot.listenerRebinds)
-        editor.putInt(KEY_LISTENER_REBINDS_SKIPPED, snapshot.listenerRebindsSkipped)
-        editor.putInt(KEY_LISTENER_REBINDS_RECOVERED, snapshot.listenerRebindsRecovered)
-        editor.putInt(KEY_LOGO_TAPS, snapshot.logoTaps)
-
-        val filterReasonsJson = gson.toJson(snapshot.filterReasons)
-        editor.putString(KEY_FILTER_REASONS, filterReasonsJson)
-
-        val appsReadJson = gson.toJson(snapshot.appsRead)
-        editor.putString(KEY_APPS_READ, appsReadJson)
-
-        editor.apply()
+        store.removePrefix(STORE_PREFIX)
+        store.putLong(STORE_PREFIX + KEY_NOTIFICATIONS_RECEIVED, snapshot.notificationsReceived.toLong())
+        store.putLong(STORE_PREFIX + KEY_NOTIFICATIONS_READ, snapshot.notificationsRead.toLong())
+        store.putLong(STORE_PREFIX + KEY_READOUTS_INTERRUPTED, snapshot.readoutsInterrupted.toLong())
+        store.putLong(STORE_PREFIX + KEY_LISTENER_REBINDS, snapshot.listenerRebinds.toLong())
+        store.putLong(STORE_PREFIX + KEY_LISTENER_REBINDS_SKIPPED, snapshot.listenerRebindsSkipped.toLong())
+        store.putLong(STORE_PREFIX + KEY_LISTENER_REBINDS_RECOVERED, snapshot.listenerRebindsRecovered.toLong())
+        store.putLong(STORE_PREFIX + KEY_LOGO_TAPS, snapshot.logoTaps.toLong())
+        for ((reason, count) in snapshot.filterReasons) {
+            store.putLong(STORE_FILTER_REASON_PREFIX + reason, count.toLong())
+        }
+        for (app in snapshot.appsRead) {
+            store.putLong(STORE_APP_READ_PREFIX + app, 1L)
+        }
     }
 
     private fun readSnapshotFromPrefs(sourcePrefs: SharedPreferences): StatsSnapshot {
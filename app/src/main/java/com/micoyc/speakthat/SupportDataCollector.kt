@@ -10,6 +10,7 @@ package com.micoyc.speakthat
 import android.content.Context
 import android.content.SharedPreferences
 import android.os.Build
+import com.micoyc.speakthat.utils.ScoAudioManager
 import org.json.JSONArray
 import org.json.JSONObject
 import java.text.SimpleDateFormat
@@ -41,7 +42,10 @@ object SupportDataCollector {
         // 2. SharedPreferences (Sanitized)
         rootObject.put("shared_preferences", buildSharedPreferencesJson(context))
 
-        // 3. Event Logs
+        // 3. Runtime diagnostics
+        rootObject.put("runtime_diagnostics", buildRuntimeDiagnosticsJson())
+
+        // 4. Event Logs
         rootObject.put("event_logs", InAppLogger.getLogsAsJsonArray())
 
         return rootObject.toString(2)
@@ -69,6 +73,22 @@ object SupportDataCollector {
         return systemInfo
     }
 
+    private fun buildRuntimeDiagnosticsJson(): JSONObject {
+        val diagnostics = JSONObject()
+
+        val accessibility = JSONObject()
+        accessibility.put("events_received", SpeakThatAccessibilityService.getEventsReceived())
+        accessibility.put("events_dropped", SpeakThatAccessibilityService.getEventsDropped())
+        diagnostics.put("accessibility", accessibility)
+
+        diagnostics.put("wakeups", HousekeepingScheduler.WakeupStats.toJson(System.currentTimeMillis()))
+        NotificationReaderService.getSpeechQueueDiagnostics()?.let { diagnostics.put("speech_queue", it) }
+        diagnostics.put("bluetooth_sco", ScoAudioManager.Stats.toJson())
+        diagnostics.put("pipeline_latency", PipelineLatency.toJson())
+
+        return diagnostics
+    }
+
     private fun buildSharedPreferencesJson(context: Context): JSONObject {
         val prefsObject = JSONObject()
 
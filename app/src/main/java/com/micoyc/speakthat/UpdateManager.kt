@@ -19,7 +19,6 @@ import okhttp3.OkHttpClient
 import okhttp3.Request
 import org.json.JSONObject
 import java.io.File
-import java.io.FileOutputStream
 import java.io.IOException
 import java.security.MessageDigest
 import java.util.concurrent.TimeUnit
@@ -111,6 +110,8 @@ class UpdateManager private constructor(private val context: Context) {
         .writeTimeout(NETWORK_TIMEOUT_SECONDS, TimeUnit.SECONDS)
         .build()
     
+    private val apkDownloader = ResumableDownloader(httpClient)
+    
     /**
      * Check if app was installed from Google Play Store
      * Uses only the installer package name check, which is the most reliable method
@@ -446,8 +447,11 @@ class UpdateManager private constructor(private val context: Context) {
     
     /**
      * Download the APK file from GitHub releases
+     *
+     * Resumes a download interrupted earlier, in this call or a previous one, and checks the
+     * file's SHA-256 against the digest GitHub publishes for the asset when there is one.
      * @param updateInfo Update information containing download URL
-     * @param progressCallback Progress callback (0-100)
+     * @param progressCallback Progress callback (0-100), throttled to a few calls per second
      * @return Downloaded file or null if failed
      */
     suspend fun downloadApk(
@@ -457,52 +461,45 @@ class UpdateManager private constructor(private val context: Context) {
         try {
             Log.d(TAG, "Starting APK download: ${updateInfo.downloadUrl}")
             
-            // Create HTTP request to download APK
-            val request = Request.Builder()
-                .url(updateInfo.downloadUrl)
-                .build()
-            
-            val response = httpClient.newCall(request).execute()
-            if (!response.isSuccessful) {
-                Log.e(TAG, "Download failed with HTTP code: ${response.code}")
-                return@withContext null
-            }
-            
-            val body = response.body ?: return@withContext null
-            val contentLength = body.contentLength()
+            // Downloaded into the app's cache directory; a leftover .part file is resumed
+            val apkFile = File(context.cacheDir, "update_${updateInfo.versionName}.apk")
+            deleteStaleDownloads(apkFile)
             
-            // Create temporary file in app's cache directory
-            val tempFile = File(context.cacheDir, "update_${updateInfo.versionName}.apk")
-            
-            // Download file with progress tracking
-            FileOutputStream(tempFile).use { output ->
-                val buffer = ByteArray(8192) // 8KB buffer
-                var bytesRead: Int
-                var totalBytesRead = 0L
-                
-                body.byteStream().use { input ->
-                    while (input.read(buffer).also { bytesRead = it } != -1) {
-                        output.write(buffer, 0, bytesRead)
-                        totalBytesRead += bytesRead
-                        
-                        // Calculate and report progress percentage
-                        if (contentLength > 0) {
-                            val progress = ((totalBytesRead * 100) / contentLength).toInt()
-                            progressCallback(progress)
-                        }
-                    }
-                }
-            }
+            val result = apkDownloader.download(
+                updateInfo.downloadUrl,
+                apkFile,
+                expectedSha256 = updateInfo.sha256,
+                onProgress = progressCallback
+            )
             
-            Log.d(TAG, "APK download completed: ${tempFile.absolutePath}")
-            return@withContext tempFile
+            Log.d(TAG, "APK download completed: ${apkFile.absolutePath} (${result.length} bytes, " +
+                "resumed from ${result.resumedFrom}, ${result.attempts} attempt(s), sha256=${result.sha256})")
+            InAppLogger.log("Update", "APK downloaded, sha256=${result.sha256}" +
+                if (updateInfo.sha256 != null) " (matches release digest)" else "")
+            return@withContext apkFile
             
         } catch (e: Exception) {
             Log.e(TAG, "Error downloading APK", e)
+            InAppLogger.logError("Update", "APK download failed: ${e.message}")
             return@withContext null
         }
     }
     
+    /**
+     * Remove downloads, finished or partial, left from other versions
+     */
+    private fun deleteStaleDownloads(current: File) {
+        val keep = setOf(
+            current.name,
+            ResumableDownloader.partFileFor(current).name,
+            ResumableDownloader.etagFileFor(current).name
+        )
+        context.cacheDir.listFiles { file -> file.name.startsWith("update_") && file.name.contains(".apk") && file.name !in keep }
+            ?.forEach { stale ->
+                if (stale.delete()) Log.d(TAG, "Deleted stale download ${stale.name}")
+            }
+    }
+    
     /**
      * Verify APK signature to ensure it's from the same developer
      * This prevents downloading malware or fake updates
@@ -631,6 +628,7 @@ class UpdateManager private constructor(private val context: Context) {
         val assets = json.getJSONArray("assets")
         var downloadUrl = ""
         var fileSize = 0L
+        var sha256: String? = null
         
         for (i in 0 until assets.length()) {
             val asset = assets.getJSONObject(i)
@@ -645,6 +643,10 @@ class UpdateManager private constructor(private val context: Context) {
             if (name.endsWith(".apk")) {
                 downloadUrl = asset.getString("browser_download_url")
                 fileSize = asset.getLong("size")
+                // Newer releases carry "digest": "sha256:<hex>"
+                sha256 = asset.optString("digest", "")
+                    .takeIf { it.startsWith("sha256:") }
+                    ?.removePrefix("sha256:")
                 Log.d(TAG, "Found suitable APK for GitHub users: $name")
                 break
             }
@@ -661,7 +663,8 @@ class UpdateManager private constructor(private val context: Context) {
             downloadUrl = downloadUrl,
             fileSize = fileSize,
             releaseNotes = json.optString("body", ""),
-            releaseDate = json.optString("published_at", "")
+            releaseDate = json.optString("published_at", ""),
+            sha256 = sha256
         )
     }
     
@@ -791,6 +794,7 @@ class UpdateManager private constructor(private val context: Context) {
         val downloadUrl: String,        // Direct download URL for APK
         val fileSize: Long,             // File size in bytes
         val releaseNotes: String,       // Release notes from GitHub
-        val releaseDate: String         // Release date from GitHub
+        val releaseDate: String,        // Release date from GitHub
+        val sha256: String? = null      // SHA-256 of the APK asset, when GitHub provides one
     )
 } 
\ No newline at end of file
@@ -0,0 +1,329 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat
+
+/**
+ * Finds URLs in notification text in a single forward pass.
+ *
+ * URLs never contain whitespace, so the text is walked one whitespace-delimited token at a time and
+ * each character is looked at a bounded number of times; there is no backtracking and no length
+ * limit. Recognised forms match the old URL regex: `http(s)://…`, `www.…`, bare hosts with an
+ * alphabetic TLD (`speakthat.app`, `news.bbc.co.uk/sport`), dotted-quad IPv4, `[IPv6]` and
+ * `localhost:port`, each with an optional port and path.
+ *
+ * Differences from the regex, all deliberate: trailing sentence punctuation (and unbalanced closing
+ * brackets) is left out of the URL, numbers such as "3.14" are not hosts, a bare host must start at
+ * a word boundary, and a bare host's TLD may not be mixed case ("Mr.Smith", "done.Next").
+ */
+object UrlScanner {
+
+    enum class HostKind { DOMAIN, IPV4, IPV6, LOCALHOST }
+
+    /** One URL: `[start, end)` in the scanned text, with its host at `[hostStart, hostEnd)`. */
+    class Match(
+        val start: Int,
+        val end: Int,
+        val hostStart: Int,
+        val hostEnd: Int,
+        val kind: HostKind
+    )
+
+    private const val MAX_LABEL_LENGTH = 63
+    private const val LOCALHOST = "localhost"
+
+    /** Report every URL in [text], in order, to [onMatch]. */
+    fun scan(text: CharSequence, onMatch: (Match) -> Unit) {
+        val length = text.length
+        var i = 0
+        while (i < length) {
+            if (text[i].isWhitespace()) {
+                i++
+                continue
+            }
+            var tokenEnd = i + 1
+            while (tokenEnd < length && !text[tokenEnd].isWhitespace()) tokenEnd++
+            scanToken(text, i, tokenEnd, onMatch)
+            i = tokenEnd
+        }
+    }
+
+    fun findAll(text: CharSequence): List<Match> {
+        val matches = ArrayList<Match>()
+        scan(text) { matches.add(it) }
+        return matches
+    }
+
+    /**
+     * Replace every URL in [text] with what [transform] returns for it. Returns [text] itself when
+     * it contains no URL.
+     */
+    fun replace(text: String, transform: (url: String, match: Match) -> String): String {
+        var builder: StringBuilder? = null
+        var copied = 0
+        scan(text) { match ->
+            val out = builder ?: StringBuilder(text.length).also { builder = it }
+            out.append(text, copied, match.start)
+            out.append(transform(text.substring(match.start, match.end), match))
+            copied = match.end
+        }
+        val out = builder ?: return text
+        out.append(text, copied, text.length)
+        return out.toString()
+    }
+
+    private fun scanToken(text: CharSequence, tokenStart: Int, tokenEnd: Int, onMatch: (Match) -> Unit) {
+        var p = tokenStart
+        while (p < tokenEnd) {
+            val c = text[p]
+            if (p > tokenStart && isHostChar(text[p - 1])) {
+                // Only ever reached right after a non-host character was consumed below
+                p++
+                continue
+            }
+
+            val afterScheme = schemeEnd(text, p, tokenEnd)
+            if (afterScheme >= 0) {
+                val match = matchAfterPrefix(text, p, afterScheme, tokenEnd)
+                if (match != null) {
+                    onMatch(match)
+                    p = match.end
+                } else {
+                    p = afterScheme
+                }
+                continue
+            }
+
+            if (c == '[') {
+                val match = matchIpv6(text, p, tokenEnd)
+                if (match != null) {
+                    onMatch(match)
+                    p = match.end
+                } else {
+                    p++
+                }
+                continue
+            }
+
+            if (!c.isLetterOrDigit()) {
+                p++
+                continue
+            }
+
+            val runEnd = hostRunEnd(text, p, tokenEnd)
+            if (startsWithIgnoreCase(text, p, runEnd, "www.")) {
+                val match = matchAfterPrefix(text, p, p, tokenEnd)
+                if (match != null) {
+                    onMatch(match)
+                    p = match.end
+                    continue
+                }
+            }
+
+            val match = matchBareHost(text, p, runEnd, tokenEnd)
+            if (match != null) {
+                onMatch(match)
+                p = match.end
+            } else {
+                p = runEnd
+            }
+        }
+    }
+
+    /** `http://…`, `https://…` and `www.…`: the URL runs to the end of the token. */
+    private fun matchAfterPrefix(text: CharSequence, start: Int, hostStart: Int, tokenEnd: Int): Match? {
+        val kind: HostKind
+        val hostEnd: Int
+        if (hostStart < tokenEnd && text[hostStart] == '[') {
+            hostEnd = ipv6End(text, hostStart, tokenEnd)
+            if (hostEnd < 0) return null
+            kind = HostKind.IPV6
+        } else {
+            val runEnd = trimTrailingDots(text, hostStart, hostRunEnd(text, hostStart, tokenEnd))
+            if (runEnd <= hostStart) return null
+            kind = classifyHost(text, hostStart, runEnd, requireTld = false) ?: return null
+            hostEnd = runEnd
+        }
+        val end = maxOf(trimTrailingPunctuation(text, start, tokenEnd), hostEnd)
+        return Match(start, end, hostStart, hostEnd, kind)
+    }
+
+    private fun matchIpv6(text: CharSequence, start: Int, tokenEnd: Int): Match? {
+        val hostEnd = ipv6End(text, start, tokenEnd)
+        if (hostEnd < 0) return null
+        return Match(start, extendPastHost(text, start, hostEnd, tokenEnd), start, hostEnd, HostKind.IPV6)
+    }
+
+    private fun matchBareHost(text: CharSequence, start: Int, runEnd: Int, tokenEnd: Int): Match? {
+        val hostEnd = trimTrailingDots(text, start, runEnd)
+        val kind = if (hostEnd - start == LOCALHOST.length &&
+            startsWithIgnoreCase(text, start, hostEnd, LOCALHOST) &&
+            portEnd(text, hostEnd, tokenEnd) > hostEnd
+        ) {
+            HostKind.LOCALHOST
+        } else {
+            classifyHost(text, start, hostEnd, requireTld = true) ?: return null
+        }
+        return Match(start, extendPastHost(text, start, hostEnd, tokenEnd), start, hostEnd, kind)
+    }
+
+    /** Optional `:port`, then an optional path, query or fragment running to the end of the token. */
+    private fun extendPastHost(text: CharSequence, start: Int, hostEnd: Int, tokenEnd: Int): Int {
+        val end = portEnd(text, hostEnd, tokenEnd)
+        if (end < tokenEnd && (text[end] == '/' || text[end] == '?' || text[end] == '#')) {
+            return maxOf(trimTrailingPunctuation(text, start, tokenEnd), end)
+        }
+        return end
+    }
+
+    private fun portEnd(text: CharSequence, hostEnd: Int, tokenEnd: Int): Int {
+        if (hostEnd >= tokenEnd || text[hostEnd] != ':') return hostEnd
+        var i = hostEnd + 1
+        while (i < tokenEnd && text[i] in '0'..'9') i++
+        return if (i > hostEnd + 1) i else hostEnd
+    }
+
+    /**
+     * What the host at `[start, end)` is, or null when it is not one. With [requireTld] (bare hosts)
+     * it needs at least two labels and an alphabetic, not mixed-case TLD of two or more letters,
+     * unless it is a dotted-quad IPv4 address.
+     */
+    private fun classifyHost(text: CharSequence, start: Int, end: Int, requireTld: Boolean): HostKind? {
+        var labels = 0
+        var numericLabels = 0
+        var ipv4Valid = true
+        var labelStart = start
+        var i = start
+        while (i <= end) {
+            if (i == end || text[i] == '.') {
+                val labelLength = i - labelStart
+                if (labelLength == 0 || labelLength > MAX_LABEL_LENGTH) return null
+                if (text[labelStart] == '-' || text[i - 1] == '-') return null
+                labels++
+                if (isNumeric(text, labelStart, i)) {
+                    numericLabels++
+                    if (labelLength > 3 || parseSmallInt(text, labelStart, i) > 255) ipv4Valid = false
+                }
+                labelStart = i + 1
+            }
+            i++
+        }
+
+        if (numericLabels == labels) {
+            return if (labels == 4 && ipv4Valid) HostKind.IPV4 else null
+        }
+        if (!requireTld) {
+            return if (labels == 1 && equalsIgnoreCase(text, start, end, LOCALHOST)) HostKind.LOCALHOST else HostKind.DOMAIN
+        }
+        if (labels < 2) return null
+
+        // The TLD is the last label
+        var tldStart = end
+        while (tldStart > start && text[tldStart - 1] != '.') tldStart--
+        if (end - tldStart < 2) return null
+        var upper = 0
+        var lower = 0
+        for (j in tldStart until end) {
+            when (text[j]) {
+                in 'a'..'z' -> lower++
+                in 'A'..'Z' -> upper++
+                else -> return null
+            }
+        }
+        return if (upper == 0 || lower == 0) HostKind.DOMAIN else null
+    }
+
+    /** End of `[hex:…]` starting at [start], or -1. */
+    private fun ipv6End(text: CharSequence, start: Int, tokenEnd: Int): Int {
+        var i = start + 1
+        var colons = 0
+        while (i < tokenEnd) {
+            val c = text[i]
+            when {
+                c == ']' -> return if (colons >= 2) i + 1 else -1
+                c == ':' -> colons++
+                c == '.' || c in '0'..'9' || c in 'a'..'f' || c in 'A'..'F' -> Unit
+                else -> return -1
+            }
+            i++
+        }
+        return -1
+    }
+
+    private fun schemeEnd(text: CharSequence, p: Int, tokenEnd: Int): Int {
+        if (startsWithIgnoreCase(text, p, tokenEnd, "https://")) return p + 8
+        if (startsWithIgnoreCase(text, p, tokenEnd, "http://")) return p + 7
+        return -1
+    }
+
+    private fun hostRunEnd(text: CharSequence, start: Int, tokenEnd: Int): Int {
+        var i = start
+        while (i < tokenEnd && isHostChar(text[i])) i++
+        return i
+    }
+
+    private fun trimTrailingDots(text: CharSequence, start: Int, end: Int): Int {
+        var e = end
+        while (e > start && text[e - 1] == '.') e--
+        return e
+    }
+
+    /**
+     * Drop sentence punctuation from the end of a URL, and closing brackets that have no opening
+     * partner inside it, so "(see example.com/a)." keeps only "example.com/a".
+     */
+    private fun trimTrailingPunctuation(text: CharSequence, start: Int, end: Int): Int {
+        var openParens = 0
+        var closeParens = 0
+        var openSquare = 0
+        var closeSquare = 0
+        for (i in start until end) {
+            when (text[i]) {
+                '(' -> openParens++
+                ')' -> closeParens++
+                '[' -> openSquare++
+                ']' -> closeSquare++
+            }
+        }
+        var e = end
+        while (e > start) {
+            when (text[e - 1]) {
+                '.', ',', ';', ':', '!', '?', '\'', '"', '>', '}', '…' -> e--
+                ')' -> if (closeParens > openParens) { closeParens--; e-- } else return e
+                ']' -> if (closeSquare > openSquare) { closeSquare--; e-- } else return e
+                else -> return e
+            }
+        }
+        return e
+    }
+
+    private fun isHostChar(c: Char): Boolean = c.isLetterOrDigit() || c == '-' || c == '.'
+
+    private fun isNumeric(text: CharSequence, start: Int, end: Int): Boolean {
+        for (i in start until end) {
+            if (text[i] !in '0'..'9') return false
+        }
+        return true
+    }
+
+    private fun parseSmallInt(text: CharSequence, start: Int, end: Int): Int {
+        var value = 0
+        for (i in start until minOf(end, start + 4)) value = value * 10 + (text[i] - '0')
+        return value
+    }
+
+    private fun startsWithIgnoreCase(text: CharSequence, start: Int, end: Int, prefix: String): Boolean {
+        if (end - start < prefix.length) return false
+        for (i in prefix.indices) {
+            if (text[start + i].lowercaseChar() != prefix[i]) return false
+        }
+        return true
+    }
+
+    private fun equalsIgnoreCase(text: CharSequence, start: Int, end: Int, value: String): Boolean =
+        end - start == value.length && startsWithIgnoreCase(text, start, end, value)
+}
@@ -31,6 +31,7 @@ import android.view.View;
 import android.widget.LinearLayout;
 import java.util.HashSet;
 import com.micoyc.speakthat.tts.SpeakThatTtsManager;
+import com.micoyc.speakthat.tts.TtsCatalog;
 
 public class VoiceSettingsActivity extends AppCompatActivity implements TextToSpeech.OnInitListener {
 
@@ -109,7 +110,7 @@ public class VoiceSettingsActivity extends AppCompatActivity implements TextToSp
     private List<Locale> availableLanguages = new ArrayList<>();
     /** Entries shown in ttsLanguageSpinner (may be filtered by active engine); keep in sync with adapter. */
     private List<TtsLanguageManager.TtsLanguage> ttsLanguageSpinnerEntries = new ArrayList<>();
-    private List<TextToSpeech.EngineInfo> availableEngines = new ArrayList<>();
+    private List<TtsCatalog.EngineInfo> availableEngines = new ArrayList<>();
     private SharedPreferences sharedPreferences;
     private AudioManager audioManager;
 
@@ -222,6 +223,8 @@ public class VoiceSettingsActivity extends AppCompatActivity implements TextToSp
     }
 
     private void initializeTextToSpeech() {
+        // Voices may have been downloaded inside the engine since the catalog last captured them
+        TtsCatalog.refreshShared(this);
         SpeakThatTtsManager.initIfNeeded(this, false, status -> onInit(status));
         textToSpeech = SpeakThatTtsManager.getTextToSpeech();
         String selectedEngine = SpeakThatTtsManager.getActiveEnginePackage();
@@ -443,22 +446,14 @@ public class VoiceSettingsActivity extends AppCompatActivity implements TextToSp
     private void setupVoicesAndLanguages() {
         if (!isTtsReady) return;
 
-        // Get available voices (skip ones that still need to be downloaded)
-        Set<Voice> voices = textToSpeech.getVoices();
-        if (voices != null) {
-            availableVoices.clear();
-            int skippedNotInstalled = 0;
-            for (Voice voice : voices) {
-                if (isVoiceNotInstalled(voice)) {
-                    skippedNotInstalled++;
-                    continue;
-                }
-                availableVoices.add(voice);
-            }
-            if (skippedNotInstalled > 0) {
-                InAppLogger.log("VoiceSettings", "Skipped " + skippedNotInstalled
-                    + " voice(s) marked KEY_FEATURE_NOT_INSTALLED");
-            }
+        // Get available voices from the shared catalog (skip ones that still need to be downloaded)
+        TtsCatalog.VoiceSnapshot catalog = TtsCatalog.getVoices(textToSpeech);
+        availableVoices.clear();
+        availableVoices.addAll(catalog.getInstalledVoices());
+        int skippedNotInstalled = catalog.getVoices().size() - availableVoices.size();
+        if (skippedNotInstalled > 0) {
+            InAppLogger.log("VoiceSettings", "Skipped " + skippedNotInstalled
+                + " voice(s) marked KEY_FEATURE_NOT_INSTALLED");
         }
 
         // Get available languages
@@ -1002,8 +997,8 @@ public class VoiceSettingsActivity extends AppCompatActivity implements TextToSp
         if (textToSpeech == null || !isTtsReady) {
             return new ArrayList<>(all);
         }
-        Set<Locale> avail = textToSpeech.getAvailableLanguages();
-        if (avail == null || avail.isEmpty()) {
+        Set<Locale> avail = TtsCatalog.getVoices(textToSpeech).getAvailableLanguages();
+        if (avail.isEmpty()) {
             return new ArrayList<>(all);
         }
         List<TtsLanguageManager.TtsLanguage> filtered = new ArrayList<>();
@@ -1751,21 +1746,12 @@ public class VoiceSettingsActivity extends AppCompatActivity implements TextToSp
             && target.getCountry().equalsIgnoreCase(candidate.getCountry());
     }
 
-    /** True when the TTS engine reports this voice still needs a download before it can be used. */
-    private static boolean isVoiceNotInstalled(Voice voice) {
-        if (voice == null) {
-            return true;
-        }
-        Set<String> features = voice.getFeatures();
-        return features != null && features.contains(TextToSpeech.Engine.KEY_FEATURE_NOT_INSTALLED);
-    }
-
     private static void tryApplyLocaleMatchedVoice(TextToSpeech tts, Locale targetLocale, String reason) {
         if (tts == null || targetLocale == null) {
             return;
         }
-        Set<Voice> voices = tts.getVoices();
-        if (voices == null || voices.isEmpty()) {
+        List<Voice> voices = TtsCatalog.getVoices(tts).getInstalledVoices();
+        if (voices.isEmpty()) {
             return;
         }
 
@@ -1775,9 +1761,6 @@ public class VoiceSettingsActivity extends AppCompatActivity implements TextToSp
         Voice languageAny = null;
 
         for (Voice voice : voices) {
-            if (isVoiceNotInstalled(voice)) {
-                continue;
-            }
             Locale voiceLocale = voice.getLocale();
             if (voiceLocale == null || voiceLocale.getLanguage() == null) {
                 continue;
@@ -2033,21 +2016,20 @@ public class VoiceSettingsActivity extends AppCompatActivity implements TextToSp
         // This is the core of the voice override feature
         boolean voiceApplied = false;
         if (!voiceName.isEmpty()) {
-            Set<Voice> voices = tts.getVoices();
-            if (voices != null) {
+            TtsCatalog.VoiceSnapshot catalog = TtsCatalog.getVoices(tts);
+            List<Voice> voices = catalog.getVoices();
+            if (!voices.isEmpty()) {
                 // Enhanced logging for voice debugging
                 InAppLogger.log("VoiceSettings", "Attempting to set voice: " + voiceName);
                 InAppLogger.log("VoiceSettings", "Total available voices: " + voices.size());
                 
                 // CRITICAL: Try to find and set the exact voice
                 // This will override any language setting that was applied earlier
-                for (Voice voice : voices) {
-                    if (voice.getName().equals(voiceName)) {
-                        int voiceResult = tts.setVoice(voice);
-                        voiceApplied = (voiceResult == TextToSpeech.SUCCESS);
-                        InAppLogger.log("VoiceSettings", "Specific voice applied: " + voiceName + " (result: " + voiceResult + ", success: " + voiceApplied + ")");
-                        break;
-                    }
+                Voice exactVoice = catalog.voiceByName(voiceName);
+                if (exactVoice != null) {
+                    int voiceResult = tts.setVoice(exactVoice);
+                    voiceApplied = (voiceResult == TextToSpeech.SUCCESS);
+                    InAppLogger.log("VoiceSettings", "Specific voice applied: " + voiceName + " (result: " + voiceResult + ", success: " + voiceApplied + ")");
                 }
                 
                 if (!voiceApplied) {
@@ -2061,14 +2043,12 @@ public class VoiceSettingsActivity extends AppCompatActivity implements TextToSp
                         
                         // CRITICAL: Try to find any voice with the same language
                         // This ensures users still get a voice in their preferred language
-                        for (Voice voice : voices) {
-                            if (voice.getLocale() != null && voice.getLocale().getLanguage().equals(fallbackLanguage)) {
-                                int fallbackResult = tts.setVoice(voice);
-                                if (fallbackResult == TextToSpeech.SUCCESS) {
-                                    InAppLogger.log("VoiceSettings", "Language fallback voice applied: " + voice.getName() + " (Language: " + fallbackLanguage + ")");
-                                    voiceApplied = true;
-                                    break;
-                                }
+                        for (Voice voice : catalog.voicesForLanguage(fallbackLanguage)) {
+                            int fallbackResult = tts.setVoice(voice);
+                            if (fallbackResult == TextToSpeech.SUCCESS) {
+                                InAppLogger.log("VoiceSettings", "Language fallback voice applied: " + voice.getName() + " (Language: " + fallbackLanguage + ")");
+                                voiceApplied = true;
+                                break;
                             }
                         }
                         if (!voiceApplied) {
@@ -2341,19 +2321,16 @@ public class VoiceSettingsActivity extends AppCompatActivity implements TextToSp
 
         // Get available engines
         availableEngines.clear();
-        List<TextToSpeech.EngineInfo> engines = textToSpeech.getEngines();
-        if (engines != null) {
-            availableEngines.addAll(engines);
-        }
+        availableEngines.addAll(TtsCatalog.getEngines(this));
 
         // Create engine names list
         List<String> engineNames = new ArrayList<>();
         engineNames.add(getString(R.string.tts_engine_system_default)); // "System Default"
 
-        for (TextToSpeech.EngineInfo engine : availableEngines) {
-            String displayName = engine.label;
-            if (displayName == null || displayName.isEmpty()) {
-                displayName = engine.name; // Fallback to package name
+        for (TtsCatalog.EngineInfo engine : availableEngines) {
+            String displayName = engine.getLabel();
+            if (displayName.isEmpty()) {
+                displayName = engine.getPackageName(); // Fallback to package name
             }
             engineNames.add(displayName);
         }
@@ -2370,7 +2347,7 @@ public class VoiceSettingsActivity extends AppCompatActivity implements TextToSp
         
         if (!savedEngine.isEmpty()) {
             for (int i = 0; i < availableEngines.size(); i++) {
-                if (availableEngines.get(i).name.equals(savedEngine)) {
+                if (availableEngines.get(i).getPackageName().equals(savedEngine)) {
                     selectedIndex = i + 1; // +1 because index 0 is "System Default"
                     break;
                 }
@@ -2390,7 +2367,7 @@ public class VoiceSettingsActivity extends AppCompatActivity implements TextToSp
                     // Custom engine selected
                     int engineIndex = position - 1; // -1 because position 0 is "System Default"
                     if (engineIndex < availableEngines.size()) {
-                        String enginePackage = availableEngines.get(engineIndex).name;
+                        String enginePackage = availableEngines.get(engineIndex).getPackageName();
                         saveTtsEngine(enginePackage);
                     }
                 }
@@ -2485,17 +2462,17 @@ public class VoiceSettingsActivity extends AppCompatActivity implements TextToSp
         
         // Available engines
         info.append("Available Engines (").append(availableEngines.size()).append("):\n");
-        for (TextToSpeech.EngineInfo engine : availableEngines) {
-            info.append("• ").append(engine.label != null ? engine.label : engine.name);
-            if (engine.name.equals(currentEngine)) {
+        for (TtsCatalog.EngineInfo engine : availableEngines) {
+            info.append("• ").append(engine.getLabel());
+            if (engine.getPackageName().equals(currentEngine)) {
                 info.append(" (Current)");
             }
             info.append("\n");
         }
         
         // Voice count for current engine
-        Set<Voice> voices = textToSpeech.getVoices();
-        if (voices != null) {
+        List<Voice> voices = TtsCatalog.getVoices(textToSpeech).getVoices();
+        if (!voices.isEmpty()) {
             info.append("\nAvailable Voices: ").append(voices.size()).append("\n");
             
             // Count network vs local voices
@@ -0,0 +1,93 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat.gesture
+
+import android.hardware.Sensor
+import android.hardware.SensorEventListener
+import android.hardware.SensorManager
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.Process
+
+/**
+ * Dedicated looper for shake/wave-to-stop sensor delivery.
+ *
+ * Sensor callbacks and evaluator state live on this thread so the main looper is never woken per
+ * sample. Callers post state changes (session prepare/reset) through [post] so they are ordered
+ * with the sensor events, and hop back to the main thread only when a gesture actually fires.
+ */
+class GestureSensorLooper(private val sensorManager: SensorManager) {
+
+    companion object {
+        private const val THREAD_NAME = "SpeakThat-GestureSensors"
+
+        /**
+         * Accelerometer samples may sit in the hardware FIFO for this long before delivery.
+         * Shake-to-stop tolerates a few hundred ms of extra latency, and the AP gets to stay idle
+         * between batches instead of waking for every sample.
+         */
+        const val ACCELEROMETER_MAX_REPORT_LATENCY_US = 400_000
+    }
+
+    private var thread: HandlerThread? = null
+    private var handler: Handler? = null
+
+    @Synchronized
+    fun handler(): Handler {
+        handler?.let { return it }
+        val newThread = HandlerThread(THREAD_NAME, Process.THREAD_PRIORITY_DISPLAY).apply { start() }
+        thread = newThread
+        return Handler(newThread.looper).also { handler = it }
+    }
+
+    fun post(block: Runnable) {
+        handler().post(block)
+    }
+
+    /** Like [post], but does not start the thread just to run [block]. */
+    fun postIfRunning(block: Runnable) {
+        handler?.post(block)
+    }
+
+    fun postDelayed(block: Runnable, delayMs: Long) {
+        handler().postDelayed(block, delayMs)
+    }
+
+    fun removeCallbacks(block: Runnable) {
+        handler?.removeCallbacks(block)
+    }
+
+    /**
+     * Register [listener] for [sensor] on the gesture thread. Continuous sensors with a hardware
+     * FIFO are batched up to [ACCELEROMETER_MAX_REPORT_LATENCY_US]; on-change sensors such as
+     * proximity (a wake-up sensor on conforming devices) are delivered as soon as they change.
+     */
+    fun register(listener: SensorEventListener, sensor: Sensor, samplingPeriodUs: Int): Boolean {
+        val maxReportLatencyUs = if (sensor.fifoMaxEventCount > 0 &&
+            sensor.reportingMode == Sensor.REPORTING_MODE_CONTINUOUS
+        ) {
+            ACCELEROMETER_MAX_REPORT_LATENCY_US
+        } else {
+            0
+        }
+        return sensorManager.registerListener(listener, sensor, samplingPeriodUs, maxReportLatencyUs, handler())
+    }
+
+    fun unregister(listener: SensorEventListener) {
+        sensorManager.unregisterListener(listener)
+        handler?.removeCallbacksAndMessages(null)
+    }
+
+    @Synchronized
+    fun quit() {
+        handler?.removeCallbacksAndMessages(null)
+        thread?.quitSafely()
+        thread = null
+        handler = null
+    }
+}
@@ -7,9 +7,15 @@
 
 package com.micoyc.speakthat.gesture
 
-import android.hardware.SensorManager
 import kotlin.math.sqrt
 
+/**
+ * Shake detector fed from accelerometer samples.
+ *
+ * [evaluate] runs once per sensor sample, so it returns a primitive result code and exposes the
+ * details of the last evaluation through [lastShakeValue], [currentCount] and [lastFailedCount]
+ * instead of allocating a result object per sample.
+ */
 class ShakeEvaluator(
     private var targetCount: Int = 1,
     private var threshold: Float = 12.0f
@@ -17,12 +23,33 @@ class ShakeEvaluator(
     companion object {
         const val SHAKE_DEBOUNCE_MS = 200L
         const val MULTI_SHAKE_WINDOW_MS = 1000L
+
+        // Same value as SensorManager.GRAVITY_EARTH; kept local so the evaluator stays JVM-testable.
+        const val GRAVITY_EARTH = 9.80665f
+
+        const val RESULT_NO_ACTION = 0
+        const val RESULT_IGNORED = 1
+        const val RESULT_VALID_SHAKE = 2
+        const val RESULT_TARGET_REACHED = 3
+        const val RESULT_WINDOW_EXPIRED = 4
     }
 
     private var currentShakeCount = 0
     private var lastShakeTimeMs = 0L
     private var firstShakeTimeMs = 0L
 
+    /** Gravity-compensated magnitude of the last evaluated sample. */
+    var lastShakeValue = 0f
+        private set
+
+    /** Shake count reached by the last [RESULT_VALID_SHAKE]. */
+    val currentCount: Int
+        get() = currentShakeCount
+
+    /** Shakes discarded by the last [RESULT_WINDOW_EXPIRED]. */
+    var lastFailedCount = 0
+        private set
+
     fun setTargetCount(count: Int) {
         targetCount = count
     }
@@ -31,21 +58,22 @@ class ShakeEvaluator(
         threshold = newThreshold
     }
 
-    fun evaluate(x: Float, y: Float, z: Float): EvaluationResult {
-        val currentTime = System.currentTimeMillis()
-        val shakeValue = (sqrt(x * x + y * y + z * z) - SensorManager.GRAVITY_EARTH).toFloat()
+    @JvmOverloads
+    fun evaluate(x: Float, y: Float, z: Float, currentTime: Long = System.currentTimeMillis()): Int {
+        val shakeValue = sqrt(x * x + y * y + z * z) - GRAVITY_EARTH
+        lastShakeValue = shakeValue
 
         // Handle window timeout
         if (currentShakeCount > 0 && currentTime - firstShakeTimeMs > MULTI_SHAKE_WINDOW_MS) {
-            val failedCount = currentShakeCount
+            lastFailedCount = currentShakeCount
             currentShakeCount = 0
-            return EvaluationResult.WindowExpired(failedCount, shakeValue)
+            return RESULT_WINDOW_EXPIRED
         }
 
         if (shakeValue >= threshold) {
             // Debounce
             if (currentTime - lastShakeTimeMs < SHAKE_DEBOUNCE_MS) {
-                return EvaluationResult.Ignored(shakeValue)
+                return RESULT_IGNORED
             }
 
             if (currentShakeCount == 0) {
@@ -57,28 +85,19 @@ class ShakeEvaluator(
 
             if (currentShakeCount >= targetCount) {
                 currentShakeCount = 0
-                return EvaluationResult.TargetReached(shakeValue)
-            } else {
-                return EvaluationResult.ValidShake(currentShakeCount, shakeValue)
+                return RESULT_TARGET_REACHED
             }
+            return RESULT_VALID_SHAKE
         }
 
-        return EvaluationResult.NoAction(shakeValue)
+        return RESULT_NO_ACTION
     }
 
     fun reset() {
         currentShakeCount = 0
         lastShakeTimeMs = 0L
         firstShakeTimeMs = 0L
-    }
-
-    sealed class EvaluationResult {
-        abstract val shakeValue: Float
-        
-        data class TargetReached(override val shakeValue: Float) : EvaluationResult()
-        data class ValidShake(val currentCount: Int, override val shakeValue: Float) : EvaluationResult()
-        data class WindowExpired(val failedCount: Int, override val shakeValue: Float) : EvaluationResult()
-        data class Ignored(override val shakeValue: Float) : EvaluationResult()
-        data class NoAction(override val shakeValue: Float) : EvaluationResult()
+        lastShakeValue = 0f
+        lastFailedCount = 0
     }
 }
@@ -7,6 +7,12 @@
 
 package com.micoyc.speakthat.gesture
 
+/**
+ * Wave (proximity cover) detector fed from proximity sensor samples.
+ *
+ * Like [ShakeEvaluator], [evaluate] returns a primitive result code; [currentCount],
+ * [lastFailedCount] and [holdDurationMs] carry the details for codes that need them.
+ */
 class WaveEvaluator(
     private var targetCount: Int = 1,
     private var waveHoldDurationMs: Long = 0L,
@@ -17,6 +23,14 @@ class WaveEvaluator(
         const val MULTI_WAVE_WINDOW_MS = 1200L
         const val WAVE_STARTUP_GRACE_MS = 500L
         const val MIN_WAVE_HOLD_DURATION_MS = 50L
+
+        const val RESULT_NO_ACTION = 0
+        const val RESULT_IGNORED = 1
+        const val RESULT_VALID_WAVE = 2
+        const val RESULT_TARGET_REACHED = 3
+        const val RESULT_WINDOW_EXPIRED = 4
+        const val RESULT_HOLD_SCHEDULED = 5
+        const val RESULT_HOLD_CANCELLED = 6
     }
 
     private var currentWaveCount = 0
@@ -30,6 +44,18 @@ class WaveEvaluator(
     
     private var speechStartTimestamp = 0L
 
+    /** Wave count reached by the last [RESULT_VALID_WAVE]. */
+    val currentCount: Int
+        get() = currentWaveCount
+
+    /** Waves discarded by the last [RESULT_WINDOW_EXPIRED]. */
+    var lastFailedCount = 0
+        private set
+
+    /** Hold the caller should wait for after [RESULT_HOLD_SCHEDULED]. */
+    val holdDurationMs: Long
+        get() = waveHoldDurationMs
+
     fun setTargetCount(count: Int) {
         targetCount = count
     }
@@ -81,16 +107,17 @@ class WaveEvaluator(
 
     fun pocketCoveredAtStart(): Boolean = wasSensorCoveredAtStart
 
-    fun evaluate(isNear: Boolean, isCurrentlySpeaking: Boolean, currentTime: Long = System.currentTimeMillis()): EvaluationResult {
+    @JvmOverloads
+    fun evaluate(isNear: Boolean, isCurrentlySpeaking: Boolean, currentTime: Long = System.currentTimeMillis()): Int {
         var windowExpired = false
-        var failedCount = 0
 
         // Handle window timeout for multi-wave
         if (targetCount > 1 && currentWaveCount > 0 && currentTime - firstWaveTimeMs > MULTI_WAVE_WINDOW_MS) {
-            failedCount = currentWaveCount
+            lastFailedCount = currentWaveCount
             currentWaveCount = 0
             windowExpired = true
         }
+        val idleResult = if (windowExpired) RESULT_WINDOW_EXPIRED else RESULT_IGNORED
 
         val wasCovered = isSensorCurrentlyCovered
         isSensorCurrentlyCovered = isNear
@@ -100,35 +127,35 @@ class WaveEvaluator(
             wasSensorCoveredAtStart = isNear
             hasCapturedStartProximity = true
             if (isNear && currentTime - speechStartTimestamp <= WAVE_STARTUP_GRACE_MS) {
-                return if (windowExpired) EvaluationResult.WindowExpired(failedCount) else EvaluationResult.Ignored
+                return idleResult
             }
         }
 
         if (wasCovered && !isSensorCurrentlyCovered) {
             hasSensorBeenUncovered = true
             if (targetCount == 1) {
-                return EvaluationResult.HoldCancelled
+                return RESULT_HOLD_CANCELLED
             }
         }
 
         if (isNear) {
             if (isPocketModeEnabled && wasSensorCoveredAtStart && !hasSensorBeenUncovered) {
-                return if (windowExpired) EvaluationResult.WindowExpired(failedCount) else EvaluationResult.Ignored
+                return idleResult
             }
 
             if (targetCount == 1) {
                 if (!wasCovered) {
-                    if (waveHoldDurationMs <= MIN_WAVE_HOLD_DURATION_MS) {
-                        return EvaluationResult.TargetReached
+                    return if (waveHoldDurationMs <= MIN_WAVE_HOLD_DURATION_MS) {
+                        RESULT_TARGET_REACHED
                     } else {
-                        return EvaluationResult.HoldScheduled(waveHoldDurationMs)
+                        RESULT_HOLD_SCHEDULED
                     }
                 }
             } else {
                 // Multi-wave logic: Look for FAR -> NEAR transitions
                 if (!wasCovered) {
                     if (currentTime - lastWaveTimeMs < WAVE_DEBOUNCE_MS) {
-                        return if (windowExpired) EvaluationResult.WindowExpired(failedCount) else EvaluationResult.Ignored
+                        return idleResult
                     }
 
                     if (currentWaveCount == 0) {
@@ -140,19 +167,14 @@ class WaveEvaluator(
 
                     if (currentWaveCount >= targetCount) {
                         currentWaveCount = 0
-                        return EvaluationResult.TargetReached
-                    } else {
-                        return EvaluationResult.ValidWave(currentWaveCount)
+                        return RESULT_TARGET_REACHED
                     }
+                    return RESULT_VALID_WAVE
                 }
             }
         }
 
-        return if (windowExpired) {
-            EvaluationResult.WindowExpired(failedCount)
-        } else {
-            EvaluationResult.NoAction
-        }
+        return if (windowExpired) RESULT_WINDOW_EXPIRED else RESULT_NO_ACTION
     }
 
     fun isSensorCurrentlyCovered(): Boolean {
@@ -172,15 +194,6 @@ class WaveEvaluator(
         hasSensorBeenUncovered = false
         hasCapturedStartProximity = false
         speechStartTimestamp = 0L
-    }
-
-    sealed class EvaluationResult {
-        data class HoldScheduled(val holdDurationMs: Long) : EvaluationResult()
-        data object HoldCancelled : EvaluationResult()
-        data object TargetReached : EvaluationResult()
-        data class ValidWave(val currentCount: Int) : EvaluationResult()
-        data class WindowExpired(val failedCount: Int) : EvaluationResult()
-        data object Ignored : EvaluationResult()
-        data object NoAction : EvaluationResult()
+        lastFailedCount = 0
     }
 }
@@ -28,6 +28,8 @@ import com.micoyc.speakthat.R
 import com.micoyc.speakthat.SpeechTemplateConstants
 import com.micoyc.speakthat.databinding.ActivityActionConfigBinding
 import com.micoyc.speakthat.settings.managers.SpeechTemplateManager
+import com.micoyc.speakthat.tts.SpeakThatTtsManager
+import com.micoyc.speakthat.tts.TtsCatalog
 
 class ActionConfigActivity : AppCompatActivity() {
 
@@ -43,6 +45,7 @@ class ActionConfigActivity : AppCompatActivity() {
     private var overrideLanguageLabels: List<String> = emptyList()
     private var overrideVoiceOptions: List<OverrideVoiceOption> = emptyList()
     private var voiceOverrideTts: TextToSpeech? = null
+    private var overrideVoiceSnapshot: TtsCatalog.VoiceSnapshot? = null
     private var pendingOverrideVoiceSelection: String? = null
     private var initialAction: Action? = null
 
@@ -221,7 +224,15 @@ class ActionConfigActivity : AppCompatActivity() {
     }
 
     private fun ensureVoiceOverrideTts() {
-        if (voiceOverrideTts != null) {
+        if (overrideVoiceSnapshot != null || voiceOverrideTts != null) {
+            refreshOverrideVoiceOptions()
+            return
+        }
+
+        // The shared catalog already holds the voices once the app's engine has initialised
+        val cached = TtsCatalog.getSnapshot(SpeakThatTtsManager.getPreferredEnginePackage(this))
+        if (cached != null) {
+            overrideVoiceSnapshot = cached
             refreshOverrideVoiceOptions()
             return
         }
@@ -239,12 +250,16 @@ class ActionConfigActivity : AppCompatActivity() {
             InAppLogger.logError("ActionConfigActivity", "Voice override TTS init failed: $status")
             return
         }
+        val tts = voiceOverrideTts ?: return
+        // Publish what this binding found so the next picker does not need one, then let it go
+        overrideVoiceSnapshot = TtsCatalog.publish(tts, SpeakThatTtsManager.getPreferredEnginePackage(this))
+        tts.shutdown()
+        voiceOverrideTts = null
         refreshOverrideVoiceOptions()
     }
 
     private fun refreshOverrideVoiceOptions() {
-        val tts = voiceOverrideTts
-        val voiceOptions = tts?.voices
+        val voiceOptions = overrideVoiceSnapshot?.voices
             ?.map { buildOverrideVoiceOption(it) }
             ?.sortedBy { it.label.lowercase() }
             .orEmpty()
@@ -7,8 +7,6 @@
 
 package com.micoyc.speakthat.rules
 
-import android.os.Bundle
-
 /**
  * Per-notification context passed into the rules engine.
  * Keep this lightweight and non-serializable by default.
@@ -24,7 +22,6 @@ data class NotificationContext(
     val channelId: String?,
     val isOngoing: Boolean,
     val postTime: Long,
-    val extras: Bundle? = null,
     var shouldKeepEmojis: Boolean = false,
     var shouldKeepDigits: Boolean = false
 )
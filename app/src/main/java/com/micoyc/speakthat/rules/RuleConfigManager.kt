@@ -11,6 +11,8 @@ import android.content.Context
 import com.google.gson.Gson
 import com.google.gson.GsonBuilder
 import com.google.gson.reflect.TypeToken
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonWriter
 import com.micoyc.speakthat.BuildConfig
 import com.micoyc.speakthat.InAppLogger
 import com.micoyc.speakthat.automation.AutomationMode
@@ -72,10 +74,17 @@ object RuleConfigManager {
         return extractRulesFromJson(json) ?: emptyList()
     }
 
+    /** Write all saved rules as a JSON array at the current position of [writer]. */
     @JvmStatic
-    fun extractRulesFromFullConfig(jsonData: String): List<Rule> {
-        val json = JSONObject(jsonData)
-        return extractRulesFromJson(json) ?: emptyList()
+    fun writeRules(context: Context, writer: JsonWriter) {
+        val rules = RuleManager(context).getAllRules()
+        buildGson().toJson(rules, ruleListType(), writer)
+    }
+
+    /** Read a JSON array of rules at the current position of [reader]. */
+    @JvmStatic
+    fun readRules(reader: JsonReader): List<Rule> {
+        return buildGson().fromJson<List<Rule>>(reader, ruleListType()) ?: emptyList()
     }
 
     @JvmStatic
@@ -137,10 +146,11 @@ object RuleConfigManager {
         }
         val rulesArray = json.optJSONArray("rules") ?: JSONArray()
         val rulesJson = rulesArray.toString()
-        val type = object : TypeToken<List<Rule>>() {}.type
-        return buildGson().fromJson(rulesJson, type) ?: emptyList()
+        return buildGson().fromJson(rulesJson, ruleListType()) ?: emptyList()
     }
 
+    private fun ruleListType() = object : TypeToken<List<Rule>>() {}.type
+
     private fun ruleRequiresBluetooth(rule: Rule): Boolean {
         val triggerRequires = rule.triggers.any { it.enabled && it.type == TriggerType.BLUETOOTH_DEVICE }
         val exceptionRequires = rule.exceptions.any { it.enabled && it.type == ExceptionType.BLUETOOTH_DEVICE }
@@ -625,6 +625,18 @@ class RuleEvaluator(private val context: Context) {
         }
     }
 
+    /** Screen on and unlocked, so a stale SystemUI foreground state can be looked through. */
+    private fun isDeviceInUse(): Boolean {
+        return try {
+            val powerManager = context.getSystemService(Context.POWER_SERVICE) as android.os.PowerManager
+            val keyguardManager = context.getSystemService(Context.KEYGUARD_SERVICE) as android.app.KeyguardManager
+            powerManager.isInteractive && !keyguardManager.isKeyguardLocked
+        } catch (e: Exception) {
+            InAppLogger.logError(TAG, "Error reading screen and lock state: ${e.message}")
+            false
+        }
+    }
+
     private fun evaluateDeviceUnlockedTrigger(trigger: Trigger): EvaluationResult {
         try {
             val keyguardManager = context.getSystemService(Context.KEYGUARD_SERVICE) as android.app.KeyguardManager
@@ -785,7 +797,7 @@ class RuleEvaluator(private val context: Context) {
         }
 
         val currentPackage = ForegroundAppTracker.getCurrentPackage()
-        val effectivePackage = ForegroundAppTracker.getEffectivePackage(15000L)
+        val effectivePackage = ForegroundAppTracker.getEffectivePackage(15000L, isDeviceInUse())
         if (effectivePackage.isNullOrBlank()) {
             InAppLogger.logDebug(TAG, "Foreground app package is unknown (no accessibility events yet)")
             return EvaluationResult(false, "Foreground app unknown")
@@ -1412,7 +1424,7 @@ class RuleEvaluator(private val context: Context) {
         }
 
         val currentPackage = ForegroundAppTracker.getCurrentPackage()
-        val effectivePackage = ForegroundAppTracker.getEffectivePackage(15000L)
+        val effectivePackage = ForegroundAppTracker.getEffectivePackage(15000L, isDeviceInUse())
         if (effectivePackage.isNullOrBlank()) {
             InAppLogger.logDebug(TAG, "Foreground app package is unknown (no accessibility events yet)")
             return EvaluationResult(false, "Foreground app unknown")
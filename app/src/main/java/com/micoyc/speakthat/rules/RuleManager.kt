@@ -229,6 +229,14 @@ class RuleManager(private val context: Context) {
         return loadRules().filter { it.enabled }
     }
     
+    /**
+     * True when the rules system is on and at least one enabled rule uses the Foreground App
+     * condition, i.e. the accessibility service has to report window changes.
+     */
+    fun needsForegroundAppTracking(): Boolean {
+        return isRulesEnabled() && getEnabledRules().any { it.requiresAccessibilityService() }
+    }
+    
     /**
      * Get all rules (enabled and disabled)
      */
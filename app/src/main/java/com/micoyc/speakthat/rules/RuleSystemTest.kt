@@ -655,8 +655,7 @@ class RuleSystemTest(private val context: Context) {
             category = null,
             channelId = null,
             isOngoing = false,
-            postTime = System.currentTimeMillis(),
-            extras = null
+            postTime = System.currentTimeMillis()
         )
     }
 } 
\ No newline at end of file
@@ -21,6 +21,8 @@ public class BehaviorSettingsStore {
     public static final String KEY_PRIORITY_APPS = "priority_apps";
     public static final String KEY_SKIP_REPEATED_NOTIFICATION_PREFIX = "skip_notification_repeated_prefix";
     public static final String KEY_PREFIX_MEMORY_TIMEOUT = "prefix_memory_timeout_seconds";
+    public static final String KEY_QUEUE_MAX_AGE_SECONDS = "queue_max_age_seconds";
+    public static final String KEY_BURST_COALESCING_ENABLED = "burst_coalescing_enabled";
     public static final String KEY_SHAKE_TO_STOP_ENABLED = "shake_to_stop_enabled";
     public static final String KEY_SHAKE_THRESHOLD = "shake_threshold";
     public static final String KEY_SHAKE_COUNT_TARGET = "shake_count_target";
@@ -91,6 +93,8 @@ public class BehaviorSettingsStore {
     public static final boolean DEFAULT_NOTIFICATION_DEDUPLICATION = false;
     public static final boolean DEFAULT_SKIP_REPEATED_NOTIFICATION_PREFIX = false;
     public static final int DEFAULT_PREFIX_MEMORY_TIMEOUT = 60;
+    public static final int DEFAULT_QUEUE_MAX_AGE_SECONDS = 300;
+    public static final boolean DEFAULT_BURST_COALESCING_ENABLED = false;
     public static final boolean DEFAULT_DISMISSAL_MEMORY_ENABLED = true;
     public static final int DEFAULT_DISMISSAL_MEMORY_TIMEOUT = 15;
     public static final int DEFAULT_WAVE_HOLD_DURATION_MS = 150;
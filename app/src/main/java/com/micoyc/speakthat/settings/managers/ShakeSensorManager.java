@@ -92,8 +92,9 @@ public class ShakeSensorManager implements SensorEventListener {
         float y = event.values[1];
         float z = event.values[2];
 
-        ShakeEvaluator.EvaluationResult result = evaluator.evaluate(x, y, z);
-        float currentShakeValue = result.getShakeValue();
+        int result = evaluator.evaluate(x, y, z);
+        float currentShakeValue = evaluator.getLastShakeValue();
+        int currentCount = evaluator.getCurrentCount();
 
         if (currentShakeValue > maxShakeValue) {
             maxShakeValue = currentShakeValue;
@@ -102,12 +103,11 @@ public class ShakeSensorManager implements SensorEventListener {
         if (listener != null) {
             uiHandler.post(() -> {
                 listener.onShakeValue(currentShakeValue, maxShakeValue);
-                if (result instanceof ShakeEvaluator.EvaluationResult.ValidShake) {
-                    ShakeEvaluator.EvaluationResult.ValidShake validShake = (ShakeEvaluator.EvaluationResult.ValidShake) result;
-                    listener.onValidShake(validShake.getCurrentCount(), targetCount);
-                } else if (result instanceof ShakeEvaluator.EvaluationResult.TargetReached) {
+                if (result == ShakeEvaluator.RESULT_VALID_SHAKE) {
+                    listener.onValidShake(currentCount, targetCount);
+                } else if (result == ShakeEvaluator.RESULT_TARGET_REACHED) {
                     listener.onTargetReached();
-                } else if (result instanceof ShakeEvaluator.EvaluationResult.WindowExpired) {
+                } else if (result == ShakeEvaluator.RESULT_WINDOW_EXPIRED) {
                     listener.onWindowExpired();
                 }
             });
@@ -87,21 +87,21 @@ public class WaveSensorManager implements SensorEventListener {
         float proximityValue = event.values[0];
         boolean isNear = ProximityCover.isCovered(proximityValue, proximitySensor);
 
-        WaveEvaluator.EvaluationResult result = evaluator.evaluate(isNear, true, System.currentTimeMillis());
+        int result = evaluator.evaluate(isNear, true, System.currentTimeMillis());
+        int currentCount = evaluator.getCurrentCount();
+        long holdDurationMs = evaluator.getHoldDurationMs();
 
         if (listener != null) {
             uiHandler.post(() -> {
-                if (result instanceof WaveEvaluator.EvaluationResult.ValidWave) {
-                    WaveEvaluator.EvaluationResult.ValidWave validWave = (WaveEvaluator.EvaluationResult.ValidWave) result;
-                    listener.onValidWave(validWave.getCurrentCount(), targetCount);
-                } else if (result instanceof WaveEvaluator.EvaluationResult.TargetReached) {
+                if (result == WaveEvaluator.RESULT_VALID_WAVE) {
+                    listener.onValidWave(currentCount, targetCount);
+                } else if (result == WaveEvaluator.RESULT_TARGET_REACHED) {
                     listener.onTargetReached();
-                } else if (result instanceof WaveEvaluator.EvaluationResult.WindowExpired) {
+                } else if (result == WaveEvaluator.RESULT_WINDOW_EXPIRED) {
                     listener.onWindowExpired();
-                } else if (result instanceof WaveEvaluator.EvaluationResult.HoldScheduled) {
-                    WaveEvaluator.EvaluationResult.HoldScheduled scheduled = (WaveEvaluator.EvaluationResult.HoldScheduled) result;
-                    listener.onHoldScheduled(scheduled.getHoldDurationMs());
-                } else if (result instanceof WaveEvaluator.EvaluationResult.HoldCancelled) {
+                } else if (result == WaveEvaluator.RESULT_HOLD_SCHEDULED) {
+                    listener.onHoldScheduled(holdDurationMs);
+                } else if (result == WaveEvaluator.RESULT_HOLD_CANCELLED) {
                     listener.onHoldCancelled();
                 }
             });
@@ -83,6 +83,16 @@ public class NotificationBehaviorSection implements BehaviorSettingsSection {
             binding.layoutPrefixMemoryTimeout.setVisibility(isChecked ? View.VISIBLE : View.GONE);
         });
 
+        binding.switchBurstCoalescing.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            if (store.isInitializing()) {
+                return;
+            }
+            store.prefs().edit().putBoolean(
+                BehaviorSettingsStore.KEY_BURST_COALESCING_ENABLED,
+                isChecked
+            ).apply();
+        });
+
         binding.sliderPrefixMemoryTimeout.addOnChangeListener((slider, value, fromUser) -> {
             if (fromUser) {
                 int timeout = (int) value;
@@ -111,10 +121,24 @@ public class NotificationBehaviorSection implements BehaviorSettingsSection {
             binding.priorityAppsSection.setVisibility(
                 "smart".equals(mode) ? View.VISIBLE : View.GONE
             );
+            updateQueueMaxAgeVisibility(mode);
 
             saveBehaviorMode(mode);
         });
 
+        binding.sliderQueueMaxAge.addOnChangeListener((slider, value, fromUser) -> {
+            if (fromUser) {
+                int maxAge = (int) value;
+                updateQueueMaxAgeLabel(maxAge);
+                if (!store.isInitializing()) {
+                    store.prefs().edit().putInt(
+                        BehaviorSettingsStore.KEY_QUEUE_MAX_AGE_SECONDS,
+                        maxAge
+                    ).apply();
+                }
+            }
+        });
+
         setupPriorityAppsRecycler();
         binding.btnManagePriorityApps.setOnClickListener(v -> openPriorityAppPicker());
         binding.priorityAppsHeader.setOnClickListener(v -> togglePriorityApps());
@@ -142,6 +166,14 @@ public class NotificationBehaviorSection implements BehaviorSettingsSection {
                 binding.priorityAppsSection.setVisibility(View.GONE);
                 break;
         }
+        updateQueueMaxAgeVisibility(behaviorMode);
+
+        int queueMaxAge = store.prefs().getInt(
+            BehaviorSettingsStore.KEY_QUEUE_MAX_AGE_SECONDS,
+            BehaviorSettingsStore.DEFAULT_QUEUE_MAX_AGE_SECONDS
+        );
+        binding.sliderQueueMaxAge.setValue(Math.max(0, Math.min(600, queueMaxAge / 30 * 30)));
+        updateQueueMaxAgeLabel(queueMaxAge);
 
         Set<String> priorityApps = store.prefs().getStringSet(
             BehaviorSettingsStore.KEY_PRIORITY_APPS,
@@ -159,6 +191,11 @@ public class NotificationBehaviorSection implements BehaviorSettingsSection {
         switchSkipRepeatedNotificationPrefixes.setChecked(skipRepeatedPrefix);
         binding.layoutPrefixMemoryTimeout.setVisibility(skipRepeatedPrefix ? View.VISIBLE : View.GONE);
 
+        binding.switchBurstCoalescing.setChecked(store.prefs().getBoolean(
+            BehaviorSettingsStore.KEY_BURST_COALESCING_ENABLED,
+            BehaviorSettingsStore.DEFAULT_BURST_COALESCING_ENABLED
+        ));
+
         int prefixMemoryTimeout = store.prefs().getInt(
             BehaviorSettingsStore.KEY_PREFIX_MEMORY_TIMEOUT,
             BehaviorSettingsStore.DEFAULT_PREFIX_MEMORY_TIMEOUT
@@ -182,6 +219,17 @@ public class NotificationBehaviorSection implements BehaviorSettingsSection {
         binding.recyclerPriorityApps.setAdapter(priorityAppAdapter);
     }
 
+    private void updateQueueMaxAgeVisibility(String mode) {
+        boolean queues = "queue".equals(mode) || "smart".equals(mode);
+        binding.layoutQueueMaxAge.setVisibility(queues ? View.VISIBLE : View.GONE);
+    }
+
+    private void updateQueueMaxAgeLabel(int seconds) {
+        binding.tvQueueMaxAgeValue.setText(seconds <= 0
+            ? activity.getString(R.string.behavior_queue_max_age_never)
+            : activity.getString(R.string.behavior_queue_max_age_value, seconds));
+    }
+
     private void openPriorityAppPicker() {
         ArrayList<String> selectedPackages = new ArrayList<>(priorityAppsList);
         Intent intent = AppPickerActivity.createIntent(
@@ -53,6 +53,7 @@ import androidx.core.os.BundleCompat
 import com.micoyc.speakthat.InAppLogger
 import com.micoyc.speakthat.MainActivity
 import com.micoyc.speakthat.NotificationReaderService
+import com.micoyc.speakthat.ParsedNotification
 import com.micoyc.speakthat.R
 import com.micoyc.speakthat.VoiceSettingsActivity
 import com.micoyc.speakthat.tts.SpeakThatTtsManager
@@ -1092,9 +1093,10 @@ class SummaryExecutionService : Service(), TextToSpeech.OnInitListener, Componen
                 return@forEach
             }
 
+            val parsed = ParsedNotification.from(sbn)
             val appName = resolveDisplayAppName(sbn.packageName)
-            val rawSender = extractSender(sbn).ifBlank { appName }
-            val rawMessage = extractMessage(sbn)
+            val rawSender = extractSender(parsed).ifBlank { appName }
+            val rawMessage = extractMessage(parsed)
             if (rawSender.isBlank() && rawMessage.isBlank()) {
                 return@forEach
             }
@@ -1102,7 +1104,8 @@ class SummaryExecutionService : Service(), TextToSpeech.OnInitListener, Componen
             val filterBridgeResult = NotificationReaderService.applyFiltersForSummary(
                 sbn = sbn,
                 appName = appName,
-                fallbackText = rawMessage
+                fallbackText = rawMessage,
+                parsed = parsed
             )
             if (!filterBridgeResult.shouldInclude) {
                 return@forEach
@@ -1162,34 +1165,28 @@ class SummaryExecutionService : Service(), TextToSpeech.OnInitListener, Componen
         return isOngoing || isForegroundService || isGroupSummary
     }
 
-    private fun extractSender(sbn: StatusBarNotification): String {
-        val extras = sbn.notification.extras ?: return ""
-        val conversationTitle = extras.getCharSequence(Notification.EXTRA_CONVERSATION_TITLE)?.toString().orEmpty()
-        if (conversationTitle.isNotBlank()) {
-            return conversationTitle
+    private fun extractSender(parsed: ParsedNotification): String {
+        if (!parsed.extrasReadable) return ""
+        if (parsed.conversationTitle.isNotBlank()) {
+            return parsed.conversationTitle
         }
-        val title = extras.getCharSequence(Notification.EXTRA_TITLE)?.toString().orEmpty()
-        if (title.isNotBlank()) {
-            return title
+        if (parsed.title.isNotBlank()) {
+            return parsed.title
         }
-        return resolveDisplayAppName(sbn.packageName)
+        return resolveDisplayAppName(parsed.packageName)
     }
 
-    private fun extractMessage(sbn: StatusBarNotification): String {
-        val extras = sbn.notification.extras ?: return ""
-        val bigText = extras.getCharSequence(Notification.EXTRA_BIG_TEXT)?.toString().orEmpty()
-        if (bigText.isNotBlank()) {
-            return bigText
+    private fun extractMessage(parsed: ParsedNotification): String {
+        if (parsed.bigText.isNotBlank()) {
+            return parsed.bigText
         }
-        val text = extras.getCharSequence(Notification.EXTRA_TEXT)?.toString().orEmpty()
-        if (text.isNotBlank()) {
-            return text
+        if (parsed.text.isNotBlank()) {
+            return parsed.text
         }
-        val summary = extras.getCharSequence(Notification.EXTRA_SUMMARY_TEXT)?.toString().orEmpty()
-        if (summary.isNotBlank()) {
-            return summary
+        if (parsed.summaryText.isNotBlank()) {
+            return parsed.summaryText
         }
-        return extras.getCharSequence(Notification.EXTRA_INFO_TEXT)?.toString().orEmpty()
+        return parsed.infoText
     }
 
     private fun extractBigPicturePathFromNotification(sbn: StatusBarNotification): String? {
@@ -0,0 +1,124 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat.text
+
+/**
+ * The word stage of the readout pipeline: private words, the blacklist or whitelist, word swaps and
+ * URL handling, applied to each content block ("title", "text", "content"...) of a notification.
+ *
+ * Built once from the filter settings and reused for every notification; the word lists are
+ * compiled into [WordMatcher]s so their size no longer multiplies the cost of each block.
+ * App-level privacy, statistics and logging stay with the caller, which is told about word swaps
+ * through [Listener].
+ */
+class ContentBlockFilter(
+    privateWords: Collection<String>,
+    filterWords: Collection<String>,
+    /** "blacklist" or "whitelist"; any other value disables [filterWords]. */
+    private val wordListMode: String,
+    private val wordSwaps: List<WordSwap>,
+    /** Applied to each block after the word swaps; null leaves URLs as they are. */
+    private val urlStage: TextStage?,
+    private val listener: Listener = Listener.NONE
+) {
+    class WordSwap(val from: String, val to: String)
+
+    interface Listener {
+        /** [applied] lists the swaps that changed [blockKey], as "'from' -> 'to'". */
+        fun onWordSwapsApplied(blockKey: String, applied: List<String>, before: String, after: String) {}
+
+        /** A swap whose [from] was not found in [text]. */
+        fun onWordSwapMiss(from: String, text: String) {}
+
+        companion object {
+            val NONE = object : Listener {}
+        }
+    }
+
+    sealed class Result {
+        /** The notification may be read, with these processed blocks. */
+        class Passed(val blocks: Map<String, String>) : Result()
+
+        /** [word] from the private list was found; the whole notification must be made private. */
+        class Private(val word: String) : Result()
+
+        /** Blocked by blacklist [word], or by finding no whitelist word at all when [word] is null. */
+        class Blocked(val word: String?, val blockKey: String?) : Result()
+    }
+
+    private val privateMatcher = WordMatcher(privateWords)
+    private val filterMatcher = WordMatcher(filterWords)
+
+    /**
+     * Run the stage over [blocks]. With [checkPrivateWords] false (a rule overrides privacy) the
+     * private word list is skipped.
+     */
+    fun process(blocks: Map<String, String>, checkPrivateWords: Boolean = true): Result {
+        // ESCALATION CHECK: a private word in any block makes the whole notification private
+        if (checkPrivateWords && !privateMatcher.isEmpty) {
+            for (text in blocks.values) {
+                val privateWord = privateMatcher.firstMatch(text)
+                if (privateWord != null) return Result.Private(privateWord)
+            }
+        }
+
+        val processed = LinkedHashMap<String, String>(blocks.size * 2)
+        val requiresWhitelist = wordListMode == "whitelist" && !filterMatcher.isEmpty
+        var foundWhitelistMatch = false
+
+        for ((key, originalText) in blocks) {
+            var text = originalText
+
+            // BLACKLIST CHECK
+            if (wordListMode == "blacklist" && !filterMatcher.isEmpty) {
+                val blockedWord = filterMatcher.firstMatch(text)
+                if (blockedWord != null) return Result.Blocked(blockedWord, key)
+            }
+
+            // WHITELIST CHECK (Aggregate)
+            if (requiresWhitelist && !foundWhitelistMatch) {
+                foundWhitelistMatch = filterMatcher.matchesAny(text)
+            }
+
+            // WORD SWAPS
+            if (wordSwaps.isNotEmpty()) {
+                text = applyWordSwaps(key, text)
+            }
+
+            // URL HANDLING
+            if (urlStage != null) {
+                text = urlStage.apply(text)
+            }
+
+            processed[key] = text
+        }
+
+        // Final Whitelist Validation
+        if (requiresWhitelist && !foundWhitelistMatch) {
+            return Result.Blocked(null, null)
+        }
+        return Result.Passed(processed)
+    }
+
+    private fun applyWordSwaps(key: String, original: String): String {
+        var text = original
+        var applied: MutableList<String>? = null
+        for (swap in wordSwaps) {
+            val before = text
+            text = text.replace(swap.from, swap.to, ignoreCase = true)
+            if (before != text) {
+                val list = applied ?: ArrayList<String>().also { applied = it }
+                list.add("'${swap.from}' -> '${swap.to}'")
+            } else {
+                listener.onWordSwapMiss(swap.from, text)
+            }
+        }
+        applied?.let { listener.onWordSwapsApplied(key, it, original, text) }
+        return text
+    }
+}
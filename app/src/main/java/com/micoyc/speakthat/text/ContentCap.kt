@@ -0,0 +1,101 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat.text
+
+import java.text.BreakIterator
+import java.util.Locale
+
+/**
+ * Content Cap: shortens the compiled readout to a number of words or sentences.
+ *
+ * Modes are "disabled", "words", "sentences" and "time"; time caps are enforced while speaking, so
+ * the text passes through unchanged here, as it does for unknown modes.
+ *
+ * The word cap splits on runs of whitespace like `split("\\s+".toRegex())` did and joins the kept
+ * words with single spaces, but finds the cut in one scan without building the word list. The
+ * sentence cap reuses one [BreakIterator] instead of creating one per readout.
+ */
+class ContentCap(private val locale: Locale = Locale.getDefault()) {
+
+    private val sentenceIterator: BreakIterator by lazy { BreakIterator.getSentenceInstance(locale) }
+
+    /** A [TextStage] applying one cap setting. */
+    fun stage(mode: String, wordCount: Int, sentenceCount: Int): TextStage =
+        TextStage { apply(it, mode, wordCount, sentenceCount) }
+
+    fun apply(text: String, mode: String, wordCount: Int, sentenceCount: Int): String {
+        if (text.isEmpty()) return ""
+        return when (mode) {
+            "words" -> capWords(text, wordCount)
+            "sentences" -> capSentences(text, sentenceCount)
+            else -> text
+        }
+    }
+
+    fun capWords(text: String, wordCount: Int): String {
+        // Pieces between whitespace runs, as the regex split counted them: leading and trailing
+        // whitespace each add an empty piece
+        var pieces = 1
+        var i = 0
+        while (i < text.length) {
+            if (isSplitSpace(text[i])) {
+                pieces++
+                while (i < text.length && isSplitSpace(text[i])) i++
+            } else {
+                i++
+            }
+        }
+        if (pieces <= wordCount) return text
+        if (wordCount <= 0) return ""
+
+        val out = StringBuilder(text.length)
+        var kept = 1
+        i = 0
+        while (i < text.length) {
+            val c = text[i]
+            if (isSplitSpace(c)) {
+                if (kept == wordCount) break
+                kept++
+                out.append(' ')
+                while (i < text.length && isSplitSpace(text[i])) i++
+            } else {
+                out.append(c)
+                i++
+            }
+        }
+        return out.toString()
+    }
+
+    @Synchronized
+    fun capSentences(text: String, sentenceCountLimit: Int): String {
+        val iterator = sentenceIterator
+        iterator.setText(text)
+
+        var sentenceCount = 0
+        var endIndex = 0
+        val start = iterator.first()
+        while (start != BreakIterator.DONE && sentenceCount < sentenceCountLimit) {
+            val end = iterator.next()
+            if (end == BreakIterator.DONE) {
+                endIndex = text.length
+                sentenceCount++
+                break
+            }
+            endIndex = end
+            sentenceCount++
+        }
+
+        // If text has fewer sentences than limit, return original
+        if (sentenceCount <= sentenceCountLimit && endIndex >= text.length) return text
+        return if (endIndex > 0 && endIndex <= text.length) text.substring(0, endIndex).trim() else text
+    }
+
+    /** The characters `\s` matches in a Java regex. */
+    private fun isSplitSpace(c: Char): Boolean =
+        c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\u000C' || c == '\r'
+}
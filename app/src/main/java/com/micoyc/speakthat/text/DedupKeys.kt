@@ -0,0 +1,115 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat.text
+
+import java.nio.ByteBuffer
+import java.security.MessageDigest
+
+/**
+ * Keys the service uses to recognise repeated notifications.
+ *
+ * The keys are the same as before, SHA-256 of the (normalised) content, but whitespace is
+ * collapsed without compiling a regex on every call, the digest is reused per thread, and the hex
+ * is written directly rather than through `String.format` for each byte.
+ */
+object DedupKeys {
+
+    private val digests = object : ThreadLocal<MessageDigest>() {
+        override fun initialValue(): MessageDigest = MessageDigest.getInstance("SHA-256")
+    }
+
+    /** "package_id_hash": the same notification id posted again with the same content. */
+    fun notificationKey(packageName: String, notificationId: Int, content: String): String {
+        val hash = sha256(content.toByteArray())
+        return StringBuilder(packageName.length + 28)
+            .append(packageName).append('_').append(notificationId).append('_')
+            .appendHex(hash, 8)
+            .toString()
+    }
+
+    /** "content_package_hash": the same content from an app, whatever the notification id. */
+    fun contentKey(packageName: String, content: String): String {
+        val normalized = collapseWhitespace(content.trim()).lowercase()
+        val hash = sha256(normalized.toByteArray())
+        return StringBuilder(packageName.length + 21)
+            .append("content_").append(packageName).append('_')
+            .appendHex(hash, 6)
+            .toString()
+    }
+
+    /**
+     * 64-bit hash for dismissal memory, normalised harder than [contentKey]: common punctuation
+     * (`.,!?;:`) is dropped as well, and the package name is hashed in.
+     */
+    fun dismissalContentHash(packageName: String, content: String): Long {
+        val normalized = removePunctuation(collapseWhitespace(content.trim()).lowercase()).trim()
+        val digest = digests.get()!!
+        digest.reset()
+        digest.update(packageName.toByteArray())
+        digest.update(0.toByte())
+        val hash = digest.digest(normalized.toByteArray())
+        return ByteBuffer.wrap(hash, 0, 8).long
+    }
+
+    /** Runs of the characters `\s` matches in a Java regex, replaced by one space. */
+    fun collapseWhitespace(text: String): String {
+        var i = 0
+        while (i < text.length) {
+            val c = text[i]
+            // Leave the string alone until a run that is not already a single space
+            if (isRegexSpace(c) && (c != ' ' || (i + 1 < text.length && isRegexSpace(text[i + 1])))) break
+            i++
+        }
+        if (i == text.length) return text
+
+        val out = StringBuilder(text.length)
+        out.append(text, 0, i)
+        while (i < text.length) {
+            val c = text[i]
+            if (isRegexSpace(c)) {
+                out.append(' ')
+                while (i < text.length && isRegexSpace(text[i])) i++
+            } else {
+                out.append(c)
+                i++
+            }
+        }
+        return out.toString()
+    }
+
+    private fun removePunctuation(text: String): String {
+        if (text.none { isDroppedPunctuation(it) }) return text
+        val out = StringBuilder(text.length)
+        for (c in text) {
+            if (!isDroppedPunctuation(c)) out.append(c)
+        }
+        return out.toString()
+    }
+
+    private fun sha256(bytes: ByteArray): ByteArray {
+        val digest = digests.get()!!
+        digest.reset()
+        return digest.digest(bytes)
+    }
+
+    private fun StringBuilder.appendHex(bytes: ByteArray, count: Int): StringBuilder {
+        for (i in 0 until count) {
+            val value = bytes[i].toInt() and 0xFF
+            append(HEX[value ushr 4]).append(HEX[value and 0x0F])
+        }
+        return this
+    }
+
+    private const val HEX = "0123456789abcdef"
+
+    private fun isRegexSpace(c: Char): Boolean =
+        c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\u000C' || c == '\r'
+
+    private fun isDroppedPunctuation(c: Char): Boolean =
+        c == '.' || c == ',' || c == '!' || c == '?' || c == ';' || c == ':'
+}
@@ -0,0 +1,58 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat.text
+
+/**
+ * Fills a speech template such as "{app} notified you: {content}".
+ *
+ * The template is read once, left to right. A `{name}` that [PlaceholderValues] knows is replaced
+ * by its value and anything else is kept as written. This used to be sixteen chained `replace`
+ * calls, each copying the whole string, which also expanded placeholders that appeared inside the
+ * notification text itself; values are now inserted verbatim.
+ */
+object SpeechTemplateFormatter {
+
+    /** Every placeholder the readout template supports. */
+    val PLACEHOLDERS = listOf(
+        "app", "package", "content", "title", "text", "subtext", "bigtext", "summary", "info",
+        "ticker", "time", "date", "timestamp", "priority", "category", "channel"
+    )
+
+    fun interface PlaceholderValues {
+        /** Value for the placeholder [name] (without braces), or null to keep it as written. */
+        fun valueOf(name: String): String?
+    }
+
+    /** Placeholder values backed by a map, such as the processed content blocks. */
+    class MapValues(private val values: Map<String, String>) : PlaceholderValues {
+        override fun valueOf(name: String): String? = values[name]
+    }
+
+    /** [template] with its placeholders filled and surrounding whitespace trimmed. */
+    fun format(template: String, values: PlaceholderValues): String {
+        var open = template.indexOf('{')
+        if (open < 0) return template.trim()
+
+        val out = StringBuilder(template.length + 64)
+        var copied = 0
+        while (open >= 0) {
+            val close = template.indexOf('}', open + 1)
+            if (close < 0) break
+            // A second '{' before the '}' starts the placeholder over, as "{{app}" kept one brace
+            val reopen = template.lastIndexOf('{', close)
+            val value = values.valueOf(template.substring(reopen + 1, close))
+            if (value != null) {
+                out.append(template, copied, reopen).append(value)
+                copied = close + 1
+            }
+            open = template.indexOf('{', close + 1)
+        }
+        out.append(template, copied, template.length)
+        return out.toString().trim()
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat.text
+
+/**
+ * One string-to-string step of the readout pipeline.
+ *
+ * Everything in this package is kept free of Android types: the service builds the stages from its
+ * settings, and the same classes run in the JVM unit tests and in the `:benchmark` module.
+ */
+fun interface TextStage {
+    fun apply(text: String): String
+
+    companion object {
+        val IDENTITY = TextStage { it }
+    }
+}
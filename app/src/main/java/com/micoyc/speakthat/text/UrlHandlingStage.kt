@@ -0,0 +1,52 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat.text
+
+import com.micoyc.speakthat.UrlScanner
+
+/**
+ * Rewrites the URLs [UrlScanner] finds according to the URL handling setting:
+ * - "domain_only" speaks the registrable domain (https://news.bbc.co.uk/sport -> bbc.co.uk);
+ *   localhost and IP addresses are read as-is, and protocol and port are never included
+ * - "dont_read" replaces each URL with [replacementText], or removes it when that is empty
+ * - anything else ("read_full") leaves the text alone
+ *
+ * [registrableDomain] maps a host to its registrable domain; the service backs it with the
+ * Public Suffix List. [onReplaced] is told about each rewrite, for the filter log.
+ */
+class UrlHandlingStage(
+    private val mode: String,
+    private val replacementText: String,
+    private val registrableDomain: (String) -> String,
+    private val onReplaced: ((url: String, replacement: String) -> Unit)? = null
+) : TextStage {
+
+    override fun apply(text: String): String {
+        if (mode != "domain_only" && mode != "dont_read") return text
+        return UrlScanner.replace(text) { url, match ->
+            val replacement = if (mode == "domain_only") domainOf(text, match) else replacementText
+            onReplaced?.invoke(url, replacement)
+            replacement
+        }
+    }
+
+    private fun domainOf(text: String, match: UrlScanner.Match): String {
+        return try {
+            val host = text.substring(match.hostStart, match.hostEnd)
+            when {
+                host.isBlank() -> "link"
+                // localhost, IPv4 and IPv6 addresses are read as-is
+                match.kind != UrlScanner.HostKind.DOMAIN -> host
+                else -> registrableDomain(host)
+            }
+        } catch (e: Exception) {
+            // A safe fallback instead of the original URL, to avoid reading long URLs
+            "link"
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat.text
+
+/**
+ * Finds which words of a filter list occur in a text, in one pass over the text.
+ *
+ * Matching is case-insensitive substring matching with the same rules as
+ * `text.contains(word, ignoreCase = true)`, which it replaces. That was one scan of the text per
+ * word, so a 500-word list cost 500 scans for every block of every notification; here the words
+ * are compiled once into an Aho-Corasick automaton and each text is read once whatever the list
+ * size.
+ *
+ * When several words occur, [firstMatch] returns the one earliest in [words], as looping over the
+ * list did.
+ */
+class WordMatcher(words: Collection<String>) {
+
+    val words: List<String> = words.toList()
+
+    /** Index of the first empty word, which `contains` finds in every text; -1 when there is none. */
+    private val emptyWordIndex = this.words.indexOfFirst { it.isEmpty() }
+
+    // Automaton as flat arrays: per state a sorted edge list, a failure link, and the lowest word
+    // index that ends at the state or any state on its failure chain (Int.MAX_VALUE for none)
+    private var edgeChars = arrayOfNulls<CharArray>(16)
+    private var edgeTargets = arrayOfNulls<IntArray>(16)
+    private var failure = IntArray(16)
+    private var output = IntArray(16)
+    private var stateCount = 0
+
+    init {
+        newState()
+        this.words.forEachIndexed { index, word ->
+            if (word.isEmpty()) return@forEachIndexed
+            var state = 0
+            for (c in word) {
+                val folded = fold(c)
+                var next = edge(state, folded)
+                if (next < 0) {
+                    next = newState()
+                    addEdge(state, folded, next)
+                }
+                state = next
+            }
+            if (index < output[state]) output[state] = index
+        }
+        buildFailureLinks()
+    }
+
+    val isEmpty: Boolean
+        get() = words.isEmpty()
+
+    /** The earliest word in the list found in [text], or null when none is. */
+    fun firstMatch(text: CharSequence): String? {
+        val index = firstMatchIndex(text)
+        return if (index < 0) null else words[index]
+    }
+
+    fun matchesAny(text: CharSequence): Boolean {
+        if (emptyWordIndex >= 0) return true
+        var state = 0
+        for (i in 0 until text.length) {
+            state = step(state, fold(text[i]))
+            if (output[state] != Int.MAX_VALUE) return true
+        }
+        return false
+    }
+
+    private fun firstMatchIndex(text: CharSequence): Int {
+        if (words.isEmpty()) return -1
+        // An empty word matches at once; only words before it in the list can still win
+        var best = if (emptyWordIndex >= 0) emptyWordIndex else Int.MAX_VALUE
+        if (best == 0) return 0
+        var state = 0
+        for (i in 0 until text.length) {
+            state = step(state, fold(text[i]))
+            val found = output[state]
+            if (found < best) {
+                best = found
+                if (best == 0) break
+            }
+        }
+        return if (best == Int.MAX_VALUE) -1 else best
+    }
+
+    private fun step(from: Int, c: Char): Int {
+        var state = from
+        while (true) {
+            val next = edge(state, c)
+            if (next >= 0) return next
+            if (state == 0) return 0
+            state = failure[state]
+        }
+    }
+
+    private fun buildFailureLinks() {
+        // Breadth-first, so a state's failure target is finished before the state itself
+        val queue = IntArray(stateCount)
+        var head = 0
+        var tail = 0
+        val rootChars = edgeChars[0]!!
+        for (i in rootChars.indices) {
+            val child = edgeTargets[0]!![i]
+            failure[child] = 0
+            queue[tail++] = child
+        }
+        while (head < tail) {
+            val state = queue[head++]
+            val chars = edgeChars[state]!!
+            val targets = edgeTargets[state]!!
+            for (i in chars.indices) {
+                val c = chars[i]
+                val child = targets[i]
+                var f = failure[state]
+                while (f != 0 && edge(f, c) < 0) f = failure[f]
+                val target = edge(f, c)
+                failure[child] = if (target >= 0 && target != child) target else 0
+                if (output[failure[child]] < output[child]) output[child] = output[failure[child]]
+                queue[tail++] = child
+            }
+        }
+    }
+
+    private fun newState(): Int {
+        if (stateCount == failure.size) {
+            val size = stateCount * 2
+            edgeChars = edgeChars.copyOf(size)
+            edgeTargets = edgeTargets.copyOf(size)
+            failure = failure.copyOf(size)
+            output = output.copyOf(size)
+        }
+        val state = stateCount++
+        edgeChars[state] = EMPTY_CHARS
+        edgeTargets[state] = EMPTY_INTS
+        output[state] = Int.MAX_VALUE
+        return state
+    }
+
+    private fun edge(state: Int, c: Char): Int {
+        val chars = edgeChars[state]!!
+        val i = chars.binarySearch(c)
+        return if (i >= 0) edgeTargets[state]!![i] else -1
+    }
+
+    private fun addEdge(state: Int, c: Char, target: Int) {
+        val chars = edgeChars[state]!!
+        val targets = edgeTargets[state]!!
+        val insertAt = -(chars.binarySearch(c) + 1)
+        val newChars = CharArray(chars.size + 1)
+        val newTargets = IntArray(chars.size + 1)
+        chars.copyInto(newChars, 0, 0, insertAt)
+        targets.copyInto(newTargets, 0, 0, insertAt)
+        newChars[insertAt] = c
+        newTargets[insertAt] = target
+        chars.copyInto(newChars, insertAt + 1, insertAt)
+        targets.copyInto(newTargets, insertAt + 1, insertAt)
+        edgeChars[state] = newChars
+        edgeTargets[state] = newTargets
+    }
+
+    private companion object {
+        val EMPTY_CHARS = CharArray(0)
+        val EMPTY_INTS = IntArray(0)
+
+        /**
+         * Two chars fold to the same value exactly when `Char.equals(other, ignoreCase = true)`
+         * holds: that compares the uppercase forms, then the lowercase of the uppercase forms.
+         */
+        fun fold(c: Char): Char = c.uppercaseChar().lowercaseChar()
+    }
+}
@@ -189,6 +189,10 @@ object SpeakThatTtsManager {
     @JvmStatic
     fun getActiveEnginePackage(): String = activeEnginePackage
 
+    /** The engine the shared instance binds to: the saved choice, else the system default. */
+    @JvmStatic
+    fun getPreferredEnginePackage(context: Context): String = resolvePreferredEnginePackage(context.applicationContext)
+
     @JvmStatic
     fun setAudioAttributes(audioAttributes: AudioAttributes) {
         tts?.setAudioAttributes(audioAttributes)
@@ -213,6 +217,12 @@ object SpeakThatTtsManager {
             isInitialized = status == TextToSpeech.SUCCESS
             if (status == TextToSpeech.SUCCESS) {
                 tts?.setOnUtteranceProgressListener(masterListener)
+                val engine = tts
+                val context = appContext
+                if (engine != null && context != null) {
+                    // Capture voices off the init thread so screens can read them without binding
+                    TtsCatalog.refreshAsync(context, engine, activeEnginePackage)
+                }
             } else {
                 callbackRouter.clear()
             }
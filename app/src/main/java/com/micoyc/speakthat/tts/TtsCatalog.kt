@@ -0,0 +1,243 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat.tts
+
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
+import android.content.pm.PackageManager
+import android.speech.tts.TextToSpeech
+import android.speech.tts.Voice
+import androidx.core.content.ContextCompat
+import com.micoyc.speakthat.InAppLogger
+import java.util.Locale
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+
+/**
+ * Process-wide catalog of installed TTS engines and the voices each one offers.
+ *
+ * Engines are found through the package manager (services answering
+ * [TextToSpeech.Engine.INTENT_ACTION_TTS_SERVICE]), which is what `TextToSpeech.getEngines()` does
+ * internally, so nothing has to bind a throwaway TextToSpeech just to list them.
+ *
+ * `getVoices()` and `getAvailableLanguages()` are synchronous IPCs into the engine that return
+ * large sets. [SpeakThatTtsManager] hands its engine to [refreshAsync] once it initialises, the
+ * sets are captured on a background thread and kept as an immutable [VoiceSnapshot] per engine, so
+ * settings screens and the service read voices without waiting on the engine. Everything is
+ * dropped when an engine package is installed, updated or removed; voices are captured again when
+ * an engine announces new voice data ([TextToSpeech.Engine.ACTION_TTS_DATA_INSTALLED]) and when the
+ * voice settings screen opens, since a voice downloaded inside an engine changes no package.
+ */
+object TtsCatalog {
+
+    private const val TAG = "TtsCatalog"
+
+    data class EngineInfo(val packageName: String, val label: String)
+
+    /** One engine's voices and languages, indexed by name and locale; replaced wholesale on refresh. */
+    class VoiceSnapshot internal constructor(
+        val enginePackage: String,
+        voices: Collection<Voice>,
+        availableLanguages: Collection<Locale>
+    ) {
+        /** Every voice the engine reports, sorted by name, including ones still to be downloaded. */
+        val voices: List<Voice> = voices.sortedBy { it.name }
+
+        /** Voices that can be used right away (not flagged [TextToSpeech.Engine.KEY_FEATURE_NOT_INSTALLED]). */
+        val installedVoices: List<Voice> = this.voices.filter { isInstalled(it) }
+
+        val availableLanguages: Set<Locale> = availableLanguages.toSet()
+
+        private val byName: Map<String, Voice> = this.voices.associateBy { it.name }
+        private val byLocale: Map<Locale, List<Voice>> = this.voices.filter { it.locale != null }.groupBy { it.locale }
+        private val byLanguage: Map<String, List<Voice>> =
+            this.voices.filter { it.locale != null }.groupBy { it.locale.language.lowercase(Locale.ROOT) }
+
+        val isEmpty: Boolean get() = voices.isEmpty()
+
+        fun voiceByName(name: String?): Voice? = if (name.isNullOrEmpty()) null else byName[name]
+
+        /** Voices for exactly [locale], in name order. */
+        fun voicesFor(locale: Locale): List<Voice> = byLocale[locale].orEmpty()
+
+        /** Voices whose language matches [language] (e.g. "en"), any region, in name order. */
+        fun voicesForLanguage(language: String): List<Voice> = byLanguage[language.lowercase(Locale.ROOT)].orEmpty()
+
+        companion object {
+            @JvmStatic
+            fun isInstalled(voice: Voice?): Boolean {
+                if (voice == null) return false
+                val features = voice.features
+                return features == null || !features.contains(TextToSpeech.Engine.KEY_FEATURE_NOT_INSTALLED)
+            }
+        }
+    }
+
+    @Volatile
+    private var engines: List<EngineInfo>? = null
+
+    private val snapshots = ConcurrentHashMap<String, VoiceSnapshot>()
+    private val refreshExecutor = Executors.newSingleThreadExecutor()
+    private val receiverLock = Any()
+    private var appContext: Context? = null
+
+    private val packageReceiver = object : BroadcastReceiver() {
+        override fun onReceive(context: Context, intent: Intent) {
+            val packageName = intent.data?.schemeSpecificPart ?: return
+            // Any package may have just become (or stopped being) an engine, so the engine list is
+            // always re-queried; voice snapshots only go when their own engine changed.
+            engines = null
+            if (snapshots.remove(packageName) != null) {
+                InAppLogger.log(TAG, "Dropped cached voices for updated engine $packageName")
+            }
+        }
+    }
+
+    private val voiceDataReceiver = object : BroadcastReceiver() {
+        override fun onReceive(context: Context, intent: Intent) {
+            // The broadcast does not say which engine, so every snapshot is stale
+            snapshots.clear()
+            InAppLogger.log(TAG, "TTS voice data installed, re-capturing voices")
+            refreshShared(context)
+        }
+    }
+
+    /** Installed engines, queried once and then served from the cache. */
+    @JvmStatic
+    fun getEngines(context: Context): List<EngineInfo> {
+        ensureReceiver(context)
+        engines?.let { return it }
+        val loaded = queryEngines(context.applicationContext)
+        engines = loaded
+        return loaded
+    }
+
+    @JvmStatic
+    fun isEngineInstalled(context: Context, enginePackage: String?): Boolean {
+        if (enginePackage.isNullOrEmpty()) return false
+        return getEngines(context).any { it.packageName == enginePackage }
+    }
+
+    /** Cached voices for [enginePackage], or null if that engine has not been captured yet. Never blocks. */
+    @JvmStatic
+    fun getSnapshot(enginePackage: String?): VoiceSnapshot? = snapshots[enginePackage.orEmpty()]
+
+    /**
+     * Voices of [tts]. The shared engine is served from the cache, capturing it on the calling thread
+     * only if the background refresh has not finished yet. Any other instance is queried directly,
+     * since the engine it is bound to is not known.
+     */
+    @JvmStatic
+    fun getVoices(tts: TextToSpeech): VoiceSnapshot {
+        if (tts !== SpeakThatTtsManager.getTextToSpeech()) {
+            return capture(tts, "")
+        }
+        val enginePackage = SpeakThatTtsManager.getActiveEnginePackage()
+        snapshots[enginePackage]?.let { return it }
+        return capture(tts, enginePackage).also { store(it) }
+    }
+
+    /** Capture the voices of [tts], bound to [enginePackage], and cache them for later readers. */
+    @JvmStatic
+    fun publish(tts: TextToSpeech, enginePackage: String): VoiceSnapshot =
+        capture(tts, enginePackage).also { store(it) }
+
+    /** Re-capture the voices of [tts], bound to [enginePackage], in the background. */
+    @JvmStatic
+    fun refreshAsync(context: Context, tts: TextToSpeech, enginePackage: String) {
+        ensureReceiver(context)
+        refreshExecutor.execute {
+            // The engine may have been switched or shut down while this was queued
+            if (tts !== SpeakThatTtsManager.getTextToSpeech()) return@execute
+            publish(tts, enginePackage)
+        }
+    }
+
+    /** Re-capture the voices of the shared engine in the background, if it is running. */
+    @JvmStatic
+    fun refreshShared(context: Context) {
+        val tts = SpeakThatTtsManager.getTextToSpeech() ?: return
+        refreshAsync(context, tts, SpeakThatTtsManager.getActiveEnginePackage())
+    }
+
+    private fun store(snapshot: VoiceSnapshot) {
+        // An engine that is still binding reports nothing; do not let that stick
+        if (!snapshot.isEmpty) {
+            snapshots[snapshot.enginePackage] = snapshot
+        }
+    }
+
+    private fun capture(tts: TextToSpeech, enginePackage: String): VoiceSnapshot {
+        val startTime = System.currentTimeMillis()
+        val voices = try {
+            tts.voices.orEmpty()
+        } catch (e: Exception) {
+            InAppLogger.logError(TAG, "Failed to read voices: ${e.message}")
+            emptySet()
+        }
+        val languages = try {
+            tts.availableLanguages.orEmpty()
+        } catch (e: Exception) {
+            InAppLogger.logError(TAG, "Failed to read available languages: ${e.message}")
+            emptySet()
+        }
+        val snapshot = VoiceSnapshot(enginePackage, voices, languages)
+        InAppLogger.log(
+            TAG,
+            "Captured ${snapshot.voices.size} voices (${snapshot.installedVoices.size} installed) and " +
+                "${snapshot.availableLanguages.size} languages for ${enginePackage.ifEmpty { "default engine" }} " +
+                "in ${System.currentTimeMillis() - startTime}ms"
+        )
+        return snapshot
+    }
+
+    private fun queryEngines(context: Context): List<EngineInfo> {
+        return try {
+            val packageManager = context.packageManager
+            val services = packageManager.queryIntentServices(
+                Intent(TextToSpeech.Engine.INTENT_ACTION_TTS_SERVICE),
+                PackageManager.MATCH_DEFAULT_ONLY
+            )
+            services.mapNotNull { resolveInfo ->
+                val serviceInfo = resolveInfo.serviceInfo ?: return@mapNotNull null
+                EngineInfo(
+                    packageName = serviceInfo.packageName,
+                    label = resolveInfo.loadLabel(packageManager)?.toString() ?: serviceInfo.packageName
+                )
+            }.distinctBy { it.packageName }
+        } catch (e: Exception) {
+            InAppLogger.logError(TAG, "Failed to list TTS engines: ${e.message}")
+            emptyList()
+        }
+    }
+
+    private fun ensureReceiver(context: Context) {
+        synchronized(receiverLock) {
+            if (appContext != null) return
+            val app = context.applicationContext
+            appContext = app
+            val filter = IntentFilter().apply {
+                addAction(Intent.ACTION_PACKAGE_ADDED)
+                addAction(Intent.ACTION_PACKAGE_REMOVED)
+                addAction(Intent.ACTION_PACKAGE_REPLACED)
+                addAction(Intent.ACTION_PACKAGE_CHANGED)
+                addDataScheme("package")
+            }
+            ContextCompat.registerReceiver(app, packageReceiver, filter, ContextCompat.RECEIVER_NOT_EXPORTED)
+            // Sent by the engine app itself, so the receiver has to be exported
+            ContextCompat.registerReceiver(
+                app,
+                voiceDataReceiver,
+                IntentFilter(TextToSpeech.Engine.ACTION_TTS_DATA_INSTALLED),
+                ContextCompat.RECEIVER_EXPORTED
+            )
+        }
+    }
+}
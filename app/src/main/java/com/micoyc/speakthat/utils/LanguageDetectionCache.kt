@@ -0,0 +1,237 @@
+/*
+ * SpeakThat! is free and open-source software, released under the GNU GPL v3.0, a copyleft license that ensures modified and redistributed versions remain free and properly attributed.
+ * This license allows you to download, modify, and redistribute SpeakThat, provided that any redistributed or modified versions remain under the same license and retain the original copyright notices.
+ * SpeakThat! Copyright © Mitchell Bell
+ * SPEAKTHAT is a registered UK trademark of Mitchell Bell
+ */
+
+package com.micoyc.speakthat.utils
+
+import com.micoyc.speakthat.utils.LanguageDetectorUtil.LanguageDetectionDetails
+
+/**
+ * Decides the language of a readout while calling the text classifier as rarely as possible.
+ *
+ * The checks run cheapest first:
+ * 1. Letters are counted by script. A script that belongs to one language (Hangul, kana, Greek,
+ *    Hebrew, Thai), or Han text when the voice is already Chinese or Japanese, settles it outright.
+ * 2. Texts with fewer than [minLetters] letters ("OK", "👍 lol") are too short to classify reliably
+ *    and take the conversation's sticky language, if any, or stay in the global voice.
+ * 3. Texts seen recently are answered from an LRU cache keyed by a hash of the normalised text.
+ * 4. Only then does [classify] run; its result is cached and, when accepted, becomes the sticky
+ *    language of the conversation.
+ *
+ * A sticky language starts at the confidence it was detected with and halves every
+ * [stickyHalfLifeMs], so a chat that switched language an hour ago no longer pulls short replies
+ * with it. Kept free of Android types so it can be unit tested.
+ */
+class LanguageDetectionCache(
+    private val classify: (String) -> LanguageDetectionDetails,
+    private val capacity: Int = DEFAULT_CAPACITY,
+    private val minLetters: Int = DEFAULT_MIN_LETTERS,
+    private val stickyHalfLifeMs: Long = DEFAULT_STICKY_HALF_LIFE_MS,
+    private val nowMs: () -> Long = System::currentTimeMillis
+) {
+    companion object {
+        const val DEFAULT_CAPACITY = 256
+        const val DEFAULT_MIN_LETTERS = 16
+        const val DEFAULT_STICKY_HALF_LIFE_MS = 15 * 60 * 1000L
+        const val MAX_CONVERSATIONS = 64
+        /** Below this a decayed sticky language is forgotten. */
+        const val STICKY_MIN_CONFIDENCE = 0.5f
+    }
+
+    enum class Source { SCRIPT, TOO_SHORT, STICKY, CACHE, CLASSIFIER }
+
+    class Detection(val details: LanguageDetectionDetails, val source: Source)
+
+    enum class Script { LATIN, CYRILLIC, GREEK, ARMENIAN, HEBREW, ARABIC, DEVANAGARI, THAI, HANGUL, KANA, HAN, OTHER }
+
+    private class Sticky(val tag: String, val confidence: Float, val at: Long)
+
+    private val cache = object : LinkedHashMap<Long, LanguageDetectionDetails>(capacity, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Long, LanguageDetectionDetails>) = size > capacity
+    }
+
+    private val sticky = object : LinkedHashMap<String, Sticky>(MAX_CONVERSATIONS, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Sticky>) = size > MAX_CONVERSATIONS
+    }
+
+    var classifierCalls = 0
+        private set
+
+    /**
+     * Language of [text] for a voice set to [globalLanguageTag] ("en_US", "ja-JP"...).
+     * [conversationKey] groups messages of one chat for the sticky language; null disables it.
+     */
+    @Synchronized
+    fun detect(text: String, globalLanguageTag: String, conversationKey: String?): Detection {
+        val counts = IntArray(Script.entries.size)
+        val letters = countLetters(text, counts)
+        val globalBase = baseLanguage(globalLanguageTag)
+
+        val scriptLanguage = scriptLanguage(dominantScript(counts), globalBase)
+        if (scriptLanguage != null) {
+            val details = LanguageDetectionDetails(scriptLanguage, 1f, true, 1)
+            remember(conversationKey, details)
+            return Detection(details, Source.SCRIPT)
+        }
+
+        if (letters < minLetters) {
+            val fromSticky = stickyDetails(conversationKey)
+            return if (fromSticky != null) {
+                Detection(fromSticky, Source.STICKY)
+            } else {
+                Detection(LanguageDetectionDetails(null, null, false, 0), Source.TOO_SHORT)
+            }
+        }
+
+        val key = normalizedHash(text)
+        val cached = cache[key]
+        val details: LanguageDetectionDetails
+        val source: Source
+        if (cached != null) {
+            details = cached
+            source = Source.CACHE
+        } else {
+            classifierCalls++
+            details = classify(text)
+            cache[key] = details
+            source = Source.CLASSIFIER
+        }
+
+        if (details.acceptedForAutoDetect) {
+            remember(conversationKey, details)
+            return Detection(details, source)
+        }
+        val fromSticky = stickyDetails(conversationKey)
+        return if (fromSticky != null) Detection(fromSticky, Source.STICKY) else Detection(details, source)
+    }
+
+    @Synchronized
+    fun clear() {
+        cache.clear()
+        sticky.clear()
+    }
+
+    private fun remember(conversationKey: String?, details: LanguageDetectionDetails) {
+        val tag = details.topLocaleTag ?: return
+        if (conversationKey == null) return
+        val now = nowMs()
+        val previous = sticky[conversationKey]
+        val confidence = details.topConfidence ?: 1f
+        // Agreeing detections refresh the language; a new one replaces it
+        val kept = if (previous != null && baseLanguage(previous.tag) == baseLanguage(tag)) {
+            maxOf(confidence, decayed(previous, now))
+        } else {
+            confidence
+        }
+        sticky[conversationKey] = Sticky(tag, kept, now)
+    }
+
+    private fun stickyDetails(conversationKey: String?): LanguageDetectionDetails? {
+        if (conversationKey == null) return null
+        val entry = sticky[conversationKey] ?: return null
+        val confidence = decayed(entry, nowMs())
+        if (confidence < STICKY_MIN_CONFIDENCE) {
+            sticky.remove(conversationKey)
+            return null
+        }
+        return LanguageDetectionDetails(entry.tag, confidence, true, 1)
+    }
+
+    private fun decayed(entry: Sticky, now: Long): Float {
+        val elapsed = (now - entry.at).coerceAtLeast(0L)
+        return (entry.confidence * Math.pow(0.5, elapsed.toDouble() / stickyHalfLifeMs)).toFloat()
+    }
+
+    private fun countLetters(text: String, counts: IntArray): Int {
+        var letters = 0
+        var i = 0
+        while (i < text.length) {
+            val codePoint = text.codePointAt(i)
+            i += Character.charCount(codePoint)
+            val script = scriptOf(codePoint) ?: continue
+            counts[script.ordinal]++
+            letters++
+        }
+        return letters
+    }
+
+    private fun dominantScript(counts: IntArray): Script? {
+        // Japanese mixes kanji into kana; any kana makes the Han letters Japanese too
+        if (counts[Script.KANA.ordinal] > 0) {
+            counts[Script.KANA.ordinal] += counts[Script.HAN.ordinal]
+            counts[Script.HAN.ordinal] = 0
+        }
+        var best = -1
+        var bestCount = 0
+        var total = 0
+        for (i in counts.indices) {
+            total += counts[i]
+            if (counts[i] > bestCount) {
+                best = i
+                bestCount = counts[i]
+            }
+        }
+        // Only a clear majority counts; mixed-script texts go to the classifier
+        if (best < 0 || bestCount * 10 < total * 8) return null
+        return Script.entries[best]
+    }
+
+    /** The language a script pins down on its own, or null when the classifier has to decide. */
+    private fun scriptLanguage(script: Script?, globalBase: String): String? = when (script) {
+        Script.HANGUL -> "ko"
+        Script.KANA -> "ja"
+        Script.GREEK -> "el"
+        Script.ARMENIAN -> "hy"
+        Script.HEBREW -> if (globalBase == "yi") "yi" else "he"
+        Script.THAI -> "th"
+        Script.HAN -> if (globalBase == "zh" || globalBase == "ja") globalBase else null
+        else -> null
+    }
+
+    /** Script of a letter, or null for digits, punctuation, symbols and emoji. */
+    private fun scriptOf(codePoint: Int): Script? = when {
+        codePoint < 0x80 -> if ((codePoint or 0x20) in 'a'.code..'z'.code) Script.LATIN else null
+        codePoint in 0x00C0..0x024F -> if (codePoint == 0xD7 || codePoint == 0xF7) null else Script.LATIN
+        codePoint in 0x1E00..0x1EFF -> Script.LATIN
+        codePoint in 0x0370..0x03FF || codePoint in 0x1F00..0x1FFF -> Script.GREEK
+        codePoint in 0x0400..0x052F -> Script.CYRILLIC
+        codePoint in 0x0530..0x058F -> Script.ARMENIAN
+        codePoint in 0x0590..0x05FF -> Script.HEBREW
+        codePoint in 0x0600..0x06FF || codePoint in 0x0750..0x077F ||
+            codePoint in 0xFB50..0xFDFF || codePoint in 0xFE70..0xFEFF -> Script.ARABIC
+        codePoint in 0x0900..0x097F -> Script.DEVANAGARI
+        codePoint in 0x0E00..0x0E7F -> Script.THAI
+        codePoint in 0x1100..0x11FF || codePoint in 0x3130..0x318F || codePoint in 0xAC00..0xD7AF -> Script.HANGUL
+        codePoint in 0x3040..0x30FF || codePoint in 0x31F0..0x31FF || codePoint in 0xFF66..0xFF9F -> Script.KANA
+        codePoint in 0x4E00..0x9FFF || codePoint in 0x3400..0x4DBF ||
+            codePoint in 0xF900..0xFAFF || codePoint in 0x20000..0x2FFFF -> Script.HAN
+        Character.isLetter(codePoint) -> Script.OTHER
+        else -> null
+    }
+
+    /** 64-bit FNV-1a of [text] lowercased with runs of whitespace collapsed and the ends trimmed. */
+    private fun normalizedHash(text: String): Long {
+        var hash = -0x340d631b7bdddcdbL
+        var pendingSpace = false
+        var started = false
+        for (c in text) {
+            if (c.isWhitespace()) {
+                pendingSpace = started
+                continue
+            }
+            if (pendingSpace) {
+                hash = (hash xor ' '.code.toLong()) * 0x100000001b3L
+                pendingSpace = false
+            }
+            hash = (hash xor Character.toLowerCase(c).code.toLong()) * 0x100000001b3L
+            started = true
+        }
+        return hash
+    }
+
+    private fun baseLanguage(tag: String): String =
+        tag.substringBefore('_').substringBefore('-').lowercase()
+}
@@ -11,102 +11,348 @@ import android.content.BroadcastReceiver
 import android.content.Context
 import android.content.Intent
 import android.content.IntentFilter
+import android.content.SharedPreferences
+import android.media.AudioDeviceCallback
+import android.media.AudioDeviceInfo
 import android.media.AudioManager
 import android.os.Handler
 import android.os.Looper
+import android.os.SystemClock
 import com.micoyc.speakthat.InAppLogger
-import java.util.concurrent.atomic.AtomicBoolean
+import org.json.JSONObject
 
+/**
+ * The Bluetooth SCO link used to read notifications on car kits and headsets that only play call
+ * audio, kept as a session across readouts.
+ *
+ * Bringing SCO up is a handshake of up to a few seconds, and most headsets beep each time it goes
+ * up or down. [requestScoAndPlay] therefore reuses a link that is still up, and [release] keeps it
+ * for the user's linger window while more speech is queued, so a burst of notifications shares one
+ * connection. Whether the current output is one of the user's SCO devices is tracked through an
+ * [AudioDeviceCallback] and a preference listener instead of being looked up for every readout.
+ *
+ * State lives on the main thread; calls from other threads are posted there.
+ */
 class ScoAudioManager {
 
-    private var isScoActive = false
+    companion object {
+        private const val TAG = "ScoAudioManager"
+        private const val VOICE_PREFS = "VoiceSettings"
+        const val KEY_SCO_DEVICES = "sco_devices"
+        const val KEY_SCO_LINGER_MS = "sco_linger_ms"
+        const val DEFAULT_LINGER_MS = 3000
+        const val DEFAULT_TAIL_MS = 250L
+        private const val CONNECT_TIMEOUT_MS = 3000L
+    }
+
+    /** Connect latency and link reuse, for the runtime diagnostics in support reports. */
+    object Stats {
+        private var connects = 0
+        private var reuses = 0
+        private var timeouts = 0
+        private var drops = 0
+        private var lastConnectMs = -1L
+        private var totalConnectMs = 0L
+        private var maxConnectMs = 0L
+
+        @Synchronized
+        @JvmStatic
+        fun recordConnect(latencyMs: Long) {
+            connects++
+            lastConnectMs = latencyMs
+            totalConnectMs += latencyMs
+            if (latencyMs > maxConnectMs) maxConnectMs = latencyMs
+        }
+
+        @Synchronized
+        @JvmStatic
+        fun recordReuse() {
+            reuses++
+        }
+
+        @Synchronized
+        @JvmStatic
+        fun recordTimeout() {
+            timeouts++
+        }
+
+        @Synchronized
+        @JvmStatic
+        fun recordDrop() {
+            drops++
+        }
+
+        @Synchronized
+        @JvmStatic
+        fun toJson(): JSONObject = JSONObject().apply {
+            put("connects", connects)
+            put("reuses", reuses)
+            put("timeouts", timeouts)
+            put("drops", drops)
+            put("last_connect_ms", lastConnectMs)
+            put("avg_connect_ms", if (connects > 0) totalConnectMs / connects else -1L)
+            put("max_connect_ms", maxConnectMs)
+        }
+    }
+
+    private enum class LinkState { IDLE, CONNECTING, CONNECTED }
+
+    private val handler = Handler(Looper.getMainLooper())
+    private var linkState = LinkState.IDLE
+    private var connectStartedAt = 0L
+    private val pendingReady = mutableListOf<() -> Unit>()
     private var scoReceiver: BroadcastReceiver? = null
+    private var receiverContext: Context? = null
     private var timeoutRunnable: Runnable? = null
-    private val handler = Handler(Looper.getMainLooper())
+    private var releaseRunnable: Runnable? = null
+
+    // Route tracking, set up on the first request
+    private var voicePrefs: SharedPreferences? = null
+    private var trackedAudioManager: AudioManager? = null
+    private var deviceCallback: AudioDeviceCallback? = null
+    private var scoDevices: Set<String> = emptySet()
+    private var lingerMs = DEFAULT_LINGER_MS
+    private var bluetoothRouteAddresses: Set<String> = emptySet()
+
+    private val voicePrefsListener = SharedPreferences.OnSharedPreferenceChangeListener { prefs, key ->
+        if (key == KEY_SCO_DEVICES || key == KEY_SCO_LINGER_MS) {
+            handler.post { readVoicePrefs(prefs) }
+        }
+    }
 
     fun requestScoAndPlay(context: Context, audioManager: AudioManager, onReadyToSpeak: () -> Unit) {
-        if (!BluetoothConnectionHelper.isCurrentDeviceConfiguredForSco(context)) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            handler.post { requestScoAndPlay(context, audioManager, onReadyToSpeak) }
+            return
+        }
+        ensureRouteTracking(context, audioManager)
+        if (!isRouteConfiguredForSco()) {
+            if (linkState != LinkState.IDLE) {
+                stopLink(audioManager, "current route is not an SCO device")
+            }
             onReadyToSpeak()
             return
         }
 
-        val hasTriggered = AtomicBoolean(false)
+        cancelPendingRelease()
+        when (linkState) {
+            LinkState.CONNECTED -> {
+                Stats.recordReuse()
+                InAppLogger.logDebug(TAG, "Reusing Bluetooth SCO link")
+                onReadyToSpeak()
+            }
+            LinkState.CONNECTING -> pendingReady.add(onReadyToSpeak)
+            LinkState.IDLE -> connect(context, audioManager, onReadyToSpeak)
+        }
+    }
+
+    /**
+     * A readout has finished. With [moreSpeechQueued] the link is kept for the linger window so the
+     * next readout can reuse it; otherwise it goes down once [tailMs] has let the audio drain. A
+     * request made in the meantime cancels the pending stop.
+     */
+    fun release(context: Context, audioManager: AudioManager, moreSpeechQueued: Boolean, tailMs: Long = DEFAULT_TAIL_MS) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            handler.post { release(context, audioManager, moreSpeechQueued, tailMs) }
+            return
+        }
+        if (linkState == LinkState.IDLE) return
+
+        cancelPendingRelease()
+        val delayMs = if (moreSpeechQueued) maxOf(lingerMs.toLong(), tailMs) else tailMs
+        val runnable = Runnable {
+            releaseRunnable = null
+            stopLink(audioManager, if (moreSpeechQueued) "linger window ended" else "speech finished")
+        }
+        releaseRunnable = runnable
+        handler.postDelayed(runnable, delayMs)
+        if (moreSpeechQueued) {
+            InAppLogger.logDebug(TAG, "Keeping Bluetooth SCO up for ${delayMs}ms while speech is queued")
+        }
+    }
+
+    /** Take the link down now, for interrupted readouts. */
+    fun cleanupSco(context: Context, audioManager: AudioManager) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            handler.post { cleanupSco(context, audioManager) }
+            return
+        }
+        cancelPendingRelease()
+        stopLink(audioManager, "cleanup")
+    }
+
+    /** Take the link down and stop tracking routes and preferences; the service is going away. */
+    fun shutdown(context: Context, audioManager: AudioManager) {
+        cleanupSco(context, audioManager)
+        handler.post {
+            deviceCallback?.let { callback ->
+                try {
+                    trackedAudioManager?.unregisterAudioDeviceCallback(callback)
+                } catch (e: Exception) {
+                    InAppLogger.logError(TAG, "Failed to unregister audio device callback: ${e.message}")
+                }
+            }
+            deviceCallback = null
+            trackedAudioManager = null
+            voicePrefs?.unregisterOnSharedPreferenceChangeListener(voicePrefsListener)
+            voicePrefs = null
+        }
+    }
 
+    private fun connect(context: Context, audioManager: AudioManager, onReadyToSpeak: () -> Unit) {
         try {
             audioManager.startBluetoothSco()
             audioManager.isBluetoothScoOn = true
-            isScoActive = true
-            InAppLogger.logDebug("ScoAudioManager", "Started Bluetooth SCO")
+            InAppLogger.logDebug(TAG, "Started Bluetooth SCO")
         } catch (e: Exception) {
-            InAppLogger.logError("ScoAudioManager", "Failed to start Bluetooth SCO: ${e.message}")
-            if (hasTriggered.compareAndSet(false, true)) {
-                onReadyToSpeak()
-            }
+            InAppLogger.logError(TAG, "Failed to start Bluetooth SCO: ${e.message}")
+            onReadyToSpeak()
             return
         }
+        linkState = LinkState.CONNECTING
+        connectStartedAt = SystemClock.elapsedRealtime()
+        pendingReady.add(onReadyToSpeak)
 
-        scoReceiver = object : BroadcastReceiver() {
+        val receiver = object : BroadcastReceiver() {
             override fun onReceive(ctx: Context, intent: Intent) {
-                if (AudioManager.ACTION_SCO_AUDIO_STATE_UPDATED == intent.action) {
-                    val state = intent.getIntExtra(AudioManager.EXTRA_SCO_AUDIO_STATE, AudioManager.SCO_AUDIO_STATE_ERROR)
-                    if (state == AudioManager.SCO_AUDIO_STATE_CONNECTED) {
-                        InAppLogger.logDebug("ScoAudioManager", "SCO Audio State: CONNECTED")
-                        unregisterReceiverSafe(context)
-                        timeoutRunnable?.let { handler.removeCallbacks(it) }
-                        if (hasTriggered.compareAndSet(false, true)) {
-                            onReadyToSpeak()
+                if (AudioManager.ACTION_SCO_AUDIO_STATE_UPDATED != intent.action || isInitialStickyBroadcast) return
+                when (intent.getIntExtra(AudioManager.EXTRA_SCO_AUDIO_STATE, AudioManager.SCO_AUDIO_STATE_ERROR)) {
+                    AudioManager.SCO_AUDIO_STATE_CONNECTED -> onLinkConnected()
+                    AudioManager.SCO_AUDIO_STATE_CONNECTING -> InAppLogger.logDebug(TAG, "SCO Audio State: CONNECTING")
+                    AudioManager.SCO_AUDIO_STATE_DISCONNECTED -> {
+                        InAppLogger.logDebug(TAG, "SCO Audio State: DISCONNECTED")
+                        if (linkState == LinkState.CONNECTED) {
+                            // The headset dropped the link; the next readout connects again
+                            Stats.recordDrop()
+                            cancelPendingRelease()
+                            stopLink(audioManager, "link dropped by device")
                         }
-                    } else if (state == AudioManager.SCO_AUDIO_STATE_DISCONNECTED) {
-                        InAppLogger.logDebug("ScoAudioManager", "SCO Audio State: DISCONNECTED")
-                    } else if (state == AudioManager.SCO_AUDIO_STATE_CONNECTING) {
-                        InAppLogger.logDebug("ScoAudioManager", "SCO Audio State: CONNECTING")
                     }
                 }
             }
         }
-
+        // The receiver stays registered for the whole session to notice links dropped while lingering
         try {
-            context.registerReceiver(scoReceiver, IntentFilter(AudioManager.ACTION_SCO_AUDIO_STATE_UPDATED))
+            context.registerReceiver(receiver, IntentFilter(AudioManager.ACTION_SCO_AUDIO_STATE_UPDATED))
+            scoReceiver = receiver
+            receiverContext = context
         } catch (e: Exception) {
-            InAppLogger.logError("ScoAudioManager", "Failed to register SCO receiver: ${e.message}")
+            InAppLogger.logError(TAG, "Failed to register SCO receiver: ${e.message}")
         }
 
-        timeoutRunnable = Runnable {
-            InAppLogger.logWarning("ScoAudioManager", "SCO connection timed out after 3000ms")
-            unregisterReceiverSafe(context)
-            if (hasTriggered.compareAndSet(false, true)) {
-                onReadyToSpeak()
-            }
+        val timeout = Runnable {
+            timeoutRunnable = null
+            if (linkState != LinkState.CONNECTING) return@Runnable
+            Stats.recordTimeout()
+            InAppLogger.logWarning(TAG, "SCO connection timed out after ${CONNECT_TIMEOUT_MS}ms")
+            // Speak anyway, as before; the link counts as up until the device says otherwise
+            linkState = LinkState.CONNECTED
+            firePendingReady()
         }
+        timeoutRunnable = timeout
+        handler.postDelayed(timeout, CONNECT_TIMEOUT_MS)
+    }
+
+    private fun onLinkConnected() {
+        if (linkState != LinkState.CONNECTING) return
+        val latencyMs = SystemClock.elapsedRealtime() - connectStartedAt
+        Stats.recordConnect(latencyMs)
+        InAppLogger.logDebug(TAG, "SCO Audio State: CONNECTED after ${latencyMs}ms")
+        timeoutRunnable?.let { handler.removeCallbacks(it) }
+        timeoutRunnable = null
+        linkState = LinkState.CONNECTED
+        firePendingReady()
+    }
 
-        handler.postDelayed(timeoutRunnable!!, 3000)
+    private fun firePendingReady() {
+        val callbacks = pendingReady.toList()
+        pendingReady.clear()
+        callbacks.forEach { it() }
     }
 
-    fun cleanupSco(context: Context, audioManager: AudioManager) {
-        unregisterReceiverSafe(context)
+    private fun stopLink(audioManager: AudioManager, reason: String) {
         timeoutRunnable?.let { handler.removeCallbacks(it) }
         timeoutRunnable = null
+        // Readouts still waiting for the link were interrupted along with it
+        pendingReady.clear()
+        unregisterReceiverSafe()
+        if (linkState == LinkState.IDLE) return
 
-        if (isScoActive) {
+        linkState = LinkState.IDLE
+        try {
+            audioManager.stopBluetoothSco()
+            audioManager.isBluetoothScoOn = false
+            InAppLogger.logDebug(TAG, "Stopped Bluetooth SCO ($reason)")
+        } catch (e: Exception) {
+            InAppLogger.logError(TAG, "Failed to stop Bluetooth SCO: ${e.message}")
+        }
+    }
+
+    private fun cancelPendingRelease() {
+        releaseRunnable?.let { handler.removeCallbacks(it) }
+        releaseRunnable = null
+    }
+
+    private fun ensureRouteTracking(context: Context, audioManager: AudioManager) {
+        if (voicePrefs == null) {
+            val prefs = context.applicationContext.getSharedPreferences(VOICE_PREFS, Context.MODE_PRIVATE)
+            readVoicePrefs(prefs)
+            prefs.registerOnSharedPreferenceChangeListener(voicePrefsListener)
+            voicePrefs = prefs
+        }
+        if (deviceCallback == null) {
+            refreshRoutes(audioManager)
+            val callback = object : AudioDeviceCallback() {
+                override fun onAudioDevicesAdded(addedDevices: Array<out AudioDeviceInfo>) {
+                    if (addedDevices.any { BluetoothConnectionHelper.isBluetoothOutputType(it.type) }) {
+                        refreshRoutes(audioManager)
+                    }
+                }
+
+                override fun onAudioDevicesRemoved(removedDevices: Array<out AudioDeviceInfo>) {
+                    if (removedDevices.none { BluetoothConnectionHelper.isBluetoothOutputType(it.type) }) return
+                    refreshRoutes(audioManager)
+                    if (linkState != LinkState.IDLE && !isRouteConfiguredForSco()) {
+                        cancelPendingRelease()
+                        stopLink(audioManager, "SCO device disconnected")
+                    }
+                }
+            }
             try {
-                audioManager.stopBluetoothSco()
-                audioManager.isBluetoothScoOn = false
-                isScoActive = false
-                InAppLogger.logDebug("ScoAudioManager", "Stopped Bluetooth SCO")
+                audioManager.registerAudioDeviceCallback(callback, handler)
+                deviceCallback = callback
+                trackedAudioManager = audioManager
             } catch (e: Exception) {
-                InAppLogger.logError("ScoAudioManager", "Failed to stop Bluetooth SCO: ${e.message}")
+                InAppLogger.logError(TAG, "Failed to register audio device callback: ${e.message}")
             }
         }
     }
 
-    private fun unregisterReceiverSafe(context: Context) {
+    private fun readVoicePrefs(prefs: SharedPreferences) {
+        scoDevices = prefs.getStringSet(KEY_SCO_DEVICES, emptySet())?.toSet() ?: emptySet()
+        lingerMs = prefs.getInt(KEY_SCO_LINGER_MS, DEFAULT_LINGER_MS).coerceAtLeast(0)
+    }
+
+    private fun refreshRoutes(audioManager: AudioManager) {
+        bluetoothRouteAddresses = BluetoothConnectionHelper.getBluetoothOutputRoutes(audioManager, TAG)
+            .mapNotNull { it.address }
+            .toSet()
+    }
+
+    private fun isRouteConfiguredForSco(): Boolean {
+        if (scoDevices.isEmpty()) return false
+        return bluetoothRouteAddresses.any { it in scoDevices }
+    }
+
+    private fun unregisterReceiverSafe() {
         scoReceiver?.let {
             try {
-                context.unregisterReceiver(it)
+                receiverContext?.unregisterReceiver(it)
             } catch (e: Exception) {
                 // Ignore if not registered
             }
-            scoReceiver = null
         }
+        scoReceiver = null
+        receiverContext = null
     }
 }
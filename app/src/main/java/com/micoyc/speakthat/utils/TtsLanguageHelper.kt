@@ -22,6 +22,23 @@ object TtsLanguageHelper {
     const val KEY_LANGUAGE = "language"
     private const val DEFAULT_LANGUAGE = "en_US"
 
+    @Volatile
+    private var detectionCache: LanguageDetectionCache? = null
+
+    // The two prefs read on every readout, kept current by a listener instead of re-read
+    @Volatile
+    private var trackedPrefs: SharedPreferences? = null
+    @Volatile
+    private var autoDetectEnabledSetting = false
+    @Volatile
+    private var globalLanguageSetting = DEFAULT_LANGUAGE
+
+    private val prefsListener = SharedPreferences.OnSharedPreferenceChangeListener { prefs, key ->
+        if (key == null || key == KEY_AUTO_DETECT_LANGUAGE || key == KEY_LANGUAGE) {
+            readLanguagePrefs(prefs)
+        }
+    }
+
     data class AutoLanguageApplyResult(
         val overrideApplied: Boolean,
         val autoDetectEnabled: Boolean,
@@ -40,14 +57,18 @@ object TtsLanguageHelper {
     /**
      * Must be called after global [com.micoyc.speakthat.tts.SpeakThatTtsManager.applyVoiceSettings].
      * Optionally applies temporary [TextToSpeech.setLanguage] when auto-detect is on (Q+) and accents differ.
+     * Detection goes through [LanguageDetectionCache]; [conversationKey] (such as the notification
+     * key) lets short replies keep the language of their chat.
      */
     fun tryApplyAutoDetectLanguage(
         context: Context,
         voiceSettingsPrefs: SharedPreferences,
         tts: TextToSpeech?,
-        speechText: String
+        speechText: String,
+        conversationKey: String? = null
     ): AutoLanguageApplyResult {
-        val autoDetectEnabled = voiceSettingsPrefs.getBoolean(KEY_AUTO_DETECT_LANGUAGE, false)
+        trackLanguagePrefs(voiceSettingsPrefs)
+        val autoDetectEnabled = autoDetectEnabledSetting
         if (tts == null) {
             return emptyResult(autoDetectEnabled, skippedLowApi = Build.VERSION.SDK_INT < Build.VERSION_CODES.Q)
         }
@@ -58,7 +79,12 @@ object TtsLanguageHelper {
             return emptyResult(autoDetectEnabled, skippedLowApi = true)
         }
 
-        val details = LanguageDetectorUtil.detectLanguageDetails(context, speechText)
+        val globalLangPref = globalLanguageSetting
+        val detection = detectionCache(context).detect(speechText, globalLangPref, conversationKey)
+        val details = detection.details
+        if (detection.source != LanguageDetectionCache.Source.CLASSIFIER) {
+            InAppLogger.logDebug("TtsLanguageHelper", "Language ${details.topLocaleTag ?: "unchanged"} from ${detection.source}")
+        }
         val accepted = details.acceptedForAutoDetect
         val tag = details.topLocaleTag
         val confidence = details.topConfidence
@@ -77,7 +103,6 @@ object TtsLanguageHelper {
             )
         }
 
-        val globalLangPref = voiceSettingsPrefs.getString(KEY_LANGUAGE, DEFAULT_LANGUAGE) ?: DEFAULT_LANGUAGE
         val globalBaseLang = globalLangPref.split("_", "-").firstOrNull()?.lowercase().orEmpty()
         val detectedBaseLang = tag.split("_", "-").firstOrNull()?.lowercase().orEmpty()
 
@@ -109,6 +134,35 @@ object TtsLanguageHelper {
         )
     }
 
+    private fun detectionCache(context: Context): LanguageDetectionCache {
+        detectionCache?.let { return it }
+        synchronized(this) {
+            detectionCache?.let { return it }
+            val appContext = context.applicationContext
+            val created = LanguageDetectionCache(
+                classify = { text -> LanguageDetectorUtil.detectLanguageDetails(appContext, text) }
+            )
+            detectionCache = created
+            return created
+        }
+    }
+
+    private fun trackLanguagePrefs(prefs: SharedPreferences) {
+        if (trackedPrefs === prefs) return
+        synchronized(this) {
+            if (trackedPrefs === prefs) return
+            trackedPrefs?.unregisterOnSharedPreferenceChangeListener(prefsListener)
+            readLanguagePrefs(prefs)
+            prefs.registerOnSharedPreferenceChangeListener(prefsListener)
+            trackedPrefs = prefs
+        }
+    }
+
+    private fun readLanguagePrefs(prefs: SharedPreferences) {
+        autoDetectEnabledSetting = prefs.getBoolean(KEY_AUTO_DETECT_LANGUAGE, false)
+        globalLanguageSetting = prefs.getString(KEY_LANGUAGE, DEFAULT_LANGUAGE) ?: DEFAULT_LANGUAGE
+    }
+
     private fun emptyResult(autoDetectEnabled: Boolean, skippedLowApi: Boolean) = AutoLanguageApplyResult(
         overrideApplied = false,
         autoDetectEnabled = autoDetectEnabled,
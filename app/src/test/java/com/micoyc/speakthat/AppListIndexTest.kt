@@ -0,0 +1,48 @@
+package com.micoyc.speakthat
+
+import android.app.Application
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+
+/** Decodes the app_list.idx written by the generateAppListIndex build task. */
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class, sdk = [34])
+class AppListIndexTest {
+
+    private val context = RuntimeEnvironment.getApplication()
+
+    private val apps: List<AppListData> = context.assets.open("app_list.json").bufferedReader().use {
+        Gson().fromJson(it, object : TypeToken<List<AppListData>>() {}.type)
+    }
+
+    private val generated = context.assets.open("app_list.idx").use { AppListIndex.read(it) }
+    private val inMemory = AppListIndex.fromApps(apps)
+
+    @Test
+    fun `generated index holds the whole catalogue`() {
+        assertEquals(apps, generated.apps)
+    }
+
+    @Test
+    fun `generated index searches like matchesQuery`() {
+        for (query in listOf("", "w", "wh", "chat", "WhatsApp", "com.face", "messaging", "fb messenger", " bank ", "zzzz")) {
+            val expected = apps.filter { it.matchesQuery(query) }
+            assertEquals(query, expected, generated.search(query))
+            assertEquals(query, expected, inMemory.search(query))
+        }
+    }
+
+    @Test
+    fun `generated index finds packages like the in-memory one`() {
+        for (app in apps) {
+            assertEquals(inMemory.findByPackage(app.packageName), generated.findByPackage(app.packageName.uppercase()))
+        }
+        assertEquals(null, generated.findByPackage("com.example.missing"))
+    }
+}
@@ -0,0 +1,111 @@
+package com.micoyc.speakthat
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class BurstCoalescerTest {
+
+    private class FakeTimer : HousekeepingScheduler.Timer {
+        var now = 0L
+        private var pending: Runnable? = null
+        private var pendingAt = Long.MAX_VALUE
+
+        override fun postDelayed(task: Runnable, delayMs: Long) {
+            pending = task
+            pendingAt = now + delayMs
+        }
+
+        override fun cancel(task: Runnable) {
+            if (pending === task) {
+                pending = null
+                pendingAt = Long.MAX_VALUE
+            }
+        }
+
+        fun advanceTo(target: Long) {
+            while (pendingAt <= target) {
+                now = pendingAt
+                val task = pending!!
+                pending = null
+                pendingAt = Long.MAX_VALUE
+                task.run()
+            }
+            now = target
+        }
+    }
+
+    private val timer = FakeTimer()
+    private val emitted = mutableListOf<Pair<Long, List<String>>>()
+    private val coalescer = BurstCoalescer<String>(timer, { timer.now }) { _, items -> emitted.add(timer.now to items) }
+
+    @Test
+    fun `lone message waits only the minimum window`() {
+        coalescer.offer("chat|Family", "hi")
+        timer.advanceTo(BurstCoalescer.MIN_WINDOW_MS - 1)
+        assertTrue(emitted.isEmpty())
+        timer.advanceTo(BurstCoalescer.MIN_WINDOW_MS)
+        assertEquals(listOf(BurstCoalescer.MIN_WINDOW_MS to listOf("hi")), emitted)
+    }
+
+    @Test
+    fun `rapid messages from one conversation become one readout`() {
+        for ((i, at) in listOf(0L, 300L, 600L, 900L).withIndex()) {
+            timer.advanceTo(at)
+            coalescer.offer("chat|Family", "m$i")
+        }
+        timer.advanceTo(10_000L)
+        // Smoothed gap of 300ms gives a 600ms window after the last message
+        assertEquals(listOf(1_500L to listOf("m0", "m1", "m2", "m3")), emitted)
+    }
+
+    @Test
+    fun `a steady slow cadence is read after the minimum window`() {
+        for ((i, at) in listOf(0L, 10_000L, 20_000L, 30_000L).withIndex()) {
+            timer.advanceTo(at)
+            coalescer.offer("chat|Family", "m$i")
+        }
+        timer.advanceTo(40_000L)
+        assertEquals(
+            listOf(0L, 10_000L, 20_000L, 30_000L).map { it + BurstCoalescer.MIN_WINDOW_MS },
+            emitted.map { it.first }
+        )
+    }
+
+    @Test
+    fun `conversations are kept apart`() {
+        coalescer.offer("chat|Family", "family")
+        coalescer.offer("chat|Work", "work")
+        timer.advanceTo(10_000L)
+        assertEquals(listOf(listOf("family"), listOf("work")), emitted.map { it.second })
+    }
+
+    @Test
+    fun `a slowing stream is released after the maximum hold`() {
+        // Each gap fits inside the window the previous ones opened, so the burst never closes itself
+        for ((i, at) in listOf(0L, 400L, 1_100L, 2_100L, 3_400L, 5_000L).withIndex()) {
+            timer.advanceTo(at)
+            coalescer.offer("chat|Family", "m$i")
+        }
+        assertTrue(emitted.isEmpty())
+        timer.advanceTo(BurstCoalescer.MAX_HOLD_MS)
+        assertEquals(1, emitted.size)
+        assertEquals(BurstCoalescer.MAX_HOLD_MS, emitted.single().first)
+        assertEquals(6, emitted.single().second.size)
+    }
+
+    @Test
+    fun `discarded and cleared messages are never emitted`() {
+        coalescer.offer("chat|Family", "keep")
+        coalescer.offer("chat|Family", "dismissed")
+        coalescer.offer("chat|Work", "stopped")
+        assertEquals(1, coalescer.discard { it == "dismissed" })
+        timer.advanceTo(10_000L)
+        assertEquals(listOf(listOf("keep"), listOf("stopped")), emitted.map { it.second })
+
+        coalescer.offer("chat|Family", "late")
+        assertEquals(1, coalescer.clear())
+        timer.advanceTo(20_000L)
+        assertEquals(2, emitted.size)
+    }
+}
@@ -0,0 +1,91 @@
+package com.micoyc.speakthat
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+class DismissalMemoryTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val timeoutMs = 15 * 60 * 1000L
+
+    private fun file(): File = File(folder.root, DismissalMemory.FILE_NAME)
+
+    @Test
+    fun `dismissals survive reopening the file`() {
+        val memory = DismissalMemory(file())
+        assertNotNull(memory.backingFile)
+        memory.record(0x1234_5678_9abc_def0L, 1_000L)
+        memory.record(42L, 2_000L)
+
+        val reopened = DismissalMemory(file())
+        assertEquals(2, reopened.occupied)
+        assertEquals(1_000L, reopened.lookup(0x1234_5678_9abc_def0L, 5_000L, timeoutMs))
+        assertEquals(2_000L, reopened.lookup(42L, 5_000L, timeoutMs))
+        assertNull(reopened.lookup(43L, 5_000L, timeoutMs))
+    }
+
+    @Test
+    fun `entries age out after the timeout`() {
+        val memory = DismissalMemory(null)
+        memory.record(7L, 0L)
+        assertEquals(0L, memory.lookup(7L, timeoutMs - 1, timeoutMs))
+        assertNull(memory.lookup(7L, timeoutMs, timeoutMs))
+
+        assertEquals(1, memory.purgeExpired(timeoutMs + 1, timeoutMs))
+        assertEquals(0, memory.occupied)
+    }
+
+    @Test
+    fun `rerecording refreshes the timestamp in place`() {
+        val memory = DismissalMemory(null)
+        assertFalse(memory.record(9L, 100L))
+        assertFalse(memory.record(9L, 500L))
+        assertEquals(1, memory.occupied)
+        assertEquals(500L, memory.lookup(9L, 600L, timeoutMs))
+    }
+
+    @Test
+    fun `full bucket evicts its oldest entry`() {
+        // One bucket, so every hash collides
+        val memory = DismissalMemory(null, bucketCount = 1)
+        for (i in 1..DismissalMemory.SLOTS_PER_BUCKET) memory.record(i.toLong(), i * 10L)
+        assertTrue(memory.record(100L, 1_000L))
+
+        assertNull(memory.lookup(1L, 1_000L, timeoutMs))
+        assertEquals(20L, memory.lookup(2L, 1_000L, timeoutMs))
+        assertEquals(1_000L, memory.lookup(100L, 1_000L, timeoutMs))
+        assertEquals(DismissalMemory.SLOTS_PER_BUCKET, memory.occupied)
+    }
+
+    @Test
+    fun `zero hash is still tracked`() {
+        val memory = DismissalMemory(null)
+        memory.record(0L, 10L)
+        assertEquals(10L, memory.lookup(0L, 20L, timeoutMs))
+    }
+
+    @Test
+    fun `concurrent writers keep the table consistent`() {
+        val memory = DismissalMemory(file())
+        val threads = (0 until 4).map { t ->
+            Thread {
+                for (i in 0 until 200) memory.record((t * 1000 + i).toLong() * 0x9E3779B97F4A7C15uL.toLong(), 1_000L)
+            }
+        }
+        threads.forEach { it.start() }
+        threads.forEach { it.join() }
+
+        val reopened = DismissalMemory(file())
+        assertEquals(memory.occupied, reopened.occupied)
+        assertTrue(reopened.occupied in 700..800)
+    }
+}
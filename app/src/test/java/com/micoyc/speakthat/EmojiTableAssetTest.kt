@@ -0,0 +1,48 @@
+package com.micoyc.speakthat
+
+import android.app.Application
+import com.ibm.icu.lang.UCharacter
+import com.ibm.icu.lang.UProperty
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+
+/** Decodes the emoji_classes.bin written by the generateEmojiTable build task. */
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class, sdk = [34])
+class EmojiTableAssetTest {
+
+    private val generated = RuntimeEnvironment.getApplication().assets.open("emoji_classes.bin").use {
+        EmojiTable.read(it)
+    }
+
+    // The classifier GenerateEmojiTableTask runs, over the same ICU4J
+    private val inMemory = EmojiTable.fromClassifier(
+        UCharacter.getUnicodeVersion().toString(),
+        listOf(0..0x10FFFF)
+    ) { codePoint ->
+        when {
+            codePoint == 0x200D -> EmojiTable.JOINER
+            codePoint == 0xFE0E || codePoint == 0xFE0F -> EmojiTable.VARIATION_SELECTOR
+            codePoint == 0x20E3 -> EmojiTable.KEYCAP
+            codePoint in 0xE0020..0xE007F -> EmojiTable.TAG
+            UCharacter.hasBinaryProperty(codePoint, UProperty.REGIONAL_INDICATOR) -> EmojiTable.REGIONAL_INDICATOR
+            UCharacter.hasBinaryProperty(codePoint, UProperty.EMOJI_MODIFIER) -> EmojiTable.MODIFIER
+            UCharacter.hasBinaryProperty(codePoint, UProperty.EXTENDED_PICTOGRAPHIC) ||
+                UCharacter.hasBinaryProperty(codePoint, UProperty.EMOJI_PRESENTATION) ||
+                UCharacter.hasBinaryProperty(codePoint, UProperty.EMOJI_MODIFIER_BASE) -> EmojiTable.PICTOGRAPHIC
+            else -> EmojiTable.NONE
+        }
+    }
+
+    @Test
+    fun `generated table classifies every code point like fromClassifier`() {
+        assertEquals(inMemory.unicodeVersion, generated.unicodeVersion)
+        for (codePoint in 0..0x10FFFF) {
+            assertEquals(Integer.toHexString(codePoint), inMemory.classOf(codePoint), generated.classOf(codePoint))
+        }
+    }
+}
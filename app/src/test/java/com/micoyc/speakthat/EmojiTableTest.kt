@@ -0,0 +1,76 @@
+package com.micoyc.speakthat
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Test
+
+class EmojiTableTest {
+
+    // A hand-written stand-in for the generated table, covering the code points used below
+    private val table = EmojiTable.fromClassifier(
+        "test",
+        listOf(0x0000..0x33FF, 0x1F000..0x1FFFF, 0xE0000..0xE00FF)
+    ) { codePoint ->
+        when (codePoint) {
+            0x200D -> EmojiTable.JOINER
+            0xFE0E, 0xFE0F -> EmojiTable.VARIATION_SELECTOR
+            0x20E3 -> EmojiTable.KEYCAP
+            in 0xE0020..0xE007F -> EmojiTable.TAG
+            in 0x1F1E6..0x1F1FF -> EmojiTable.REGIONAL_INDICATOR
+            in 0x1F3FB..0x1F3FF -> EmojiTable.MODIFIER
+            0x2764, in 0x1F300..0x1FAFF -> EmojiTable.PICTOGRAPHIC
+            else -> EmojiTable.NONE
+        }
+    }
+
+    private fun text(vararg parts: Any): String {
+        val builder = StringBuilder()
+        for (part in parts) {
+            if (part is Int) builder.appendCodePoint(part) else builder.append(part)
+        }
+        return builder.toString()
+    }
+
+    private val family = text(0x1F468, 0x200D, 0x1F469, 0x200D, 0x1F467)
+    private val unitedKingdom = text(0x1F1EC, 0x1F1E7)
+    private val france = text(0x1F1EB, 0x1F1F7)
+    private val england = text(0x1F3F4, 0xE0067, 0xE0062, 0xE0065, 0xE006E, 0xE0067, 0xE007F)
+
+    @Test
+    fun `classes are looked up per code point`() {
+        assertEquals(EmojiTable.PICTOGRAPHIC, table.classOf(0x1F600))
+        assertEquals(EmojiTable.MODIFIER, table.classOf(0x1F3FD))
+        assertEquals(EmojiTable.NONE, table.classOf('a'.code))
+        assertEquals(EmojiTable.NONE, table.classOf(0x10FFFF))
+    }
+
+    @Test
+    fun `text without emojis is returned as is`() {
+        val plain = "No emojis here, just text — and café."
+        assertSame(plain, table.strip(plain))
+        assertSame(plain, table.strip(plain, "emoji"))
+    }
+
+    @Test
+    fun `emojis and their modifiers are removed`() {
+        assertEquals("Great job !", table.strip(text("Great job ", 0x1F44D, 0x1F3FD, "!")))
+        assertEquals("Love it ", table.strip(text("Love it ", 0x2764, 0xFE0F)))
+        assertEquals(" go", table.strip(text(england, " go")))
+    }
+
+    @Test
+    fun `sequences collapse into one spoken token`() {
+        assertEquals("Family emoji home", table.strip(text("Family ", family, " home"), "emoji"))
+        assertEquals("emoji trip", table.strip(text(unitedKingdom, france, " trip"), "emoji"))
+        assertEquals("emoji go", table.strip(text(england, " go"), "emoji"))
+        assertEquals("hi emoji there", table.strip(text("hi", 0x1F600, "there"), "emoji"))
+        assertEquals("emoji lol", table.strip(text(0x1F602, " ", 0x1F602, " ", 0x1F602, " lol"), "emoji"))
+    }
+
+    @Test
+    fun `keycaps keep their digit and lone joiners are kept`() {
+        assertEquals("Press 1 now", table.strip(text("Press 1", 0xFE0F, 0x20E3, " now"), "emoji"))
+        val malayalam = text(0x0D28, 0x0D4D, 0x200D)
+        assertSame(malayalam, table.strip(malayalam))
+    }
+}
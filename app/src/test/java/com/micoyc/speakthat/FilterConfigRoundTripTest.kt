@@ -0,0 +1,122 @@
+package com.micoyc.speakthat
+
+import android.app.Application
+import android.content.Context
+import android.content.SharedPreferences
+import com.micoyc.speakthat.rules.Action
+import com.micoyc.speakthat.rules.ActionType
+import com.micoyc.speakthat.rules.Rule
+import com.micoyc.speakthat.rules.RuleConfigManager
+import com.micoyc.speakthat.rules.Trigger
+import com.micoyc.speakthat.rules.TriggerType
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class, sdk = [34])
+class FilterConfigRoundTripTest {
+
+    private val context: Context = RuntimeEnvironment.getApplication()
+
+    private val mainValues = mapOf<String, Any>(
+        "app_list_mode" to "whitelist",
+        "app_list" to setOf("com.example.chat", "com.example.mail"),
+        "word_blacklist" to setOf("promo"),
+        "url_handling_mode" to "remove",
+        "tidy_speech_say_emoji" to true,
+        "digit_threshold" to 7,
+        "filter_silent" to false,
+        "notification_behavior" to "queue",
+        "priority_apps" to setOf("com.example.chat"),
+        "shake_threshold" to 15.5f,
+        "ducking_volume" to 45,
+        "speech_template" to "{app}: {content}",
+        "burst_coalescing_enabled" to true,
+        "content_cap_mode" to "words",
+        "dark_mode" to false,
+        "service_restart_policy" to "always"
+    )
+
+    private val voiceValues = mapOf<String, Any>(
+        "speech_rate" to 1.5f,
+        "pitch" to 0.8f,
+        "tts_volume" to 0.6f,
+        "voice_name" to "en-gb-x-rjs-local",
+        "tts_language" to "en_GB",
+        "audio_usage" to 2,
+        "speakerphone_enabled" to true
+    )
+
+    private val rules = listOf(
+        Rule(
+            id = "rule_1",
+            name = "Quiet at work",
+            triggers = listOf(
+                Trigger(id = "trigger_1", type = TriggerType.WIFI_NETWORK, data = mapOf("network_ssids" to "Office"))
+            ),
+            actions = listOf(Action(id = "action_1", type = ActionType.FORCE_PRIVATE)),
+            createdAt = 1_000L,
+            modifiedAt = 2_000L
+        )
+    )
+
+    @Test
+    fun `full configuration survives export and import`() {
+        seed(context.getSharedPreferences("SpeakThatPrefs", Context.MODE_PRIVATE), mainValues)
+        seed(context.getSharedPreferences("VoiceSettings", Context.MODE_PRIVATE), voiceValues)
+        RuleConfigManager.importRules(context, rules, 0)
+
+        val exported = export()
+
+        for (name in listOf("SpeakThatPrefs", "VoiceSettings", "SpeakThatRules")) {
+            context.getSharedPreferences(name, Context.MODE_PRIVATE).edit().clear().commit()
+        }
+
+        val result = FilterConfigManager.importFullConfiguration(context, ByteArrayInputStream(exported.toByteArray()))
+        assertTrue(result.message, result.success)
+        assertEquals(rules, result.rules)
+        RuleConfigManager.importRules(context, result.rules, 0)
+
+        assertStored(context.getSharedPreferences("SpeakThatPrefs", Context.MODE_PRIVATE).all, mainValues)
+        assertStored(context.getSharedPreferences("VoiceSettings", Context.MODE_PRIVATE).all, voiceValues)
+        // Every exported field, including the ones left at their defaults, comes back unchanged
+        assertEquals(withoutExportDate(exported), withoutExportDate(export()))
+    }
+
+    private fun seed(prefs: SharedPreferences, values: Map<String, Any>) {
+        val editor = prefs.edit()
+        for ((key, value) in values) {
+            @Suppress("UNCHECKED_CAST")
+            when (value) {
+                is String -> editor.putString(key, value)
+                is Boolean -> editor.putBoolean(key, value)
+                is Int -> editor.putInt(key, value)
+                is Float -> editor.putFloat(key, value)
+                is Set<*> -> editor.putStringSet(key, value as Set<String>)
+            }
+        }
+        editor.commit()
+    }
+
+    private fun assertStored(stored: Map<String, *>, expected: Map<String, Any>) {
+        for ((key, value) in expected) {
+            assertEquals(key, value, stored[key])
+        }
+    }
+
+    private fun export(): String {
+        val output = ByteArrayOutputStream()
+        FilterConfigManager.exportFullConfiguration(context, output, true)
+        return output.toString("UTF-8")
+    }
+
+    private fun withoutExportDate(json: String): String =
+        json.replace(Regex("\"exportDate\": \"[^\"]*\""), "")
+}
@@ -0,0 +1,78 @@
+package com.micoyc.speakthat
+
+import android.app.Application
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class, sdk = [34])
+class ForegroundAppTrackerTest {
+
+    private var now = 0L
+
+    @Before
+    fun setUp() {
+        ForegroundAppTracker.reset()
+        ForegroundAppTracker.clock = { now }
+    }
+
+    @After
+    fun tearDown() {
+        ForegroundAppTracker.reset()
+        ForegroundAppTracker.clock = System::currentTimeMillis
+    }
+
+    private fun openShadeAfter(userAppMs: Long) {
+        ForegroundAppTracker.updateForegroundPackage("com.example.maps")
+        now += userAppMs
+        ForegroundAppTracker.updateForegroundPackage("com.android.systemui")
+    }
+
+    @Test
+    fun `a shade pulled down briefly still reports the app underneath`() {
+        openShadeAfter(5_000L)
+        now += 3_000L
+
+        assertEquals("com.android.systemui", ForegroundAppTracker.getCurrentPackage())
+        assertEquals("com.example.maps", ForegroundAppTracker.getEffectivePackage(15_000L, deviceInUse = true))
+    }
+
+    @Test
+    fun `a stale shade state is looked through while the device is in use`() {
+        openShadeAfter(20_000L)
+        now += 30_000L
+
+        assertEquals("com.example.maps", ForegroundAppTracker.getEffectivePackage(15_000L, deviceInUse = true))
+    }
+
+    @Test
+    fun `a locked or dark screen stays system ui`() {
+        openShadeAfter(20_000L)
+        now += 30_000L
+
+        assertEquals("com.android.systemui", ForegroundAppTracker.getEffectivePackage(15_000L, deviceInUse = false))
+    }
+
+    @Test
+    fun `a long held system ui foreground stops standing in for the last app`() {
+        openShadeAfter(20_000L)
+        now += ForegroundAppTracker.MAX_STALE_FALLBACK_MS + 1L
+
+        assertEquals("com.android.systemui", ForegroundAppTracker.getEffectivePackage(15_000L, deviceInUse = true))
+    }
+
+    @Test
+    fun `a user app in front is reported as is`() {
+        openShadeAfter(1_000L)
+        now += 1_000L
+        ForegroundAppTracker.updateForegroundPackage("com.example.chat")
+        now += ForegroundAppTracker.MAX_STALE_FALLBACK_MS * 2
+
+        assertEquals("com.example.chat", ForegroundAppTracker.getEffectivePackage(15_000L, deviceInUse = false))
+    }
+}
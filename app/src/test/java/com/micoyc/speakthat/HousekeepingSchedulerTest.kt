@@ -0,0 +1,103 @@
+package com.micoyc.speakthat
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class HousekeepingSchedulerTest {
+
+    /** Virtual clock and timer: [advanceTo] fires the pending wakeup when its time comes. */
+    private class FakeTimer : HousekeepingScheduler.Timer {
+        var now = 0L
+        var wakeups = 0
+        private var pending: Runnable? = null
+        private var pendingAt = Long.MAX_VALUE
+
+        override fun postDelayed(task: Runnable, delayMs: Long) {
+            pending = task
+            pendingAt = now + delayMs
+        }
+
+        override fun cancel(task: Runnable) {
+            if (pending === task) {
+                pending = null
+                pendingAt = Long.MAX_VALUE
+            }
+        }
+
+        fun advanceTo(target: Long) {
+            while (pendingAt <= target) {
+                now = pendingAt
+                val task = pending!!
+                pending = null
+                pendingAt = Long.MAX_VALUE
+                wakeups++
+                task.run()
+            }
+            now = target
+        }
+    }
+
+    private val timer = FakeTimer()
+    private val scheduler = HousekeepingScheduler(timer) { timer.now }
+
+    @Test
+    fun `jobs with compatible windows share wakeups`() {
+        var health = 0
+        var cleanup = 0
+        scheduler.schedule("health", 300_000L, 60_000L, Runnable { health++ })
+        timer.advanceTo(30_000L)
+        scheduler.schedule("cleanup", 300_000L, 150_000L, Runnable { cleanup++ })
+
+        timer.advanceTo(3_600_000L)
+
+        assertEquals(12, health)
+        assertTrue(cleanup >= 11)
+        // Separate handlers would have woken 24 times
+        assertEquals(12, timer.wakeups)
+    }
+
+    @Test
+    fun `jobs never run late and at most flex early`() {
+        val runs = mutableListOf<Long>()
+        scheduler.schedule("watchdog", 45_000L, 15_000L, Runnable { runs.add(timer.now) })
+        scheduler.schedule("health", 300_000L, 60_000L, Runnable { })
+
+        timer.advanceTo(1_800_000L)
+
+        var previous = 0L
+        for (time in runs) {
+            assertTrue(time - previous <= 45_000L)
+            assertTrue(time - previous >= 30_000L)
+            previous = time
+        }
+    }
+
+    @Test
+    fun `cancel stops a job and idles the timer`() {
+        var runs = 0
+        scheduler.schedule("job", 1_000L, 0L, Runnable { runs++ })
+        timer.advanceTo(3_500L)
+        assertEquals(3, runs)
+
+        scheduler.cancel("job")
+        assertFalse(scheduler.isScheduled("job"))
+        assertEquals(Long.MAX_VALUE, scheduler.nextDeadline())
+        timer.advanceTo(10_000L)
+        assertEquals(3, runs)
+    }
+
+    @Test
+    fun `wakeup stats count the last hour`() {
+        HousekeepingScheduler.WakeupStats.reset()
+        val hour = 60 * 60 * 1000L
+        HousekeepingScheduler.WakeupStats.record("clock_alarm", 1_000L)
+        HousekeepingScheduler.WakeupStats.record("housekeeping", hour)
+        HousekeepingScheduler.WakeupStats.record("housekeeping", hour + 500L)
+
+        assertEquals(2, HousekeepingScheduler.WakeupStats.lastHour(hour + 2_000L))
+        assertEquals(3, HousekeepingScheduler.WakeupStats.lastHour(hour + 500L))
+        HousekeepingScheduler.WakeupStats.reset()
+    }
+}
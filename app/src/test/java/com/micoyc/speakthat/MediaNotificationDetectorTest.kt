@@ -0,0 +1,66 @@
+package com.micoyc.speakthat
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class MediaNotificationDetectorTest {
+
+    private fun notification(
+        id: Int = 1,
+        template: String? = null,
+        category: String? = null,
+        hasMediaSession: Boolean = false,
+        hasSeekbar: Boolean = false,
+        title: String = "Song"
+    ) = ParsedNotification(
+        packageName = "com.example.player",
+        key = null,
+        id = id,
+        postTime = 0L,
+        title = title,
+        template = template,
+        category = category,
+        channelId = "playback",
+        hasMediaSession = hasMediaSession,
+        hasSeekbar = hasSeekbar
+    )
+
+    @Test
+    fun `media style, transport category, session and seekbar are each media`() {
+        assertTrue(MediaNotificationDetector.isMediaNotification(notification(1, template = "android.app.Notification\$MediaStyle")))
+        assertTrue(MediaNotificationDetector.isMediaNotification(notification(2, category = "transport")))
+        assertTrue(MediaNotificationDetector.isMediaNotification(notification(3, hasMediaSession = true)))
+        assertTrue(MediaNotificationDetector.isMediaNotification(notification(4, hasSeekbar = true)))
+        assertFalse(MediaNotificationDetector.isMediaNotification(notification(5, category = "msg")))
+    }
+
+    @Test
+    fun `reason lists every signal`() {
+        val parsed = notification(template = "android.app.Notification\$MediaStyle", category = "transport", hasMediaSession = true)
+
+        assertEquals(
+            "Media style: MediaStyle, Media category: transport, Has media session flags",
+            MediaNotificationDetector.getMediaDetectionReason(parsed)
+        )
+    }
+
+    @Test
+    fun `each re-post is classified on its own signals`() {
+        // A download shows a progress bar, then completes under the same id, template and category
+        val downloading = notification(category = "progress", hasSeekbar = true, title = "Downloading")
+        val complete = notification(category = "progress", title = "Download complete")
+
+        assertTrue(MediaNotificationDetector.isMediaNotification(downloading))
+        assertFalse(MediaNotificationDetector.isMediaNotification(complete))
+    }
+
+    @Test
+    fun `filtering needs the preference`() {
+        val media = notification(category = "transport")
+
+        assertFalse(MediaNotificationDetector.shouldFilterMediaNotification(media, MediaNotificationDetector.MediaFilterPreferences()))
+        assertTrue(MediaNotificationDetector.shouldFilterMediaNotification(media, MediaNotificationDetector.MediaFilterPreferences(true)))
+    }
+}
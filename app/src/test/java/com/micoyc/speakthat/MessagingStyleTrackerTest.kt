@@ -0,0 +1,92 @@
+package com.micoyc.speakthat
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class MessagingStyleTrackerTest {
+
+    private val tracker = MessagingStyleTracker()
+
+    private fun message(text: String, at: Long, sender: String? = "Alice", fromSelf: Boolean = false) =
+        MessagingStyleTracker.Message(sender, text, at, fromSelf)
+
+    @Test
+    fun `re-posted conversation yields only messages after the mark`() {
+        val first = listOf(message("hi", 100), message("are you there", 200))
+        assertEquals(first, tracker.peekNew("chat", first))
+        tracker.markHandled("chat", first)
+
+        val second = first + message("hello?", 300)
+        assertEquals(listOf(message("hello?", 300)), tracker.peekNew("chat", second))
+        tracker.markHandled("chat", second)
+        assertTrue(tracker.peekNew("chat", second).isEmpty())
+    }
+
+    @Test
+    fun `peeking leaves the mark until the messages are handled`() {
+        val first = listOf(message("hi", 100))
+        assertEquals(first, tracker.peekNew("chat", first))
+
+        // Held back, so the next update still carries it
+        val second = first + message("still there?", 200)
+        assertEquals(second, tracker.peekNew("chat", second))
+        tracker.markHandled("chat", second)
+        assertTrue(tracker.peekNew("chat", second).isEmpty())
+    }
+
+    @Test
+    fun `own replies advance the mark but are not read`() {
+        tracker.markHandled("chat", listOf(message("lunch?", 100)))
+        val withReply = listOf(message("lunch?", 100), message("sure", 200, sender = null, fromSelf = true))
+        assertTrue(tracker.peekNew("chat", withReply).isEmpty())
+        tracker.markHandled("chat", withReply)
+
+        val withAnswer = withReply + message("great", 300)
+        assertEquals(listOf(message("great", 300)), tracker.peekNew("chat", withAnswer))
+    }
+
+    @Test
+    fun `identical timestamps fall back to the message count`() {
+        tracker.markHandled("chat", listOf(message("a", 0), message("b", 0)))
+        val grown = listOf(message("a", 0), message("b", 0), message("c", 0))
+        assertEquals(listOf(message("c", 0)), tracker.peekNew("chat", grown))
+        tracker.markHandled("chat", grown)
+
+        tracker.onRemoved("chat")
+        assertEquals(listOf(message("d", 0)), tracker.peekNew("chat", listOf(message("d", 0))))
+    }
+
+    @Test
+    fun `first sight of a long history is capped`() {
+        val history = (1..12L).map { message("m$it", it) }
+        val taken = tracker.peekNew("chat", history)
+        assertEquals(MessagingStyleTracker.MAX_MESSAGES_PER_UPDATE, taken.size)
+        assertEquals("m12", taken.last().text)
+    }
+
+    @Test
+    fun `least recently updated keys are forgotten`() {
+        val small = MessagingStyleTracker(maxTrackedKeys = 2)
+        small.markHandled("a", listOf(message("a1", 1)))
+        small.markHandled("b", listOf(message("b1", 1)))
+        small.markHandled("c", listOf(message("c1", 1)))
+        assertEquals(1, small.peekNew("a", listOf(message("a1", 1))).size)
+        assertTrue(small.peekNew("c", listOf(message("c1", 1))).isEmpty())
+    }
+
+    @Test
+    fun `compose names group senders only when they change`() {
+        val messages = listOf(
+            message("hi", 1, sender = "Alice"),
+            message("how are you", 2, sender = "Alice"),
+            message("fine!", 3, sender = "Bob"),
+            message(" ", 4, sender = "Bob")
+        )
+        assertEquals(
+            "Alice: hi. how are you. Bob: fine!",
+            MessagingStyleTracker.compose(messages, isGroup = true)
+        )
+        assertEquals("hi. how are you. fine!", MessagingStyleTracker.compose(messages, isGroup = false))
+    }
+}
@@ -0,0 +1,184 @@
+package com.micoyc.speakthat
+
+import com.micoyc.speakthat.text.ContentBlockFilter
+import com.micoyc.speakthat.text.SpeechTemplateFormatter
+import com.micoyc.speakthat.text.TextStage
+
+/**
+ * Replays notification traces (see [NotificationTrace] and `src/test/resources/notification`)
+ * through the service's pipeline stages on a virtual clock, with a fake TTS engine.
+ *
+ * Each event goes through the stages in the service's order:
+ * - **Ingest**: group summaries are skipped, chat updates are cut down to their new messages with
+ *   [MessagingStyleTracker], and the readout text comes from [ParsedNotification.readoutText].
+ * - **Dedup**: [NotificationDeduplicator], on the virtual clock.
+ * - **Rules**: the app blacklist, then [Config.rules] standing in for the media, persistent and
+ *   Smart Rules checks that need a device.
+ * - **Filter**: [ContentBlockFilter], the speech template and [Config.contentCap].
+ *
+ * Readouts that pass are queued in a [SpeechScheduler] and "spoken" for [Config.msPerChar] per
+ * character. The report lists what was read and when, why everything else was dropped, and the
+ * real CPU time each stage took per event.
+ */
+class NotificationTraceReplay(private val config: Config = Config()) {
+
+    class Config(
+        val deduplication: Boolean = true,
+        val includeTimestamps: Boolean = false,
+        val blockedApps: Set<String> = emptySet(),
+        /** A drop reason for notifications the device-only checks would stop, or null. */
+        val rules: (ParsedNotification) -> String? = { null },
+        val contentFilter: ContentBlockFilter? = null,
+        val template: String = "{app} notified you: {content}",
+        val contentCap: TextStage = TextStage.IDENTITY,
+        val msPerChar: Long = 60L
+    )
+
+    companion object {
+        fun load(resource: String): List<NotificationTrace.Event> {
+            val stream = NotificationTraceReplay::class.java.classLoader!!.getResourceAsStream("notification/$resource")
+                ?: throw IllegalArgumentException("Missing trace $resource")
+            return stream.bufferedReader().use { NotificationTrace.read(it).events }
+        }
+    }
+
+    enum class Stage { INGEST, DEDUP, RULES, FILTER }
+
+    /** A readout the fake engine started speaking at [startedAt], [queuedMs] after it was queued. */
+    class Readout(val arrivedAt: Long, val startedAt: Long, val queuedMs: Long, val packageName: String, val text: String)
+
+    class Report(
+        val events: Int,
+        val readouts: List<Readout>,
+        /** Drop reason to count, in the order the reasons first occurred. */
+        val drops: Map<String, Int>,
+        private val stageSamples: Map<Stage, LongArray>
+    ) {
+        val dropped: Int get() = drops.values.sum()
+
+        /** The [percentile] (0-100) of the CPU time [stage] took per event that reached it. */
+        fun stageNanos(stage: Stage, percentile: Int): Long {
+            val samples = stageSamples.getValue(stage)
+            if (samples.isEmpty()) return 0L
+            val sorted = samples.sortedArray()
+            return sorted[((sorted.size - 1) * percentile) / 100]
+        }
+
+        fun stageCount(stage: Stage): Int = stageSamples.getValue(stage).size
+
+        override fun toString(): String {
+            val stages = Stage.values().joinToString(" ") { stage ->
+                "${stage.name.lowercase()}=${stageNanos(stage, 50) / 1000}/${stageNanos(stage, 99) / 1000}us"
+            }
+            return "events=$events readouts=${readouts.size} drops=$drops p50/p99 $stages"
+        }
+    }
+
+    private class Pending(val arrivedAt: Long, val packageName: String, val text: String)
+
+    private var now = 0L
+    private var speakingUntil = Long.MIN_VALUE
+    private val deduplicator = NotificationDeduplicator { now }
+    private val messagingStyleTracker = MessagingStyleTracker()
+    private val scheduler = SpeechScheduler<Pending>({ now })
+    private val readouts = ArrayList<Readout>()
+    private val drops = LinkedHashMap<String, Int>()
+    private val stageSamples = Stage.values().associateWith { ArrayList<Long>() }
+
+    init {
+        scheduler.dropListener = { items, reason -> drop("queue_${reason.name.lowercase()}", items.size) }
+    }
+
+    fun replay(events: List<NotificationTrace.Event>): Report {
+        for (event in events.sortedBy { it.arrivedAt }) {
+            speakUntil(event.arrivedAt)
+            now = maxOf(now, event.arrivedAt)
+            process(event)
+            speakUntil(now)
+        }
+        speakUntil(Long.MAX_VALUE)
+        return Report(
+            events.size,
+            readouts.toList(),
+            LinkedHashMap(drops),
+            stageSamples.mapValues { (_, samples) -> samples.toLongArray() }
+        )
+    }
+
+    private fun process(event: NotificationTrace.Event) {
+        val parsed = event.notification
+        var started = System.nanoTime()
+        fun endStage(stage: Stage) {
+            val ended = System.nanoTime()
+            stageSamples.getValue(stage).add(ended - started)
+            started = ended
+        }
+        fun dropAt(stage: Stage, reason: String) {
+            endStage(stage)
+            drop(reason, 1)
+        }
+
+        if (parsed.isGroupSummary) return dropAt(Stage.INGEST, "group_summary")
+        var text: String? = null
+        val conversation = if (parsed.isSelfTest) null else parsed.conversation
+        if (conversation != null) {
+            val conversationKey = parsed.key ?: "${parsed.packageName}:${parsed.id}"
+            val newMessages = messagingStyleTracker.peekNew(conversationKey, conversation.messages)
+            // Every replayed readout is settled at once, so the mark moves straight away
+            messagingStyleTracker.markHandled(conversationKey, conversation.messages)
+            if (newMessages.isEmpty()) return dropAt(Stage.INGEST, "no_new_messages")
+            val body = MessagingStyleTracker.compose(newMessages, conversation.isGroup)
+            val title = conversation.title.orEmpty()
+            if (body.isNotEmpty()) text = if (title.isEmpty()) body else "$title: $body"
+        }
+        val notificationText = text ?: parsed.readoutText()
+        endStage(Stage.INGEST)
+
+        if (config.deduplication && !parsed.isSelfTest) {
+            val verdict = deduplicator.check(
+                parsed.packageName, parsed.id, parsed.group, parsed.postTime, notificationText, config.includeTimestamps
+            ).verdict
+            if (verdict != NotificationDeduplicator.Verdict.NEW) return dropAt(Stage.DEDUP, verdict.name.lowercase())
+        }
+        endStage(Stage.DEDUP)
+
+        val ruleReason = if (parsed.packageName in config.blockedApps) "app_filter" else config.rules(parsed)
+        if (ruleReason != null) return dropAt(Stage.RULES, ruleReason)
+        endStage(Stage.RULES)
+
+        val blocks = mapOf(
+            "content" to notificationText,
+            "title" to parsed.title,
+            "text" to parsed.text,
+            "bigtext" to parsed.bigText,
+            "subtext" to parsed.subText
+        )
+        val filtered = when (val result = config.contentFilter?.process(blocks) ?: ContentBlockFilter.Result.Passed(blocks)) {
+            is ContentBlockFilter.Result.Passed -> result.blocks
+            is ContentBlockFilter.Result.Private -> mapOf("content" to "You received a private notification")
+            is ContentBlockFilter.Result.Blocked -> return dropAt(Stage.FILTER, "word_filter")
+        }
+        val values = filtered + mapOf("app" to parsed.packageName, "package" to parsed.packageName)
+        val speech = config.contentCap.apply(SpeechTemplateFormatter.format(config.template, SpeechTemplateFormatter.MapValues(values)))
+        endStage(Stage.FILTER)
+
+        scheduler.offer(parsed.key, null, SpeechScheduler.TIER_NORMAL, Pending(event.arrivedAt, parsed.packageName, speech))
+    }
+
+    private fun drop(reason: String, count: Int) {
+        drops[reason] = (drops[reason] ?: 0) + count
+    }
+
+    /** Lets the fake engine finish utterances and start queued readouts up to [time]. */
+    private fun speakUntil(time: Long) {
+        while (scheduler.isNotEmpty() && speakingUntil <= time) {
+            now = maxOf(now, speakingUntil)
+            val batch = scheduler.poll() ?: return
+            for (item in batch.items) {
+                readouts.add(Readout(item.arrivedAt, now, batch.waitedMs, item.packageName, item.text))
+            }
+            val characters = batch.items.sumOf { it.text.length }
+            speakingUntil = now + characters * config.msPerChar
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.micoyc.speakthat
+
+import com.micoyc.speakthat.NotificationTraceReplay.Stage
+import com.micoyc.speakthat.text.ContentBlockFilter
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.StringReader
+import java.io.StringWriter
+
+class NotificationTraceReplayTest {
+
+    private val mediaRule: (ParsedNotification) -> String? = { n ->
+        if (MediaNotificationDetector.isMediaNotification(n)) "media" else null
+    }
+
+    private fun event(at: Long, packageName: String, id: Int, text: String, group: String? = null, postTime: Long = at) =
+        NotificationTrace.Event(
+            at,
+            ParsedNotification(
+                packageName = packageName,
+                key = "0|$packageName|$id|null|10000",
+                id = id,
+                postTime = postTime,
+                title = "Title",
+                text = text,
+                group = group
+            )
+        )
+
+    @Test
+    fun `regrouped gmail children are not read again`() {
+        val report = NotificationTraceReplay().replay(NotificationTraceReplay.load("gmail_regroup.json"))
+
+        assertEquals(listOf("Alice Smith", "Bob Jones", "Carol White"), report.readouts.map { it.text.substringAfter(": ").substringBefore(':') })
+        assertEquals(mapOf("group_summary" to 3, "group_child_repost" to 2), report.drops)
+    }
+
+    @Test
+    fun `without deduplication every regrouped child is read again`() {
+        val report = NotificationTraceReplay(NotificationTraceReplay.Config(deduplication = false))
+            .replay(NotificationTraceReplay.load("gmail_regroup.json"))
+
+        assertEquals(5, report.readouts.size)
+        assertEquals(mapOf("group_summary" to 3), report.drops)
+    }
+
+    @Test
+    fun `chat updates are read as their new messages and queue behind the current readout`() {
+        val config = NotificationTraceReplay.Config(
+            rules = mediaRule,
+            contentFilter = ContentBlockFilter(emptyList(), listOf("sale"), "blacklist", emptyList(), null),
+            template = "{content}",
+            msPerChar = 100L
+        )
+        val report = NotificationTraceReplay(config).replay(NotificationTraceReplay.load("chat_and_media.json"))
+
+        assertEquals(listOf("Family: Dad: Dinner at 7", "Family: Mum: Bring bread"), report.readouts.map { it.text })
+        assertEquals(
+            mapOf("media" to 2, "no_new_messages" to 2, "group_summary" to 1, "word_filter" to 1),
+            report.drops
+        )
+        // The second message arrives while the first is still being spoken
+        val (first, second) = report.readouts
+        assertEquals(first.startedAt + first.text.length * config.msPerChar, second.startedAt)
+        assertEquals(second.startedAt - second.arrivedAt, second.queuedMs)
+    }
+
+    @Test
+    fun `an app re-posting the same text every second is read once per dedup window`() {
+        val trace = (0 until 60).map { event(it * 1000L, "com.example.rides", 4, "Your driver is 2 minutes away") }
+
+        val report = NotificationTraceReplay().replay(trace)
+
+        assertEquals(listOf(0L, NotificationDeduplicator.DEDUPLICATION_WINDOW_MS), report.readouts.map { it.arrivedAt })
+        assertEquals(mapOf("duplicate" to 58), report.drops)
+    }
+
+    @Test
+    fun `identical group children with a newer post time are read when timestamps are included`() {
+        val trace = listOf(
+            event(0L, "com.example.chat", 1, "Are you there?", group = "chat"),
+            event(600_000L, "com.example.chat", 2, "Are you there?", group = "chat")
+        )
+
+        val without = NotificationTraceReplay().replay(trace)
+        val with = NotificationTraceReplay(NotificationTraceReplay.Config(includeTimestamps = true)).replay(trace)
+
+        assertEquals(mapOf("group_child_repost" to 1), without.drops)
+        assertEquals(2, with.readouts.size)
+    }
+
+    @Test
+    fun `a redacted trace replays like the original`() {
+        val events = NotificationTraceReplay.load("chat_and_media.json") + NotificationTraceReplay.load("gmail_regroup.json")
+            .map { NotificationTrace.Event(it.arrivedAt + 10_000L, it.notification) }
+        val out = StringWriter()
+        NotificationTrace.write(events, out, redact = true)
+        val json = out.toString()
+
+        for (secret in listOf("Alice", "Dinner", "sam@example.com", "Invoice", "gig:inbox")) {
+            assertFalse("$secret leaked", json.contains(secret))
+        }
+        val redacted = NotificationTrace.read(StringReader(json))
+        assertTrue(redacted.redacted)
+        assertEquals(events.size, redacted.events.size)
+
+        val original = NotificationTraceReplay(NotificationTraceReplay.Config(rules = mediaRule)).replay(events)
+        val replayed = NotificationTraceReplay(NotificationTraceReplay.Config(rules = mediaRule)).replay(redacted.events)
+        assertEquals(original.drops, replayed.drops)
+        assertEquals(original.readouts.map { it.arrivedAt }, replayed.readouts.map { it.arrivedAt })
+    }
+
+    @Test
+    fun `a long mixed trace accounts for every notification`() {
+        // 50 apps, a notification every 200 ms, and every fourth one a repeat of the app's last text
+        val trace = (0 until 10_000).map { i ->
+            val app = i % 50
+            val message = if (i % 4 == 3) i - 50 else i
+            event(i * 200L, "com.example.app$app", i, "Message $message from app $app with some body text")
+        }
+
+        val report = NotificationTraceReplay().replay(trace)
+
+        assertEquals(trace.size, report.readouts.size + report.dropped)
+        assertTrue(report.drops.getValue("content_duplicate") > 0)
+        assertTrue(report.drops.getValue("queue_evicted") > 0)
+        assertEquals(trace.size, report.stageCount(Stage.INGEST))
+        for (stage in Stage.values()) {
+            assertTrue("$stage p50 ${report.stageNanos(stage, 50)}ns", report.stageNanos(stage, 50) < 1_000_000L)
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.micoyc.speakthat
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class PagedHistoryBufferTest {
+
+    private data class Entry(val id: Long, val text: String)
+
+    private val buffer = PagedHistoryBuffer<Entry>(5) { it.id }
+
+    private fun addAll(ids: LongRange) {
+        for (id in ids) buffer.add(Entry(id, if (id % 2 == 0L) "even $id" else "odd $id"))
+    }
+
+    private fun List<Entry>.ids() = map { it.id }
+
+    @Test
+    fun `the oldest entries drop off once full`() {
+        addAll(1L..8L)
+        assertEquals(5, buffer.size)
+        assertEquals(listOf(4L, 5L, 6L, 7L, 8L), buffer.oldestFirst().ids())
+    }
+
+    @Test
+    fun `pages walk backwards from the newest entry`() {
+        addAll(1L..5L)
+        assertEquals(listOf(5L, 4L), buffer.newest(2).ids())
+        assertEquals(listOf(3L, 2L), buffer.page(4L, 2).ids())
+        assertEquals(listOf(1L), buffer.page(2L, 2).ids())
+        assertEquals(emptyList<Long>(), buffer.page(1L, 2).ids())
+    }
+
+    @Test
+    fun `filters apply before the page limit`() {
+        addAll(1L..5L)
+        assertEquals(listOf(4L, 2L), buffer.newest(5) { it.text.startsWith("even") }.ids())
+        assertEquals(listOf(3L, 1L), buffer.page(4L, 2) { it.text.startsWith("odd") }.ids())
+    }
+
+    @Test
+    fun `entries after an id come oldest first`() {
+        addAll(1L..8L)
+        assertEquals(listOf(7L, 8L), buffer.after(6L).ids())
+        assertEquals(listOf(4L, 5L, 6L, 7L, 8L), buffer.after(0L).ids())
+        assertEquals(listOf(6L, 8L), buffer.after(5L) { it.text.startsWith("even") }.ids())
+        assertEquals(emptyList<Long>(), buffer.after(8L).ids())
+    }
+
+    @Test
+    fun `find only sees entries still held`() {
+        addAll(1L..8L)
+        assertEquals("even 6", buffer.find(6L)?.text)
+        assertNull(buffer.find(2L))
+        assertNull(buffer.find(9L))
+    }
+
+    @Test
+    fun `listeners are pushed each entry until removed`() {
+        val pushed = mutableListOf<Long>()
+        val listener = PagedHistoryBuffer.Listener<Entry> { entry ->
+            // The entry is already readable when the listener runs
+            assertEquals(entry, buffer.find(entry.id))
+            pushed.add(entry.id)
+        }
+        buffer.addListener(listener)
+        addAll(1L..2L)
+        buffer.removeListener(listener)
+        addAll(3L..3L)
+        assertEquals(listOf(1L, 2L), pushed)
+    }
+
+    @Test
+    fun `clear empties the buffer`() {
+        addAll(1L..3L)
+        buffer.clear()
+        assertEquals(0, buffer.size)
+        addAll(4L..4L)
+        assertEquals(listOf(4L), buffer.oldestFirst().ids())
+    }
+}
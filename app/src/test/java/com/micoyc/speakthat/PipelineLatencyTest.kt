@@ -0,0 +1,86 @@
+package com.micoyc.speakthat
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import kotlin.concurrent.thread
+
+class PipelineLatencyTest {
+
+    @Test
+    fun `empty histogram reports zero`() {
+        val histogram = PipelineLatency.Histogram()
+
+        assertEquals(0L, histogram.count())
+        assertEquals(0L, histogram.percentileMicros(99.0))
+    }
+
+    @Test
+    fun `small values are exact`() {
+        val histogram = PipelineLatency.Histogram()
+        listOf(1L, 2L, 3L, 4L, 5L).forEach { histogram.record(it) }
+
+        assertEquals(3L, histogram.percentileMicros(50.0))
+        assertEquals(5L, histogram.percentileMicros(99.0))
+    }
+
+    @Test
+    fun `percentiles are within an eighth of the true value`() {
+        val histogram = PipelineLatency.Histogram()
+        for (micros in 1L..100_000L) histogram.record(micros)
+
+        for ((percentile, expected) in listOf(50.0 to 50_000L, 95.0 to 95_000L, 99.0 to 99_000L)) {
+            val reported = histogram.percentileMicros(percentile)
+            assertTrue("p$percentile $reported", reported >= expected && reported <= expected + expected / 8)
+        }
+        assertEquals(100_000L, histogram.maxMicros())
+        assertEquals(100_000L, histogram.percentileMicros(100.0))
+    }
+
+    @Test
+    fun `percentiles never exceed the largest value seen`() {
+        val histogram = PipelineLatency.Histogram()
+        histogram.record(1_000L)
+
+        assertEquals(1_000L, histogram.percentileMicros(50.0))
+    }
+
+    @Test
+    fun `values past the last bucket and negative values are still counted`() {
+        val histogram = PipelineLatency.Histogram()
+        histogram.record(Long.MAX_VALUE / 2)
+        histogram.record(-5L)
+
+        assertEquals(2L, histogram.count())
+        assertEquals(0L, histogram.percentileMicros(50.0))
+        assertEquals(Long.MAX_VALUE / 2, histogram.percentileMicros(100.0))
+    }
+
+    @Test
+    fun `concurrent recording loses no samples`() {
+        val histogram = PipelineLatency.Histogram()
+        val threads = (1..4).map { t ->
+            thread { for (i in 0 until 50_000) histogram.record((i % 1_000L) * t) }
+        }
+        threads.forEach { it.join() }
+
+        assertEquals(200_000L, histogram.count())
+        assertEquals(999L * 4, histogram.maxMicros())
+    }
+
+    @Test
+    fun `stages are recorded separately and reset together`() {
+        PipelineLatency.reset()
+        PipelineLatency.recordMillis(PipelineLatency.Stage.QUEUE_WAIT, 1_500L)
+        PipelineLatency.recordSince(PipelineLatency.Stage.DEDUP, System.nanoTime())
+
+        assertEquals(1L, PipelineLatency.histogram(PipelineLatency.Stage.QUEUE_WAIT).count())
+        assertEquals(1_500_000L, PipelineLatency.histogram(PipelineLatency.Stage.QUEUE_WAIT).maxMicros())
+        assertEquals(1L, PipelineLatency.histogram(PipelineLatency.Stage.DEDUP).count())
+        assertEquals(0L, PipelineLatency.histogram(PipelineLatency.Stage.RULES).count())
+        assertEquals(2, PipelineLatency.summary().lines().size)
+
+        PipelineLatency.reset()
+        assertEquals("", PipelineLatency.summary())
+    }
+}
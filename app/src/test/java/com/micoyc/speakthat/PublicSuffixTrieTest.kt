@@ -0,0 +1,46 @@
+package com.micoyc.speakthat
+
+import android.app.Application
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+import java.io.File
+
+/** Decodes the public_suffix.trie written by the generatePublicSuffixTrie build task. */
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class, sdk = [34])
+class PublicSuffixTrieTest {
+
+    // Unit tests run from the module directory
+    private val rules = File("src/main/publicsuffix/public_suffix_list.dat").readLines()
+
+    private val generated = RuntimeEnvironment.getApplication().assets.open("public_suffix.trie").use {
+        PublicSuffixTrie.read(it)
+    }
+    private val inMemory = PublicSuffixTrie.fromRules(rules.asSequence())
+
+    @Test
+    fun `generated trie has the same nodes as fromRules`() {
+        assertEquals(inMemory.size, generated.size)
+    }
+
+    @Test
+    fun `generated trie finds the same registrable domains as fromRules`() {
+        var checked = 0
+        for (line in rules) {
+            val rule = line.trim().substringBefore(' ')
+            if (rule.isEmpty() || rule.startsWith("//")) continue
+            val suffix = rule.removePrefix("!").replace("*", "wild")
+            for (host in listOf(suffix, "example.$suffix", "a.b.example.$suffix", "News.Example.${suffix.uppercase()}")) {
+                assertEquals(host, inMemory.registrableDomain(host), generated.registrableDomain(host))
+            }
+            checked++
+        }
+        assertTrue(checked > 0)
+        assertEquals("bbc.co.uk", generated.registrableDomain("news.bbc.co.uk"))
+    }
+}
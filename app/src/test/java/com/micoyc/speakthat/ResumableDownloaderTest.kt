@@ -0,0 +1,170 @@
+package com.micoyc.speakthat
+
+import okhttp3.OkHttpClient
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import okhttp3.mockwebserver.SocketPolicy
+import okio.Buffer
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.io.IOException
+import java.security.MessageDigest
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+
+class ResumableDownloaderTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val server = MockWebServer()
+    private val client = OkHttpClient.Builder().readTimeout(5, TimeUnit.SECONDS).build()
+    private val apk = Random(42).nextBytes(1_000_000)
+    private val apkSha256 = sha256(apk)
+
+    /** Serves [apk] with Range support; requests listed in [dropAfterFirstHalf] are cut mid-body. */
+    private inner class ApkServer(
+        var etag: String = "\"v1\"",
+        val dropAfterFirstHalf: Set<Int> = emptySet()
+    ) : Dispatcher() {
+        var count = 0
+
+        override fun dispatch(request: RecordedRequest): MockResponse {
+            val number = count++
+            val range = request.getHeader("Range")
+            val ifRange = request.getHeader("If-Range")
+            val start = if (range != null && ifRange == etag) {
+                range.removePrefix("bytes=").removeSuffix("-").toInt()
+            } else {
+                0
+            }
+            val response = MockResponse()
+                .setHeader("ETag", etag)
+                .setBody(Buffer().write(apk, start, apk.size - start))
+            if (start > 0) {
+                response.setResponseCode(206)
+                response.setHeader("Content-Range", "bytes $start-${apk.size - 1}/${apk.size}")
+            }
+            if (number in dropAfterFirstHalf) {
+                response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY)
+            }
+            return response
+        }
+    }
+
+    @Before
+    fun setUp() {
+        server.start()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    private fun target() = File(folder.root, "update.apk")
+
+    private fun url() = server.url("/SpeakThat.apk").toString()
+
+    @Test
+    fun `downloads the whole file and hashes it while writing`() {
+        server.dispatcher = ApkServer()
+        val progress = mutableListOf<Int>()
+
+        // A clock that never moves, so only the byte threshold lets reports through
+        val downloader = ResumableDownloader(client, nowMs = { 0L })
+        val result = downloader.download(url(), target(), apkSha256) { progress.add(it) }
+
+        assertArrayEquals(apk, target().readBytes())
+        assertEquals(apkSha256, result.sha256)
+        assertEquals(0L, result.resumedFrom)
+        assertFalse(ResumableDownloader.partFileFor(target()).exists())
+        assertFalse(ResumableDownloader.etagFileFor(target()).exists())
+        // 1 MB reported on the first read, then no more often than every 256 KB
+        assertEquals(100, progress.last())
+        assertTrue("${progress.size} progress calls", progress.size <= 6)
+        assertEquals(progress.sorted(), progress)
+    }
+
+    @Test
+    fun `a dropped connection resumes with a range request`() {
+        server.dispatcher = ApkServer(dropAfterFirstHalf = setOf(0, 1))
+
+        val result = ResumableDownloader(client).download(url(), target(), apkSha256)
+
+        assertArrayEquals(apk, target().readBytes())
+        assertEquals(apkSha256, result.sha256)
+        assertEquals(3, result.attempts)
+        assertNull(server.takeRequest().getHeader("Range"))
+        val resumed = server.takeRequest()
+        assertTrue(resumed.getHeader("Range")!!.matches(Regex("bytes=[1-9][0-9]*-")))
+        assertEquals("\"v1\"", resumed.getHeader("If-Range"))
+    }
+
+    @Test
+    fun `a partial file from an earlier run is continued`() {
+        server.dispatcher = ApkServer()
+        val half = apk.size / 2
+        ResumableDownloader.partFileFor(target()).writeBytes(apk.copyOfRange(0, half))
+        ResumableDownloader.etagFileFor(target()).writeText("\"v1\"")
+
+        val result = ResumableDownloader(client).download(url(), target(), apkSha256)
+
+        assertArrayEquals(apk, target().readBytes())
+        assertEquals(half.toLong(), result.resumedFrom)
+        assertEquals("bytes=$half-", server.takeRequest().getHeader("Range"))
+    }
+
+    @Test
+    fun `a changed file on the server is downloaded again from the start`() {
+        server.dispatcher = ApkServer(etag = "\"v2\"")
+        ResumableDownloader.partFileFor(target()).writeBytes(ByteArray(4096) { 7 })
+        ResumableDownloader.etagFileFor(target()).writeText("\"v1\"")
+
+        val result = ResumableDownloader(client).download(url(), target(), apkSha256)
+
+        assertArrayEquals(apk, target().readBytes())
+        assertEquals(apkSha256, result.sha256)
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-Range"))
+    }
+
+    @Test
+    fun `a digest mismatch discards the download`() {
+        server.dispatcher = ApkServer()
+        try {
+            ResumableDownloader(client).download(url(), target(), "00".repeat(32))
+            fail("expected a digest mismatch")
+        } catch (e: IOException) {
+            assertTrue(e.message!!.contains("SHA-256"))
+        }
+        assertFalse(target().exists())
+        assertFalse(ResumableDownloader.partFileFor(target()).exists())
+    }
+
+    @Test
+    fun `missing files are not retried`() {
+        server.enqueue(MockResponse().setResponseCode(404))
+        try {
+            ResumableDownloader(client).download(url(), target())
+            fail("expected HTTP 404")
+        } catch (e: ResumableDownloader.HttpStatusException) {
+            assertEquals(404, e.code)
+        }
+        assertEquals(1, server.requestCount)
+    }
+
+    private fun sha256(bytes: ByteArray) =
+        MessageDigest.getInstance("SHA-256").digest(bytes).joinToString("") { "%02x".format(it) }
+}
@@ -0,0 +1,85 @@
+package com.micoyc.speakthat
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.io.FileOutputStream
+
+class RuntimeStateStoreTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private fun logFile(): File = File(folder.root, RuntimeStateStore.FILE_NAME)
+
+    @Test
+    fun `values survive reopening`() {
+        val store = RuntimeStateStore(logFile())
+        assertTrue(store.isNew)
+        store.putLong("cooldown.com.example", 1234L)
+        repeat(5) { store.increment("stats.notifications_read") }
+        store.putLong("stats.app_read.Example", 1L)
+        store.remove("stats.app_read.Example")
+        store.flush()
+
+        val reopened = RuntimeStateStore(logFile())
+        assertFalse(reopened.isNew)
+        assertNull(reopened.loadError)
+        assertEquals(1234L, reopened.getLong("cooldown.com.example"))
+        assertEquals(5L, reopened.getLong("stats.notifications_read"))
+        assertFalse(reopened.contains("stats.app_read.Example"))
+    }
+
+    @Test
+    fun `prefix helpers strip and remove by namespace`() {
+        val store = RuntimeStateStore(logFile())
+        store.increment("stats.filter_reason.dnd", 3L)
+        store.increment("stats.filter_reason.app_list")
+        store.putLong("cooldown.a", 9L)
+
+        assertEquals(mapOf("dnd" to 3L, "app_list" to 1L), store.entriesWithPrefix("stats.filter_reason."))
+        store.removePrefix("stats.")
+        store.flush()
+
+        val reopened = RuntimeStateStore(logFile())
+        assertTrue(reopened.entriesWithPrefix("stats.").isEmpty())
+        assertEquals(9L, reopened.getLong("cooldown.a"))
+    }
+
+    @Test
+    fun `torn tail is dropped and the log compacted`() {
+        val store = RuntimeStateStore(logFile())
+        store.putLong("kept", 42L)
+        store.flush()
+        FileOutputStream(logFile(), true).use { it.write(byteArrayOf(0, 0, 0, 20, 1, 0)) }
+
+        val recovered = RuntimeStateStore(logFile())
+        assertNotNull(recovered.loadError)
+        assertEquals(42L, recovered.getLong("kept"))
+
+        val clean = RuntimeStateStore(logFile())
+        assertNull(clean.loadError)
+        assertEquals(42L, clean.getLong("kept"))
+    }
+
+    @Test
+    fun `log stays bounded under churn`() {
+        val store = RuntimeStateStore(logFile())
+        repeat(5000) {
+            store.putLong("cooldown.app${it % 4}", it.toLong())
+            store.flush()
+        }
+        // 512 records of slack at most, each well under 64 bytes
+        assertTrue(logFile().length() < 64L * 600)
+
+        val reopened = RuntimeStateStore(logFile())
+        assertEquals(4999L, reopened.getLong("cooldown.app3"))
+        assertEquals(4996L, reopened.getLong("cooldown.app0"))
+    }
+}
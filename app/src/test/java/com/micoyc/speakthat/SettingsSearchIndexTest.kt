@@ -0,0 +1,114 @@
+package com.micoyc.speakthat
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class SettingsSearchIndexTest {
+
+    private val fixtures = listOf(
+        Triple("Dark Mode", "Switch between light and dark themes", "theme, night, appearance"),
+        Triple("Shake to Stop", "Shake your phone to stop reading", "gesture, motion, accelerometer"),
+        Triple("Wave to Stop", "Wave over the proximity sensor to stop", "gesture, proximity"),
+        Triple("Speech Rate", "How fast notifications are read aloud", "speed, tempo, tts"),
+        Triple("App Blacklist", "Apps that are never read", "block, filter, ignore"),
+        Triple("Auto-start on Boot", "Start the service when the phone boots", "startup, reboot"),
+        Triple("Notification History", "Recently read notifications", "log, past")
+    )
+
+    private val items = fixtures.mapIndexed { index, (title, _, _) ->
+        SettingsItem(
+            id = "item_$index",
+            titleRes = index,
+            descriptionRes = 100 + index,
+            category = if (index % 2 == 0) "even" else "odd",
+            categoryTitleRes = 0,
+            categoryIconRes = 0,
+            settingType = SettingType.SWITCH,
+            navigationAction = { _, _ -> }
+        ).also { check(title.isNotEmpty()) }
+    }
+
+    private val index = SettingsSearchIndex(
+        items.mapIndexed { i, item ->
+            val (title, description, keywords) = fixtures[i]
+            SettingsSearchIndex.Document(item, title, description, keywords.split(','))
+        }
+    )
+
+    @Test
+    fun `title substring ranks as tier one`() {
+        val results = index.search("  MODE ")
+        assertEquals("item_0", results.first().item.id)
+        assertEquals(1, results.first().tier)
+    }
+
+    @Test
+    fun `mid word and multi word queries match`() {
+        assertEquals(listOf("item_1", "item_2"), index.search("to stop").map { it.item.id })
+        assertEquals(listOf("item_0"), index.search("ark mo").map { it.item.id })
+    }
+
+    @Test
+    fun `keyword contained in query ranks as tier two`() {
+        val results = index.search("reduce speed please")
+        assertEquals(listOf("item_3"), results.map { it.item.id })
+        assertEquals(2, results.single().tier)
+    }
+
+    @Test
+    fun `single typo ranks as tier three`() {
+        val results = index.search("shaek")
+        assertTrue(results.isEmpty())
+        val typo = index.search("blacklsit")
+        assertTrue(typo.isEmpty())
+        val substitution = index.search("histary")
+        assertEquals(listOf("item_6"), substitution.map { it.item.id })
+        assertEquals(3, substitution.single().tier)
+    }
+
+    @Test
+    fun `matches brute force ranking for every fragment`() {
+        val queries = LinkedHashSet<String>()
+        for ((title, description, keywords) in fixtures) {
+            for (text in listOf(title, description, keywords)) {
+                val lower = text.lowercase()
+                for (start in lower.indices) {
+                    for (end in start + 1..minOf(lower.length, start + 6)) queries.add(lower.substring(start, end))
+                }
+                for (word in lower.split(' ', ',')) {
+                    if (word.length > 1) {
+                        queries.add(word.drop(1))
+                        queries.add(word.dropLast(1) + "x")
+                        queries.add(word + "s")
+                    }
+                }
+            }
+        }
+        for (query in queries) {
+            assertEquals("query '$query'", bruteForce(query), index.search(query).map { it.item.id to it.tier })
+        }
+    }
+
+    /** The pre-index scan, kept as the reference for the tier rules. */
+    private fun bruteForce(query: String): List<Pair<String, Int>> {
+        val needle = query.trim().lowercase()
+        if (needle.isEmpty()) return emptyList()
+        return items.mapIndexedNotNull { i, item ->
+            val (rawTitle, rawDescription, rawKeywords) = fixtures[i]
+            val title = rawTitle.lowercase()
+            val description = rawDescription.lowercase()
+            val keywords = rawKeywords.split(',').map { it.trim().lowercase() }.filter { it.isNotEmpty() }
+            val titleWords = title.split(Regex("\\s+")).filter { it.isNotEmpty() }
+            val tier = when {
+                title.contains(needle) -> 1
+                description.contains(needle) -> 2
+                keywords.any { it.contains(needle) || needle.contains(it) } -> 2
+                titleWords.any { SettingsSearchEngine.levenshtein(needle, it) == 1 } -> 3
+                keywords.any { SettingsSearchEngine.levenshtein(needle, it) == 1 } -> 3
+                else -> return@mapIndexedNotNull null
+            }
+            Triple(item.id, tier, title)
+        }.sortedWith(compareBy({ it.second }, { it.third })).map { it.first to it.second }
+    }
+}
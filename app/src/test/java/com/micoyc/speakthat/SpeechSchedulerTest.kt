@@ -0,0 +1,99 @@
+package com.micoyc.speakthat
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class SpeechSchedulerTest {
+
+    private var now = 0L
+    private val dropped = mutableListOf<Pair<List<String>, SpeechScheduler.DropReason>>()
+
+    private fun scheduler(capacity: Int = 10, maxBatch: Int = 3) =
+        SpeechScheduler<String>({ now }, capacity = capacity, maxBatch = maxBatch).also {
+            it.dropListener = { items, reason -> dropped.add(items to reason) }
+        }
+
+    private fun SpeechScheduler<String>.drain(): List<List<String>> =
+        generateSequence { poll() }.map { it.items }.toList()
+
+    @Test
+    fun `priority tier is served before older normal readouts`() {
+        val scheduler = scheduler()
+        scheduler.offer("a", null, SpeechScheduler.TIER_NORMAL, "a")
+        now += 10
+        scheduler.offer("b", null, SpeechScheduler.TIER_NORMAL, "b")
+        scheduler.offer("p", null, SpeechScheduler.TIER_PRIORITY, "p")
+
+        assertEquals(listOf(listOf("p"), listOf("a"), listOf("b")), scheduler.drain())
+        assertTrue(scheduler.isEmpty())
+    }
+
+    @Test
+    fun `update replaces the pending item at its original position`() {
+        val scheduler = scheduler()
+        scheduler.offer("a", null, SpeechScheduler.TIER_NORMAL, "a v1")
+        scheduler.offer("b", null, SpeechScheduler.TIER_NORMAL, "b v1")
+
+        assertEquals(SpeechScheduler.Offer.REPLACED, scheduler.offer("a", null, SpeechScheduler.TIER_NORMAL, "a v2"))
+        assertEquals(listOf(listOf("a v2"), listOf("b v1")), scheduler.drain())
+    }
+
+    @Test
+    fun `items from one app coalesce up to the batch limit`() {
+        val scheduler = scheduler(maxBatch = 3)
+        for (i in 1..4) scheduler.offer("chat$i", "com.chat", SpeechScheduler.TIER_NORMAL, "m$i")
+        scheduler.offer("mail", "com.mail", SpeechScheduler.TIER_NORMAL, "mail")
+        scheduler.offer("chat5", "com.chat", SpeechScheduler.TIER_NORMAL, "m5")
+
+        assertEquals(3, scheduler.size)
+        assertEquals(listOf(listOf("m1", "m2", "m3"), listOf("m4", "m5"), listOf("mail")), scheduler.drain())
+    }
+
+    @Test
+    fun `removal by key drops one item and empty readouts`() {
+        val scheduler = scheduler()
+        scheduler.offer("chat1", "com.chat", SpeechScheduler.TIER_NORMAL, "m1")
+        scheduler.offer("chat2", "com.chat", SpeechScheduler.TIER_NORMAL, "m2")
+        scheduler.offer("mail", "com.mail", SpeechScheduler.TIER_NORMAL, "mail")
+
+        assertEquals("m1", scheduler.removeByKey("chat1"))
+        assertEquals("mail", scheduler.removeByKey("mail"))
+        assertNull(scheduler.removeByKey("mail"))
+        assertEquals(1, scheduler.size)
+        assertEquals(listOf(listOf("m2")), scheduler.drain())
+    }
+
+    @Test
+    fun `stale readouts expire and full queues evict the oldest normal readout`() {
+        val scheduler = scheduler(capacity = 2)
+        scheduler.maxAgeMs = 1_000
+        scheduler.offer("old", null, SpeechScheduler.TIER_NORMAL, "old")
+        now += 2_000
+        scheduler.offer("p", null, SpeechScheduler.TIER_PRIORITY, "p")
+        scheduler.offer("new", null, SpeechScheduler.TIER_NORMAL, "new")
+
+        assertEquals(listOf(listOf("old") to SpeechScheduler.DropReason.EVICTED), dropped)
+        scheduler.offer("late", null, SpeechScheduler.TIER_NORMAL, "late")
+        now += 1_500
+        assertNull(scheduler.poll())
+        assertEquals(4, dropped.size)
+        assertTrue(scheduler.isEmpty())
+    }
+
+    @Test
+    fun `a full queue of priority readouts rejects a normal readout instead of evicting one`() {
+        val scheduler = scheduler(capacity = 2)
+        scheduler.offer("p1", null, SpeechScheduler.TIER_PRIORITY, "p1")
+        scheduler.offer("p2", null, SpeechScheduler.TIER_PRIORITY, "p2")
+
+        assertEquals(SpeechScheduler.Offer.REJECTED, scheduler.offer("n", null, SpeechScheduler.TIER_NORMAL, "n"))
+        assertEquals(listOf(listOf("n") to SpeechScheduler.DropReason.REJECTED), dropped)
+
+        // Another priority readout still makes room by dropping the oldest priority one
+        assertEquals(SpeechScheduler.Offer.ADDED, scheduler.offer("p3", null, SpeechScheduler.TIER_PRIORITY, "p3"))
+        assertEquals(listOf("p1") to SpeechScheduler.DropReason.EVICTED, dropped.last())
+        assertEquals(listOf(listOf("p2"), listOf("p3")), scheduler.drain())
+    }
+}
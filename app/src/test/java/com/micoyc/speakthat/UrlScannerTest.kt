@@ -0,0 +1,112 @@
+package com.micoyc.speakthat
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class UrlScannerTest {
+
+    private val suffixes = PublicSuffixTrie.fromRules(
+        """
+        // comment lines and blank lines are ignored
+
+        com
+        uk
+        co.uk
+        *.ck
+        !www.ck
+        github.io
+        """.trimIndent().lineSequence()
+    )
+
+    private fun urls(text: String) = UrlScanner.findAll(text).map { text.substring(it.start, it.end) }
+
+    private fun hosts(text: String) = UrlScanner.findAll(text).map { text.substring(it.hostStart, it.hostEnd) }
+
+    @Test
+    fun `finds scheme, www and bare host urls`() {
+        val text = "Visit https://www.speakthat.app/help, then news.bbc.co.uk. Or www.youtube.com/watch?v=x"
+        assertEquals(
+            listOf("https://www.speakthat.app/help", "news.bbc.co.uk", "www.youtube.com/watch?v=x"),
+            urls(text)
+        )
+        assertEquals(listOf("www.speakthat.app", "news.bbc.co.uk", "www.youtube.com"), hosts(text))
+    }
+
+    @Test
+    fun `numbers, versions and names are not urls`() {
+        assertTrue(urls("Pay 3.14 now. Mr.Smith arrives at 10.30, v2.0.1 out. done.Next").isEmpty())
+    }
+
+    @Test
+    fun `trailing punctuation and unbalanced brackets are left out`() {
+        assertEquals(listOf("example.com/a"), urls("(see example.com/a)."))
+        assertEquals(
+            listOf("https://en.wikipedia.org/wiki/Foo_(bar)"),
+            urls("https://en.wikipedia.org/wiki/Foo_(bar)).")
+        )
+    }
+
+    @Test
+    fun `addresses keep their kind`() {
+        val matches = UrlScanner.findAll("localhost:3000 192.168.1.1:8080/x [2001:db8::1]:9000/logs 999.1.1.1 localhost")
+        assertEquals(
+            listOf(UrlScanner.HostKind.LOCALHOST, UrlScanner.HostKind.IPV4, UrlScanner.HostKind.IPV6),
+            matches.map { it.kind }
+        )
+        assertEquals(
+            listOf("localhost:3000", "192.168.1.1:8080/x", "[2001:db8::1]:9000/logs"),
+            urls("localhost:3000 192.168.1.1:8080/x [2001:db8::1]:9000/logs")
+        )
+    }
+
+    @Test
+    fun `replace rewrites urls and returns text without urls unchanged`() {
+        val plain = "lol ok. see you at 7. bring snacks"
+        assertSame(plain, UrlScanner.replace(plain) { _, _ -> "link" })
+
+        val text = "Go to HTTPS://Shop.Example.co.uk/cart now"
+        assertEquals("Go to [Shop.Example.co.uk] now", UrlScanner.replace(text) { _, match ->
+            "[" + text.substring(match.hostStart, match.hostEnd) + "]"
+        })
+    }
+
+    @Test
+    fun `long texts are scanned in full`() {
+        val text = "word ".repeat(5000) + "https://example.com/end"
+        assertEquals(listOf("https://example.com/end"), urls(text))
+    }
+
+    @Test
+    fun `registrable domain follows public suffix rules`() {
+        assertEquals("bbc.co.uk", suffixes.registrableDomain("news.bbc.co.uk"))
+        assertEquals("Amazon.com", suffixes.registrableDomain("www.Amazon.com"))
+        assertEquals("user.github.io", suffixes.registrableDomain("user.github.io"))
+        assertEquals("github.io", suffixes.registrableDomain("github.io"))
+        assertEquals("b.example.ck", suffixes.registrableDomain("a.b.example.ck"))
+        assertEquals("www.ck", suffixes.registrableDomain("x.www.ck"))
+        assertEquals("speakthat.app", suffixes.registrableDomain("a.b.speakthat.app"))
+        assertEquals("uk", suffixes.registrableDomain("uk"))
+    }
+
+    @Test
+    fun `scanner matches the legacy regex on the notification corpus`() {
+        val legacy = Regex("""(?i)(?:https?://[^\s]+|www\.[^\s]+|(?:[a-zA-Z0-9](?:[a-zA-Z0-9-]{0,61}[a-zA-Z0-9])?\.(?:[a-zA-Z]{2,}|[0-9]+)|\[[0-9a-fA-F:]+\])(?::[0-9]+)?(?:/[^\s]*)?)""")
+        val corpus = UrlScannerTest::class.java.classLoader!!.getResourceAsStream("url/notification_corpus.txt")!!
+            .bufferedReader().use { reader -> reader.readLines().filterNot { it.isBlank() || it.startsWith("#") } }
+
+        var scannerUrls = 0
+        for (line in corpus) {
+            val found = UrlScanner.findAll(line)
+            scannerUrls += found.size
+            // Every URL the scanner reports starts where the regex also found one, except a bare
+            // localhost:port, which the regex never matched
+            val legacyStarts = legacy.findAll(line).map { it.range.first }.toSet()
+            found.filter { it.kind != UrlScanner.HostKind.LOCALHOST }.forEach {
+                assertTrue("${line.substring(it.start, it.end)} in: $line", it.start in legacyStarts)
+            }
+        }
+        assertTrue(scannerUrls > 0)
+    }
+}
@@ -0,0 +1,78 @@
+package com.micoyc.speakthat.gesture
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class GestureTraceReplayTest {
+
+    /** The trace replayed and produced one detection per labelled gesture. */
+    private fun assertDetections(name: String, report: SensorTraceReplay.Report, gestures: Int) {
+        assertTrue("$name has no samples", report.samples > 0)
+        assertEquals("$name gestures", gestures, report.onsets)
+        assertEquals("$name detections", gestures, report.detections.size)
+    }
+
+    @Test
+    fun `single shake is detected promptly`() {
+        val result = SensorTraceReplay.replayShake(SensorTraceReplay.load("shake_single.csv"), ShakeEvaluator(1, 12.0f))
+        assertDetections("shake_single", result, 1)
+        assertEquals(0, result.missed)
+        assertEquals(0, result.falsePositives)
+        assertTrue(result.maxLatencyMs <= 200L)
+    }
+
+    @Test
+    fun `double shake is detected within the multi shake window`() {
+        val result = SensorTraceReplay.replayShake(SensorTraceReplay.load("shake_double.csv"), ShakeEvaluator(2, 12.0f))
+        assertDetections("shake_double", result, 1)
+        assertEquals(0, result.missed)
+        assertEquals(0, result.falsePositives)
+        assertTrue(result.maxLatencyMs <= ShakeEvaluator.MULTI_SHAKE_WINDOW_MS)
+    }
+
+    @Test
+    fun `walking and table taps do not trigger shake`() {
+        for (trace in listOf("walking.csv", "table_tap.csv")) {
+            val result = SensorTraceReplay.replayShake(SensorTraceReplay.load(trace), ShakeEvaluator(1, 12.0f))
+            assertDetections(trace, result, 0)
+            assertEquals(0, result.falsePositives)
+        }
+    }
+
+    @Test
+    fun `single wave fires after the hold duration`() {
+        val result = SensorTraceReplay.replayWave(SensorTraceReplay.load("wave_single.csv"), WaveEvaluator(1, 150L, false))
+        assertDetections("wave_single", result, 1)
+        assertEquals(0, result.missed)
+        assertEquals(0, result.falsePositives)
+        assertEquals(150L, result.maxLatencyMs)
+    }
+
+    @Test
+    fun `double wave is detected on the second cover`() {
+        val result = SensorTraceReplay.replayWave(SensorTraceReplay.load("wave_double.csv"), WaveEvaluator(2, 150L, false))
+        assertDetections("wave_double", result, 1)
+        assertEquals(0, result.missed)
+        assertEquals(0, result.falsePositives)
+        assertTrue(result.maxLatencyMs <= WaveEvaluator.MULTI_WAVE_WINDOW_MS)
+    }
+
+    @Test
+    fun `brief sensor brushes shorter than the hold are ignored`() {
+        val result = SensorTraceReplay.replayWave(SensorTraceReplay.load("wave_brush.csv"), WaveEvaluator(1, 150L, false))
+        assertDetections("wave_brush", result, 0)
+        assertEquals(0, result.falsePositives)
+    }
+
+    @Test
+    fun `pocket mode ignores a sensor covered from readout start`() {
+        val result = SensorTraceReplay.replayWave(
+            SensorTraceReplay.load("pocket.csv"),
+            WaveEvaluator(1, 150L, true),
+            pocketMode = true
+        )
+        assertDetections("pocket", result, 0)
+        assertEquals(0, result.falsePositives)
+    }
+}
@@ -0,0 +1,112 @@
+package com.micoyc.speakthat.gesture
+
+/**
+ * Replays recorded sensor traces (see `src/test/resources/gesture`) through the gesture evaluators.
+ *
+ * Trace lines are `A,<t_ms>,<x>,<y>,<z>` for accelerometer samples, `P,<t_ms>,<near 0|1>` for
+ * proximity changes and `G,<t_ms>` for the annotated onset of a real gesture. Detection latency is
+ * measured from each onset to the first detection after it; detections with no preceding onset
+ * are counted as false positives.
+ */
+object SensorTraceReplay {
+
+    /** A detection is attributed to an onset only if it happens within this window. */
+    const val ATTRIBUTION_WINDOW_MS = 2000L
+
+    data class Sample(val type: Char, val timeMs: Long, val values: FloatArray)
+
+    data class Report(
+        val samples: Int,
+        val onsets: Int,
+        val detections: List<Long>,
+        val latenciesMs: List<Long>,
+        val falsePositives: Int
+    ) {
+        val missed: Int get() = onsets - latenciesMs.size
+        val maxLatencyMs: Long get() = latenciesMs.maxOrNull() ?: 0L
+    }
+
+    fun load(resource: String): List<Sample> {
+        val stream = SensorTraceReplay::class.java.classLoader!!.getResourceAsStream("gesture/$resource")
+            ?: throw IllegalArgumentException("Missing trace $resource")
+        return stream.bufferedReader().useLines { lines ->
+            lines.map { it.trim() }
+                .filter { it.isNotEmpty() && !it.startsWith("#") }
+                .map { line ->
+                    val parts = line.split(',')
+                    val values = FloatArray(parts.size - 2) { parts[it + 2].toFloat() }
+                    Sample(parts[0][0], parts[1].toLong(), values)
+                }
+                .toList()
+        }
+    }
+
+    fun replayShake(trace: List<Sample>, evaluator: ShakeEvaluator): Report {
+        evaluator.reset()
+        val detections = ArrayList<Long>()
+        for (sample in trace) {
+            if (sample.type != 'A') continue
+            val v = sample.values
+            if (evaluator.evaluate(v[0], v[1], v[2], sample.timeMs) == ShakeEvaluator.RESULT_TARGET_REACHED) {
+                detections.add(sample.timeMs)
+            }
+        }
+        return score(trace, detections)
+    }
+
+    /**
+     * Wave replay mirrors the service: a [WaveEvaluator.RESULT_HOLD_SCHEDULED] result fires after
+     * the hold only if the sensor is still covered and pocket mode is not blocking.
+     */
+    fun replayWave(trace: List<Sample>, evaluator: WaveEvaluator, pocketMode: Boolean = false): Report {
+        evaluator.reset()
+        evaluator.setPocketModeEnabled(pocketMode)
+        val start = trace.firstOrNull()?.timeMs ?: 0L
+        evaluator.prepareForSpeechSession(start, pocketMode, 0L, false, 0L)
+        val detections = ArrayList<Long>()
+        var pendingHoldAt = -1L
+
+        fun firePendingHold(upTo: Long) {
+            if (pendingHoldAt in 0..upTo) {
+                if (evaluator.isSensorCurrentlyCovered() && !evaluator.isPocketModeBlocking()) {
+                    detections.add(pendingHoldAt)
+                }
+                pendingHoldAt = -1L
+            }
+        }
+
+        for (sample in trace) {
+            if (sample.type != 'P') continue
+            firePendingHold(sample.timeMs)
+            when (evaluator.evaluate(sample.values[0] > 0f, true, sample.timeMs)) {
+                WaveEvaluator.RESULT_TARGET_REACHED -> detections.add(sample.timeMs)
+                WaveEvaluator.RESULT_HOLD_SCHEDULED -> if (pendingHoldAt < 0) {
+                    pendingHoldAt = sample.timeMs + evaluator.holdDurationMs
+                }
+                WaveEvaluator.RESULT_HOLD_CANCELLED -> pendingHoldAt = -1L
+            }
+        }
+        firePendingHold(Long.MAX_VALUE)
+        return score(trace, detections)
+    }
+
+    private fun score(trace: List<Sample>, detections: List<Long>): Report {
+        val onsets = trace.filter { it.type == 'G' }.map { it.timeMs }
+        val latencies = ArrayList<Long>()
+        val attributed = HashSet<Long>()
+        for (onset in onsets) {
+            val hit = detections.firstOrNull { it >= onset && it - onset <= ATTRIBUTION_WINDOW_MS && it !in attributed }
+            if (hit != null) {
+                attributed.add(hit)
+                latencies.add(hit - onset)
+            }
+        }
+        return Report(
+            samples = trace.count { it.type != 'G' },
+            onsets = onsets.size,
+            detections = detections,
+            latenciesMs = latencies,
+            falsePositives = detections.count { it !in attributed }
+        )
+    }
+}
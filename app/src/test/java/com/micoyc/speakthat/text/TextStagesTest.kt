@@ -0,0 +1,158 @@
+package com.micoyc.speakthat.text
+
+import com.micoyc.speakthat.text.ContentBlockFilter.Result
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.security.MessageDigest
+import kotlin.random.Random
+
+class TextStagesTest {
+
+    private val samples = listOf(
+        "Hey, are we still on for 7? 🍕",
+        "  Your ORDER #4821 has  shipped!\tTrack it at https://track.example.co.uk/abc  ",
+        "İstanbul'dan selamlar — ŞİMDİ indirim",
+        "Straße closed; use the STRASSE detour.",
+        "ﬁnal notice: invoice\n\noverdue",
+        ""
+    )
+
+    @Test
+    fun `word matching agrees with case-insensitive contains`() {
+        val random = Random(7)
+        val alphabet = "abcABCıİßsSẞ ﬁ"
+        repeat(2000) {
+            val text = String(CharArray(random.nextInt(0, 12)) { alphabet[random.nextInt(alphabet.length)] })
+            val words = List(random.nextInt(1, 6)) {
+                String(CharArray(random.nextInt(0, 4)) { alphabet[random.nextInt(alphabet.length)] })
+            }
+            val expected = words.firstOrNull { text.contains(it, ignoreCase = true) }
+            val matcher = WordMatcher(words)
+            assertEquals("'$text' in $words", expected, matcher.firstMatch(text))
+            assertEquals(expected != null, matcher.matchesAny(text))
+        }
+    }
+
+    @Test
+    fun `the earliest word in the list wins`() {
+        val matcher = WordMatcher(listOf("sale", "flash", "on sale"))
+        assertEquals("sale", matcher.firstMatch("FLASH deal: everything on SALE"))
+        assertNull(matcher.firstMatch("nothing to see"))
+    }
+
+    @Test
+    fun `private words outrank the blacklist`() {
+        val filter = ContentBlockFilter(setOf("doctor"), setOf("promo"), "blacklist", emptyList(), null)
+        val result = filter.process(mapOf("title" to "Promo", "text" to "Your doctor called"))
+        assertEquals("doctor", (result as Result.Private).word)
+
+        val overridden = filter.process(mapOf("title" to "Promo", "text" to "Your doctor called"), checkPrivateWords = false)
+        assertEquals("promo", (overridden as Result.Blocked).word)
+        assertEquals("title", overridden.blockKey)
+    }
+
+    @Test
+    fun `whitelist needs a word in any block`() {
+        val filter = ContentBlockFilter(emptySet(), setOf("mum"), "whitelist", emptyList(), null)
+        assertTrue(filter.process(mapOf("title" to "Mum", "text" to "Dinner?")) is Result.Passed)
+        val blocked = filter.process(mapOf("title" to "Bank", "text" to "Statement ready"))
+        assertNull((blocked as Result.Blocked).word)
+    }
+
+    @Test
+    fun `word swaps then url handling shape each block`() {
+        val swapLog = mutableListOf<String>()
+        val filter = ContentBlockFilter(
+            privateWords = emptySet(),
+            filterWords = emptySet(),
+            wordListMode = "blacklist",
+            wordSwaps = listOf(ContentBlockFilter.WordSwap("brb", "be right back")),
+            urlStage = UrlHandlingStage("domain_only", "", registrableDomain = { it.substringAfter("www.") }),
+            listener = object : ContentBlockFilter.Listener {
+                override fun onWordSwapsApplied(blockKey: String, applied: List<String>, before: String, after: String) {
+                    applied.forEach { swapLog.add("$blockKey: $it") }
+                }
+            }
+        )
+        val result = filter.process(mapOf("text" to "BRB, see https://www.speakthat.app/docs")) as Result.Passed
+        assertEquals("be right back, see speakthat.app", result.blocks["text"])
+        assertEquals(listOf("text: 'brb' -> 'be right back'"), swapLog)
+    }
+
+    @Test
+    fun `dont_read replaces urls with the replacement text`() {
+        val stage = UrlHandlingStage("dont_read", "a link", registrableDomain = { it })
+        assertEquals("Open a link now", stage.apply("Open http://192.168.1.1:8080/admin now"))
+        assertEquals("Open http://x.io now", UrlHandlingStage("read_full", "", { it }).apply("Open http://x.io now"))
+    }
+
+    @Test
+    fun `word cap matches the regex split it replaced`() {
+        val cap = ContentCap()
+        val texts = samples + listOf(" leading", "trailing ", "a  b\t\tc\nd", "one")
+        for (text in texts) {
+            for (count in 1..6) {
+                val words = text.split("\\s+".toRegex())
+                val expected = if (words.size <= count) text else words.take(count).joinToString(" ")
+                assertEquals("'$text' capped to $count", expected, cap.capWords(text, count))
+            }
+        }
+    }
+
+    @Test
+    fun `sentence cap keeps whole sentences`() {
+        val cap = ContentCap(java.util.Locale.US)
+        val text = "First one. Second one! Third one?"
+        assertEquals("First one.", cap.apply(text, "sentences", 0, 1))
+        assertEquals("First one. Second one!", cap.apply(text, "sentences", 0, 2))
+        assertEquals(text, cap.apply(text, "sentences", 0, 3))
+        assertEquals(text, cap.apply(text, "time", 1, 1))
+    }
+
+    @Test
+    fun `templates fill known placeholders once`() {
+        val values = SpeechTemplateFormatter.MapValues(
+            mapOf("app" to "Signal", "content" to "Use {app} braces", "title" to "")
+        )
+        assertEquals("Signal notified you: Use {app} braces", SpeechTemplateFormatter.format("{app} notified you: {content}", values))
+        assertEquals("{Signal {unknown} {", SpeechTemplateFormatter.format(" {{app} {unknown} {title}{ ", values))
+        assertEquals("plain", SpeechTemplateFormatter.format(" plain ", values))
+    }
+
+    @Test
+    fun `dedup keys are unchanged`() {
+        for (text in samples) {
+            assertEquals(legacyNotificationKey("com.whatsapp", 42, text), DedupKeys.notificationKey("com.whatsapp", 42, text))
+            assertEquals(legacyContentKey("com.whatsapp", text), DedupKeys.contentKey("com.whatsapp", text))
+            assertEquals(legacyDismissalHash("com.whatsapp", text), DedupKeys.dismissalContentHash("com.whatsapp", text))
+        }
+    }
+
+    // The implementations the service used before the keys moved to DedupKeys
+
+    private fun legacyNotificationKey(packageName: String, notificationId: Int, content: String): String {
+        val hash = MessageDigest.getInstance("SHA-256").digest(content.toByteArray())
+        return "${packageName}_${notificationId}_${hash.take(8).joinToString("") { "%02x".format(it) }}"
+    }
+
+    private fun legacyContentKey(packageName: String, content: String): String {
+        val normalized = content.trim().replace(Regex("\\s+"), " ").lowercase()
+        val hash = MessageDigest.getInstance("SHA-256").digest(normalized.toByteArray())
+        return "content_${packageName}_${hash.take(6).joinToString("") { "%02x".format(it) }}"
+    }
+
+    private fun legacyDismissalHash(packageName: String, content: String): Long {
+        val normalized = content.trim()
+            .replace(Regex("\\s+"), " ")
+            .lowercase()
+            .replace(Regex("[.,!?;:]"), "")
+            .trim()
+        val digest = MessageDigest.getInstance("SHA-256")
+        digest.update(packageName.toByteArray())
+        digest.update(0.toByte())
+        return ByteBuffer.wrap(digest.digest(normalized.toByteArray()), 0, 8).long
+    }
+}
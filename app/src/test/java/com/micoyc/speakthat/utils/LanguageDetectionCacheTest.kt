@@ -0,0 +1,84 @@
+package com.micoyc.speakthat.utils
+
+import com.micoyc.speakthat.utils.LanguageDetectionCache.Source
+import com.micoyc.speakthat.utils.LanguageDetectorUtil.LanguageDetectionDetails
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Test
+
+class LanguageDetectionCacheTest {
+
+    private var now = 0L
+    private val classified = mutableListOf<String>()
+
+    // Stands in for the platform classifier: French when the text says "bonjour", else unsure
+    private val cache = LanguageDetectionCache(
+        classify = { text ->
+            classified.add(text)
+            if ("bonjour" in text.lowercase()) {
+                LanguageDetectionDetails("fr", 0.95f, true, 1)
+            } else {
+                LanguageDetectionDetails("en", 0.4f, false, 2)
+            }
+        },
+        capacity = 2,
+        nowMs = { now }
+    )
+
+    private val french = "Bonjour, on se voit demain au café ?"
+
+    @Test
+    fun `scripts that name one language skip the classifier`() {
+        assertEquals("ko", cache.detect("안녕하세요 내일 봐요", "en_US", null).details.topLocaleTag)
+        assertEquals("ja", cache.detect("明日は雨が降るそうです", "en_US", null).details.topLocaleTag)
+        assertEquals("zh", cache.detect("明天下雨", "zh_CN", null).details.topLocaleTag)
+        assertEquals(Source.SCRIPT, cache.detect("Καλημέρα σε όλους", "en_US", null).source)
+        assertEquals(emptyList<String>(), classified)
+    }
+
+    @Test
+    fun `short texts stay in the global voice`() {
+        val detection = cache.detect("OK 👍", "en_US", "chat")
+        assertEquals(Source.TOO_SHORT, detection.source)
+        assertFalse(detection.details.acceptedForAutoDetect)
+        assertEquals(emptyList<String>(), classified)
+    }
+
+    @Test
+    fun `repeated texts are answered from the cache`() {
+        assertEquals(Source.CLASSIFIER, cache.detect(french, "en_US", null).source)
+        val again = cache.detect("  bonjour, ON se voit   demain au café ? ", "en_US", null)
+        assertEquals(Source.CACHE, again.source)
+        assertEquals("fr", again.details.topLocaleTag)
+        assertEquals(1, classified.size)
+    }
+
+    @Test
+    fun `the cache evicts the least recently used text`() {
+        cache.detect("first message that is long enough", "en_US", null)
+        cache.detect("second message that is long enough", "en_US", null)
+        cache.detect("first message that is long enough", "en_US", null)
+        cache.detect("third message that is long enough", "en_US", null)
+        cache.detect("first message that is long enough", "en_US", null)
+        cache.detect("second message that is long enough", "en_US", null)
+        assertEquals(4, classified.size)
+    }
+
+    @Test
+    fun `short replies keep their chat's language until it decays`() {
+        cache.detect(french, "en_US", "chat")
+
+        val reply = cache.detect("Oui, merci", "en_US", "chat")
+        assertEquals(Source.STICKY, reply.source)
+        assertEquals("fr", reply.details.topLocaleTag)
+        assertEquals(Source.TOO_SHORT, cache.detect("Oui, merci", "en_US", "other chat").source)
+
+        // Unsure classifications lean on the chat's language too
+        assertEquals("fr", cache.detect("Ça marche pour demain soir alors", "en_US", "chat").details.topLocaleTag)
+
+        now += LanguageDetectionCache.DEFAULT_STICKY_HALF_LIFE_MS / 2
+        assertEquals(Source.STICKY, cache.detect("Oui, merci", "en_US", "chat").source)
+        now += LanguageDetectionCache.DEFAULT_STICKY_HALF_LIFE_MS
+        assertEquals(Source.TOO_SHORT, cache.detect("Oui, merci", "en_US", "chat").source)
+    }
+}
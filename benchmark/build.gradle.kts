@@ -0,0 +1,45 @@
+plugins {
+    alias(libs.plugins.jetbrains.kotlin.jvm)
+    alias(libs.plugins.jmh)
+}
+
+// Benchmarks for the text-processing stages of the readout pipeline, run on a plain JVM:
+//   ./gradlew :benchmark:jmh
+// Results (ns/op, and bytes allocated per op as gc.alloc.rate.norm) are printed and written to
+// benchmark/build/results/jmh/results.json.
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+kotlin {
+    compilerOptions {
+        jvmTarget.set(org.jetbrains.kotlin.gradle.dsl.JvmTarget.JVM_17)
+    }
+
+    // The stages are compiled straight from the app's sources; only files free of Android types
+    // may be listed here
+    sourceSets.named("main") {
+        kotlin.srcDir("../app/src/main/java")
+        kotlin.include(
+            "com/micoyc/speakthat/text/**",
+            "com/micoyc/speakthat/UrlScanner.kt"
+        )
+    }
+}
+
+jmh {
+    benchmarkMode.set(listOf("avgt"))
+    timeUnit.set("ns")
+    fork.set(1)
+    warmupIterations.set(3)
+    warmup.set("1s")
+    iterations.set(5)
+    timeOnIteration.set("1s")
+    // The GC profiler reports allocations per operation
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+    // Narrow a run with -PjmhIncludes=WordMatcherBenchmark
+    project.findProperty("jmhIncludes")?.let { includes.set(listOf(it.toString())) }
+}
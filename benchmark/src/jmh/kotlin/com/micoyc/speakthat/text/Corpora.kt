@@ -0,0 +1,27 @@
+package com.micoyc.speakthat.text
+
+/**
+ * Sample notification texts for the benchmarks, from `src/jmh/resources/corpora`.
+ *
+ * Each corpus file holds samples separated by lines containing only `---`:
+ * - `short_chats`: one-line chat messages with the sender's name
+ * - `long_emails`: multi-paragraph emails as an email app's big text shows them
+ * - `emoji_heavy`: chat messages with emoji runs, ZWJ sequences, skin tones and flags
+ * - `url_heavy`: messages carrying one to four URLs of every form UrlScanner recognises
+ *
+ * `filter_words` is a 500-entry word list, one per line, of the spam-style words people block.
+ */
+object Corpora {
+    val NAMES = listOf("short_chats", "long_emails", "emoji_heavy", "url_heavy")
+
+    fun samples(name: String): List<String> =
+        read("$name.txt").split("\n---\n").map { it.trim() }.filter { it.isNotEmpty() }
+
+    fun filterWords(): List<String> = read("filter_words.txt").lines().filter { it.isNotBlank() }
+
+    private fun read(file: String): String {
+        val stream = Corpora::class.java.getResourceAsStream("/corpora/$file")
+            ?: throw IllegalStateException("Missing corpus $file")
+        return stream.bufferedReader().use { it.readText() }
+    }
+}
@@ -0,0 +1,120 @@
+package com.micoyc.speakthat.text
+
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.Locale
+
+/**
+ * Each stage of the readout text pipeline, one notification per operation, over each corpus.
+ *
+ * Samples are taken in turn, so an operation is the average cost for a notification of that kind.
+ * Settings mirror a heavy but realistic setup: a 500-word blacklist and private list that rarely
+ * match, a handful of word swaps, URLs read as domains, and a two-sentence Content Cap.
+ */
+@State(Scope.Thread)
+open class TextPipelineBenchmark {
+
+    @Param("short_chats", "long_emails", "emoji_heavy", "url_heavy")
+    var corpus: String = "short_chats"
+
+    private lateinit var samples: List<String>
+    private lateinit var blocks: List<Map<String, String>>
+    private lateinit var blacklist: ContentBlockFilter
+    private lateinit var whitelist: ContentBlockFilter
+    private lateinit var urlStage: UrlHandlingStage
+    private val contentCap = ContentCap(Locale.UK)
+    private var next = 0
+
+    @Setup
+    fun setUp() {
+        samples = Corpora.samples(corpus)
+        blocks = samples.map { sample ->
+            val title = sample.substringBefore(':')
+            val text = sample.substringAfter(':').trim()
+            mapOf("title" to title, "text" to text, "content" to "$title: $text")
+        }
+        val words = Corpora.filterWords()
+        urlStage = UrlHandlingStage("domain_only", "", ::lastTwoLabels)
+        val swaps = listOf(
+            ContentBlockFilter.WordSwap("brb", "be right back"),
+            ContentBlockFilter.WordSwap("lol", "laughing out loud"),
+            ContentBlockFilter.WordSwap("pls", "please"),
+            ContentBlockFilter.WordSwap("approx.", "approximately"),
+            ContentBlockFilter.WordSwap("i.e.", "that is"),
+            ContentBlockFilter.WordSwap("Dr.", "Doctor")
+        )
+        // Private words get the second half of the list so the two lists differ
+        blacklist = ContentBlockFilter(words.subList(250, 500), words, "blacklist", swaps, urlStage)
+        whitelist = ContentBlockFilter(emptyList(), words, "whitelist", swaps, urlStage)
+    }
+
+    private fun nextIndex(): Int {
+        val index = next
+        next = if (index + 1 == samples.size) 0 else index + 1
+        return index
+    }
+
+    @Benchmark
+    fun contentBlocksBlacklist(): Any = blacklist.process(blocks[nextIndex()])
+
+    @Benchmark
+    fun contentBlocksWhitelist(): Any = whitelist.process(blocks[nextIndex()])
+
+    @Benchmark
+    fun urlHandling(): String = urlStage.apply(samples[nextIndex()])
+
+    @Benchmark
+    fun speechTemplate(): String {
+        val values = blocks[nextIndex()]
+        return SpeechTemplateFormatter.format(TEMPLATE) { name ->
+            when (name) {
+                "app" -> "Messages"
+                "package" -> "com.example.messages"
+                "time" -> "14:05"
+                "date" -> "October 19"
+                else -> values[name] ?: ""
+            }
+        }
+    }
+
+    @Benchmark
+    fun contentCapWords(): String = contentCap.apply(samples[nextIndex()], "words", 30, 0)
+
+    @Benchmark
+    fun contentCapSentences(): String = contentCap.apply(samples[nextIndex()], "sentences", 0, 2)
+
+    @Benchmark
+    fun dedupKeys(): Long {
+        val text = samples[nextIndex()]
+        val notificationKey = DedupKeys.notificationKey("com.example.messages", 42, text)
+        val contentKey = DedupKeys.contentKey("com.example.messages", text)
+        return notificationKey.length + contentKey.length + DedupKeys.dismissalContentHash("com.example.messages", text)
+    }
+
+    /** Word stage, template and cap in the order the service runs them for a readout. */
+    @Benchmark
+    fun fullPipeline(): String {
+        val index = nextIndex()
+        val result = blacklist.process(blocks[index])
+        if (result !is ContentBlockFilter.Result.Passed) return ""
+        val compiled = SpeechTemplateFormatter.format(TEMPLATE, SpeechTemplateFormatter.MapValues(result.blocks + APP_VALUES))
+        DedupKeys.contentKey("com.example.messages", samples[index])
+        return contentCap.apply(compiled, "sentences", 0, 2)
+    }
+
+    private companion object {
+        const val TEMPLATE = "{app} notified you: {title}, {text}"
+        val APP_VALUES = mapOf("app" to "Messages", "package" to "com.example.messages")
+
+        /** Stands in for the Public Suffix List lookup, which needs the app's generated asset. */
+        fun lastTwoLabels(host: String): String {
+            val last = host.lastIndexOf('.')
+            if (last <= 0) return host
+            val secondLast = host.lastIndexOf('.', last - 1)
+            return if (secondLast < 0) host else host.substring(secondLast + 1)
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.micoyc.speakthat.text
+
+import com.micoyc.speakthat.UrlScanner
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+
+/**
+ * The hand-written URL scanner against the regex it replaced, finding every URL in one
+ * notification per operation, so the gap stays visible if either side changes.
+ */
+@State(Scope.Thread)
+open class UrlScannerBenchmark {
+
+    @Param("url_heavy", "long_emails")
+    var corpus: String = "url_heavy"
+
+    private lateinit var samples: List<String>
+    private var next = 0
+
+    @Setup
+    fun setUp() {
+        samples = Corpora.samples(corpus)
+    }
+
+    private fun nextSample(): String {
+        val sample = samples[next]
+        next = if (next + 1 == samples.size) 0 else next + 1
+        return sample
+    }
+
+    @Benchmark
+    fun scanner(): Int = UrlScanner.findAll(nextSample()).size
+
+    @Benchmark
+    fun legacyRegex(): Int = LEGACY_URL_PATTERN.findAll(nextSample()).count()
+
+    private companion object {
+        /** The URL_PATTERN NotificationReaderService used before the scanner. */
+        val LEGACY_URL_PATTERN = Regex(
+            """(?i)(?:https?://[^\s]+|www\.[^\s]+|(?:[a-zA-Z0-9](?:[a-zA-Z0-9-]{0,61}[a-zA-Z0-9])?\.(?:[a-zA-Z]{2,}|[0-9]+)|\[[0-9a-fA-F:]+\])(?::[0-9]+)?(?:/[^\s]*)?)"""
+        )
+    }
+}
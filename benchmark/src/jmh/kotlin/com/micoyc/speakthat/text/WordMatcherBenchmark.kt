@@ -0,0 +1,48 @@
+package com.micoyc.speakthat.text
+
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+
+/**
+ * The compiled 500-word matcher against the loop of `contains(word, ignoreCase = true)` calls it
+ * replaced, so the gap stays visible if either side changes.
+ */
+@State(Scope.Thread)
+open class WordMatcherBenchmark {
+
+    @Param("short_chats", "long_emails")
+    var corpus: String = "short_chats"
+
+    private lateinit var samples: List<String>
+    private lateinit var words: List<String>
+    private lateinit var matcher: WordMatcher
+    private var next = 0
+
+    @Setup
+    fun setUp() {
+        samples = Corpora.samples(corpus)
+        words = Corpora.filterWords()
+        matcher = WordMatcher(words)
+    }
+
+    private fun nextSample(): String {
+        val sample = samples[next]
+        next = if (next + 1 == samples.size) 0 else next + 1
+        return sample
+    }
+
+    @Benchmark
+    fun compiledMatcher(): String? = matcher.firstMatch(nextSample())
+
+    @Benchmark
+    fun containsLoop(): String? {
+        val text = nextSample()
+        for (word in words) {
+            if (text.contains(word, ignoreCase = true)) return word
+        }
+        return null
+    }
+}
@@ -2,5 +2,7 @@
 plugins {
     alias(libs.plugins.android.application) apply false
     alias(libs.plugins.jetbrains.kotlin.android) apply false
+    alias(libs.plugins.jetbrains.kotlin.jvm) apply false
+    alias(libs.plugins.jmh) apply false
     id("com.mikepenz.aboutlibraries.plugin") version "10.10.0" apply false
 } 
\ No newline at end of file
@@ -21,4 +21,5 @@ dependencyResolutionManagement {
 }
 
 rootProject.name = "SpeakThat"
-include(":app") 
\ No newline at end of file
+include(":app")
+include(":benchmark") 
\ No newline at end of file